@@ -1,10 +1,12 @@
 package com.conveyal.gtfs;
 
+import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.loader.Feed;
 import com.conveyal.gtfs.loader.FeedLoadResult;
 import com.conveyal.gtfs.loader.JdbcGtfsExporter;
 import com.conveyal.gtfs.loader.JdbcGtfsLoader;
 import com.conveyal.gtfs.loader.JdbcGtfsSnapshotter;
+import com.conveyal.gtfs.loader.NamespaceMetadata;
 import com.conveyal.gtfs.loader.SnapshotResult;
 import com.conveyal.gtfs.util.InvalidNamespaceException;
 import com.conveyal.gtfs.validator.FeedValidatorCreator;
@@ -29,6 +31,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
 
 import static com.conveyal.gtfs.util.Util.ensureValidNamespace;
 
@@ -72,6 +76,44 @@ public abstract class GTFS {
         return result;
     }
 
+    /**
+     * Load the GTFS data in the specified file into the given JDBC DataSource, loading up to maxParallelTables tables
+     * at once, each on its own connection from the DataSource.
+     */
+    public static FeedLoadResult load (String filePath, DataSource dataSource, int maxParallelTables) {
+        JdbcGtfsLoader loader = new JdbcGtfsLoader(filePath, dataSource, maxParallelTables);
+        FeedLoadResult result = loader.loadTables();
+        return result;
+    }
+
+    /**
+     * Load the GTFS data in the specified file into the given JDBC DataSource, loading up to maxParallelTables tables
+     * at once and converting the field values of each table on parseThreads worker threads.
+     */
+    public static FeedLoadResult load (String filePath, DataSource dataSource, int maxParallelTables, int parseThreads) {
+        JdbcGtfsLoader loader = new JdbcGtfsLoader(filePath, dataSource, maxParallelTables, parseThreads);
+        FeedLoadResult result = loader.loadTables();
+        return result;
+    }
+
+    /**
+     * Load the GTFS data in the specified file into the given JDBC DataSource, storing at most the given number of
+     * errors for each capped error type (all errors are still counted). The caps also apply when validating the feed.
+     */
+    public static FeedLoadResult load (
+        String filePath,
+        DataSource dataSource,
+        int maxParallelTables,
+        int parseThreads,
+        Map<NewGTFSErrorType, Integer> maxStoredErrorsByType
+    ) {
+        JdbcGtfsLoader loader = new JdbcGtfsLoader(
+            filePath, dataSource, maxParallelTables, parseThreads, maxStoredErrorsByType
+        );
+        FeedLoadResult result = loader.loadTables();
+        return result;
+    }
+
     /**
      * Copy all tables for a given feed ID (schema namespace) into a new namespace in the given JDBC DataSource.
      *
@@ -107,6 +149,19 @@ public abstract class GTFS {
         return result;
     }
 
+    /**
+     * Validate a loaded feed as above, running up to validationThreads validators at once.
+     */
+    public static ValidationResult validate (
+        String feedId,
+        DataSource dataSource,
+        int validationThreads,
+        FeedValidatorCreator... additionalValidators
+    ) {
+        Feed feed = new Feed(dataSource, feedId);
+        return feed.validate(validationThreads, additionalValidators);
+    }
+
     /**
      * Deletes all tables for the specified feed. Simply put, this is a "drop schema" SQL statement called on the feed's
      * namespace.
@@ -138,6 +193,7 @@ public abstract class GTFS {
             dropSchemaStatement.executeUpdate();
             // Commit the changes.
             connection.commit();
+            NamespaceMetadata.invalidate(feedId);
             LOG.info("Drop schema successful!");
         } catch (InvalidNamespaceException | SQLException e) {
             LOG.error(String.format("Could not drop feed for namespace %s", feedId), e);
@@ -245,7 +301,16 @@ public abstract class GTFS {
         FeedLoadResult loadResult = null;
         if (cmd.hasOption("load")) {
             String filePath = cmd.getOptionValue("load");
-            loadResult = load(filePath, dataSource);
+            int maxParallelTables = Integer.parseInt(cmd.getOptionValue("parallelTables", "1"));
+            int parseThreads = Integer.parseInt(cmd.getOptionValue("parseThreads", "1"));
+            Map<NewGTFSErrorType, Integer> maxStoredErrorsByType = new EnumMap<>(NewGTFSErrorType.class);
+            if (cmd.hasOption("maxErrorsPerType")) {
+                int maxErrorsPerType = Integer.parseInt(cmd.getOptionValue("maxErrorsPerType"));
+                for (NewGTFSErrorType errorType : NewGTFSErrorType.values()) {
+                    maxStoredErrorsByType.put(errorType, maxErrorsPerType);
+                }
+            }
+            loadResult = load(filePath, dataSource, maxParallelTables, parseThreads, maxStoredErrorsByType);
             if (storeResults) {
                 File loadResultFile = new File(directory, String.format("%s-load.json", loadResult.uniqueIdentifier));
                 LOG.info("Storing load result at {}", loadResultFile.getAbsolutePath());
@@ -265,7 +330,8 @@ public abstract class GTFS {
             }
             if (feedToValidate != null) {
                 LOG.info("Validating feed with unique identifier {}", feedToValidate);
-                ValidationResult validationResult = validate (feedToValidate, dataSource);
+                int validationThreads = Integer.parseInt(cmd.getOptionValue("validationThreads", "1"));
+                ValidationResult validationResult = validate (feedToValidate, dataSource, validationThreads);
                 if (storeResults) {
                     File validationResultFile = new File(directory, String.format("%s-validation.json", feedToValidate));
                     LOG.info("Storing validation result at {}", validationResultFile.getAbsolutePath());
@@ -350,10 +416,26 @@ public abstract class GTFS {
                 .longOpt("load").hasArg()
                 .argName("file")
                 .desc("load GTFS data from the given file").build());
+        options.addOption(Option.builder()
+                .longOpt("parallelTables").hasArg()
+                .argName("count")
+                .desc("maximum number of tables to load at once when loading GTFS data. Defaults to 1").build());
+        options.addOption(Option.builder()
+                .longOpt("parseThreads").hasArg()
+                .argName("count")
+                .desc("number of threads converting field values within each table when loading. Defaults to 1").build());
+        options.addOption(Option.builder()
+                .longOpt("maxErrorsPerType").hasArg()
+                .argName("count")
+                .desc("maximum number of errors of each type to store (all are counted). Defaults to no limit").build());
         options.addOption(Option.builder()
                 .longOpt("validate").hasArg().optionalArg(true)
                 .argName("namespace")
                 .desc("validate the specified feed. defaults to the feed loaded with the --load option").build());
+        options.addOption(Option.builder()
+                .longOpt("validationThreads").hasArg()
+                .argName("count")
+                .desc("maximum number of validators to run at once. Defaults to 1").build());
         options.addOption(Option.builder()
                 .longOpt("snapshot").hasArg()
                 .argName("namespace")
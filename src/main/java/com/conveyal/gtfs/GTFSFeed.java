@@ -1,13 +1,21 @@
 package com.conveyal.gtfs;
 
+import com.conveyal.gtfs.error.DuplicateKeyError;
 import com.conveyal.gtfs.error.GTFSError;
 import com.conveyal.gtfs.loader.FeedLoadResult;
 import com.conveyal.gtfs.loader.JdbcGTFSFeedConverter;
 import com.conveyal.gtfs.model.*;
 import com.conveyal.gtfs.model.Calendar;
+import com.conveyal.gtfs.storage.BulkTreeMapLoader;
+import com.conveyal.gtfs.storage.ColumnarStopTimes;
+import com.conveyal.gtfs.storage.CompactShapes;
+import com.conveyal.gtfs.storage.StopSpatialIndex;
 import com.conveyal.gtfs.validator.Validator;
 import com.conveyal.gtfs.util.Util;
 import com.conveyal.gtfs.validator.service.GeoUtils;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.*;
 import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.ExecutionError;
@@ -32,8 +40,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -52,6 +64,9 @@ public class GTFSFeed implements Cloneable, Closeable {
 
     private DB db;
 
+    /* The file backing the MapDB, or null for a feed in a temporary file. */
+    private final File dbFile;
+
     public String feedId = null;
 
     // TODO make all of these Maps MapDBs so the entire GTFSFeed is persistent and uses constant memory
@@ -68,15 +83,27 @@ public class GTFSFeed implements Cloneable, Closeable {
     public final Map<String, Translation> translations;
     public final Map<String, Attribution> attributions;
 
-    public final Set<String> transitIds = new HashSet<>();
+    public final Set<String> transitIds = ConcurrentHashMap.newKeySet();
     /** CRC32 of the GTFS file this was loaded from */
     public long checksum;
 
-    /* Map from 2-tuples of (shape_id, shape_pt_sequence) to shape points */
-    public final ConcurrentNavigableMap<Tuple2<String, Integer>, ShapePoint> shape_points;
+    /* Map from 2-tuples of (shape_id, shape_pt_sequence) to shape points. Replaced when bulk loaded. */
+    public ConcurrentNavigableMap<Tuple2<String, Integer>, ShapePoint> shape_points;
+
+    /* Map from 2-tuples of (trip_id, stop_sequence) to stoptimes. Replaced when bulk loaded. */
+    public BTreeMap<Tuple2, StopTime> stop_times;
+
+    /* Optional columnar copy of stop_times, see useColumnarStopTimes(). */
+    private volatile ColumnarStopTimes columnarStopTimes;
+
+    /* Optional compact copy of shape_points, see useCompactShapes(). */
+    private volatile CompactShapes compactShapes;
 
-    /* Map from 2-tuples of (trip_id, stop_sequence) to stoptimes. */
-    public final BTreeMap<Tuple2, StopTime> stop_times;
+    /** The default maximum total number of points in the shapes held by the shape cache, see getShape(). */
+    public static final long DEFAULT_MAX_CACHED_SHAPE_POINTS = 1_000_000;
+
+    /* Recently used shapes, weighed by their number of points. Shapes that do not exist are cached as empty shapes. */
+    private volatile LoadingCache<String, Shape> shapeCache = buildShapeCache(DEFAULT_MAX_CACHED_SHAPE_POINTS);
 
     /* A fare is a fare_attribute and all fare_rules that reference that fare_attribute. */
     public final Map<String, Fare> fares;
@@ -90,6 +117,12 @@ public class GTFSFeed implements Cloneable, Closeable {
     /* Stops spatial index which gets built lazily by getSpatialIndex() */
     private transient STRtree spatialIndex;
 
+    /* Persistent stops spatial index, see getStopSpatialIndex(). */
+    private volatile StopSpatialIndex stopSpatialIndex;
+
+    /* Files holding indexes or copies of tables of a feed in a temporary database, which are deleted on close(). */
+    private final Set<File> tempFiles = ConcurrentHashMap.newKeySet();
+
     /* Convex hull of feed (based on stops) built lazily by getConvexHull() */
     private transient Polygon convexHull;
 
@@ -118,10 +151,34 @@ public class GTFSFeed implements Cloneable, Closeable {
      * referential integrity while the files are being loaded. This is done on the fly during loading because it allows
      * us to associate a line number with errors in objects that don't have any other clear identifier.
      *
-     * Interestingly, all references are resolvable when tables are loaded in alphabetical order.
+     * Interestingly, all references are resolvable when tables are loaded in alphabetical order, except for the
+     * trip references in transfers.
      */
     public void loadFromFile(ZipFile zip, String fid) throws Exception {
+        loadFromFile(zip, fid, 1);
+    }
+
+    /**
+     * Load the feed using up to the given number of threads. With more than one thread, tables that do not reference
+     * each other are loaded at the same time, and stop_times and shapes are not inserted into their maps one by one
+     * but sorted and then bulk loaded (see {@link BulkTreeMapLoader}), which is much faster for large feeds and
+     * produces a more compact database. The resulting feed is the same either way.
+     */
+    public void loadFromFile(ZipFile zip, String fid, int loadThreads) throws Exception {
         if (this.loaded) throw new UnsupportedOperationException("Attempt to load GTFS into existing database");
+        if (columnarStopTimes != null) {
+            // Left over from an earlier feed in the same database file, and would not match the newly loaded stop times.
+            columnarStopTimes.close();
+            columnarStopTimes = null;
+            File columnsFile = getColumnarStopTimesFile();
+            if (columnsFile != null) columnsFile.delete();
+        }
+        if (compactShapes != null) {
+            compactShapes.close();
+            compactShapes = null;
+            File shapesFile = getCompactShapesFile();
+            if (shapesFile != null) shapesFile.delete();
+        }
 
         // NB we don't have a single CRC for the file, so we combine all the CRCs of the component files. NB we are not
         // simply summing the CRCs because CRCs are (I assume) uniformly randomly distributed throughout the width of a
@@ -169,14 +226,26 @@ public class GTFSFeed implements Cloneable, Closeable {
         this.fares.putAll(fares);
         fares = null; // free memory
 
-        new Pattern.Loader(this).loadTable(zip);
-        new Route.Loader(this).loadTable(zip);
-        new ShapePoint.Loader(this).loadTable(zip);
-        new Stop.Loader(this).loadTable(zip);
-        new Transfer.Loader(this).loadTable(zip);
-        new Trip.Loader(this).loadTable(zip);
-        new Frequency.Loader(this).loadTable(zip);
-        new StopTime.Loader(this).loadTable(zip); // comment out this line for quick testing using NL feed
+        if (loadThreads > 1) {
+            loadTablesInParallel(zip, loadThreads);
+        } else {
+            new Pattern.Loader(this).loadTable(zip);
+            new Route.Loader(this).loadTable(zip);
+            new ShapePoint.Loader(this).loadTable(zip);
+            new Stop.Loader(this).loadTable(zip);
+            new Trip.Loader(this).loadTable(zip);
+            new Transfer.Loader(this).loadTable(zip);
+            new Frequency.Loader(this).loadTable(zip);
+            new StopTime.Loader(this).loadTable(zip); // comment out this line for quick testing using NL feed
+        }
+        // A feed in a temporary database is usually loaded for one use, so its index is only built if it is needed.
+        if (dbFile != null) {
+            writeStopSpatialIndex();
+        } else if (stopSpatialIndex != null) {
+            // Built before the stops were loaded, so rebuild it on next use.
+            stopSpatialIndex.close();
+            stopSpatialIndex = null;
+        }
         LOG.info("{} errors", errors.size());
         for (GTFSError error : errors) {
             LOG.info("{}", error);
@@ -188,6 +257,60 @@ public class GTFSFeed implements Cloneable, Closeable {
         loadFromFile(zip, null);
     }
 
+    /**
+     * Load the tables after the small ones that are merged in memory (services and fares) in stages, each of which
+     * only references tables loaded in earlier stages. Nothing references shapes while loading, so they are loaded
+     * alongside all the stages.
+     */
+    private void loadTablesInParallel(ZipFile zip, int loadThreads) throws Exception {
+        BulkTreeMapLoader<Tuple2<String, Integer>, ShapePoint> shapePointLoader = new BulkTreeMapLoader<>(
+            db, "shape_points", s -> errors.add(new DuplicateKeyError("shapes", s.id, "shape_pt_sequence"))
+        );
+        BulkTreeMapLoader<Tuple2, StopTime> stopTimeLoader = new BulkTreeMapLoader<>(
+            db, "stop_times", st -> errors.add(new DuplicateKeyError("stop_times", st.id, "stop_sequence"))
+        );
+        ExecutorService executor = Executors.newFixedThreadPool(loadThreads);
+        try {
+            Future<?> shapes = submitLoad(executor, zip, new ShapePoint.Loader(this, shapePointLoader));
+            loadTables(executor, zip, new Pattern.Loader(this), new Route.Loader(this), new Stop.Loader(this));
+            loadTables(executor, zip, new Trip.Loader(this));
+            loadTables(executor, zip, new Transfer.Loader(this), new Frequency.Loader(this),
+                new StopTime.Loader(this, stopTimeLoader));
+            awaitLoad(shapes);
+            shape_points = shapePointLoader.finish();
+            stop_times = stopTimeLoader.finish();
+        } finally {
+            executor.shutdownNow();
+            // Only has an effect if loading failed before the bulk loads were finished.
+            shapePointLoader.abort();
+            stopTimeLoader.abort();
+        }
+    }
+
+    /** Load the given tables at the same time, returning when all of them have been loaded. */
+    private static void loadTables(ExecutorService executor, ZipFile zip, Entity.Loader<?>... loaders) throws Exception {
+        List<Future<?>> loads = new ArrayList<>();
+        for (Entity.Loader<?> loader : loaders) loads.add(submitLoad(executor, zip, loader));
+        for (Future<?> load : loads) awaitLoad(load);
+    }
+
+    private static Future<?> submitLoad(ExecutorService executor, ZipFile zip, Entity.Loader<?> loader) {
+        return executor.submit(() -> {
+            loader.loadTable(zip);
+            return null;
+        });
+    }
+
+    private static void awaitLoad(Future<?> load) throws Exception {
+        try {
+            load.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
     public FeedLoadResult toSQL (DataSource dataSource) {
         JdbcGTFSFeedConverter converter = new JdbcGTFSFeedConverter(this, dataSource);
         return converter.loadTables();
@@ -267,16 +390,20 @@ public class GTFSFeed implements Cloneable, Closeable {
      * supplied value if the parameter is non-null.
      */
     public static GTFSFeed fromFile(String file, String feedId) {
+        return fromFile(file, feedId, 1);
+    }
+
+    /**
+     * Static factory method returning a new instance of GTFSFeed containing the contents of
+     * the GTFS file at the supplied filesystem path, loaded using up to the given number of threads.
+     * Forces the feedId to the supplied value if the parameter is non-null.
+     */
+    public static GTFSFeed fromFile(String file, String feedId, int loadThreads) {
         GTFSFeed feed = new GTFSFeed();
         ZipFile zip;
         try {
             zip = new ZipFile(file);
-            if (feedId == null) {
-                feed.loadFromFile(zip);
-            }
-            else {
-                feed.loadFromFile(zip, feedId);
-            }
+            feed.loadFromFile(zip, feedId, loadThreads);
             zip.close();
             return feed;
         } catch (Exception e) {
@@ -293,11 +420,49 @@ public class GTFSFeed implements Cloneable, Closeable {
         return this.hasFeedInfo() ? this.feedInfo.values().iterator().next() : null;
     }
 
+    /**
+     * Build (or reopen) a columnar, memory-mapped copy of stop_times, which is then used to read stop times instead of
+     * the MapDB tree map. For file-backed feeds it is stored next to the database file and reopened automatically the
+     * next time the feed is opened. For feeds in a temporary file it is deleted when the feed is closed. This should only be called once the feed has been loaded: stop_times must not be
+     * modified afterward, because the columnar copy will not reflect the changes. Note that shape_dist_traveled values
+     * read from the copy only have float precision.
+     *
+     * @return the columnar stop times, which also allow iterating over all or a single trip's stop times without
+     * creating StopTime objects.
+     */
+    public synchronized ColumnarStopTimes useColumnarStopTimes () {
+        if (columnarStopTimes == null) {
+            try {
+                File columnsFile = getColumnarStopTimesFile();
+                if (columnsFile == null) columnsFile = createTempFile("stop_times", ".columns");
+                long startTime = System.currentTimeMillis();
+                columnarStopTimes = ColumnarStopTimes.write(stop_times.values(), stop_times.size(), columnsFile);
+                LOG.info("Wrote {} stop times to columns in {} ms.", columnarStopTimes.size(),
+                    System.currentTimeMillis() - startTime);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return columnarStopTimes;
+    }
+
+    /** @return the columnar copy of stop_times, or null if {@link #useColumnarStopTimes()} has not been called. */
+    public ColumnarStopTimes getColumnarStopTimes () {
+        return columnarStopTimes;
+    }
+
+    /** @return the file holding the columnar copy of stop_times, or null for a feed in a temporary file. */
+    private File getColumnarStopTimesFile () {
+        return dbFile == null ? null : new File(dbFile.getPath() + ".stop_times");
+    }
+
     /**
      * For the given trip ID, fetch all the stop times in order of increasing stop_sequence.
-     * This is an efficient iteration over a tree map.
+     * This is an efficient iteration over a tree map (or a slice of the columnar stop times, if enabled).
      */
     public Iterable<StopTime> getOrderedStopTimesForTrip (String trip_id) {
+        ColumnarStopTimes columns = columnarStopTimes;
+        if (columns != null) return columns.getStopTimesForTrip(trip_id);
         Map<Fun.Tuple2, StopTime> tripStopTimes =
                 stop_times.subMap(
                         Fun.t2(trip_id, null),
@@ -307,7 +472,69 @@ public class GTFSFeed implements Cloneable, Closeable {
     }
 
     /**
-     * TODO rename getStopSpatialIndex to make it clear what the index contains.
+     * Get the persistent spatial index of stops, which supports bounding box, radius and nearest neighbor queries. For
+     * file-backed feeds it is built when the feed is loaded, stored next to the database file and memory-mapped when
+     * the feed is reopened. It is built here on first use for feeds in a temporary file, and for feeds loaded before
+     * the index was introduced.
+     */
+    public StopSpatialIndex getStopSpatialIndex () {
+        StopSpatialIndex index = stopSpatialIndex;
+        if (index != null) return index;
+        synchronized (this) {
+            if (stopSpatialIndex == null) writeStopSpatialIndex();
+            return stopSpatialIndex;
+        }
+    }
+
+    /** (Re)build the persistent spatial index of stops from the stops map. */
+    private synchronized void writeStopSpatialIndex () {
+        try {
+            if (stopSpatialIndex != null) stopSpatialIndex.close();
+            File indexFile = getStopSpatialIndexFile();
+            if (indexFile == null) indexFile = createTempFile("stops", ".index");
+            stopSpatialIndex = StopSpatialIndex.write(stops.values(), indexFile);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Create a file for an index or copy of tables of a feed in a temporary database, which is deleted when the feed
+     * is closed.
+     */
+    private File createTempFile (String prefix, String suffix) throws IOException {
+        File file = File.createTempFile(prefix, suffix);
+        tempFiles.add(file);
+        return file;
+    }
+
+    /** @return the file holding the spatial index of stops, or null for a feed in a temporary file. */
+    private File getStopSpatialIndexFile () {
+        return dbFile == null ? null : new File(dbFile.getPath() + ".stops_index");
+    }
+
+    /**
+     * @return the stops within the given distance in meters of the given point, nearest first.
+     */
+    public List<Stop> getStopsWithinRadius (double lat, double lon, double radiusMeters) {
+        return getStopsForIds(getStopSpatialIndex().withinRadius(lat, lon, radiusMeters));
+    }
+
+    /**
+     * @return the (up to) k stops nearest to the given point, nearest first.
+     */
+    public List<Stop> getNearestStops (double lat, double lon, int k) {
+        return getStopsForIds(getStopSpatialIndex().nearest(lat, lon, k));
+    }
+
+    private List<Stop> getStopsForIds (List<String> stopIds) {
+        return stopIds.stream().map(stops::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Build an in-memory JTS index of stops. Like other JTS geometries in this library, its coordinates have
+     * longitude as x and latitude as y. For a persistent index that does not need to be rebuilt when the feed is
+     * reopened, see {@link #getStopSpatialIndex()}.
      */
     public STRtree getSpatialIndex () {
         if (this.spatialIndex == null) {
@@ -320,7 +547,7 @@ public class GTFSFeed implements Cloneable, Closeable {
                             if (Double.isNaN(stop.stop_lat) || Double.isNaN(stop.stop_lon)) {
                                 continue;
                             }
-                            Coordinate stopCoord = new Coordinate(stop.stop_lat, stop.stop_lon);
+                            Coordinate stopCoord = new Coordinate(stop.stop_lon, stop.stop_lat);
                             stopIndex.insert(new Envelope(stopCoord), stop);
                         } catch (Exception e) {
                             e.printStackTrace();
@@ -339,10 +566,71 @@ public class GTFSFeed implements Cloneable, Closeable {
         return this.spatialIndex;
     }
 
-    /** Get the shape for the given shape ID */
+    /**
+     * Get the shape for the given shape ID. Shapes are usually shared by many trips, so recently used shapes are
+     * cached (see {@link #setMaxCachedShapePoints(long)}). The cached shapes are not handed out: each call returns a
+     * copy, which callers may modify.
+     */
     public Shape getShape (String shape_id) {
-        Shape shape = new Shape(this, shape_id);
-        return shape.shape_dist_traveled.length > 0 ? shape : null;
+        Shape shape = shapeCache.getUnchecked(shape_id);
+        if (shape.shape_dist_traveled.length == 0) return null;
+        return new Shape((LineString) shape.geometry.copy(), shape.shape_dist_traveled.clone());
+    }
+
+    /**
+     * Set the maximum total number of points in the shapes held in memory by getShape(), discarding any cached shapes.
+     * Each point takes about 50 bytes. Zero disables the cache.
+     */
+    public void setMaxCachedShapePoints (long maxCachedShapePoints) {
+        shapeCache = buildShapeCache(maxCachedShapePoints);
+    }
+
+    private LoadingCache<String, Shape> buildShapeCache (long maxCachedShapePoints) {
+        return CacheBuilder.newBuilder()
+            .maximumWeight(maxCachedShapePoints)
+            .weigher((String shapeId, Shape shape) -> Math.max(1, shape.shape_dist_traveled.length))
+            .build(new CacheLoader<String, Shape>() {
+                @Override
+                public Shape load (String shapeId) {
+                    CompactShapes compact = compactShapes;
+                    Shape shape = compact != null ? compact.getShape(shapeId) : new Shape(GTFSFeed.this, shapeId);
+                    return shape != null ? shape : new Shape(gf.createLineString(new Coordinate[0]), new double[0]);
+                }
+            });
+    }
+
+    /**
+     * Build (or reopen) a compact, memory-mapped copy of shape_points, from which shapes are then decoded instead of
+     * from the MapDB tree map. For file-backed feeds it is stored next to the database file and reopened
+     * automatically the next time the feed is opened. For feeds in a temporary file it is deleted when the feed is
+     * closed. This should only be called once the feed has been loaded, and
+     * shape_points must not be modified afterward. Coordinates read from the copy are rounded to 1e-7 degrees.
+     */
+    public synchronized CompactShapes useCompactShapes () {
+        if (compactShapes == null) {
+            try {
+                File shapesFile = getCompactShapesFile();
+                if (shapesFile == null) shapesFile = createTempFile("shapes", ".compact");
+                long startTime = System.currentTimeMillis();
+                compactShapes = CompactShapes.write(shape_points.values(), shapesFile);
+                LOG.info("Wrote {} compact shapes in {} ms.", compactShapes.size(),
+                    System.currentTimeMillis() - startTime);
+                shapeCache.invalidateAll();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return compactShapes;
+    }
+
+    /** @return the compact copy of shape_points, or null if {@link #useCompactShapes()} has not been called. */
+    public CompactShapes getCompactShapes () {
+        return compactShapes;
+    }
+
+    /** @return the file holding the compact copy of shape_points, or null for a feed in a temporary file. */
+    private File getCompactShapesFile () {
+        return dbFile == null ? null : new File(dbFile.getPath() + ".shapes");
     }
 
     /**
@@ -511,6 +799,16 @@ public class GTFSFeed implements Cloneable, Closeable {
     /** Get trip speed in meters per second. */
     public double getTripSpeed (String trip_id, boolean straightLine) {
 
+        ColumnarStopTimes columns = columnarStopTimes;
+        if (columns != null) {
+            // Read the first departure and last arrival without creating any StopTimes.
+            int tripIndex = columns.getTripIndex(trip_id);
+            if (tripIndex < 0) return Double.NaN;
+            int time = columns.getArrivalTime(columns.getEndRow(tripIndex) - 1) -
+                columns.getDepartureTime(columns.getFirstRow(tripIndex));
+            return getTripDistance(trip_id, straightLine) / time;
+        }
+
         StopTime firstStopTime = this.stop_times.ceilingEntry(Fun.t2(trip_id, null)).getValue();
         StopTime lastStopTime = this.stop_times.floorEntry(Fun.t2(trip_id, Fun.HI)).getValue();
 
@@ -561,6 +859,34 @@ public class GTFSFeed implements Cloneable, Closeable {
 
     public void close () {
         db.close();
+        StopSpatialIndex index = stopSpatialIndex;
+        if (index != null) {
+            try {
+                index.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close stop spatial index.", e);
+            }
+        }
+        CompactShapes shapes = compactShapes;
+        if (shapes != null) {
+            try {
+                shapes.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close compact shapes.", e);
+            }
+        }
+        ColumnarStopTimes columns = columnarStopTimes;
+        if (columns != null) {
+            try {
+                columns.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close columnar stop times.", e);
+            }
+        }
+        for (File file : tempFiles) {
+            if (!file.delete()) LOG.warn("Could not delete temporary file {}.", file);
+        }
+        tempFiles.clear();
     }
 
     /** Thrown when we cannot interpolate stop times because the first or last stops do not have times */
@@ -578,12 +904,12 @@ public class GTFSFeed implements Cloneable, Closeable {
                 .deleteFilesAfterClose()
                 .compressionEnable()
                 // .cacheSize(1024 * 1024) this bloats memory consumption
-                .make()); // TODO db.close();
+                .make(), null); // TODO db.close();
     }
 
     /** Create a GTFS feed connected to a particular DB, which will be created if it does not exist. */
     public GTFSFeed (String dbFile) throws IOException, ExecutionException {
-        this(constructDB(dbFile)); // TODO db.close();
+        this(constructDB(dbFile), new File(dbFile)); // TODO db.close();
     }
 
     private static DB constructDB(String dbFile) {
@@ -604,8 +930,9 @@ public class GTFSFeed implements Cloneable, Closeable {
         }
     }
 
-    private GTFSFeed (DB db) {
+    private GTFSFeed (DB db, File dbFile) {
         this.db = db;
+        this.dbFile = dbFile;
 
         agency = db.getTreeMap("agency");
         feedInfo = db.getTreeMap("feed_info");
@@ -633,5 +960,31 @@ public class GTFSFeed implements Cloneable, Closeable {
         tripPatternMap = db.getTreeMap("patternForTrip");
 
         errors = db.getTreeSet("errors");
+
+        // Reopen the stop spatial index, compact shapes and columnar stop times if they were built for this feed.
+        File indexFile = getStopSpatialIndexFile();
+        if (indexFile != null && indexFile.exists()) {
+            try {
+                stopSpatialIndex = new StopSpatialIndex(indexFile);
+            } catch (IOException e) {
+                LOG.warn("Could not open stop spatial index, it will be rebuilt.", e);
+            }
+        }
+        File shapesFile = getCompactShapesFile();
+        if (shapesFile != null && shapesFile.exists()) {
+            try {
+                compactShapes = new CompactShapes(shapesFile);
+            } catch (IOException e) {
+                LOG.warn("Could not open compact shapes, reading shapes from MapDB instead.", e);
+            }
+        }
+        File columnsFile = getColumnarStopTimesFile();
+        if (columnsFile != null && columnsFile.exists()) {
+            try {
+                columnarStopTimes = new ColumnarStopTimes(columnsFile);
+            } catch (IOException e) {
+                LOG.warn("Could not open columnar stop times, reading stop times from MapDB instead.", e);
+            }
+        }
     }
 }
@@ -3,6 +3,7 @@ package com.conveyal.gtfs;
 import com.conveyal.gtfs.error.NewGTFSError;
 import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.Pattern;
 import com.conveyal.gtfs.model.Stop;
 import com.conveyal.gtfs.model.StopTime;
@@ -57,6 +58,30 @@ public class PatternFinder {
         tripsForPattern.put(key, trip);
     }
 
+    /**
+     * As {@link #processTrip(Trip, Iterable)}, but reading the stop times from the arrays used during validation.
+     */
+    public void processTrip(Trip trip, TripStopTimes stopTimes) {
+        if (++nTripsProcessed % 100000 == 0) {
+            LOG.info("trip {}", human(nTripsProcessed));
+        }
+        TripPatternKey key = new TripPatternKey(trip.route_id);
+        for (int i = 0; i < stopTimes.size; i++) {
+            key.addStopTime(stopTimes, i);
+        }
+        tripsForPattern.put(key, trip);
+    }
+
+    /**
+     * Add the trips processed by another PatternFinder, as if they had been processed by this one after the trips it
+     * has already seen. Patterns are numbered in the order they are first seen, so this keeps the pattern IDs the same
+     * as when all trips are processed by a single PatternFinder.
+     */
+    public void merge(PatternFinder other) {
+        tripsForPattern.putAll(other.tripsForPattern);
+        nTripsProcessed += other.nTripsProcessed;
+    }
+
     /**
      * Once all trips have been processed, call this method to produce the final Pattern objects representing all the
      * unique sequences of stops encountered. Returns map of patterns to their keys so that downstream functions can
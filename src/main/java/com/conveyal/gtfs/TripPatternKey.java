@@ -1,5 +1,6 @@
 package com.conveyal.gtfs;
 
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.StopTime;
 import gnu.trove.list.TDoubleList;
 import gnu.trove.list.TIntList;
@@ -36,17 +37,36 @@ public class TripPatternKey {
     }
 
     public void addStopTime (StopTime st) {
-        stops.add(st.stop_id);
-        pickupTypes.add(resolvePickupOrDropOffType(st.pickup_type));
-        dropoffTypes.add(resolvePickupOrDropOffType(st.drop_off_type));
+        addStopTime(
+            st.stop_id, st.pickup_type, st.drop_off_type, st.arrival_time, st.departure_time, st.timepoint,
+            st.stop_headsign, st.shape_dist_traveled, st.continuous_pickup, st.continuous_drop_off
+        );
+    }
+
+    /** Add the stop time at the given index of a trip's stop times, without creating a StopTime. */
+    public void addStopTime (TripStopTimes stopTimes, int i) {
+        addStopTime(
+            stopTimes.stopIds[i], stopTimes.pickupTypes[i], stopTimes.dropOffTypes[i], stopTimes.arrivalTimes[i],
+            stopTimes.departureTimes[i], stopTimes.timepoints[i], stopTimes.stopHeadsigns[i],
+            stopTimes.shapeDistTraveled[i], stopTimes.continuousPickups[i], stopTimes.continuousDropOffs[i]
+        );
+    }
+
+    private void addStopTime (
+        String stopId, int pickupType, int dropOffType, int arrivalTime, int departureTime, int timepoint,
+        String stopHeadsign, double shapeDistTraveled, int continuousPickup, int continuousDropOff
+    ) {
+        stops.add(stopId);
+        pickupTypes.add(resolvePickupOrDropOffType(pickupType));
+        dropoffTypes.add(resolvePickupOrDropOffType(dropOffType));
         // Note, the items listed below are not used in the equality check.
-        arrivalTimes.add(st.arrival_time);
-        departureTimes.add(st.departure_time);
-        timepoints.add(st.timepoint);
-        stopHeadsigns.add(st.stop_headsign);
-        shapeDistances.add(st.shape_dist_traveled);
-        continuous_pickup.add(st.continuous_pickup);
-        continuous_drop_off.add(st.continuous_drop_off);
+        arrivalTimes.add(arrivalTime);
+        departureTimes.add(departureTime);
+        timepoints.add(timepoint);
+        stopHeadsigns.add(stopHeadsign);
+        shapeDistances.add(shapeDistTraveled);
+        continuous_pickup.add(continuousPickup);
+        continuous_drop_off.add(continuousDropOff);
     }
 
     /**
@@ -3,17 +3,35 @@ package com.conveyal.gtfs.error;
 import com.conveyal.gtfs.storage.StorageException;
 import com.conveyal.gtfs.util.InvalidNamespaceException;
 import org.apache.commons.dbutils.DbUtils;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static com.conveyal.gtfs.loader.JdbcGtfsLoader.POSTGRES_NULL_TEXT;
 import static com.conveyal.gtfs.util.Util.ensureValidNamespace;
 
 /**
@@ -21,20 +39,33 @@ import static com.conveyal.gtfs.util.Util.ensureValidNamespace;
  * Currently there's only one implementation, which uses SQL tables.
  * We used to store the errors in plain old Lists, and could make an alternative implementation to do so.
  * We may need to in order to output JSON reports.
+ *
+ * Errors are not written on the calling thread. They are placed on a bounded queue and written in large batches by a
+ * background writer thread (using COPY on Postgres), so that feeds with millions of errors do not stall loading and
+ * validation. Error counts are kept in memory so that they can be read without a round trip to the database. Callers
+ * only block when the queue is full, or when flushing with {@link #commitAndClose()}.
+ *
+ * Broken feeds can produce millions of identical errors, so the number of errors stored for each error type may be
+ * capped. Errors beyond the cap are counted but not stored. The exact totals are kept in the error_counts table, along
+ * with the caps themselves so that they continue to apply when reconnecting for validation.
+ *
+ * The public methods are synchronized so that a single instance (and its single connection) can be shared by several
+ * threads, e.g. when loading GTFS tables in parallel.
  */
 public class SQLErrorStorage {
 
     private static final Logger LOG = LoggerFactory.getLogger(SQLErrorStorage.class);
 
-    // TODO Look into pooling prepared statements.
-
     // It is debatable whether we should be holding a single connection from a pool open.
     // Fetching a pooled connection might slow things down in sections where many thousands of errors are saved.
-    // By reusing the exact same connection as the GTFS table loader, we ensure that the newly created schema is
-    // visible to the connection when it creates the error tables, but we have to be careful where in the code we
-    // record errors.
+    // JdbcGtfsLoader and Feed (when reconnecting for validation) give the storage a dedicated connection, which only
+    // the writer thread uses after construction. The loader commits the newly created schema before opening that
+    // connection, so that the schema is visible to it when the error tables are created. JdbcGTFSFeedConverter still
+    // passes the connection it copies tables with, which is safe only because it records no errors while copying, and
+    // relies on commitAndClose() to commit those tables.
     private Connection connection;
 
+    // Used to write errors on databases other than Postgres, which do not support COPY.
     private PreparedStatement insertError;
     private PreparedStatement insertInfo;
 
@@ -43,98 +74,557 @@ public class SQLErrorStorage {
     private String tablePrefix;
 
     // This serves as a unique ID, so it must persist across multiple validator runs. It is, however, distinct from the
-    // count, which should only be determined with a SQL query.
+    // count. Only used by the writer thread once the storage has been constructed.
     private int errorId;
 
-    // How many errors to insert at a time in a batch, for efficiency.
-    private static final long INSERT_BATCH_SIZE = 500;
+    // Counts of all errors encountered, including those still waiting to be written and those not stored due to caps.
+    private int errorCount;
+    private final Map<NewGTFSErrorType, Integer> errorCountsByType = new EnumMap<>(NewGTFSErrorType.class);
+    private final Map<String, Integer> errorCountsByEntityType = new HashMap<>();
+    // Counts of the errors in the errors table (including those still waiting to be written), by type.
+    private final Map<NewGTFSErrorType, Integer> storedErrorCountsByType = new EnumMap<>(NewGTFSErrorType.class);
+    // The maximum number of errors to store for each capped error type. Not modified after construction.
+    private final Map<NewGTFSErrorType, Integer> maxStoredErrorsByType = new EnumMap<>(NewGTFSErrorType.class);
+
+    // How many errors may be waiting to be written before callers storing errors are blocked.
+    private static final int QUEUE_CAPACITY = 10_000;
+    // How many errors to write at a time in a batch, for efficiency.
+    private static final int WRITE_BATCH_SIZE = 5_000;
+
+    private final BlockingQueue<QueuedWrite> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+    private final boolean postgres;
+    // Set by the writer thread if writing fails, after which no further errors can be stored.
+    private volatile Exception writeFailure;
+
+    /**
+     * An item on the write queue: either an error to write, a request to remove stored errors, or a request to write
+     * and commit everything queued before it along with the error counts at that point (optionally stopping the writer
+     * thread afterward). A request without error counts instead rolls back everything since the last commit.
+     */
+    private static class QueuedWrite {
+        final NewGTFSError error;
+        final ErrorRemoval removal;
+        final CompletableFuture<Void> committed;
+        final boolean stop;
+        final Map<NewGTFSErrorType, Integer> errorCounts;
+        final Map<NewGTFSErrorType, Integer> storedErrorCounts;
+
+        QueuedWrite (NewGTFSError error) {
+            this.error = error;
+            this.removal = null;
+            this.committed = null;
+            this.stop = false;
+            this.errorCounts = null;
+            this.storedErrorCounts = null;
+        }
+
+        QueuedWrite (ErrorRemoval removal) {
+            this.error = null;
+            this.removal = removal;
+            this.committed = null;
+            this.stop = false;
+            this.errorCounts = null;
+            this.storedErrorCounts = null;
+        }
+
+        QueuedWrite (
+            CompletableFuture<Void> committed,
+            boolean stop,
+            Map<NewGTFSErrorType, Integer> errorCounts,
+            Map<NewGTFSErrorType, Integer> storedErrorCounts
+        ) {
+            this.error = null;
+            this.removal = null;
+            this.committed = committed;
+            this.stop = stop;
+            this.errorCounts = errorCounts;
+            this.storedErrorCounts = storedErrorCounts;
+        }
+    }
+
+    /**
+     * A request to remove the stored errors of some types that match a condition. Once they are removed, the number
+     * removed for each error type and entity type is given as rows of {type, entity type, count}.
+     */
+    private static class ErrorRemoval {
+        final Set<NewGTFSErrorType> errorTypes;
+        final String condition;
+        final Object[] parameters;
+        final CompletableFuture<List<Object[]>> removedCounts = new CompletableFuture<>();
+
+        ErrorRemoval (Set<NewGTFSErrorType> errorTypes, String condition, Object[] parameters) {
+            this.errorTypes = errorTypes;
+            this.condition = condition;
+            this.parameters = parameters;
+        }
+    }
 
     public SQLErrorStorage (Connection connection, String tablePrefix, boolean createTables) throws InvalidNamespaceException {
+        this(connection, tablePrefix, createTables, Collections.emptyMap());
+    }
+
+    /**
+     * @param maxStoredErrorsByType the maximum number of errors to store for each error type that should be capped.
+     *                              Only the first errors of a capped type are stored as examples, but all are counted.
+     *                              When reconnecting, types not given here keep the caps they were created with.
+     */
+    public SQLErrorStorage (
+        Connection connection,
+        String tablePrefix,
+        boolean createTables,
+        Map<NewGTFSErrorType, Integer> maxStoredErrorsByType
+    ) throws InvalidNamespaceException {
         ensureValidNamespace(tablePrefix);
         this.tablePrefix = tablePrefix == null ? "" : tablePrefix;
         errorId = 0;
         this.connection = connection;
+        this.maxStoredErrorsByType.putAll(maxStoredErrorsByType);
+        try {
+            postgres = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
         if (createTables) createErrorTables();
         else reconnectErrorTables();
-        createPreparedStatements();
+        if (!postgres) createPreparedStatements();
+        writerThread = new Thread(this::writeQueuedErrors, "error-storage-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Count the error and queue it to be written to the errors table, unless the cap for its type has been reached.
+     * This blocks only if the queue of errors waiting to be written is full.
+     */
+    public synchronized void storeError (NewGTFSError error) {
+        checkWriteFailure();
+        errorCount += 1;
+        errorCountsByType.merge(error.errorType, 1, Integer::sum);
+        if (error.entityType != null) errorCountsByEntityType.merge(error.entityType.getSimpleName(), 1, Integer::sum);
+        Integer maxStoredErrors = maxStoredErrorsByType.get(error.errorType);
+        if (maxStoredErrors != null && storedErrorCountsByType.getOrDefault(error.errorType, 0) >= maxStoredErrors) {
+            return;
+        }
+        storedErrorCountsByType.merge(error.errorType, 1, Integer::sum);
+        enqueue(new QueuedWrite(error));
+    }
+
+    public synchronized void storeErrors (Set<NewGTFSError> errors) {
+        for (NewGTFSError error : errors) {
+            storeError(error);
+        }
+    }
+
+    /**
+     * Remove the stored errors of the given types, so that they can be replaced, e.g. when revalidating entities that
+     * have changed (see {@link com.conveyal.gtfs.loader.Feed#validateChanges}). This blocks until the errors queued
+     * before the call have been written and the matching errors removed. The removal is committed along with the
+     * errors stored afterward, and the error counts are reduced accordingly.
+     * @param condition if not null, only errors matching this SQL condition on the columns of the errors table (which
+     *                  is given the alias e) are removed.
+     * @param parameters the values of any parameters in the condition. Collections are passed as arrays of strings.
+     * @return the number of errors removed.
+     */
+    public synchronized int removeErrors (Set<NewGTFSErrorType> errorTypes, String condition, Object... parameters) {
+        checkWriteFailure();
+        if (errorTypes.isEmpty()) return 0;
+        ErrorRemoval removal = new ErrorRemoval(errorTypes, condition, parameters);
+        enqueue(new QueuedWrite(removal));
+        List<Object[]> removedCounts = awaitWrite(removal.removedCounts);
+        int removed = 0;
+        for (Object[] row : removedCounts) {
+            NewGTFSErrorType errorType = (NewGTFSErrorType) row[0];
+            String entityType = (String) row[1];
+            int count = (Integer) row[2];
+            removed += count;
+            errorCount -= count;
+            errorCountsByType.computeIfPresent(errorType, (type, total) -> total > count ? total - count : null);
+            storedErrorCountsByType.computeIfPresent(errorType, (type, total) -> total > count ? total - count : null);
+            if (entityType != null) {
+                errorCountsByEntityType.computeIfPresent(entityType, (type, total) -> total > count ? total - count : null);
+            }
+        }
+        LOG.info("Removed {} errors of types {}.", removed, errorTypes);
+        return removed;
+    }
+
+    /**
+     * Returns the number of errors encountered, including any that have been stored but not yet written and any that
+     * were not stored because their type reached its cap.
+     */
+    public synchronized int getErrorCount () {
+        return errorCount;
+    }
+
+    /**
+     * Returns the error counts grouped by error type, including any that have been stored but not yet written and any
+     * that were not stored because their type reached its cap.
+     */
+    public synchronized Map<NewGTFSErrorType, Integer> getErrorCountsByType () {
+        return new EnumMap<>(errorCountsByType);
+    }
+
+    /**
+     * Returns the error counts grouped by entity type (the simple name of the entity class, see
+     * {@link NewGTFSError#entityType}), including any that have been stored but not yet written. Errors that are not
+     * associated with an entity type are not included.
+     */
+    public synchronized Map<String, Integer> getErrorCountsByEntityType () {
+        return new HashMap<>(errorCountsByEntityType);
     }
 
-    public void storeError (NewGTFSError error) {
+    /**
+     * This writes all queued errors and the current error counts and commits the transaction, blocking until that is
+     * done.
+     */
+    private void commit(boolean stopWriter) {
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        enqueue(new QueuedWrite(
+            committed,
+            stopWriter,
+            new EnumMap<>(errorCountsByType),
+            new EnumMap<>(storedErrorCountsByType)
+        ));
+        awaitWrite(committed);
+    }
+
+    /**
+     * This writes all queued errors, commits the transaction, and closes the connection permanently.
+     * commitAndClose() should only be called when access to SQLErrorStorage is no longer needed.
+     */
+    public synchronized void commitAndClose() {
+        LOG.info("Committing errors and closing SQL connection.");
         try {
-            // Insert one row for the error itself
-            insertError.setInt(1, errorId);
-            insertError.setString(2, error.errorType.name());
-            // Using SetObject to allow null values, do all target DBs support this?
-            insertError.setObject(3, error.entityType == null ? null : error.entityType.getSimpleName());
-            insertError.setObject(4, error.lineNumber);
-            insertError.setObject(5, error.entityId);
-            insertError.setObject(6, error.entitySequenceNumber);
-            insertError.setObject(7, error.badValue);
-            insertError.addBatch();
-            // Insert all key-value info pairs for the error
-            for (Map.Entry<String, String> entry : error.errorInfo.entrySet()) {
-                insertInfo.setInt(1, errorId);
-                insertInfo.setString(2, entry.getKey());
-                insertInfo.setString(3, entry.getValue());
-                insertInfo.addBatch();
+            this.commit(true);
+        } finally {
+            // Close the connection permanently (should be called only after errorStorage instance no longer needed).
+            DbUtils.closeQuietly(connection);
+        }
+    }
+
+    /**
+     * This discards any errors stored since the last commit, then closes the connection permanently. It is for when
+     * the work storing errors has failed, so that its partial results are not kept, while the writer thread and the
+     * connection are still released.
+     */
+    public synchronized void rollbackAndClose() {
+        LOG.info("Discarding uncommitted errors and closing SQL connection.");
+        try {
+            if (writerThread.isAlive()) {
+                CompletableFuture<Void> rolledBack = new CompletableFuture<>();
+                enqueue(new QueuedWrite(rolledBack, true, null, null));
+                awaitWrite(rolledBack);
             }
-            if (errorId % INSERT_BATCH_SIZE == 0) {
-                insertError.executeBatch();
-                insertInfo.executeBatch();
+        } catch (StorageException ex) {
+            // The caller is already handling a failure, which this should not hide.
+            LOG.error("Failed to discard uncommitted errors.", ex);
+        } finally {
+            DbUtils.rollbackAndCloseQuietly(connection);
+        }
+    }
+
+    private void enqueue (QueuedWrite write) {
+        try {
+            while (!queue.offer(write, 1, TimeUnit.SECONDS)) {
+                // Do not wait forever on a writer that has failed or stopped.
+                checkWriteFailure();
+                if (!writerThread.isAlive()) {
+                    throw new StorageException(new IllegalStateException("Error storage has been closed."));
+                }
             }
-            errorId += 1;
-        } catch (SQLException ex) {
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
             throw new StorageException(ex);
         }
     }
 
-    public void storeErrors (Set<NewGTFSError> errors) {
-        for (NewGTFSError error : errors) {
-            storeError(error);
+    /**
+     * Wait for the writer thread to complete a queued write. This does not wait forever on a writer that has stopped
+     * without completing it, e.g. if the write was queued just as the writer failed.
+     */
+    private <T> T awaitWrite (CompletableFuture<T> future) {
+        try {
+            while (true) {
+                try {
+                    return future.get(1, TimeUnit.SECONDS);
+                } catch (TimeoutException ex) {
+                    if (!writerThread.isAlive() && !future.isDone()) {
+                        throw new StorageException(writeFailure != null
+                            ? writeFailure
+                            : new IllegalStateException("Error storage has been closed."));
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(ex);
+        } catch (ExecutionException ex) {
+            throw new StorageException(writeFailure != null ? writeFailure : ex);
         }
     }
 
+    private void checkWriteFailure () {
+        if (writeFailure != null) throw new StorageException(writeFailure);
+    }
+
     /**
-     * Commits any outstanding error inserts and returns the error count via a SQL query.
+     * The body of the writer thread: take errors from the queue and write them in batches until asked to stop. The
+     * thread also stops if the connection has been closed while it is idle, e.g. if loading failed and the storage
+     * was never closed. If the writer stops for any reason other than being asked to, the failure is recorded and
+     * every write still waiting on it is failed, so that no caller is left blocked.
      */
-    public int getErrorCount () {
+    private void writeQueuedErrors () {
+        List<QueuedWrite> writes = new ArrayList<>();
+        Exception failure;
         try {
-            // Ensure any outstanding inserts are committed so that count is accurate.
-            this.commit();
-            Statement statement = connection.createStatement();
-            statement.execute(String.format("select count(*) from %serrors", tablePrefix));
-            ResultSet resultSet = statement.getResultSet();
-            resultSet.next();
-            int count = resultSet.getInt(1);
-            return count;
-        } catch (SQLException ex) {
-            throw new StorageException(ex);
+            if (writeUntilStopped(writes)) return;
+            failure = new IllegalStateException("Error storage connection was closed.");
+        } catch (Exception ex) {
+            failure = ex;
+        } catch (Throwable t) {
+            failure = new IllegalStateException("Error storage writer failed.", t);
+        }
+        LOG.error("Error storage writer stopped.", failure);
+        if (writeFailure == null) writeFailure = failure;
+        // Any writes queued after this are failed by the callers waiting on them (see awaitWrite).
+        queue.drainTo(writes);
+        for (QueuedWrite write : writes) {
+            if (write.committed != null) write.committed.completeExceptionally(writeFailure);
+            if (write.removal != null) write.removal.removedCounts.completeExceptionally(writeFailure);
+        }
+    }
+
+    /**
+     * Write queued errors until a write asks the writer to stop.
+     * @param writes holds the writes taken from the queue that are being processed, which may not all be complete if
+     *               this throws an exception.
+     * @return true if the writer was asked to stop, false if the connection was closed while the writer was idle.
+     */
+    private boolean writeUntilStopped (List<QueuedWrite> writes) throws InterruptedException, SQLException {
+        List<NewGTFSError> errors = new ArrayList<>();
+        while (true) {
+            QueuedWrite first = queue.poll(1, TimeUnit.SECONDS);
+            if (first == null) {
+                if (connection.isClosed()) return false;
+                continue;
+            }
+            writes.add(first);
+            queue.drainTo(writes, WRITE_BATCH_SIZE - 1);
+            for (QueuedWrite write : writes) {
+                if (write.error != null) {
+                    errors.add(write.error);
+                    if (errors.size() >= WRITE_BATCH_SIZE) writeBatch(errors);
+                    continue;
+                }
+                if (write.removal != null) {
+                    // Errors queued before the removal may be among those to remove.
+                    writeBatch(errors);
+                    executeRemoval(write.removal);
+                    continue;
+                }
+                if (write.errorCounts == null) {
+                    // A request to discard everything since the last commit, so there is no need to write the batch.
+                    errors.clear();
+                    try {
+                        connection.rollback();
+                    } catch (SQLException ex) {
+                        LOG.error("Failed to roll back errors.", ex);
+                        if (writeFailure == null) writeFailure = ex;
+                    }
+                } else {
+                    writeBatch(errors);
+                    if (writeFailure == null) {
+                        try {
+                            writeErrorCounts(write.errorCounts, write.storedErrorCounts);
+                            connection.commit();
+                        } catch (SQLException ex) {
+                            LOG.error("Failed to commit errors.", ex);
+                            writeFailure = ex;
+                        }
+                    }
+                }
+                if (writeFailure == null) write.committed.complete(null);
+                else write.committed.completeExceptionally(writeFailure);
+                if (write.stop) return true;
+            }
+            writes.clear();
         }
     }
 
     /**
-     * This executes any remaining inserts and commits the transaction.
+     * Write and clear the batch of errors. Once writing has failed, errors are discarded so that callers are not
+     * blocked on a full queue (they will see the failure the next time they store an error or commit).
      */
-    private void commit() {
+    private void writeBatch (List<NewGTFSError> errors) {
         try {
-            // Execute any remaining batch inserts and commit the transaction.
-            insertError.executeBatch();
-            insertInfo.executeBatch();
-            connection.commit();
+            if (writeFailure == null) writeErrors(errors);
+        } catch (SQLException | IOException ex) {
+            LOG.error("Failed to write errors.", ex);
+            writeFailure = ex;
+        }
+        errors.clear();
+    }
+
+    /**
+     * Remove the errors (and their info) requested by the given removal, completing it with the number removed by type.
+     */
+    private void executeRemoval (ErrorRemoval removal) {
+        if (writeFailure != null) {
+            removal.removedCounts.completeExceptionally(writeFailure);
+            return;
+        }
+        StringBuilder where = new StringBuilder("error_type in (");
+        for (NewGTFSErrorType errorType : removal.errorTypes) {
+            if (where.charAt(where.length() - 1) != '(') where.append(", ");
+            where.append('\'').append(errorType.name()).append('\'');
+        }
+        where.append(')');
+        if (removal.condition != null) where.append(" and (").append(removal.condition).append(')');
+        try {
+            List<Object[]> removedCounts = new ArrayList<>();
+            PreparedStatement countStatement = connection.prepareStatement(String.format(
+                "select error_type, entity_type, count(*) from %serrors e where %s group by error_type, entity_type",
+                tablePrefix, where
+            ));
+            setParameters(countStatement, removal.parameters);
+            ResultSet resultSet = countStatement.executeQuery();
+            while (resultSet.next()) {
+                removedCounts.add(new Object[] {
+                    NewGTFSErrorType.valueOf(resultSet.getString(1)), resultSet.getString(2), resultSet.getInt(3)
+                });
+            }
+            PreparedStatement removeInfo = connection.prepareStatement(String.format(
+                "delete from %serror_info where error_id in (select error_id from %serrors e where %s)",
+                tablePrefix, tablePrefix, where
+            ));
+            setParameters(removeInfo, removal.parameters);
+            removeInfo.executeUpdate();
+            PreparedStatement removeErrors = connection.prepareStatement(String.format(
+                "delete from %serrors e where %s", tablePrefix, where
+            ));
+            setParameters(removeErrors, removal.parameters);
+            removeErrors.executeUpdate();
+            removal.removedCounts.complete(removedCounts);
         } catch (SQLException ex) {
-            throw new StorageException(ex);
+            LOG.error("Failed to remove errors.", ex);
+            writeFailure = ex;
+            removal.removedCounts.completeExceptionally(ex);
+        }
+    }
+
+    private void setParameters (PreparedStatement statement, Object[] parameters) throws SQLException {
+        for (int p = 0; p < parameters.length; p++) {
+            Object parameter = parameters[p];
+            if (parameter instanceof Collection) {
+                parameter = connection.createArrayOf("varchar", ((Collection<?>) parameter).toArray());
+            }
+            statement.setObject(p + 1, parameter);
         }
     }
 
     /**
-     * This executes any remaining inserts, commits the transaction, and closes the connection permanently.
-     * commitAndClose() should only be called when access to SQLErrorStorage is no longer needed.
+     * Write the errors and their info to the database, assigning each one the next error ID.
      */
-    public void commitAndClose() {
-        LOG.info("Committing errors and closing SQL connection.");
-        this.commit();
-        // Close the connection permanently (should be called only after errorStorage instance no longer needed).
-        DbUtils.closeQuietly(connection);
+    private void writeErrors (List<NewGTFSError> errors) throws SQLException, IOException {
+        if (errors.isEmpty()) return;
+        if (postgres) copyErrors(errors);
+        else insertErrors(errors);
+    }
+
+    private void copyErrors (List<NewGTFSError> errors) throws SQLException, IOException {
+        StringBuilder errorRows = new StringBuilder();
+        StringBuilder infoRows = new StringBuilder();
+        for (NewGTFSError error : errors) {
+            errorRows.append(errorId).append('\t')
+                .append(copyText(error.errorType.name())).append('\t')
+                .append(copyText(error.entityType == null ? null : error.entityType.getSimpleName())).append('\t')
+                .append(copyText(error.lineNumber)).append('\t')
+                .append(copyText(error.entityId)).append('\t')
+                .append(copyText(error.entitySequenceNumber)).append('\t')
+                .append(copyText(error.badValue)).append('\n');
+            for (Map.Entry<String, String> entry : error.errorInfo.entrySet()) {
+                infoRows.append(errorId).append('\t')
+                    .append(copyText(entry.getKey())).append('\t')
+                    .append(copyText(entry.getValue())).append('\n');
+            }
+            errorId += 1;
+        }
+        CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+        copyManager.copyIn(
+            String.format("copy %serrors from stdin", tablePrefix),
+            new StringReader(errorRows.toString())
+        );
+        if (infoRows.length() > 0) {
+            copyManager.copyIn(
+                String.format("copy %serror_info from stdin", tablePrefix),
+                new StringReader(infoRows.toString())
+            );
+        }
+    }
+
+    /**
+     * Format a value for the Postgres COPY text format, escaping characters that would otherwise be read as column or
+     * row separators.
+     */
+    private static String copyText (Object value) {
+        if (value == null) return POSTGRES_NULL_TEXT;
+        return value.toString()
+            .replace("\\", "\\\\")
+            .replace("\t", "\\t")
+            .replace("\n", "\\n")
+            .replace("\r", "\\r");
+    }
+
+    private void insertErrors (List<NewGTFSError> errors) throws SQLException {
+        for (NewGTFSError error : errors) {
+            // Insert one row for the error itself
+            insertError.setInt(1, errorId);
+            insertError.setString(2, error.errorType.name());
+            // Using SetObject to allow null values, do all target DBs support this?
+            insertError.setObject(3, error.entityType == null ? null : error.entityType.getSimpleName());
+            insertError.setObject(4, error.lineNumber);
+            insertError.setObject(5, error.entityId);
+            insertError.setObject(6, error.entitySequenceNumber);
+            insertError.setObject(7, error.badValue);
+            insertError.addBatch();
+            // Insert all key-value info pairs for the error
+            for (Map.Entry<String, String> entry : error.errorInfo.entrySet()) {
+                insertInfo.setInt(1, errorId);
+                insertInfo.setString(2, entry.getKey());
+                insertInfo.setString(3, entry.getValue());
+                insertInfo.addBatch();
+            }
+            errorId += 1;
+        }
+        insertError.executeBatch();
+        insertInfo.executeBatch();
+    }
+
+    /**
+     * Replace the contents of the error_counts table with the given counts and the caps for each error type.
+     */
+    private void writeErrorCounts (
+        Map<NewGTFSErrorType, Integer> errorCounts,
+        Map<NewGTFSErrorType, Integer> storedErrorCounts
+    ) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(String.format("delete from %serror_counts", tablePrefix));
+        PreparedStatement insertCount = connection.prepareStatement(
+            String.format("insert into %serror_counts values (?, ?, ?, ?)", tablePrefix)
+        );
+        // Capped types are included even without errors so that their caps are kept.
+        Set<NewGTFSErrorType> errorTypes = EnumSet.noneOf(NewGTFSErrorType.class);
+        errorTypes.addAll(errorCounts.keySet());
+        errorTypes.addAll(maxStoredErrorsByType.keySet());
+        for (NewGTFSErrorType errorType : errorTypes) {
+            insertCount.setString(1, errorType.name());
+            insertCount.setInt(2, errorCounts.getOrDefault(errorType, 0));
+            insertCount.setInt(3, storedErrorCounts.getOrDefault(errorType, 0));
+            insertCount.setObject(4, maxStoredErrorsByType.get(errorType));
+            insertCount.addBatch();
+        }
+        insertCount.executeBatch();
     }
 
     private void createErrorTables() {
@@ -151,6 +641,7 @@ public class SQLErrorStorage {
                     tablePrefix);
             LOG.info(createErrorInfoSql);
             statement.execute(createErrorInfoSql);
+            createErrorCountsTable(statement);
             connection.commit();
             // Keep connection open, closing would null the wrapped connection and return it to the pool.
         } catch (SQLException ex) {
@@ -158,6 +649,18 @@ public class SQLErrorStorage {
         }
     }
 
+    /**
+     * Create the table summarizing the errors of each type: the total count, the number stored in the errors table and
+     * the cap on the number stored (null if uncapped). Feeds loaded before this table existed will not have one.
+     */
+    private void createErrorCountsTable (Statement statement) throws SQLException {
+        String createErrorCountsSql = String.format("create table if not exists %serror_counts " +
+                "(error_type varchar primary key, count integer, stored_count integer, max_stored integer)",
+                tablePrefix);
+        LOG.info(createErrorCountsSql);
+        statement.execute(createErrorCountsSql);
+    }
+
     private void createPreparedStatements () {
         try {
             insertError = connection.prepareStatement(
@@ -178,6 +681,30 @@ public class SQLErrorStorage {
             errorId = resultSet.getInt(1);
             LOG.info("Reconnected to errors table, max error ID is {}.", errorId);
             errorId += 1; // Error count is zero based, add one to avoid duplicate error key
+            // Start the in-memory counts from the errors already stored (e.g., during the load stage).
+            statement.execute(String.format(
+                "select error_type, entity_type, count(*) from %serrors group by error_type, entity_type",
+                tablePrefix
+            ));
+            resultSet = statement.getResultSet();
+            while (resultSet.next()) {
+                int count = resultSet.getInt(3);
+                storedErrorCountsByType.merge(NewGTFSErrorType.valueOf(resultSet.getString(1)), count, Integer::sum);
+                String entityType = resultSet.getString(2);
+                if (entityType != null) errorCountsByEntityType.merge(entityType, count, Integer::sum);
+            }
+            errorCountsByType.putAll(storedErrorCountsByType);
+            // Errors that were not stored due to caps are only found in the error_counts table, along with the caps.
+            createErrorCountsTable(statement);
+            statement.execute(String.format("select error_type, count, max_stored from %serror_counts", tablePrefix));
+            resultSet = statement.getResultSet();
+            while (resultSet.next()) {
+                NewGTFSErrorType errorType = NewGTFSErrorType.valueOf(resultSet.getString(1));
+                errorCountsByType.put(errorType, resultSet.getInt(2));
+                int maxStored = resultSet.getInt(3);
+                if (!resultSet.wasNull()) maxStoredErrorsByType.putIfAbsent(errorType, maxStored);
+            }
+            errorCount = errorCountsByType.values().stream().mapToInt(Integer::intValue).sum();
         } catch (SQLException ex) {
             throw new StorageException(ex);
         }
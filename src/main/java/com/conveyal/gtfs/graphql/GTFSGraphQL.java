@@ -1,8 +1,13 @@
 package com.conveyal.gtfs.graphql;
 
+import com.conveyal.gtfs.graphql.fetchers.JDBCFetcher;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
 import graphql.GraphQL;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -34,8 +39,35 @@ public class GTFSGraphQL {
         }
     }
 
+    public static DataSource getDataSource () {
+        return dataSource;
+    }
+
     public static GraphQL getGraphQl () {
         return GRAPHQL;
     }
 
+    /**
+     * Start building the input for a query, with a new registry in which nested JDBCFetchers batch their SQL queries:
+     * the entities nested in all the entities at one level of the query are then fetched with one query rather than
+     * one query per enclosing entity. Queries executed with an input built otherwise still work, without batching.
+     */
+    public static ExecutionInput.Builder newExecutionInput () {
+        return ExecutionInput.newExecutionInput().dataLoaderRegistry(new JDBCFetcher.BatchLoaderRegistry());
+    }
+
+    /**
+     * Execute a query and write its result to the output stream as JSON. This is an alternative to serializing the
+     * ExecutionResult for queries returning large lists of entities: a top-level list in a feed (e.g. stop_times,
+     * shapes or trips) requesting only fields that are columns of its table is not fetched into memory during
+     * execution, but streamed from the database straight to the output with only the requested columns. The limit on
+     * such a list is not capped at 500 rows as it otherwise is, and a limit of -1 streams all of its rows. Other fields
+     * are fetched as usual. Note that this replaces any context set on the input.
+     */
+    public static void execute (ExecutionInput.Builder executionInputBuilder, OutputStream outputStream) throws IOException {
+        GraphQLResultWriter resultWriter = new GraphQLResultWriter();
+        ExecutionResult result = GRAPHQL.execute(executionInputBuilder.context(resultWriter).build());
+        resultWriter.write(result, outputStream);
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.conveyal.gtfs.graphql;
 
+import com.conveyal.gtfs.graphql.fetchers.CursorFetcher;
+import com.conveyal.gtfs.graphql.fetchers.CursorPageFetcher;
 import com.conveyal.gtfs.graphql.fetchers.ErrorCountFetcher;
 import com.conveyal.gtfs.graphql.fetchers.FeedFetcher;
 import com.conveyal.gtfs.graphql.fetchers.JDBCFetcher;
@@ -193,6 +195,7 @@ public class GraphQLGtfsSchema {
     public static final GraphQLObjectType tripType = newObject()
             .name("trip")
             .field(MapFetcher.field("id", GraphQLInt))
+            .field(CursorFetcher.field("trips"))
             .field(MapFetcher.field("trip_id"))
             .field(MapFetcher.field("trip_headsign"))
             .field(MapFetcher.field("trip_short_name"))
@@ -268,6 +271,7 @@ public class GraphQLGtfsSchema {
             .field(MapFetcher.field("continuous_drop_off", GraphQLInt))
             .field(MapFetcher.field("continuous_pickup", GraphQLInt))
             .field(MapFetcher.field("shape_dist_traveled", GraphQLFloat))
+            .field(CursorFetcher.field("stop_times"))
             .build();
 
     // Represents rows from attributions.txt
@@ -300,6 +304,7 @@ public class GraphQLGtfsSchema {
     public static final GraphQLObjectType routeType = newObject().name("route")
             .description("A line from a GTFS routes.txt table")
             .field(MapFetcher.field("id", GraphQLInt))
+            .field(CursorFetcher.field("routes"))
             .field(MapFetcher.field("agency_id"))
             .field(MapFetcher.field("route_id"))
             .field(MapFetcher.field("route_short_name"))
@@ -367,6 +372,7 @@ public class GraphQLGtfsSchema {
     public static final GraphQLObjectType stopType = newObject().name("stop")
             .description("A GTFS stop object")
             .field(MapFetcher.field("id", GraphQLInt))
+            .field(CursorFetcher.field("stops"))
             .field(MapFetcher.field("stop_id"))
             .field(MapFetcher.field("stop_name"))
             .field(MapFetcher.field("stop_code"))
@@ -513,6 +519,7 @@ public class GraphQLGtfsSchema {
     public static final GraphQLObjectType patternType = newObject().name("pattern")
             .description("A sequence of stops that characterizes a set of trips on a single route.")
             .field(MapFetcher.field("id", GraphQLInt))
+            .field(CursorFetcher.field("patterns"))
             .field(MapFetcher.field("pattern_id"))
             .field(MapFetcher.field("shape_id"))
             .field(MapFetcher.field("route_id"))
@@ -691,6 +698,8 @@ public class GraphQLGtfsSchema {
                     // DataFetchers can either be class instances implementing the interface, or a static function reference
                     .dataFetcher(new JDBCFetcher("patterns"))
                     .build())
+            // The *_page fields page through large lists with a cursor rather than limit and offset.
+            .field(CursorPageFetcher.field("patterns_page", "patterns", patternType, multiStringArg("pattern_id")))
             .field(newFieldDefinition()
                 .name("shapes_as_polylines")
                 .type(new GraphQLList(shapeEncodedPolylineType))
@@ -743,6 +752,7 @@ public class GraphQLGtfsSchema {
                     .dataFetcher(new JDBCFetcher("routes"))
                     .build()
             )
+            .field(CursorPageFetcher.field("routes_page", "routes", GraphQLGtfsSchema.routeType, multiStringArg("route_id")))
             .field(newFieldDefinition()
                     .name("stops")
                     .type(new GraphQLList(GraphQLGtfsSchema.stopType))
@@ -760,6 +770,7 @@ public class GraphQLGtfsSchema {
                     .dataFetcher(new JDBCFetcher("stops"))
                     .build()
             )
+            .field(CursorPageFetcher.field("stops_page", "stops", GraphQLGtfsSchema.stopType, multiStringArg("stop_id")))
             .field(newFieldDefinition()
                     .name("trips")
                     .type(new GraphQLList(GraphQLGtfsSchema.tripType))
@@ -775,6 +786,9 @@ public class GraphQLGtfsSchema {
                     .dataFetcher(new JDBCFetcher("trips"))
                     .build()
             )
+            .field(CursorPageFetcher.field(
+                "trips_page", "trips", GraphQLGtfsSchema.tripType, multiStringArg("trip_id"), multiStringArg("route_id")
+            ))
             .field(newFieldDefinition()
                     .name("schedule_exceptions")
                     .type(new GraphQLList(GraphQLGtfsSchema.scheduleExceptionType))
@@ -794,6 +808,7 @@ public class GraphQLGtfsSchema {
                     .dataFetcher(new JDBCFetcher("stop_times"))
                     .build()
             )
+            .field(CursorPageFetcher.field("stop_times_page", "stop_times", GraphQLGtfsSchema.stopTimeType, multiStringArg("trip_id")))
             .field(newFieldDefinition()
                     .name("services")
                     .argument(multiStringArg("service_id"))
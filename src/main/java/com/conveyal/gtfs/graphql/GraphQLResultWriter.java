@@ -0,0 +1,85 @@
+package com.conveyal.gtfs.graphql;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the result of a GraphQL query as JSON (see {@link GTFSGraphQL#execute(graphql.ExecutionInput.Builder,
+ * OutputStream)}). While the query is executed, fetchers of large lists can defer their rows to this writer instead of
+ * materializing them (see JDBCFetcher): the list is left empty in the execution result, and when the result is
+ * written the rows are streamed in its place straight from the database.
+ */
+public class GraphQLResultWriter {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** The deferred lists, keyed on their path in the query result (field names and list indexes). */
+    private final Map<List<Object>, RowStream> rowStreams = new ConcurrentHashMap<>();
+
+    /** Writes the rows of a list field as a JSON array. */
+    public interface RowStream {
+        void write (JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Write the rows of the list at the given path with the given stream rather than the (empty) value in the result.
+     */
+    public void defer (List<Object> path, RowStream rowStream) {
+        rowStreams.put(new ArrayList<>(path), rowStream);
+    }
+
+    /**
+     * Write the result, in the same form as ExecutionResult#toSpecification(). If streaming some rows fails, the
+     * output will be incomplete.
+     */
+    public void write (ExecutionResult result, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Object> entry : result.toSpecification().entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                // Paths in the query result start within the data, errors and extensions are written as they are.
+                if ("data".equals(entry.getKey())) writeValue(entry.getValue(), new ArrayList<>(), generator);
+                else generator.writeObject(entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeValue (Object value, List<Object> path, JsonGenerator generator) throws IOException {
+        if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                String key = entry.getKey().toString();
+                generator.writeFieldName(key);
+                path.add(key);
+                writeValue(entry.getValue(), path, generator);
+                path.remove(path.size() - 1);
+            }
+            generator.writeEndObject();
+        } else if (value instanceof List) {
+            RowStream rowStream = rowStreams.get(path);
+            if (rowStream != null) {
+                rowStream.write(generator);
+                return;
+            }
+            List<?> values = (List<?>) value;
+            generator.writeStartArray();
+            for (int i = 0; i < values.size(); i++) {
+                path.add(i);
+                writeValue(values.get(i), path, generator);
+                path.remove(path.size() - 1);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.conveyal.gtfs.graphql.fetchers;
+
+import com.conveyal.gtfs.loader.Table;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLFieldDefinition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static graphql.Scalars.GraphQLString;
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
+
+/**
+ * Fetches an opaque cursor for a row of a GTFS table, for keyset (cursor) pagination of top-level lists in a feed:
+ * passing the cursor of the last row of a page as the "after" argument of the page field (see
+ * {@link CursorPageFetcher}) fetches the rows that follow it. Rows are ordered on the indexed key and order fields of
+ * the table (see {@link Table#getIndexFields()}) and then on id, so each page is found with an index scan from the
+ * cursor rather than by skipping all the preceding rows as with an offset. The cursor holds the values of those columns in the row.
+ *
+ * Rows with a null key or order field (which are missing a required value) are not reached when paging with cursors.
+ */
+public class CursorFetcher implements DataFetcher<String>, SourceColumnFetcher {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final List<String> columns;
+
+    public CursorFetcher(String tableName) {
+        this.columns = new ArrayList<>(getCursorColumns(tableName).keySet());
+    }
+
+    @Override
+    public String get(DataFetchingEnvironment environment) {
+        return encode(environment.getSource());
+    }
+
+    /**
+     * @return the cursor for the row, which holds the values of the cursor columns in the row.
+     */
+    String encode(Map<String, Object> row) {
+        List<String> values = new ArrayList<>();
+        for (String column : columns) {
+            Object value = row.get(column);
+            values.add(value == null ? null : value.toString());
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mapper.writeValueAsBytes(values));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<String> getSourceColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the columns on which rows of the table are ordered when paging with cursors, in order, with their SQL types.
+     */
+    static Map<String, String> getCursorColumns(String tableName) {
+        for (Table table : Table.tablesInOrder) {
+            if (!table.name.equals(tableName)) continue;
+            Map<String, String> columns = new LinkedHashMap<>();
+            columns.put(table.getKeyFieldName(), table.getFieldForName(table.getKeyFieldName()).getSqlTypeName());
+            String orderFieldName = table.getOrderFieldName();
+            if (orderFieldName != null) {
+                columns.put(orderFieldName, table.getFieldForName(orderFieldName).getSqlTypeName());
+            }
+            // The key and order fields are not necessarily unique, so the id breaks ties.
+            columns.put("id", "bigint");
+            return columns;
+        }
+        throw new IllegalArgumentException("Cursor pagination is not supported for table " + tableName);
+    }
+
+    /**
+     * @return the values of the cursor columns held in the cursor, as strings.
+     */
+    static List<String> decode(String cursor, int columnCount) {
+        List<?> decodedValues;
+        try {
+            decodedValues = mapper.readValue(Base64.getUrlDecoder().decode(cursor), List.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (decodedValues.size() != columnCount) throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        List<String> values = new ArrayList<>();
+        for (Object value : decodedValues) values.add(value == null ? null : value.toString());
+        return values;
+    }
+
+    public static GraphQLFieldDefinition field(String tableName) {
+        return newFieldDefinition()
+                .name("cursor")
+                .type(GraphQLString)
+                .dataFetcher(new CursorFetcher(tableName))
+                .build();
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.conveyal.gtfs.graphql.fetchers;
+
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLObjectType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.conveyal.gtfs.graphql.GraphQLUtil.intArg;
+import static com.conveyal.gtfs.graphql.GraphQLUtil.stringArg;
+import static com.conveyal.gtfs.graphql.fetchers.JDBCFetcher.AFTER_ARG;
+import static com.conveyal.gtfs.graphql.fetchers.JDBCFetcher.FIRST_ARG;
+import static graphql.Scalars.GraphQLBoolean;
+import static graphql.Scalars.GraphQLString;
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
+import static graphql.schema.GraphQLObjectType.newObject;
+
+/**
+ * Fetches a page of the rows of a top-level list in a feed for keyset (cursor) pagination (see {@link CursorFetcher}).
+ * The page holds up to "first" rows following the row whose cursor is passed as "after" (or the first rows of the
+ * list if there is none), in the order of the table's index, along with page info telling whether there is a next page
+ * and giving the cursor to pass as "after" to fetch it.
+ *
+ * This is a separate field from the list itself, whose limit, offset and ordering are not affected by paging.
+ */
+public class CursorPageFetcher implements DataFetcher<Map<String, Object>> {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // Pages fetched with a cursor cost the same however deep they are, so they may be larger than lists.
+    private static final int MAX_PAGE_SIZE = 5000;
+
+    public static final GraphQLObjectType pageInfoType = newObject().name("pageInfo")
+            .description("Whether there is a page after this one and the cursor to pass as \"after\" to fetch it.")
+            .field(MapFetcher.field("has_next_page", GraphQLBoolean))
+            .field(MapFetcher.field("end_cursor", GraphQLString))
+            .build();
+
+    private final JDBCFetcher rowFetcher;
+    private final CursorFetcher cursorFetcher;
+
+    public CursorPageFetcher(String tableName) {
+        this.rowFetcher = new JDBCFetcher(tableName);
+        this.cursorFetcher = new CursorFetcher(tableName);
+    }
+
+    @Override
+    public Map<String, Object> get(DataFetchingEnvironment environment) {
+        Map<String, Object> parentFeedMap = environment.getSource();
+        String namespace = (String) parentFeedMap.get("namespace");
+        Integer first = environment.getArgument(FIRST_ARG);
+        int pageSize = first == null ? DEFAULT_PAGE_SIZE : Math.max(0, Math.min(first, MAX_PAGE_SIZE));
+        // Fetch one more row than the page holds, which is only found if there is a next page.
+        List<Map<String, Object>> rows = rowFetcher.getCursorPageRows(namespace, environment.getArguments(), pageSize + 1);
+        boolean hasNextPage = rows.size() > pageSize;
+        List<Map<String, Object>> items = new ArrayList<>(rows.subList(0, Math.min(rows.size(), pageSize)));
+        Map<String, Object> pageInfo = new HashMap<>();
+        pageInfo.put("has_next_page", hasNextPage);
+        pageInfo.put("end_cursor", items.isEmpty() ? null : cursorFetcher.encode(items.get(items.size() - 1)));
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("page_info", pageInfo);
+        return page;
+    }
+
+    /**
+     * @param name the name of the field, e.g. stops_page.
+     * @param filterArgs arguments restricting the rows of the list, which are matched against the table's columns.
+     */
+    public static GraphQLFieldDefinition field(
+        String name,
+        String tableName,
+        GraphQLObjectType rowType,
+        GraphQLArgument... filterArgs
+    ) {
+        GraphQLObjectType pageType = newObject().name(rowType.getName() + "Page")
+                .field(MapFetcher.field("items", new GraphQLList(rowType)))
+                .field(MapFetcher.field("page_info", pageInfoType))
+                .build();
+        return newFieldDefinition()
+                .name(name)
+                .type(pageType)
+                .argument(intArg(FIRST_ARG))
+                .argument(stringArg(AFTER_ARG))
+                .arguments(Arrays.asList(filterArgs))
+                .dataFetcher(new CursorPageFetcher(tableName))
+                .build();
+    }
+
+}
@@ -2,6 +2,7 @@ package com.conveyal.gtfs.graphql.fetchers;
 
 import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.graphql.GTFSGraphQL;
+import com.conveyal.gtfs.loader.NamespaceMetadata;
 import com.conveyal.gtfs.validator.model.Priority;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
@@ -42,12 +43,19 @@ public class ErrorCountFetcher implements DataFetcher {
         try {
             connection = GTFSGraphQL.getConnection();
             Statement statement = connection.createStatement();
-            String sql = String.format(
-                // this order_by is only needed to make sure that the testing snapshots are consistently in the same
-                // order during every test
-                "select error_type, count(*) from %s.errors group by error_type order by error_type",
-                namespace
-            );
+            // The error_counts table holds exact totals even when the number of errors stored per type is capped, and
+            // avoids scanning the errors table. Feeds loaded before it existed fall back on counting the errors.
+            // The order_by is only needed to make sure that the testing snapshots are consistently in the same order
+            // during every test.
+            String sql = NamespaceMetadata.forNamespace(namespace).tableExists(GTFSGraphQL.getDataSource(), "error_counts")
+                ? String.format(
+                    "select error_type, count from %s.error_counts where count > 0 order by error_type",
+                    namespace
+                )
+                : String.format(
+                    "select error_type, count(*) from %s.errors group by error_type order by error_type",
+                    namespace
+                );
             LOG.info("SQL: {}", sql);
             if (statement.execute(sql)) {
                 ResultSet resultSet = statement.getResultSet();
@@ -1,17 +1,12 @@
 package com.conveyal.gtfs.graphql.fetchers;
 
 import com.conveyal.gtfs.graphql.GTFSGraphQL;
+import com.conveyal.gtfs.loader.NamespaceMetadata;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
-import org.apache.commons.dbutils.DbUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,35 +24,13 @@ public class FeedFetcher implements DataFetcher {
     public Map<String, Object> get (DataFetchingEnvironment environment) {
         String namespace = environment.getArgument("namespace"); // This is the unique table prefix (the "schema").
         validateNamespace(namespace);
-        Connection connection = null;
-        try {
-            connection = GTFSGraphQL.getConnection();
-            PreparedStatement statement = connection.prepareStatement("select * from feeds where namespace = ?");
-            statement.setString(1, namespace);
-            LOG.debug("SQL: {}", statement.toString());
-            if (statement.execute()) {
-                ResultSet resultSet = statement.getResultSet();
-                ResultSetMetaData meta = resultSet.getMetaData();
-                int nColumns = meta.getColumnCount();
-                // Iterate over result rows
-                while (resultSet.next()) {
-                    // Create a Map to hold the contents of this row, injecting the feed_id into every map
-                    Map<String, Object> resultMap = new HashMap<>();
-                    resultMap.put("namespace", namespace);
-                    for (int i = 1; i <= nColumns; i++) {
-                        resultMap.put(meta.getColumnName(i), resultSet.getObject(i));
-                    }
-                    connection.close();
-                    // FIXME return inside a while loop? This would only hit the first item.
-                    return resultMap;
-                }
-            }
-            throw new RuntimeException("No rows found.");
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        } finally {
-            DbUtils.closeQuietly(connection);
-        }
+        // The feeds row is cached, as every query on a feed starts by fetching it.
+        Map<String, Object> feedRow = NamespaceMetadata.forNamespace(namespace).getFeedRow(GTFSGraphQL.getDataSource());
+        if (feedRow == null) throw new RuntimeException("No rows found.");
+        // Create a Map to hold the contents of this row, injecting the feed_id into every map
+        Map<String, Object> resultMap = new HashMap<>(feedRow);
+        resultMap.put("namespace", namespace);
+        return resultMap;
     }
 
 }
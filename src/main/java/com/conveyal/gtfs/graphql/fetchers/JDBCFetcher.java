@@ -2,14 +2,26 @@ package com.conveyal.gtfs.graphql.fetchers;
 
 import com.conveyal.gtfs.graphql.GTFSGraphQL;
 import com.conveyal.gtfs.graphql.GraphQLGtfsSchema;
+import com.conveyal.gtfs.graphql.GraphQLResultWriter;
+import com.conveyal.gtfs.loader.NamespaceMetadata;
+import com.fasterxml.jackson.core.JsonGenerator;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLScalarType;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import graphql.schema.SelectedField;
 import org.apache.commons.dbutils.DbUtils;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -21,9 +33,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,18 +48,37 @@ import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
 
 /**
  * A generic fetcher to get fields out of an SQL database table.
+ *
+ * When the query is executed with a {@link BatchLoaderRegistry} (see {@link GTFSGraphQL#newExecutionInput()}), a
+ * fetcher nested in other entities does not query the database for each enclosing entity. Instead it collects the join
+ * values of all the enclosing entities at its level of the query in a DataLoader, which fetches the rows for all of
+ * them with one "where join_field in (...)" query and hands each entity its own rows.
+ *
+ * Only the columns read by the requested fields are selected (see {@link SourceColumnFetcher}), so the size of the
+ * fetched rows depends on the query rather than on the width of the table.
+ *
+ * Large top-level lists can also be paged through with cursors instead of limit and offset (see
+ * {@link CursorPageFetcher}), so that deep pages cost no more to fetch than the first one.
  */
-public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
+public class JDBCFetcher implements DataFetcher<CompletableFuture<List<Map<String, Object>>>>, SourceColumnFetcher {
 
     public static final Logger LOG = LoggerFactory.getLogger(JDBCFetcher.class);
 
     // Make this an option to the GraphQL query.
     private static final int DEFAULT_ROWS_TO_FETCH = 50;
     private static final int MAX_ROWS_TO_FETCH = 500;
+    // Limit the number of join values in a batched query, each of which is a prepared statement parameter.
+    private static final int MAX_JOIN_VALUES_PER_BATCH = 1000;
+    // Column numbering the rows for each join value in a batched query, which is not returned in the results.
+    private static final String BATCH_ROW_NUMBER = "batch_row_number";
+    // The number of rows fetched from the database at a time when streaming rows to JSON.
+    private static final int STREAMING_FETCH_SIZE = 1000;
     // Symbolic constants for argument names used to prevent misspellings.
     public static final String ID_ARG = "id";
     public static final String LIMIT_ARG = "limit";
     public static final String OFFSET_ARG = "offset";
+    public static final String FIRST_ARG = "first";
+    public static final String AFTER_ARG = "after";
     public static final String SEARCH_ARG = "search";
     public static final String DATE_ARG = "date";
     public static final String FROM_ARG = "from";
@@ -61,10 +95,14 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
     // when constructing said WHERE clause.
     private static final List<String> boundingBoxArgs = Arrays.asList(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON);
     private static final List<String> dateTimeArgs = Arrays.asList("date", "from", "to");
-    private static final List<String> otherNonStandardArgs = Arrays.asList(SEARCH_ARG, LIMIT_ARG, OFFSET_ARG);
+    private static final List<String> otherNonStandardArgs = Arrays.asList(SEARCH_ARG, LIMIT_ARG, OFFSET_ARG, FIRST_ARG, AFTER_ARG);
     private static final List<String> argsToSkip = Stream.of(boundingBoxArgs, dateTimeArgs, otherNonStandardArgs)
             .flatMap(Collection::stream)
             .collect(Collectors.toList());
+    // Arguments that add tables or search conditions to the query, which is then neither batched nor streamed.
+    private static final List<String> complexQueryArgs = Stream.of(boundingBoxArgs, dateTimeArgs, Arrays.asList(SEARCH_ARG))
+            .flatMap(Collection::stream)
+            .collect(Collectors.toList());
     public final String tableName;
     final String parentJoinField;
     private final String sortField;
@@ -132,6 +170,8 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
     // What if we did direct SQL->JSON?
     // Could we transform JDBC ResultSets directly to JSON?
     // With Jackson streaming API we can make a ResultSet serializer: https://stackoverflow.com/a/8120442
+    // This is done for top-level lists of plain columns when executing with GTFSGraphQL#execute(Builder, OutputStream),
+    // see getRowStream.
 
     // We could apply a transformation from ResultSet to Gtfs-lib model object, but then more DataFetchers
     // need to be defined to pull the fields out of those model objects. I'll try to skip those intermediate objects.
@@ -143,7 +183,7 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
     // But what are the internal GraphQL objects, i.e. what does an ExecutionResult return? Are they Map<String, Object>?
 
     @Override
-    public List<Map<String, Object>> get (DataFetchingEnvironment environment) {
+    public CompletableFuture<List<Map<String, Object>>> get (DataFetchingEnvironment environment) {
         // GetSource is the context in which this this DataFetcher has been created, in this case a map representing
         // the parent feed (FeedFetcher).
         Map<String, Object> parentEntityMap = environment.getSource();
@@ -168,12 +208,222 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
             String parentJoinString = parentJoinValue == null ? null : parentJoinValue.toString();
             parentJoinValues.add(parentJoinString);
             if (parentJoinValue == null) {
-                return new ArrayList<>();
+                return CompletableFuture.completedFuture(new ArrayList<>());
             }
         }
         Map<String, Object> arguments = environment.getArguments();
+        String selectColumns = getSelectColumns(environment, namespace);
+        if (parentJoinField != null && environment.getDataLoaderRegistry() instanceof BatchLoaderRegistry &&
+            Collections.disjoint(arguments.keySet(), complexQueryArgs)) {
+            // Defer fetching until the join values of all the enclosing entities at this level have been collected.
+            return getDataLoader(environment, namespace, selectColumns).load(parentJoinValues.get(0));
+        }
+        if (parentJoinField == null && environment.getContext() instanceof GraphQLResultWriter) {
+            GraphQLResultWriter.RowStream rowStream = getRowStream(environment, namespace);
+            if (rowStream != null) {
+                // The rows will be written straight to the output in place of this empty list.
+                ((GraphQLResultWriter) environment.getContext())
+                    .defer(environment.getExecutionStepInfo().getPath().toList(), rowStream);
+                return CompletableFuture.completedFuture(new ArrayList<>());
+            }
+        }
+
+        return CompletableFuture.completedFuture(
+            getResults(namespace, parentJoinValues, arguments, false, selectColumns)
+        );
+    }
+
+    /**
+     * The rows fetched by this fetcher are only read by the fields of the enclosing entity that join on them.
+     */
+    @Override
+    public List<String> getSourceColumns () {
+        return parentJoinField != null ? Collections.singletonList(parentJoinField) : Collections.emptyList();
+    }
+
+    /**
+     * Determine which columns to select for the fields requested from the rows, which are the columns read by the
+     * fetchers of those fields (along with the child join field, to match rows to enclosing entities). Columns that do
+     * not exist in the table are left out, and as with "select *" the fields reading them will be null.
+     * @return the qualified columns separated by commas, or "*" if it is not known which columns some requested field
+     *         reads.
+     */
+    private String getSelectColumns (DataFetchingEnvironment environment, String namespace) {
+        GraphQLType rowType = GraphQLTypeUtil.unwrapAll(environment.getFieldType());
+        // Fetchers wrapping this one (e.g. SQLColumnFetcher) return something other than the rows.
+        if (!(rowType instanceof GraphQLObjectType)) return "*";
+        Set<String> columns = new LinkedHashSet<>();
+        if (childJoinField != null) columns.add(childJoinField);
+        for (SelectedField selectedField : environment.getSelectionSet().getImmediateFields()) {
+            DataFetcher<?> fetcher = getFieldFetcher(environment, (GraphQLObjectType) rowType, selectedField.getName());
+            // Introspection fields such as __typename have no definition in the type and read no columns.
+            if (fetcher == null) continue;
+            if (!(fetcher instanceof SourceColumnFetcher)) return "*";
+            columns.addAll(((SourceColumnFetcher) fetcher).getSourceColumns());
+        }
+        columns.retainAll(getTableColumns(namespace));
+        if (columns.isEmpty()) return "*";
+        return columns.stream()
+            .map(column -> String.join(".", namespace, tableName, column))
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @return the fetcher of the named field in the given type, or null if the type has no such field.
+     */
+    private static DataFetcher<?> getFieldFetcher (
+        DataFetchingEnvironment environment,
+        GraphQLObjectType type,
+        String fieldName
+    ) {
+        GraphQLFieldDefinition fieldDefinition = type.getFieldDefinition(fieldName);
+        if (fieldDefinition == null) return null;
+        return environment.getGraphQLSchema().getCodeRegistry().getDataFetcher(type, fieldDefinition);
+    }
+
+    /**
+     * Prepare to stream the rows for this field as JSON, selecting only the columns for the requested fields.
+     * @return the stream, or null if the rows cannot be streamed because some of the requested fields are not columns of
+     *         the table (e.g. nested entities or counts), or the arguments require joining other tables.
+     */
+    private GraphQLResultWriter.RowStream getRowStream (DataFetchingEnvironment environment, String namespace) {
+        Map<String, Object> arguments = environment.getArguments();
+        if (!Collections.disjoint(arguments.keySet(), complexQueryArgs)) return null;
+        GraphQLObjectType rowType = (GraphQLObjectType) GraphQLTypeUtil.unwrapAll(environment.getFieldType());
+        List<String> resultKeys = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        List<GraphQLScalarType> types = new ArrayList<>();
+        for (SelectedField selectedField : environment.getSelectionSet().getImmediateFields()) {
+            // Fields computed by other fetchers (e.g. nested entities or counts of related entities) cannot be streamed.
+            DataFetcher<?> fetcher = getFieldFetcher(environment, rowType, selectedField.getName());
+            if (!(fetcher instanceof MapFetcher)) return null;
+            GraphQLType type = GraphQLTypeUtil.unwrapAll(rowType.getFieldDefinition(selectedField.getName()).getType());
+            if (!(type instanceof GraphQLScalarType)) return null;
+            resultKeys.add(selectedField.getAlias() != null ? selectedField.getAlias() : selectedField.getName());
+            columns.add(((MapFetcher) fetcher).key);
+            types.add((GraphQLScalarType) type);
+        }
+        if (columns.isEmpty() || !getTableColumns(namespace).containsAll(columns)) return null;
+        List<String> preparedStatementParameters = new ArrayList<>();
+        String sql = buildQuery(
+            namespace,
+            null,
+            arguments,
+            false,
+            true,
+            String.join(", ", new LinkedHashSet<>(columns)),
+            preparedStatementParameters
+        );
+        return generator -> streamRows(sql, preparedStatementParameters, resultKeys, columns, types, generator);
+    }
+
+    /**
+     * Write the rows of the query as a JSON array of objects, with the value of each column serialized as the GraphQL
+     * scalar type of its field. The rows are fetched from the database in pages, so memory use does not depend on the
+     * number of rows.
+     */
+    private static void streamRows (
+        String sql,
+        List<String> preparedStatementParameters,
+        List<String> resultKeys,
+        List<String> columns,
+        List<GraphQLScalarType> types,
+        JsonGenerator generator
+    ) throws IOException {
+        Connection connection = null;
+        try {
+            connection = GTFSGraphQL.getConnection();
+            // The Postgres driver only fetches rows in pages (rather than all at once) within a transaction.
+            connection.setAutoCommit(false);
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+            int oneBasedIndex = 1;
+            for (String parameter : preparedStatementParameters) {
+                preparedStatement.setString(oneBasedIndex++, parameter);
+            }
+            LOG.info("Streaming SQL: {}", preparedStatement.toString());
+            ResultSet resultSet = preparedStatement.executeQuery();
+            long rowCount = 0;
+            generator.writeStartArray();
+            while (resultSet.next()) {
+                generator.writeStartObject();
+                for (int i = 0; i < resultKeys.size(); i++) {
+                    Object value = resultSet.getObject(columns.get(i));
+                    generator.writeFieldName(resultKeys.get(i));
+                    generator.writeObject(value == null ? null : types.get(i).getCoercing().serialize(value));
+                }
+                generator.writeEndObject();
+                rowCount++;
+            }
+            generator.writeEndArray();
+            LOG.debug("Streamed {} rows", rowCount);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DbUtils.closeQuietly(connection);
+        }
+    }
+
+    /**
+     * A registry for the DataLoaders that batch the queries of nested JDBCFetchers. Batching only happens for queries
+     * executed with an instance of this class, which must not be shared between queries because the loaders cache the
+     * rows they have fetched.
+     */
+    public static class BatchLoaderRegistry extends DataLoaderRegistry { }
+
+    /**
+     * Get the DataLoader for this fetcher's rows in the given namespace with the arguments of the current field,
+     * registering it on first use. Fetchers of the same table with the same join, sort, arguments and selected columns
+     * yield the same rows, so they share a loader.
+     */
+    private DataLoader<String, List<Map<String, Object>>> getDataLoader (
+        DataFetchingEnvironment environment,
+        String namespace,
+        String selectColumns
+    ) {
+        Map<String, Object> arguments = environment.getArguments();
+        String key = String.join(":",
+            namespace,
+            tableName,
+            childJoinField,
+            String.valueOf(sortField),
+            String.valueOf(autoLimit),
+            new TreeMap<>(arguments).toString(),
+            selectColumns
+        );
+        return environment.getDataLoaderRegistry().computeIfAbsent(key, k -> DataLoader.newMappedDataLoader(
+            (Set<String> joinValues) -> CompletableFuture.completedFuture(
+                getBatchedResults(namespace, joinValues, arguments, selectColumns)
+            ),
+            DataLoaderOptions.newOptions().setMaxBatchSize(MAX_JOIN_VALUES_PER_BATCH)
+        ));
+    }
 
-        return getResults(namespace, parentJoinValues, arguments);
+    /**
+     * Fetch the rows for several join values with one query, applying the limit and offset to the rows for each join
+     * value separately, so that each enclosing entity gets the same rows as it would from {@link #getResults}.
+     * @return the rows for each join value, which are empty lists for join values without rows.
+     */
+    private Map<String, List<Map<String, Object>>> getBatchedResults (
+        String namespace,
+        Set<String> joinValues,
+        Map<String, Object> graphQLQueryArguments,
+        String selectColumns
+    ) {
+        Map<String, List<Map<String, Object>>> resultsForJoinValue = new HashMap<>();
+        for (String joinValue : joinValues) resultsForJoinValue.put(joinValue, new ArrayList<>());
+        List<Map<String, Object>> results = getResults(
+            namespace,
+            new ArrayList<>(joinValues),
+            graphQLQueryArguments,
+            true,
+            selectColumns
+        );
+        for (Map<String, Object> result : results) {
+            List<Map<String, Object>> resultsForValue = resultsForJoinValue.get(String.valueOf(result.get(childJoinField)));
+            if (resultsForValue != null) resultsForValue.add(result);
+        }
+        return resultsForJoinValue;
     }
 
     /**
@@ -184,11 +434,64 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
         String namespace,
         List<String> parentJoinValues,
         Map<String, Object> graphQLQueryArguments
+    ) {
+        return getResults(namespace, parentJoinValues, graphQLQueryArguments, false, "*");
+    }
+
+    /**
+     * Fetch the rows of a page of a top-level list paged through with a cursor (see {@link CursorPageFetcher}): the
+     * rows following the one whose cursor is given as the "after" argument, if any, in the order of the table's index.
+     * @param rowCount the number of rows to fetch, which is not capped.
+     */
+    List<Map<String, Object>> getCursorPageRows (String namespace, Map<String, Object> arguments, int rowCount) {
+        Map<String, Object> pageArguments = new HashMap<>(arguments);
+        pageArguments.put(FIRST_ARG, rowCount);
+        return getResults(namespace, new ArrayList<>(), pageArguments, false, "*");
+    }
+
+    /**
+     * @param batched whether the rows for several join values are fetched at once, in which case the limit and offset
+     *                apply to the rows for each join value rather than to all rows.
+     * @param selectColumns the columns to select, separated by commas, or "*" for all columns.
+     */
+    private List<Map<String, Object>> getResults (
+        String namespace,
+        List<String> parentJoinValues,
+        Map<String, Object> graphQLQueryArguments,
+        boolean batched,
+        String selectColumns
     ) {
         // Track the parameters for setting prepared statement parameters
         List<String> preparedStatementParameters = new ArrayList<>();
-        // This will contain one Map<String, Object> for each row fetched from the database table.
-        List<Map<String, Object>> results = new ArrayList<>();
+        String sql = buildQuery(
+            namespace,
+            parentJoinValues,
+            graphQLQueryArguments,
+            batched,
+            false,
+            selectColumns,
+            preparedStatementParameters
+        );
+        if (sql == null) return new ArrayList<>();
+        return executeQuery(namespace, sql, preparedStatementParameters);
+    }
+
+    /**
+     * Build the SQL query for the rows to fetch, adding the values of its parameters to the given list.
+     * @param streamed whether the rows are streamed to JSON rather than held in memory, in which case the limit is not
+     *                 capped at MAX_ROWS_TO_FETCH (-1 fetches all rows).
+     * @param selectColumns the columns to select, separated by commas, or "*" for all columns.
+     * @return the query, or null if there can be no rows because the child join field does not exist.
+     */
+    private String buildQuery (
+        String namespace,
+        List<String> parentJoinValues,
+        Map<String, Object> graphQLQueryArguments,
+        boolean batched,
+        boolean streamed,
+        String selectColumns,
+        List<String> preparedStatementParameters
+    ) {
         if (graphQLQueryArguments == null) graphQLQueryArguments = new HashMap<>();
         // Ensure namespace exists and is clean. Note: FeedFetcher will have executed before this and validated that an
         // entry exists in the feeds table and the schema actually exists in the database.
@@ -202,7 +505,17 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
         Set<String> fromTables = new HashSet<>();
         // By default, select only from the primary table. Other tables may be added to this list to handle joins.
         fromTables.add(String.join(".", namespace, tableName));
-        sqlBuilder.append("select *");
+        sqlBuilder.append("select ").append(selectColumns);
+        if (batched) {
+            // Number the rows for each join value in the order they would have if fetched for that value alone, so
+            // that the limit and offset can be applied to each join value below.
+            sqlBuilder.append(String.format(
+                ", row_number() over (partition by %s%s) as %s",
+                childJoinField,
+                sortField != null ? " order by " + sortField : "",
+                BATCH_ROW_NUMBER
+            ));
+        }
 
         // We will build up additional sql clauses in this List (note: must be a List so that the order is preserved).
         List<String> whereConditions = new ArrayList<>();
@@ -231,7 +544,7 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
                     namespace,
                     tableName
                 );
-                return results;
+                return null;
             }
         }
         if (sortField != null) {
@@ -355,21 +668,63 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
                 }
             }
         }
+        // The number of rows in a cursor page is only set by getCursorPageRows.
+        Integer first = (Integer) graphQLQueryArguments.get(FIRST_ARG);
+        String after = (String) graphQLQueryArguments.get(AFTER_ARG);
+        boolean cursorPagination = first != null;
+        if (cursorPagination) {
+            // Page through the rows in the order of the table's index rather than the sort field (see CursorFetcher).
+            if (batched) throw new IllegalArgumentException("Cursor pagination is only supported on top-level lists.");
+            if (graphQLQueryArguments.get(OFFSET_ARG) != null) {
+                throw new IllegalArgumentException("Offset cannot be combined with cursor pagination.");
+            }
+            Map<String, String> cursorColumns = CursorFetcher.getCursorColumns(tableName);
+            List<String> qualifiedColumns = cursorColumns.keySet().stream()
+                .map(column -> String.join(".", namespace, tableName, column))
+                .collect(Collectors.toList());
+            if (after != null) {
+                // Parameters are strings, so cast them to the type of their column to compare the rows.
+                List<String> values = CursorFetcher.decode(after, cursorColumns.size());
+                List<String> castParameters = cursorColumns.values().stream()
+                    .map(type -> String.format("cast(? as %s)", type))
+                    .collect(Collectors.toList());
+                whereConditions.add(String.format(
+                    "(%s) > (%s)",
+                    String.join(", ", qualifiedColumns),
+                    String.join(", ", castParameters)
+                ));
+                preparedStatementParameters.addAll(values);
+            }
+            sortBy = String.format(" order by %s", String.join(", ", qualifiedColumns));
+        }
         sqlBuilder.append(String.format(" from %s", String.join(", ", fromTables)));
         if (!whereConditions.isEmpty()) {
             sqlBuilder.append(" where ");
             sqlBuilder.append(String.join(" and ", whereConditions));
         }
-        // The default value for sortBy is an empty string, so it's safe to always append it here. Also, there is no
-        // threat of SQL injection because the sort field value is not user input.
-        sqlBuilder.append(sortBy);
-        Integer limit = (Integer) graphQLQueryArguments.get(LIMIT_ARG);
+        Integer limit = cursorPagination ? first : (Integer) graphQLQueryArguments.get(LIMIT_ARG);
         if (limit == null) {
             limit = autoLimit ? DEFAULT_ROWS_TO_FETCH : -1;
         }
-        if (limit > MAX_ROWS_TO_FETCH) {
+        // Streamed rows are not held in memory, so any number may be fetched. Cursor pages are capped by their fetcher.
+        if (limit > MAX_ROWS_TO_FETCH && !streamed && !cursorPagination) {
             limit = MAX_ROWS_TO_FETCH;
         }
+        Integer offset = (Integer) graphQLQueryArguments.get(OFFSET_ARG);
+        if (batched) {
+            // Apply the limit and offset to the numbered rows for each join value.
+            int rowsToSkip = offset != null && offset >= 0 ? offset : 0;
+            String rowConditions = String.format("%s > %d", BATCH_ROW_NUMBER, rowsToSkip);
+            if (limit != -1) {
+                rowConditions += String.format(" and %s <= %d", BATCH_ROW_NUMBER, rowsToSkip + limit);
+            }
+            sqlBuilder.insert(0, "select * from (");
+            sqlBuilder.append(String.format(") as batched where %s order by %s", rowConditions, BATCH_ROW_NUMBER));
+            return sqlBuilder.toString();
+        }
+        // The default value for sortBy is an empty string, so it's safe to always append it here. Also, there is no
+        // threat of SQL injection because the sort field value is not user input.
+        sqlBuilder.append(sortBy);
         if (limit == -1) {
             // Do not append limit if explicitly set to -1 or autoLimit is disabled. NOTE: this conditional block is
             // empty simply because it is clearer to define the condition in this way (vs. if limit > 0).
@@ -377,14 +732,22 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
         } else {
             sqlBuilder.append(" limit ").append(limit);
         }
-        Integer offset = (Integer) graphQLQueryArguments.get(OFFSET_ARG);
         if (offset != null && offset >= 0) {
             sqlBuilder.append(" offset ").append(offset);
         }
+        return sqlBuilder.toString();
+    }
+
+    /**
+     * Run the query and return a List of Maps, one Map for each row in the result.
+     */
+    private List<Map<String, Object>> executeQuery (String namespace, String sql, List<String> preparedStatementParameters) {
+        // This will contain one Map<String, Object> for each row fetched from the database table.
+        List<Map<String, Object>> results = new ArrayList<>();
         Connection connection = null;
         try {
             connection = GTFSGraphQL.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(sqlBuilder.toString());
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
             int oneBasedIndex = 1;
             for (String parameter : preparedStatementParameters) {
                 preparedStatement.setString(oneBasedIndex++, parameter);
@@ -403,7 +766,9 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
                     resultMap.put("namespace", namespace);
                     // One-based iteration: start at one and use <=.
                     for (int i = 1; i <= nColumns; i++) {
-                        resultMap.put(meta.getColumnName(i), resultSet.getObject(i));
+                        String columnName = meta.getColumnName(i);
+                        if (BATCH_ROW_NUMBER.equals(columnName)) continue;
+                        resultMap.put(columnName, resultSet.getObject(i));
                     }
                     results.add(resultMap);
                 }
@@ -448,36 +813,25 @@ public class JDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
     }
 
     /**
-     * Check for the existence of the specified columns in the table. Note: this query seems to take
-     * between 10 and 30 milliseconds to get column names. This seems acceptable to avoid errors on,
+     * Check for the existence of the specified columns in the table. Note: the query for column names seems to take
+     * between 10 and 30 milliseconds, so its result is cached (see {@link NamespaceMetadata}). This avoids errors on,
      * e.g., where conditions that include columns which don't exist.
      * @param namespace         table namespace/feed ID
      * @param columnsToCheck    columns to verify existence in table
      * @return                  filtered set of columns verified to exist in table
      */
     private Set<String> filterByExistingColumns(String namespace, String... columnsToCheck) {
-        // Collect existing columns here.
-        Set<String> columnsForTable = new HashSet<>();
-        // Check table metadata for presence of columns.
-        Connection connection = null;
-        try {
-            connection = GTFSGraphQL.getConnection();
-            ResultSet columns = connection
-                .getMetaData()
-                .getColumns(null, namespace, tableName, null);
-            while (columns.next()) {
-                // Column name is in the 4th index
-                String column = columns.getString(4);
-                columnsForTable.add(column);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            DbUtils.closeQuietly(connection);
-        }
+        Set<String> existingColumns = new HashSet<>(getTableColumns(namespace));
         // Filter available columns in table by search columns.
-        columnsForTable.retainAll(Arrays.asList(columnsToCheck));
-        return columnsForTable;
+        existingColumns.retainAll(Arrays.asList(columnsToCheck));
+        return existingColumns;
+    }
+
+    /**
+     * Get the columns of this fetcher's table in the given namespace, which are empty if the table does not exist.
+     */
+    private Set<String> getTableColumns(String namespace) {
+        return NamespaceMetadata.forNamespace(namespace).getColumns(GTFSGraphQL.getDataSource(), tableName);
     }
 
     /**
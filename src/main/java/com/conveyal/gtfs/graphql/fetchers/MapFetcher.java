@@ -5,6 +5,8 @@ import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLOutputType;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static graphql.Scalars.GraphQLString;
@@ -15,7 +17,7 @@ import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
  * It allows pulling a single field out of the result of a DataFetcher that always returns all fields
  * (like our JDBC SQL fetcher).
  */
-public class MapFetcher implements DataFetcher {
+public class MapFetcher implements DataFetcher, SourceColumnFetcher {
 
     final String key;
 
@@ -29,6 +31,11 @@ public class MapFetcher implements DataFetcher {
         return ((Map<String, Object>)source).get(key);
     }
 
+    @Override
+    public List<String> getSourceColumns() {
+        return Collections.singletonList(key);
+    }
+
     public static GraphQLFieldDefinition field(String name) {
         return field(name, GraphQLString);
     }
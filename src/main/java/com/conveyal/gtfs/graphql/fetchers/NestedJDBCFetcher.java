@@ -24,7 +24,7 @@ import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
  * routes that serve a specific stop, starting with a top-level stop type, we can nest joins from stop ABC -> pattern
  * stops -> patterns -> routes (see below example implementation for more details).
  */
-public class NestedJDBCFetcher implements DataFetcher<List<Map<String, Object>>> {
+public class NestedJDBCFetcher implements DataFetcher<List<Map<String, Object>>>, SourceColumnFetcher {
 
     private static final Logger LOG = LoggerFactory.getLogger(NestedJDBCFetcher.class);
     private final JDBCFetcher[] jdbcFetchers;
@@ -58,6 +58,12 @@ public class NestedJDBCFetcher implements DataFetcher<List<Map<String, Object>>>
                 .build();
     }
 
+    /** Only the first fetcher joins on the enclosing entity. */
+    @Override
+    public List<String> getSourceColumns () {
+        return jdbcFetchers[0].getSourceColumns();
+    }
+
     @Override
     public List<Map<String, Object>> get (DataFetchingEnvironment environment) {
         // Store the join values here.
@@ -16,6 +16,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -30,7 +31,7 @@ import static graphql.schema.GraphQLObjectType.newObject;
 /**
  * Get quantity of rows in the given table.
  */
-public class RowCountFetcher implements DataFetcher {
+public class RowCountFetcher implements DataFetcher, SourceColumnFetcher {
 
     public static final Logger LOG = LoggerFactory.getLogger(RowCountFetcher.class);
 
@@ -53,6 +54,12 @@ public class RowCountFetcher implements DataFetcher {
         this.groupByField = groupByField;
     }
 
+    /** Only the filter field is read from the enclosing entity. */
+    @Override
+    public List<String> getSourceColumns() {
+        return filterField != null ? Collections.singletonList(filterField) : Collections.emptyList();
+    }
+
     @Override
     public Object get(DataFetchingEnvironment environment) {
         Map<String, Object> parentFeedMap = environment.getSource();
@@ -8,13 +8,14 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This wraps an SQL row fetcher, extracting only a single column of the specified type.
  * Because there's only one column, it collapses the result down into a list of elements of that column's type,
  * rather than a list of maps (one for each row) as the basic SQL fetcher does.
  */
-public class SQLColumnFetcher<T> implements DataFetcher<List<T>> {
+public class SQLColumnFetcher<T> implements DataFetcher<CompletableFuture<List<T>>>, SourceColumnFetcher {
 
     public static final Logger LOG = LoggerFactory.getLogger(SQLColumnFetcher.class);
 
@@ -33,13 +34,21 @@ public class SQLColumnFetcher<T> implements DataFetcher<List<T>> {
     }
 
     @Override
-    public List<T> get (DataFetchingEnvironment environment) {
-        List<T> result = new ArrayList<>();
+    public List<String> getSourceColumns () {
+        return jdbcFetcher.getSourceColumns();
+    }
+
+    @Override
+    public CompletableFuture<List<T>> get (DataFetchingEnvironment environment) {
         // Ideally we'd only fetch one column in the wrapped row fetcher.
-        for (Map<String, Object> row : jdbcFetcher.get(environment)) {
-            result.add((T)row.get(columnName));
-        }
-        return result;
+        // The rows may be fetched later, in a batch with those for other entities (see JDBCFetcher).
+        return jdbcFetcher.get(environment).thenApply(rows -> {
+            List<T> result = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                result.add((T)row.get(columnName));
+            }
+            return result;
+        });
     }
 
 }
@@ -0,0 +1,15 @@
+package com.conveyal.gtfs.graphql.fetchers;
+
+import java.util.List;
+
+/**
+ * A fetcher for a field of the rows fetched by a {@link JDBCFetcher}, which knows which columns of its source row it
+ * reads. JDBCFetcher selects only those columns for the requested fields, so fetchers that read other values from the
+ * source row (or the whole row) must not implement this interface.
+ */
+public interface SourceColumnFetcher {
+
+    /** @return the names of the columns of the source row read by this fetcher. */
+    List<String> getSourceColumns();
+
+}
@@ -0,0 +1,100 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.model.Entity;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Wraps a TableReader for a small table (i.e. anything but stop_times and shapes) so that, while caching is turned on,
+ * the whole table is read once into an {@link EntitySnapshot} on first use and all reads are served from that
+ * snapshot. Feed turns caching on for the duration of a validation run, so that all the validators share one copy of
+ * the stops, trips, routes etc. instead of each reading the tables again and building their own maps. While caching
+ * is turned off, reads go straight to the underlying reader as before.
+ */
+public class CachingTableReader<T extends Entity> implements TableReader<T> {
+
+    private final TableReader<T> source;
+    private final Function<T, String> keyFunction;
+    private volatile boolean caching = false;
+    private volatile EntitySnapshot<T> snapshot;
+
+    /**
+     * @param keyFunction gets the value of the table's key field (the one used by {@link #getOrdered(String)}) from
+     *                    an entity.
+     */
+    public CachingTableReader (TableReader<T> source, Function<T, String> keyFunction) {
+        this.source = source;
+        this.keyFunction = keyFunction;
+    }
+
+    /** Serve reads from a snapshot of the table, loaded on first use, until {@link #stopCaching()} is called. */
+    public void startCaching () {
+        caching = true;
+    }
+
+    /** Serve reads from the underlying table again, releasing any snapshot. */
+    public synchronized void stopCaching () {
+        caching = false;
+        snapshot = null;
+    }
+
+    /**
+     * Drop the current snapshot, if any, so that it is reloaded on next use. This must be called after writing to the
+     * table while caching is turned on.
+     */
+    public synchronized void invalidate () {
+        snapshot = null;
+    }
+
+    /**
+     * @return a snapshot of the table, shared with other callers if caching is turned on. Otherwise a new snapshot is
+     *         loaded on each call, which is still useful to look up many entities by ID.
+     */
+    public EntitySnapshot<T> getSnapshot () {
+        EntitySnapshot<T> current = snapshot;
+        if (current != null) return current;
+        synchronized (this) {
+            if (snapshot != null) return snapshot;
+            EntitySnapshot<T> loaded = new EntitySnapshot<>(source.getAllOrdered(), keyFunction);
+            if (caching) snapshot = loaded;
+            return loaded;
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator () {
+        return getAll().iterator();
+    }
+
+    @Override
+    public T get (String id) {
+        if (!caching) return source.get(id);
+        T entity = getSnapshot().get(id);
+        // Behave like the underlying reader, which finds no row.
+        if (entity == null) throw new NoSuchElementException(id);
+        return entity;
+    }
+
+    @Override
+    public Iterable<T> getOrdered (String id) {
+        return caching ? getSnapshot().getOrdered(id) : source.getOrdered(id);
+    }
+
+    @Override
+    public Iterable<T> getAll () {
+        return caching ? getSnapshot().getAll() : source.getAll();
+    }
+
+    @Override
+    public Iterable<T> getAllOrdered () {
+        return caching ? getSnapshot().getAll() : source.getAllOrdered();
+    }
+
+    /** Ranges are only used to read large tables in parts, so they are always read from the underlying table. */
+    @Override
+    public Iterable<T> getOrderedInRange (String fromId, String toId) {
+        return source.getOrderedInRange(fromId, toId);
+    }
+}
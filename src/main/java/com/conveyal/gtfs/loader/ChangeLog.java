@@ -0,0 +1,130 @@
+package com.conveyal.gtfs.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The change log of a feed records which entities have been edited (see {@link JdbcTableWriter}) since the feed was
+ * last validated, so that only the validation errors affected by those edits need to be recomputed (see
+ * {@link Feed#validateChanges}). Each change names a table and a field and value that identify the rows that were
+ * created, updated or deleted, e.g. the stop_times with a given trip_id. The log is a table in the feed's namespace,
+ * created by each writer before it first records a change (see {@link #createTable}) so that feeds loaded before it
+ * existed can be edited as usual. A full validation of the feed covers all recorded changes, so it clears the log
+ * (see {@link #clear}).
+ */
+public class ChangeLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLog.class);
+
+    public static final String TABLE_NAME = "change_log";
+
+    /** A change to the rows of a table with the given value in the given field. */
+    public static class Change {
+        public final String tableName;
+        public final String fieldName;
+        public final String value;
+
+        public Change (String tableName, String fieldName, String value) {
+            this.tableName = tableName;
+            this.fieldName = fieldName;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Create the change log table of the namespace if it does not exist yet. This is committed on its own connection
+     * rather than in the transaction recording the changes, so that the table stays in place if that transaction is
+     * rolled back and does not need to be checked for again. If the table is created, the cached metadata of the
+     * namespace is dropped (see {@link NamespaceMetadata}).
+     * @param namespace the namespace (schema) of the feed, without a separator.
+     */
+    public static void createTable (DataSource dataSource, String namespace) throws SQLException {
+        String tableName = namespace + "." + TABLE_NAME;
+        try (Connection connection = dataSource.getConnection()) {
+            if (tableExists(connection, tableName)) return;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(String.format(
+                    "create table if not exists %s " +
+                        "(change_id bigserial primary key, table_name varchar, field_name varchar, value varchar)",
+                    tableName
+                ));
+            }
+            connection.commit();
+        }
+        NamespaceMetadata.invalidate(namespace);
+    }
+
+    /**
+     * Record a change as part of the transaction on the given connection, so that it is only recorded if the change
+     * itself is committed. The change log table must exist (see {@link #createTable}).
+     * @param namespace the namespace (schema) of the feed, without a separator.
+     */
+    public static void record (Connection connection, String namespace, Change change) throws SQLException {
+        if (change.value == null) return;
+        String tableName = namespace + "." + TABLE_NAME;
+        try (PreparedStatement statement = connection.prepareStatement(String.format(
+            "insert into %s (table_name, field_name, value) values (?, ?, ?)", tableName
+        ))) {
+            statement.setString(1, change.tableName);
+            statement.setString(2, change.fieldName);
+            statement.setString(3, change.value);
+            statement.execute();
+        }
+    }
+
+    /**
+     * Remove all recorded changes from the log as part of the transaction on the given connection. If the transaction
+     * is rolled back, e.g. because validating the changes failed, the changes stay in the log. Changes recorded while
+     * the transaction is open are left for the next call.
+     * @param tablePrefix the namespace (schema) of the feed including the separator, or the empty string.
+     * @return the changes in no particular order, possibly including duplicates.
+     */
+    public static List<Change> take (Connection connection, String tablePrefix) throws SQLException {
+        String tableName = tablePrefix + TABLE_NAME;
+        List<Change> changes = new ArrayList<>();
+        // No change has ever been recorded if the table does not exist.
+        if (!tableExists(connection, tableName)) return changes;
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(String.format(
+                "delete from %s returning table_name, field_name, value", tableName
+            ));
+            while (resultSet.next()) {
+                changes.add(new Change(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3)));
+            }
+        }
+        LOG.info("Took {} changes from {}.", changes.size(), tableName);
+        return changes;
+    }
+
+    /**
+     * Remove all recorded changes from the log as part of the transaction on the given connection, e.g. before the
+     * whole feed is validated.
+     * @param tablePrefix the namespace (schema) of the feed including the separator, or the empty string.
+     */
+    public static void clear (Connection connection, String tablePrefix) throws SQLException {
+        String tableName = tablePrefix + TABLE_NAME;
+        if (!tableExists(connection, tableName)) return;
+        try (Statement statement = connection.createStatement()) {
+            int changeCount = statement.executeUpdate(String.format("delete from %s", tableName));
+            LOG.info("Cleared {} changes from {}.", changeCount, tableName);
+        }
+    }
+
+    /** @return whether the table exists, as seen by the transaction on the given connection. */
+    private static boolean tableExists (Connection connection, String tableName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select to_regclass(?)")) {
+            statement.setString(1, tableName);
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next() && resultSet.getString(1) != null;
+        }
+    }
+}
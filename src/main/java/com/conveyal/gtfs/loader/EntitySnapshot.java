@@ -0,0 +1,62 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.model.Entity;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An immutable in-memory copy of all the rows of a (small) table, indexed by the table's key field. This allows
+ * entities to be looked up by ID without a database round trip, and allows the same copy to be shared by several
+ * validators, possibly on different threads. The entities themselves are ordinary mutable objects, so they must not be
+ * modified by code reading from a snapshot.
+ */
+public class EntitySnapshot<T extends Entity> {
+
+    private final ImmutableList<T> entities;
+    private final ImmutableListMultimap<String, T> entitiesById;
+
+    /**
+     * @param orderedEntities the entities, as returned by TableReader#getAllOrdered.
+     * @param keyFunction gets the value of the table's key field from an entity.
+     */
+    public EntitySnapshot (Iterable<T> orderedEntities, Function<T, String> keyFunction) {
+        entities = ImmutableList.copyOf(orderedEntities);
+        ImmutableListMultimap.Builder<String, T> builder = ImmutableListMultimap.builder();
+        for (T entity : entities) {
+            String key = keyFunction.apply(entity);
+            // Rows with a missing key will have been reported on load, they can only be found by iteration.
+            if (key != null) builder.put(key, entity);
+        }
+        entitiesById = builder.build();
+    }
+
+    public int size () {
+        return entities.size();
+    }
+
+    /** @return all the entities, in the order they were loaded. */
+    public List<T> getAll () {
+        return entities;
+    }
+
+    /** @return the first entity with the given ID, or null if there is none. */
+    public T get (String id) {
+        List<T> matching = entitiesById.get(id);
+        return matching.isEmpty() ? null : matching.get(0);
+    }
+
+    /** @return all the entities with the given ID, in the order they were loaded (an empty list if there are none). */
+    public List<T> getOrdered (String id) {
+        return entitiesById.get(id);
+    }
+
+    /** @return a read-only view of this snapshot as a map from each ID to the first entity with that ID. */
+    public Map<String, T> asMap () {
+        return Maps.transformValues(entitiesById.asMap(), matching -> matching.iterator().next());
+    }
+}
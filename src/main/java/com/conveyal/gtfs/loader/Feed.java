@@ -3,17 +3,31 @@ package com.conveyal.gtfs.loader;
 import com.conveyal.gtfs.error.NewGTFSError;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.model.*;
+import com.conveyal.gtfs.storage.StopSpatialHash;
 import com.conveyal.gtfs.storage.StorageException;
 import com.conveyal.gtfs.util.InvalidNamespaceException;
 import com.conveyal.gtfs.validator.*;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import org.apache.commons.dbutils.DbUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.VALIDATOR_FAILED;
 
@@ -24,22 +38,36 @@ public class Feed {
 
     private static final Logger LOG = LoggerFactory.getLogger(Feed.class);
 
+    private static final double STOP_SPATIAL_HASH_CELL_METERS = 250;
+
+    /** Changes to these tables may affect the validation of individual trips (see {@link #validateChanges}). */
+    private static final Set<String> TRIP_VALIDATION_TABLES = ImmutableSet.of(
+        Table.TRIPS.name, Table.STOP_TIMES.name, Table.PATTERNS.name, Table.PATTERN_STOP.name, Table.ROUTES.name,
+        Table.STOPS.name
+    );
+
     private final DataSource dataSource;
 
     // The unique database schema name for this particular feed, including the separator character (dot).
     // This may be the empty string if the feed is stored in the root ("public") schema.
     private final String databaseSchemaPrefix;
 
-    public final TableReader<Agency>        agencies;
-    public final TableReader<Calendar>      calendars;
-    public final TableReader<CalendarDate>  calendarDates;
-    public final TableReader<FareAttribute> fareAttributes;
-    public final TableReader<Frequency>     frequencies;
-    public final TableReader<Route>         routes;
-    public final TableReader<Stop>          stops;
-    public final TableReader<Trip>          trips;
-    public final TableReader<StopTime>      stopTimes;
-    public final TableReader<Pattern>       patterns;
+    // The small tables are cached in memory during validation, see startCaching().
+    public final CachingTableReader<Agency>        agencies;
+    public final CachingTableReader<Calendar>      calendars;
+    public final CachingTableReader<CalendarDate>  calendarDates;
+    public final CachingTableReader<FareAttribute> fareAttributes;
+    public final CachingTableReader<Frequency>     frequencies;
+    public final CachingTableReader<Route>         routes;
+    public final CachingTableReader<Stop>          stops;
+    public final CachingTableReader<Trip>          trips;
+    public final TableReader<StopTime>             stopTimes;
+    // Patterns are written by PatternFinderValidator during validation, so they are not cached.
+    public final TableReader<Pattern>              patterns;
+
+    // The spatial hash of the stops used for nearby stop queries, and the snapshot of the stops it was built from.
+    private StopSpatialHash stopSpatialHash;
+    private EntitySnapshot<Stop> stopSpatialHashSnapshot;
 
     /**
      * Create a feed that reads tables over a JDBC connection. The connection should already be set to the right
@@ -51,14 +79,38 @@ public class Feed {
         // Ensure separator dot is present
         if (databaseSchemaPrefix != null && !databaseSchemaPrefix.endsWith(".")) databaseSchemaPrefix += ".";
         this.databaseSchemaPrefix = databaseSchemaPrefix == null ? "" : databaseSchemaPrefix;
-        agencies = new JDBCTableReader(Table.AGENCY, dataSource, databaseSchemaPrefix, EntityPopulator.AGENCY);
-        fareAttributes = new JDBCTableReader(Table.FARE_ATTRIBUTES, dataSource, databaseSchemaPrefix, EntityPopulator.FARE_ATTRIBUTE);
-        frequencies = new JDBCTableReader(Table.FREQUENCIES, dataSource, databaseSchemaPrefix, EntityPopulator.FREQUENCY);
-        calendars = new JDBCTableReader(Table.CALENDAR, dataSource, databaseSchemaPrefix, EntityPopulator.CALENDAR);
-        calendarDates = new JDBCTableReader(Table.CALENDAR_DATES, dataSource, databaseSchemaPrefix, EntityPopulator.CALENDAR_DATE);
-        routes = new JDBCTableReader(Table.ROUTES, dataSource, databaseSchemaPrefix, EntityPopulator.ROUTE);
-        stops = new JDBCTableReader(Table.STOPS, dataSource, databaseSchemaPrefix, EntityPopulator.STOP);
-        trips = new JDBCTableReader(Table.TRIPS, dataSource, databaseSchemaPrefix, EntityPopulator.TRIP);
+        agencies = new CachingTableReader<>(
+            new JDBCTableReader(Table.AGENCY, dataSource, databaseSchemaPrefix, EntityPopulator.AGENCY),
+            (Agency agency) -> agency.agency_id
+        );
+        fareAttributes = new CachingTableReader<>(
+            new JDBCTableReader(Table.FARE_ATTRIBUTES, dataSource, databaseSchemaPrefix, EntityPopulator.FARE_ATTRIBUTE),
+            (FareAttribute fare) -> fare.fare_id
+        );
+        frequencies = new CachingTableReader<>(
+            new JDBCTableReader(Table.FREQUENCIES, dataSource, databaseSchemaPrefix, EntityPopulator.FREQUENCY),
+            (Frequency frequency) -> frequency.trip_id
+        );
+        calendars = new CachingTableReader<>(
+            new JDBCTableReader(Table.CALENDAR, dataSource, databaseSchemaPrefix, EntityPopulator.CALENDAR),
+            (Calendar calendar) -> calendar.service_id
+        );
+        calendarDates = new CachingTableReader<>(
+            new JDBCTableReader(Table.CALENDAR_DATES, dataSource, databaseSchemaPrefix, EntityPopulator.CALENDAR_DATE),
+            (CalendarDate calendarDate) -> calendarDate.service_id
+        );
+        routes = new CachingTableReader<>(
+            new JDBCTableReader(Table.ROUTES, dataSource, databaseSchemaPrefix, EntityPopulator.ROUTE),
+            (Route route) -> route.route_id
+        );
+        stops = new CachingTableReader<>(
+            new JDBCTableReader(Table.STOPS, dataSource, databaseSchemaPrefix, EntityPopulator.STOP),
+            (Stop stop) -> stop.stop_id
+        );
+        trips = new CachingTableReader<>(
+            new JDBCTableReader(Table.TRIPS, dataSource, databaseSchemaPrefix, EntityPopulator.TRIP),
+            (Trip trip) -> trip.trip_id
+        );
         stopTimes = new JDBCTableReader(Table.STOP_TIMES, dataSource, databaseSchemaPrefix, EntityPopulator.STOP_TIME);
         patterns = new JDBCTableReader(Table.PATTERNS, dataSource, databaseSchemaPrefix, EntityPopulator.PATTERN);
     }
@@ -73,19 +125,232 @@ public class Feed {
      *   data is 100% visible. That would also avoid having to reconnect the error storage to the DB.
      */
     public ValidationResult validate (FeedValidatorCreator... additionalValidators) {
+        return validate(1, additionalValidators);
+    }
+
+    /**
+     * Run the standard and additional validation checks as above, using up to the given number of threads. With more
+     * than one thread, validators run concurrently, each reading tables over its own connections, except that a
+     * validator only starts once those it depends on (see {@link FeedValidator#getDependencies()}) have finished.
+     * The trips are also split into as many shards, validated at once by NewTripTimesValidator. The completion stage
+     * always runs on the calling thread once all validators have finished. The small tables are cached in memory for
+     * the duration of the run (see {@link #startCaching()}), so that they are read only once and shared.
+     */
+    public ValidationResult validate (int validationThreads, FeedValidatorCreator... additionalValidators) {
+        startCaching();
+        try {
+            return runValidation(validationThreads, additionalValidators);
+        } finally {
+            stopCaching();
+            // Validation creates tables (e.g., patterns) and adds pattern_id to trips.
+            NamespaceMetadata.invalidate(databaseSchemaPrefix);
+        }
+    }
+
+    private ValidationResult runValidation (int validationThreads, FeedValidatorCreator... additionalValidators) {
         long validationStartTime = System.currentTimeMillis();
         // Create an empty validation result that will have its fields populated by certain validators.
         ValidationResult validationResult = new ValidationResult();
-        // Error tables should already be present from the initial load.
-        // Reconnect to the existing error tables.
-        SQLErrorStorage errorStorage;
+        // Changes recorded before this point are covered by validating the whole feed, so they need not be validated
+        // again by validateChanges.
+        clearChangeLog();
+        SQLErrorStorage errorStorage = reconnectErrorStorage();
+        boolean closed = false;
+        List<FeedValidator> feedValidators;
+        int totalValidationErrors;
         try {
-            errorStorage = new SQLErrorStorage(dataSource.getConnection(), databaseSchemaPrefix, false);
-        } catch (SQLException | InvalidNamespaceException ex) {
-            throw new StorageException(ex);
+            int errorCountBeforeValidation = errorStorage.getErrorCount();
+            feedValidators =
+                createFeedValidators(errorStorage, validationResult, validationThreads, additionalValidators);
+
+            long[] validatorTimes = new long[feedValidators.size()];
+            if (validationThreads > 1) {
+                runValidatorsInParallel(feedValidators, validatorTimes, errorStorage, validationThreads);
+            } else {
+                for (int i = 0; i < feedValidators.size(); i++) {
+                    validatorTimes[i] = runValidator(feedValidators.get(i), errorStorage, false);
+                }
+            }
+            for (int i = 0; i < feedValidators.size(); i++) {
+                String validatorName = feedValidators.get(i).getClass().getSimpleName();
+                validationResult.validatorTimes.merge(validatorName, validatorTimes[i], Long::sum);
+            }
+            completeValidators(feedValidators, validationResult, errorStorage);
+            // Total validation errors accounts for errors found during both loading and validation. Otherwise, this
+            // value may be confusing if it reads zero but there were a number of data type or referential integrity
+            // errors found during feed loading stage.
+            totalValidationErrors = errorStorage.getErrorCount();
+            LOG.info("Errors found during load stage: {}", errorCountBeforeValidation);
+            LOG.info("Errors found by validators: {}", totalValidationErrors - errorCountBeforeValidation);
+            closed = true;
+            errorStorage.commitAndClose();
+        } finally {
+            // Release the storage's connection and writer thread if validation failed part way.
+            if (!closed) errorStorage.rollbackAndClose();
+        }
+        long validationEndTime = System.currentTimeMillis();
+        long totalValidationTime = validationEndTime - validationStartTime;
+        LOG.info("{} validators completed in {} milliseconds.", feedValidators.size(), totalValidationTime);
+
+        // update validation result fields
+        validationResult.errorCount = totalValidationErrors;
+        validationResult.validationTime = totalValidationTime;
+
+        // FIXME: Validation result date and int[] fields need to be set somewhere.
+        return validationResult;
+    }
+
+    private void clearChangeLog () {
+        try (Connection connection = dataSource.getConnection()) {
+            ChangeLog.clear(connection, databaseSchemaPrefix);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * Validate only what has changed since this feed was last validated, according to its change log (see
+     * {@link ChangeLog}), replacing the errors previously found on the changed entities. This is much faster than
+     * validating the whole feed after a few entities have been edited, but only covers some of the checks:
+     * <ul>
+     *     <li>The trips that have changed, or whose pattern, route or stops have changed, are validated again by the
+     *     trip validators that check each trip on its own (see {@link TripValidator#getTripErrorTypes()}).</li>
+     *     <li>Feed validators that read only small tables (see {@link FeedValidator#getInputTables()}) are run again
+     *     if any of those tables has changed, including any of the given additional validators.</li>
+     * </ul>
+     * The errors of other validators, e.g. those comparing trips with one another, and of the load stage are left as
+     * they are until the whole feed is validated again. The changes are removed from the change log only if this
+     * succeeds.
+     */
+    public ValidationResult validateChanges (FeedValidatorCreator... additionalValidators) {
+        startCaching();
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            List<ChangeLog.Change> changes = ChangeLog.take(connection, databaseSchemaPrefix);
+            ValidationResult validationResult = runChangeValidation(changes, connection, additionalValidators);
+            connection.commit();
+            return validationResult;
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        } finally {
+            // If anything failed before committing, this returns the changes to the log.
+            DbUtils.rollbackAndCloseQuietly(connection);
+            stopCaching();
+        }
+    }
+
+    private ValidationResult runChangeValidation (
+        List<ChangeLog.Change> changes,
+        Connection connection,
+        FeedValidatorCreator... additionalValidators
+    ) throws SQLException {
+        long validationStartTime = System.currentTimeMillis();
+        ValidationResult validationResult = new ValidationResult();
+        Set<String> changedTables = new HashSet<>();
+        for (ChangeLog.Change change : changes) changedTables.add(change.tableName);
+        SQLErrorStorage errorStorage = reconnectErrorStorage();
+        boolean closed = false;
+        List<FeedValidator> feedValidators = new ArrayList<>();
+        int totalValidationErrors;
+        try {
+            int errorCountBeforeValidation = errorStorage.getErrorCount();
+            List<FeedValidator> candidateValidators =
+                createFeedValidators(errorStorage, validationResult, 1, additionalValidators);
+            for (FeedValidator feedValidator : candidateValidators) {
+                Set<String> inputTables = feedValidator.getInputTables();
+                if (inputTables != null && !Collections.disjoint(inputTables, changedTables)) {
+                    errorStorage.removeErrors(feedValidator.getErrorTypes(), null);
+                    feedValidators.add(feedValidator);
+                }
+            }
+            if (!Collections.disjoint(TRIP_VALIDATION_TABLES, changedTables)) {
+                Set<String> changedTripIds = getChangedTripIds(changes, connection);
+                NewTripTimesValidator tripTimesValidator =
+                    new NewTripTimesValidator(this, errorStorage, changedTripIds);
+                // Also remove the errors on trips that no longer exist, e.g. because their route was deleted.
+                errorStorage.removeErrors(
+                    tripTimesValidator.getTripErrorTypes(),
+                    String.format(
+                        "e.entity_type in ('Trip', 'StopTime') and (e.entity_id = any(?) or " +
+                            "(e.entity_id is not null and not exists (select 1 from %s t where t.trip_id = e.entity_id)))",
+                        getTableNameWithSchemaPrefix(Table.TRIPS.name)
+                    ),
+                    changedTripIds
+                );
+                feedValidators.add(tripTimesValidator);
+            }
+            long[] validatorTimes = new long[feedValidators.size()];
+            for (int i = 0; i < feedValidators.size(); i++) {
+                validatorTimes[i] = runValidator(feedValidators.get(i), errorStorage, false);
+                String validatorName = feedValidators.get(i).getClass().getSimpleName();
+                validationResult.validatorTimes.merge(validatorName, validatorTimes[i], Long::sum);
+            }
+            completeValidators(feedValidators, validationResult, errorStorage);
+            totalValidationErrors = errorStorage.getErrorCount();
+            LOG.info("Change in error count after validating {} changes: {}", changes.size(),
+                totalValidationErrors - errorCountBeforeValidation);
+            closed = true;
+            errorStorage.commitAndClose();
+        } finally {
+            // Release the storage's connection and writer thread if validation failed part way.
+            if (!closed) errorStorage.rollbackAndClose();
         }
-        int errorCountBeforeValidation = errorStorage.getErrorCount();
-        // Create list of standard validators to run on every feed.
+        validationResult.errorCount = totalValidationErrors;
+        validationResult.validationTime = System.currentTimeMillis() - validationStartTime;
+        LOG.info("{} validators completed in {} milliseconds.", feedValidators.size(), validationResult.validationTime);
+        return validationResult;
+    }
+
+    /**
+     * @return the IDs of the trips affected by the given changes: those changed directly (including their stop times),
+     *         and those on changed patterns or routes or serving changed stops. Deleted trips are not included.
+     */
+    private Set<String> getChangedTripIds (List<ChangeLog.Change> changes, Connection connection) throws SQLException {
+        Set<String> tripIds = new HashSet<>();
+        // The values of each field identifying trips indirectly, e.g. pattern_id.
+        Map<String, Set<String>> valuesByField = new HashMap<>();
+        for (ChangeLog.Change change : changes) {
+            if (!TRIP_VALIDATION_TABLES.contains(change.tableName)) continue;
+            if ("trip_id".equals(change.fieldName)) tripIds.add(change.value);
+            else valuesByField.computeIfAbsent(change.fieldName, field -> new HashSet<>()).add(change.value);
+        }
+        for (Map.Entry<String, Set<String>> entry : valuesByField.entrySet()) {
+            String sql;
+            switch (entry.getKey()) {
+                case "pattern_id":
+                case "route_id":
+                    sql = String.format("select trip_id from %s where %s = any(?)",
+                        getTableNameWithSchemaPrefix(Table.TRIPS.name), entry.getKey());
+                    break;
+                case "stop_id":
+                    sql = String.format("select distinct trip_id from %s where stop_id = any(?)",
+                        getTableNameWithSchemaPrefix(Table.STOP_TIMES.name));
+                    break;
+                default:
+                    continue;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("varchar", entry.getValue().toArray()));
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) tripIds.add(resultSet.getString(1));
+            }
+        }
+        tripIds.remove(null);
+        return tripIds;
+    }
+
+    /**
+     * @return the standard validators to run on every feed, followed by those created by the given additional
+     *         validator creators.
+     */
+    private List<FeedValidator> createFeedValidators (
+        SQLErrorStorage errorStorage,
+        ValidationResult validationResult,
+        int validationThreads,
+        FeedValidatorCreator... additionalValidators
+    ) {
         List<FeedValidator> feedValidators = Lists.newArrayList(
             new MisplacedStopValidator(this, errorStorage, validationResult),
             new DuplicateStopsValidator(this, errorStorage),
@@ -93,32 +358,35 @@ public class Feed {
             new FaresValidator(this, errorStorage),
             new FrequencyValidator(this, errorStorage),
             new TimeZoneValidator(this, errorStorage),
-            new NewTripTimesValidator(this, errorStorage),
+            new NewTripTimesValidator(this, errorStorage, validationThreads),
             new NamesValidator(this, errorStorage)
         );
         // Create additional validators specified in this method's args and add to list of feed validators to run.
         for (FeedValidatorCreator creator : additionalValidators) {
             if (creator != null) feedValidators.add(creator.create(this, errorStorage));
         }
+        return feedValidators;
+    }
 
-        for (FeedValidator feedValidator : feedValidators) {
-            String validatorName = feedValidator.getClass().getSimpleName();
-            try {
-                LOG.info("Running {}.", validatorName);
-                int errorCountBefore = errorStorage.getErrorCount();
-                feedValidator.validate();
-                LOG.info("{} found {} errors.", validatorName, errorStorage.getErrorCount() - errorCountBefore);
-            } catch (Exception e) {
-                // store an error if the validator fails
-                // FIXME: should the exception be stored?
-                String badValue = String.join(":", validatorName, e.toString());
-                errorStorage.storeError(NewGTFSError.forFeed(VALIDATOR_FAILED, badValue));
-                LOG.error("{} failed.", validatorName);
-                LOG.error(e.toString());
-                e.printStackTrace();
-            }
+    /**
+     * Error tables should already be present from the initial load, so reconnect to the existing error tables.
+     */
+    private SQLErrorStorage reconnectErrorStorage () {
+        try {
+            return new SQLErrorStorage(dataSource.getConnection(), databaseSchemaPrefix, false);
+        } catch (SQLException | InvalidNamespaceException ex) {
+            throw new StorageException(ex);
         }
-        // Signal to all validators that validation is complete and allow them to report on results / status.
+    }
+
+    /**
+     * Signal to all validators that validation is complete and allow them to report on results / status.
+     */
+    private static void completeValidators (
+        List<FeedValidator> feedValidators,
+        ValidationResult validationResult,
+        SQLErrorStorage errorStorage
+    ) {
         for (FeedValidator feedValidator : feedValidators) {
             try {
                 feedValidator.complete(validationResult);
@@ -128,23 +396,176 @@ public class Feed {
                 LOG.error("Validator failed completion stage.", e);
             }
         }
-        // Total validation errors accounts for errors found during both loading and validation. Otherwise, this value
-        // may be confusing if it reads zero but there were a number of data type or referential integrity errors found
-        // during feed loading stage.
-        int totalValidationErrors = errorStorage.getErrorCount();
-        LOG.info("Errors found during load stage: {}", errorCountBeforeValidation);
-        LOG.info("Errors found by validators: {}", totalValidationErrors - errorCountBeforeValidation);
-        errorStorage.commitAndClose();
-        long validationEndTime = System.currentTimeMillis();
-        long totalValidationTime = validationEndTime - validationStartTime;
-        LOG.info("{} validators completed in {} milliseconds.", feedValidators.size(), totalValidationTime);
+    }
 
-        // update validation result fields
-        validationResult.errorCount = totalValidationErrors;
-        validationResult.validationTime = totalValidationTime;
+    /**
+     * Run a single validator, storing an error if it fails.
+     * @param concurrent whether other validators may be storing errors at the same time, in which case the number of
+     *                   errors found by this validator cannot be logged.
+     * @return the time taken in milliseconds
+     */
+    private static long runValidator (FeedValidator feedValidator, SQLErrorStorage errorStorage, boolean concurrent) {
+        long startTime = System.currentTimeMillis();
+        String validatorName = feedValidator.getClass().getSimpleName();
+        try {
+            LOG.info("Running {}.", validatorName);
+            int errorCountBefore = errorStorage.getErrorCount();
+            feedValidator.validate();
+            if (concurrent) {
+                LOG.info("{} finished in {} ms.", validatorName, System.currentTimeMillis() - startTime);
+            } else {
+                LOG.info("{} found {} errors.", validatorName, errorStorage.getErrorCount() - errorCountBefore);
+            }
+        } catch (Exception e) {
+            // store an error if the validator fails
+            // FIXME: should the exception be stored?
+            String badValue = String.join(":", validatorName, e.toString());
+            errorStorage.storeError(NewGTFSError.forFeed(VALIDATOR_FAILED, badValue));
+            LOG.error("{} failed.", validatorName);
+            LOG.error(e.toString());
+            e.printStackTrace();
+        }
+        return System.currentTimeMillis() - startTime;
+    }
 
-        // FIXME: Validation result date and int[] fields need to be set somewhere.
-        return validationResult;
+    /**
+     * Run the validators on a thread pool, starting each one as soon as the validators it depends on have finished.
+     * A validator that fails still counts as finished, as when validators are run one after another. If validators
+     * depend on one another in a cycle, none of them is started.
+     */
+    private static void runValidatorsInParallel (
+        List<FeedValidator> feedValidators,
+        long[] validatorTimes,
+        SQLErrorStorage errorStorage,
+        int validationThreads
+    ) {
+        List<List<Integer>> dependencies = findDependencies(feedValidators);
+        ExecutorService executor = Executors.newFixedThreadPool(validationThreads);
+        try {
+            CompletableFuture<?>[] runs = new CompletableFuture<?>[feedValidators.size()];
+            for (int i = 0; i < feedValidators.size(); i++) {
+                scheduleValidator(i, feedValidators, dependencies, runs, validatorTimes, errorStorage, executor);
+            }
+            CompletableFuture.allOf(runs).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return for each validator, the indices of the validators it depends on. Dependencies on validators that are not
+     *         being run are ignored.
+     * @throws IllegalStateException if validators depend on one another in a cycle.
+     */
+    private static List<List<Integer>> findDependencies (List<FeedValidator> feedValidators) {
+        List<List<Integer>> dependencies = new ArrayList<>();
+        for (int i = 0; i < feedValidators.size(); i++) {
+            List<Integer> indices = new ArrayList<>();
+            for (Class<? extends FeedValidator> dependency : feedValidators.get(i).getDependencies()) {
+                for (int d = 0; d < feedValidators.size(); d++) {
+                    if (d != i && dependency.isInstance(feedValidators.get(d))) indices.add(d);
+                }
+            }
+            dependencies.add(indices);
+        }
+        boolean[] visiting = new boolean[feedValidators.size()];
+        boolean[] checked = new boolean[feedValidators.size()];
+        for (int i = 0; i < feedValidators.size(); i++) {
+            checkForCircularDependency(i, feedValidators, dependencies, visiting, checked);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Follow the dependencies of the validator at the given index depth first, throwing an exception if they lead
+     * back to a validator that is still being visited.
+     */
+    private static void checkForCircularDependency (
+        int index,
+        List<FeedValidator> feedValidators,
+        List<List<Integer>> dependencies,
+        boolean[] visiting,
+        boolean[] checked
+    ) {
+        if (checked[index]) return;
+        if (visiting[index]) {
+            String validatorName = feedValidators.get(index).getClass().getSimpleName();
+            throw new IllegalStateException("Circular dependency on " + validatorName);
+        }
+        visiting[index] = true;
+        for (int d : dependencies.get(index)) {
+            checkForCircularDependency(d, feedValidators, dependencies, visiting, checked);
+        }
+        visiting[index] = false;
+        checked[index] = true;
+    }
+
+    /**
+     * Schedule the validator at the given index to run once its dependencies have run, scheduling the dependencies
+     * first if needed. The dependencies must not be circular (see {@link #findDependencies(List)}).
+     */
+    private static CompletableFuture<?> scheduleValidator (
+        int index,
+        List<FeedValidator> feedValidators,
+        List<List<Integer>> dependencies,
+        CompletableFuture<?>[] runs,
+        long[] validatorTimes,
+        SQLErrorStorage errorStorage,
+        ExecutorService executor
+    ) {
+        if (runs[index] != null) return runs[index];
+        FeedValidator feedValidator = feedValidators.get(index);
+        List<CompletableFuture<?>> dependencyRuns = new ArrayList<>();
+        for (int d : dependencies.get(index)) {
+            dependencyRuns.add(scheduleValidator(d, feedValidators, dependencies, runs, validatorTimes, errorStorage,
+                executor));
+        }
+        runs[index] = CompletableFuture.allOf(dependencyRuns.toArray(new CompletableFuture<?>[0]))
+            .thenRunAsync(() -> validatorTimes[index] = runValidator(feedValidator, errorStorage, true), executor);
+        return runs[index];
+    }
+
+    /**
+     * Keep an immutable in-memory snapshot of each of the small tables, loaded on first use, and serve reads of those
+     * tables from it until {@link #stopCaching()} is called. Anything writing to one of these tables in the meantime
+     * must invalidate it (see {@link CachingTableReader#invalidate()}).
+     */
+    public void startCaching () {
+        for (CachingTableReader<?> table : cachedTables()) table.startCaching();
+    }
+
+    /** Read the small tables from the database again, releasing their snapshots. */
+    public void stopCaching () {
+        for (CachingTableReader<?> table : cachedTables()) table.stopCaching();
+    }
+
+    private List<CachingTableReader<?>> cachedTables () {
+        return Lists.newArrayList(agencies, calendars, calendarDates, fareAttributes, frequencies, routes, stops, trips);
+    }
+
+    /**
+     * @return the stops within the given distance in meters of the given point, nearest first. The spatial hash of the
+     *         stops is kept for as long as the stops snapshot it was built from, so to make many queries outside of
+     *         validation, call {@link #startCaching()} first.
+     */
+    public List<Stop> getStopsWithinRadius (double lat, double lon, double radiusMeters) {
+        return getStopSpatialHash().withinRadius(lat, lon, radiusMeters);
+    }
+
+    private synchronized StopSpatialHash getStopSpatialHash () {
+        EntitySnapshot<Stop> snapshot = stops.getSnapshot();
+        if (snapshot != stopSpatialHashSnapshot) {
+            stopSpatialHash = new StopSpatialHash(snapshot.getAll(), STOP_SPATIAL_HASH_CELL_METERS);
+            stopSpatialHashSnapshot = snapshot;
+        }
+        return stopSpatialHash;
+    }
+
+    /**
+     * @return the days on which each service in this feed is active, according to its calendars and calendar dates.
+     */
+    public ServiceCalendar getServiceCalendar () {
+        return new ServiceCalendar(calendars, calendarDates);
     }
 
     /**
@@ -124,6 +124,15 @@ public class JDBCTableReader<T extends Entity> implements TableReader<T> {
         return () -> new EntityIterator(null, true);
     }
 
+    /**
+     * Get all the items from this table with IDs between fromId and toId inclusive (as compared by the database), in
+     * order. This allows a large table to be read in several parts, e.g. by several threads at once.
+     */
+    @Override
+    public Iterable<T> getOrderedInRange (final String fromId, final String toId) {
+        return () -> new EntityIterator(fromId, toId, true);
+    }
+
     /**
      * @return the total number of rows in this table, or -1 if the table does not exist.
      */
@@ -166,21 +175,31 @@ public class JDBCTableReader<T extends Entity> implements TableReader<T> {
         private ResultSet results;
 
         EntityIterator (String id, boolean ordered) {
+            this(id, id, ordered);
+        }
+
+        /**
+         * Iterate over the entities with IDs from fromId to toId inclusive, or all entities if both are null.
+         */
+        EntityIterator (String fromId, String toId, boolean ordered) {
             try {
                 connection = dataSource.getConnection();
                 PreparedStatement preparedStatement;
                 String sql = selectClause;
                 String idField = specTable.getKeyFieldName();
                 String orderByField = specTable.getOrderFieldName();
-                if (id != null) {
+                boolean singleId = fromId != null && fromId.equals(toId);
+                if (singleId) {
                     sql += String.format(" where %s = ?", idField);
+                } else if (fromId != null) {
+                    sql += String.format(" where %s >= ? and %s <= ?", idField, idField);
                 }
                 if (ordered && orderByField != null) {
                     sql += String.format(" order by %s, %s", idField, orderByField);
                 }
                 preparedStatement =
                         connection.prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY, CLOSE_CURSORS_AT_COMMIT);
-                if (id != null && orderByField == null) {
+                if (singleId && orderByField == null) {
                     // Select a particular ID on a table without sequence numbers. There should be only one result.
                     // Do not use cursor.
                     preparedStatement.setFetchSize(0);
@@ -192,9 +211,10 @@ public class JDBCTableReader<T extends Entity> implements TableReader<T> {
                     // Those settings allow cursors to be used efficiently.
                     preparedStatement.setFetchSize(1000);
                 }
-                if (id != null) {
-                    // Fill the primary key into the prepared statement
-                    preparedStatement.setString(1, id);
+                if (fromId != null) {
+                    // Fill the primary key (or the range of keys) into the prepared statement
+                    preparedStatement.setString(1, fromId);
+                    if (!singleId) preparedStatement.setString(2, toId);
                 }
                 // Display the SQL statement for clarity
                 LOG.info(preparedStatement.toString());
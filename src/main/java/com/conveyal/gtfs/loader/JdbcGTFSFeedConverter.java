@@ -140,6 +140,8 @@ public class JdbcGTFSFeedConverter {
             result.fatalException = ex.getMessage();
         } finally {
             DbUtils.closeQuietly(connection);
+            // Drop any metadata read while the tables were being created.
+            NamespaceMetadata.invalidate(result.uniqueIdentifier);
         }
         return result;
     }
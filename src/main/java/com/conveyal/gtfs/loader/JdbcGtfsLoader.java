@@ -10,6 +10,7 @@ import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import org.apache.commons.dbutils.DbUtils;
 import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +19,12 @@ import javax.sql.DataSource;
 import java.io.*;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -31,8 +38,15 @@ import static com.conveyal.gtfs.util.Util.randomIdString;
  * table definitions and SQL statements to interact with those tables. It retains all columns present in the GTFS,
  * including optional columns, known extensions, and unrecognized proprietary extensions.
  *
- * It supports several ways of putting the data into the tables: batched prepared inserts or loading from an
- * intermediate tab separated text file.
+ * It supports several ways of putting the data into the tables: batched prepared inserts or (for Postgres) streaming
+ * tab separated text straight into a COPY operation while the CSV is being parsed and validated.
+ *
+ * Tables are loaded one at a time on a single connection by default. When a maximum number of parallel tables greater
+ * than one is supplied (and the database is Postgres), each table is loaded on its own pooled connection as soon as
+ * all of the tables it depends on for referential integrity checks have finished loading. Independently of that, when
+ * a number of parse threads greater than one is supplied (Postgres only), the records of each table are read in
+ * chunks and their field values are converted and validated on a pool of worker threads, while reference checks and
+ * output to the database happen in the original record order.
  *
  * Our previous approach involved loading GTFS CSV tables into Java objects and then using an object-relational mapping
  * to put those objects into a database. In that case a fixed number of fields are represented. If the GTFS feed
@@ -66,6 +80,11 @@ import static com.conveyal.gtfs.util.Util.randomIdString;
 public class JdbcGtfsLoader {
 
     public static final long INSERT_BATCH_SIZE = 500;
+    // Size of the buffer used to stream rows into a Postgres COPY operation. This bounds the amount of converted text
+    // held in memory: when it fills up, the rows are sent to the database while parsing continues.
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+    // Number of CSV records handed to a worker thread at once when parsing a table in parallel.
+    private static final int PARSE_CHUNK_SIZE = 10_000;
     // Represents null in Postgres text format
     public static final String POSTGRES_NULL_TEXT = "\\N";
     private static final Logger LOG = LoggerFactory.getLogger(JdbcGtfsLoader.class);
@@ -73,23 +92,101 @@ public class JdbcGtfsLoader {
     private String gtfsFilePath;
     protected ZipFile zip;
 
-    private File tempTextFile;
-    private PrintStream tempTextFileStream;
+    // COPY operations for tables currently being loaded, keyed on the spec table so that any copy left open by a failed
+    // table load can be cancelled (there may be several at once when loading tables in parallel).
+    private final Map<Table, PGCopyOutputStream> activeCopies = new ConcurrentHashMap<>();
     private PreparedStatement insertStatement = null;
 
     private final DataSource dataSource;
 
+    // The maximum number of tables that may be loaded at once. A value of one (the default) loads tables serially.
+    private final int maxParallelTables;
+
+    // The number of threads used to convert and validate the field values of each table. A value of one (the default)
+    // processes records on the thread loading the table.
+    private final int parseThreads;
+    // Shared by all tables being loaded, only created when parseThreads is greater than one.
+    private ExecutorService parseExecutor;
+
+    // The maximum number of errors of each type to store in the errors table (all errors are still counted).
+    private final Map<NewGTFSErrorType, Integer> maxStoredErrorsByType;
+
     // These fields will be filled in once feed loading begins.
     private Connection connection;
     private String tablePrefix;
     private SQLErrorStorage errorStorage;
+    // Used only by the error storage, which writes errors concurrently with loading.
+    private Connection errorStorageConnection;
 
     // Contains references to unique entity IDs during load stage used for referential integrity check.
     private ReferenceTracker referenceTracker = new ReferenceTracker();
 
+    /**
+     * The order in which tables are loaded in serial mode. This order satisfies all referential integrity checks, and
+     * in parallel mode it is used to determine which tables each table must wait for (see {@link #getLoadDependencies}).
+     */
+    static final Table[] TABLES_IN_LOAD_ORDER = {
+        Table.AGENCY,
+        Table.CALENDAR,
+        Table.CALENDAR_DATES,
+        Table.ROUTES,
+        Table.FARE_ATTRIBUTES,
+        Table.FEED_INFO,
+        Table.SHAPES,
+        Table.PATTERNS, // refs shapes and routes.
+        Table.STOPS,
+        Table.FARE_RULES,
+        Table.TRIPS, // refs routes
+        Table.TRANSFERS, // refs trips.
+        Table.FREQUENCIES, // refs trips
+        Table.STOP_TIMES,
+        Table.TRANSLATIONS,
+        Table.ATTRIBUTIONS
+    };
+
     public JdbcGtfsLoader(String gtfsFilePath, DataSource dataSource) {
+        this(gtfsFilePath, dataSource, 1);
+    }
+
+    /**
+     * @param maxParallelTables the maximum number of tables to load at once, each on its own connection. Values less
+     *                          than or equal to one load the tables serially on a single connection.
+     */
+    public JdbcGtfsLoader(String gtfsFilePath, DataSource dataSource, int maxParallelTables) {
+        this(gtfsFilePath, dataSource, maxParallelTables, 1);
+    }
+
+    /**
+     * @param maxParallelTables the maximum number of tables to load at once, each on its own connection. Values less
+     *                          than or equal to one load the tables serially on a single connection.
+     * @param parseThreads      the number of worker threads used to convert and validate field values within tables.
+     *                          Values less than or equal to one process each table's records on a single thread.
+     */
+    public JdbcGtfsLoader(String gtfsFilePath, DataSource dataSource, int maxParallelTables, int parseThreads) {
+        this(gtfsFilePath, dataSource, maxParallelTables, parseThreads, Collections.emptyMap());
+    }
+
+    /**
+     * @param maxParallelTables     the maximum number of tables to load at once, each on its own connection. Values
+     *                              less than or equal to one load the tables serially on a single connection.
+     * @param parseThreads          the number of worker threads used to convert and validate field values within
+     *                              tables. Values less than or equal to one process each table's records on a single
+     *                              thread.
+     * @param maxStoredErrorsByType the maximum number of errors to store for each error type that should be capped
+     *                              (see {@link SQLErrorStorage}). These caps also apply when the feed is validated.
+     */
+    public JdbcGtfsLoader(
+        String gtfsFilePath,
+        DataSource dataSource,
+        int maxParallelTables,
+        int parseThreads,
+        Map<NewGTFSErrorType, Integer> maxStoredErrorsByType
+    ) {
         this.gtfsFilePath = gtfsFilePath;
         this.dataSource = dataSource;
+        this.maxParallelTables = Math.max(1, maxParallelTables);
+        this.parseThreads = Math.max(1, parseThreads);
+        this.maxStoredErrorsByType = maxStoredErrorsByType;
     }
 
     /**
@@ -111,7 +208,8 @@ public class JdbcGtfsLoader {
     // Murmur took 317 msec, 5e5968f9bf5e1cdf711f6f48fcd94355
     // SHA1 took 1072 msec,  9fb356af4be2750f20955203787ec6f95d32ef22
 
-    // There appears to be no advantage to loading tables in parallel, as the whole loading process is I/O bound.
+    // Loading tables in parallel only pays off when the database and disks are not already saturated by a single table
+    // load (e.g., on machines with many cores loading a large feed), so it must be explicitly enabled.
     public FeedLoadResult loadTables() {
 
         // This result object will be returned to the caller to summarize the feed and report any critical errors.
@@ -138,39 +236,57 @@ public class JdbcGtfsLoader {
             result.filename = gtfsFilePath;
             result.uniqueIdentifier = tablePrefix;
 
-            // The order of the following four lines should not be changed because the schema needs to be in place
+            // The order of the following lines should not be changed because the schema needs to be in place
             // before the error storage can be constructed, which in turn needs to exist in case any errors are
             // encountered during the loading process.
             {
                 createSchema(connection, tablePrefix);
+                // The error storage writes errors on a background thread, so it is given a connection of its own
+                // rather than sharing the one used to load tables. The schema must be committed to be visible to it.
+                connection.commit();
+                errorStorageConnection = dataSource.getConnection();
                 //the SQLErrorStorage constructor expects the tablePrefix to contain the dot separator.
-                this.errorStorage = new SQLErrorStorage(connection, tablePrefix + ".", true);
+                this.errorStorage = new SQLErrorStorage(
+                    errorStorageConnection, tablePrefix + ".", true, maxStoredErrorsByType
+                );
                 //registerFeed accesses this.tablePrefix which shouldn't contain the dot separator.
                 registerFeed(gtfsFile);
                 // Include the dot separator in the table prefix from this point onwards.
                 // This allows everything to work even when there's no prefix.
                 this.tablePrefix += ".";
             }
-            // Load each table in turn, saving some summary information about what happened during each table load.
-            // The loading order is needed for referential integrity.
-            result.agency = load(Table.AGENCY);
-            result.calendar = load(Table.CALENDAR);
-            result.calendarDates = load(Table.CALENDAR_DATES);
-            result.routes = load(Table.ROUTES);
-            result.fareAttributes = load(Table.FARE_ATTRIBUTES);
-            result.feedInfo = load(Table.FEED_INFO);
-            result.shapes = load(Table.SHAPES);
-            result.patterns = load(Table.PATTERNS); // refs shapes and routes.
-            result.stops = load(Table.STOPS);
-            result.fareRules = load(Table.FARE_RULES);
-            result.trips = load(Table.TRIPS); // refs routes
-            result.transfers = load(Table.TRANSFERS); // refs trips.
-            result.frequencies = load(Table.FREQUENCIES); // refs trips
-            result.stopTimes = load(Table.STOP_TIMES);
-            result.translations = load(Table.TRANSLATIONS);
-            result.attributions = load(Table.ATTRIBUTIONS);
+            // Load each table, saving some summary information about what happened during each table load.
+            // The loading order (or, in parallel mode, the dependencies between tables) is needed for referential
+            // integrity.
+            boolean postgres = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+            if ((maxParallelTables > 1 || parseThreads > 1) && !postgres) {
+                LOG.warn("Parallel loading is only supported for Postgres. Loading tables serially.");
+            }
+            if (parseThreads > 1 && postgres) {
+                LOG.info("Converting field values on {} threads.", parseThreads);
+                parseExecutor = Executors.newFixedThreadPool(parseThreads);
+            }
+            Map<Table, TableLoadResult> tableLoadResults = maxParallelTables > 1 && postgres
+                ? loadTablesInParallel()
+                : loadTablesSerially(postgres);
+            result.agency = tableLoadResults.get(Table.AGENCY);
+            result.calendar = tableLoadResults.get(Table.CALENDAR);
+            result.calendarDates = tableLoadResults.get(Table.CALENDAR_DATES);
+            result.routes = tableLoadResults.get(Table.ROUTES);
+            result.fareAttributes = tableLoadResults.get(Table.FARE_ATTRIBUTES);
+            result.feedInfo = tableLoadResults.get(Table.FEED_INFO);
+            result.shapes = tableLoadResults.get(Table.SHAPES);
+            result.patterns = tableLoadResults.get(Table.PATTERNS);
+            result.stops = tableLoadResults.get(Table.STOPS);
+            result.fareRules = tableLoadResults.get(Table.FARE_RULES);
+            result.trips = tableLoadResults.get(Table.TRIPS);
+            result.transfers = tableLoadResults.get(Table.TRANSFERS);
+            result.frequencies = tableLoadResults.get(Table.FREQUENCIES);
+            result.stopTimes = tableLoadResults.get(Table.STOP_TIMES);
+            result.translations = tableLoadResults.get(Table.TRANSLATIONS);
+            result.attributions = tableLoadResults.get(Table.ATTRIBUTIONS);
             result.errorCount = errorStorage.getErrorCount();
-            // This will commit and close the single connection that has been shared between all preceding load steps.
+            // This will commit and close the error storage connection.
             errorStorage.commitAndClose();
             zip.close();
             result.completionTime = System.currentTimeMillis();
@@ -182,7 +298,12 @@ public class JdbcGtfsLoader {
             ex.printStackTrace();
             result.fatalException = ex.toString();
         } finally {
+            if (parseExecutor != null) parseExecutor.shutdown();
             if (connection != null) DbUtils.closeQuietly(connection);
+            // This also stops the error storage writer thread if loading failed before the storage was closed.
+            if (errorStorageConnection != null) DbUtils.closeQuietly(errorStorageConnection);
+            // Drop any metadata read while the tables were being created.
+            NamespaceMetadata.invalidate(result.uniqueIdentifier);
         }
         return result;
     }
@@ -275,34 +396,132 @@ public class JdbcGtfsLoader {
     }
 
     /**
-     * This wraps the main internal table loader method to catch exceptions and figure out how many errors happened.
+     * Load each table in turn, recording the number of errors found in each table. For Postgres, each table is loaded
+     * on a new connection so that the COPY stream of one table is never left open on the connection used to load the
+     * next. For other databases the single shared connection is used throughout. In both cases errors are stored on
+     * the error storage's own connection.
+     */
+    private Map<Table, TableLoadResult> loadTablesSerially(boolean postgres) {
+        Map<Table, TableLoadResult> tableLoadResults = new HashMap<>();
+        for (Table table : TABLES_IN_LOAD_ORDER) {
+            int initialErrorCount = errorStorage.getErrorCount();
+            TableLoadResult tableLoadResult = postgres ? loadOnNewConnection(table) : load(table, connection);
+            tableLoadResult.errorCount = errorStorage.getErrorCount() - initialErrorCount;
+            tableLoadResults.put(table, tableLoadResult);
+        }
+        return tableLoadResults;
+    }
+
+    /**
+     * Load tables concurrently, each on its own pooled connection, with at most maxParallelTables loading at once.
+     * Each table waits until the tables it depends on (see {@link #getLoadDependencies}) have finished loading, so the
+     * reference tracker contains exactly the same entries during each table load as it would in the serial path.
+     *
+     * Because error storage is shared between all tables, per-table error counts cannot be derived from the change in
+     * the total error count. Instead they are tallied by entity type once all tables have finished loading.
+     */
+    private Map<Table, TableLoadResult> loadTablesInParallel() {
+        LOG.info("Loading up to {} tables in parallel.", maxParallelTables);
+        ExecutorService executor = Executors.newFixedThreadPool(maxParallelTables);
+        Map<Table, CompletableFuture<TableLoadResult>> futures = new HashMap<>();
+        try {
+            for (Table table : TABLES_IN_LOAD_ORDER) {
+                CompletableFuture<?>[] dependencies = getLoadDependencies(table, TABLES_IN_LOAD_ORDER).stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+                futures.put(
+                    table,
+                    CompletableFuture.allOf(dependencies).thenApplyAsync(v -> loadOnNewConnection(table), executor)
+                );
+            }
+            Map<Table, TableLoadResult> tableLoadResults = new HashMap<>();
+            for (Map.Entry<Table, CompletableFuture<TableLoadResult>> entry : futures.entrySet()) {
+                tableLoadResults.put(entry.getKey(), entry.getValue().join());
+            }
+            Map<String, Integer> errorCountsByEntityType = errorStorage.getErrorCountsByEntityType();
+            for (Map.Entry<Table, TableLoadResult> entry : tableLoadResults.entrySet()) {
+                String entityType = entry.getKey().getEntityClass().getSimpleName();
+                entry.getValue().errorCount = errorCountsByEntityType.getOrDefault(entityType, 0);
+            }
+            return tableLoadResults;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Load a single table on a connection of its own, which is closed once the table is loaded. The schema and error
+     * tables must already have been committed so that they are visible to this new connection.
      */
-    private TableLoadResult load(Table table) {
+    private TableLoadResult loadOnNewConnection(Table table) {
+        Connection tableConnection = null;
+        try {
+            tableConnection = dataSource.getConnection();
+            return load(table, tableConnection);
+        } catch (SQLException ex) {
+            LOG.error("Could not obtain a connection to load table {}", table.name, ex);
+            TableLoadResult tableLoadResult = new TableLoadResult();
+            tableLoadResult.fatalException = ex.toString();
+            return tableLoadResult;
+        } finally {
+            DbUtils.closeQuietly(tableConnection);
+        }
+    }
+
+    /**
+     * Determine which of the tables loaded before the given table (in serial load order) must finish loading before the
+     * given table can start. A table depends on an earlier table if:
+     * - one of its fields references the earlier table (e.g., stop_times#trip_id references trips),
+     * - it shares a key field that the earlier table tracks as an ID (e.g., calendar_dates#service_id values are
+     *   tracked after calendar's service_id values, which would otherwise be flagged as duplicates), or
+     * - it has conditionally required fields and the earlier table contains "foreign" fields that those conditions are
+     *   checked against (e.g., fare_rules#origin_id must match a stops#zone_id).
+     */
+    static Set<Table> getLoadDependencies(Table table, Table[] loadOrder) {
+        Set<Table> dependencies = new LinkedHashSet<>();
+        for (Table earlierTable : loadOrder) {
+            if (earlierTable == table) break;
+            boolean isReferenced = Arrays.stream(table.fields)
+                .anyMatch(field -> field.referenceTables.contains(earlierTable));
+            // Key fields that are themselves foreign references (e.g., frequencies#trip_id) are not tracked as IDs.
+            Field earlierKeyField = earlierTable.fields[0];
+            boolean sharesKeyField = !earlierKeyField.isForeignReference() &&
+                earlierKeyField.name.equals(table.getKeyFieldName());
+            boolean hasForeignFieldsForConditions = table.hasConditionalRequirements() &&
+                Arrays.stream(earlierTable.fields).anyMatch(Field::isForeign);
+            if (isReferenced || sharesKeyField || hasForeignFieldsForConditions) dependencies.add(earlierTable);
+        }
+        return dependencies;
+    }
+
+    /**
+     * This wraps the main internal table loader method to catch exceptions and record the time taken. Error counts are
+     * filled in by the caller.
+     */
+    private TableLoadResult load(Table table, Connection tableConnection) {
         // This object will be returned to the caller to summarize the contents of the table and any errors.
         TableLoadResult tableLoadResult = new TableLoadResult();
-        int initialErrorCount = errorStorage.getErrorCount();
+        long startTime = System.currentTimeMillis();
         try {
-            tableLoadResult.rowCount = loadInternal(table);
+            tableLoadResult.rowCount = loadInternal(table, tableConnection);
             tableLoadResult.fileSize = getTableSize(table);
             LOG.info(String.format("loaded in %d %s records", tableLoadResult.rowCount, table.name));
         } catch (Exception ex) {
             LOG.error("Fatal error loading table", ex);
             tableLoadResult.fatalException = ex.toString();
-            // Rollback connection so that fatal exception does not impact loading of other tables.
+            // Cancel any COPY left open by the failure, then rollback connection so that fatal exception does not
+            // impact loading of other tables.
             try {
-                connection.rollback();
+                PGCopyOutputStream copyStream = activeCopies.get(table);
+                if (copyStream != null && copyStream.isActive()) copyStream.cancelCopy();
+                tableConnection.rollback();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
         } finally {
-            // Explicitly delete the tmp file now that load is finished (either success or failure).
-            // Otherwise these multi-GB files clutter the drive.
-            if (tempTextFile != null) {
-                tempTextFile.delete();
-            }
+            activeCopies.remove(table);
         }
-        int finalErrorCount = errorStorage.getErrorCount();
-        tableLoadResult.errorCount = finalErrorCount - initialErrorCount;
+        tableLoadResult.loadTimeMillis = System.currentTimeMillis() - startTime;
         return tableLoadResult;
     }
 
@@ -320,7 +539,7 @@ public class JdbcGtfsLoader {
      *
      * @return number of rows that were loaded.
      */
-    private int loadInternal(Table table) throws Exception {
+    private int loadInternal(Table table, Connection connection) throws Exception {
         CsvReader csvReader = table.getCsvReader(zip, errorStorage);
         if (csvReader == null) {
             LOG.info("File {} not found in gtfs zip file.", Table.getTableFileNameWithExtension(table.name));
@@ -362,12 +581,18 @@ public class JdbcGtfsLoader {
             targetTable.createSqlTable(connection);
         }
 
-        // TODO are we loading with or without a header row in our Postgres text file?
+        PGCopyOutputStream copyStream = null;
+        PrintStream copyTextStream = null;
         if (postgresText) {
-            // No need to output headers to temp text file, our SQL table column order exactly matches our text file.
-            tempTextFile = File.createTempFile(targetTable.name, "text");
-            tempTextFileStream = new PrintStream(new BufferedOutputStream(new FileOutputStream(tempTextFile)));
-            LOG.info("Loading via temporary text file at " + tempTextFile.getAbsolutePath());
+            // Rows are written straight into a COPY operation as they are validated, so parsing and loading overlap
+            // and no intermediate text file is needed. No need to output headers, our SQL table column order exactly
+            // matches the text we produce. Nothing else may be executed on this connection until the COPY has ended.
+            final String copySql = String.format("copy %s from stdin", targetTable.name);
+            // Our connection pool wraps the Connection objects, so we need to unwrap the Postgres connection interface.
+            copyStream = new PGCopyOutputStream(connection.unwrap(BaseConnection.class), copySql, COPY_BUFFER_SIZE);
+            activeCopies.put(table, copyStream);
+            copyTextStream = new PrintStream(copyStream, false, "UTF-8");
+            LOG.info("Streaming rows into {}", copySql);
         } else {
             insertStatement = connection.prepareStatement(targetTable.generateInsertSql());
             LOG.info(insertStatement.toString()); // Logs the SQL for the prepared statement
@@ -379,84 +604,72 @@ public class JdbcGtfsLoader {
         boolean tableHasConditionalRequirements = table.hasConditionalRequirements();
         // Iterate over each record and prepare the record for storage in the table either through batch insert
         // statements or postgres text copy operation.
-        while (csvReader.readRecord()) {
-            // The CSV reader's current record is zero-based and does not include the header line.
-            // Convert to a CSV file line number that will make more sense to people reading error messages.
-            if (csvReader.getCurrentRecord() + 2 > Integer.MAX_VALUE) {
-                errorStorage.storeError(NewGTFSError.forTable(table, TABLE_TOO_LONG));
-                break;
-            }
-            // Line 1 is considered the header row, so the first actual row of data will be line 2.
-            int lineNumber = ((int) csvReader.getCurrentRecord()) + 2;
-            if (lineNumber % 500_000 == 0) LOG.info("Processed {}", human(lineNumber));
-            if (csvReader.getColumnCount() != fields.length) {
-                String badValues = String.format("expected=%d; found=%d", fields.length, csvReader.getColumnCount());
-                errorStorage.storeError(NewGTFSError.forLine(table, lineNumber, WRONG_NUMBER_OF_FIELDS, badValues));
-                continue;
-            }
-            // Store value of key field for use in checking duplicate IDs
-            // FIXME: If the key field is missing (keyFieldIndex is still -1) from a loaded table, this will crash.
-            String keyValue = csvReader.get(keyFieldIndex);
-            // The first field holds the line number of the CSV file. Prepared statement parameters are one-based.
-            if (postgresText) transformedStrings[0] = Integer.toString(lineNumber);
-            else insertStatement.setInt(1, lineNumber);
-            // Maintain a separate columnIndex from for loop because some fields may be null and not included in the set
-            // of fields for this table.
-            int columnIndex = 0;
-            for (int f = 0; f < fields.length; f++) {
-                Field field = fields[f];
-                // If the field is null, it represents a duplicate header or ID field and must be skipped to maintain
-                // table integrity.
-                if (field == null) continue;
-                // CSV reader get on an empty field will be an empty string literal.
-                String string = csvReader.get(f);
-                // Use spec table to check that references are valid and IDs are unique.
-                Set<NewGTFSError> errors = referenceTracker
-                    .checkReferencesAndUniqueness(keyValue, lineNumber, field, string, table);
-                // Check for special case with calendar_dates where added service should not trigger ref. integrity
-                // error.
-                if (
-                    table.name.equals("calendar_dates") &&
-                        "service_id".equals(field.name) &&
-                        "1".equals(csvReader.get(Field.getFieldIndex(fields, "exception_type")))
-
-                ) {
-                    for (NewGTFSError error : errors) {
-                        if (NewGTFSErrorType.REFERENTIAL_INTEGRITY.equals(error.errorType)) {
-                            // Do not record bad service_id reference errors for calendar date entries that add service
-                            // (exception type=1) because a corresponding service_id in calendars.txt is not required in
-                            // this case.
-                            LOG.info(
-                                "A calendar_dates.txt entry added service (exception_type=1) for service_id={}, which does not have (or necessarily need) a corresponding entry in calendars.txt.",
-                                keyValue
-                            );
-                        } else {
-                            errorStorage.storeError(error);
-                        }
-                    }
+        if (parseExecutor != null && postgresText) {
+            loadRecordsInParallel(table, csvReader, fields, keyFieldIndex, cleanFields.length, copyTextStream);
+        } else {
+            while (csvReader.readRecord()) {
+                // The CSV reader's current record is zero-based and does not include the header line.
+                // Convert to a CSV file line number that will make more sense to people reading error messages.
+                if (csvReader.getCurrentRecord() + 2 > Integer.MAX_VALUE) {
+                    errorStorage.storeError(NewGTFSError.forTable(table, TABLE_TOO_LONG));
+                    break;
                 }
-                // In all other cases (i.e., outside of the calendar_dates special case), store the reference errors found.
-                else {
-                    errorStorage.storeErrors(errors);
+                // Line 1 is considered the header row, so the first actual row of data will be line 2.
+                int lineNumber = ((int) csvReader.getCurrentRecord()) + 2;
+                if (lineNumber % 500_000 == 0) LOG.info("Processed {}", human(lineNumber));
+                if (csvReader.getColumnCount() != fields.length) {
+                    String badValues =
+                        String.format("expected=%d; found=%d", fields.length, csvReader.getColumnCount());
+                    errorStorage.storeError(NewGTFSError.forLine(table, lineNumber, WRONG_NUMBER_OF_FIELDS, badValues));
+                    continue;
+                }
+                // Store value of key field for use in checking duplicate IDs
+                // FIXME: If the key field is missing (keyFieldIndex is still -1) from a loaded table, this will crash.
+                String keyValue = csvReader.get(keyFieldIndex);
+                // The first field holds the line number of the CSV file. Prepared statement parameters are one-based.
+                if (postgresText) transformedStrings[0] = Integer.toString(lineNumber);
+                else insertStatement.setInt(1, lineNumber);
+                // Maintain a separate columnIndex from for loop because some fields may be null and not included in the
+                // set of fields for this table.
+                int columnIndex = 0;
+                for (int f = 0; f < fields.length; f++) {
+                    Field field = fields[f];
+                    // If the field is null, it represents a duplicate header or ID field and must be skipped to
+                    // maintain table integrity.
+                    if (field == null) continue;
+                    // CSV reader get on an empty field will be an empty string literal.
+                    String string = csvReader.get(f);
+                    // Use spec table to check that references are valid and IDs are unique.
+                    Set<NewGTFSError> errors = referenceTracker
+                        .checkReferencesAndUniqueness(keyValue, lineNumber, field, string, table);
+                    // Check for special case with calendar_dates where added service should not trigger ref. integrity
+                    // error.
+                    storeReferenceErrors(
+                        table,
+                        field,
+                        keyValue,
+                        csvReader.get(Field.getFieldIndex(fields, "exception_type")),
+                        errors
+                    );
+                    // Add value for entry into table
+                    setValueForField(table, columnIndex, lineNumber, field, string, postgresText, transformedStrings);
+                    // Increment column index.
+                    columnIndex += 1;
+                }
+                if (tableHasConditionalRequirements) {
+                    LineContext lineContext = new LineContext(table, fields, transformedStrings, lineNumber);
+                    errorStorage.storeErrors(
+                        referenceTracker.checkConditionallyRequiredFields(lineContext)
+                    );
+                }
+                if (postgresText) {
+                    // Print a new line in the standard postgres text format:
+                    // https://www.postgresql.org/docs/9.1/static/sql-copy.html#AEN64380
+                    copyTextStream.println(String.join("\t", transformedStrings));
+                } else {
+                    insertStatement.addBatch();
+                    if (lineNumber % INSERT_BATCH_SIZE == 0) insertStatement.executeBatch();
                 }
-                // Add value for entry into table
-                setValueForField(table, columnIndex, lineNumber, field, string, postgresText, transformedStrings);
-                // Increment column index.
-                columnIndex += 1;
-            }
-            if (tableHasConditionalRequirements) {
-                LineContext lineContext = new LineContext(table, fields, transformedStrings, lineNumber);
-                errorStorage.storeErrors(
-                    referenceTracker.checkConditionallyRequiredFields(lineContext)
-                );
-            }
-            if (postgresText) {
-                // Print a new line in the standard postgres text format:
-                // https://www.postgresql.org/docs/9.1/static/sql-copy.html#AEN64380
-                tempTextFileStream.println(String.join("\t", transformedStrings));
-            } else {
-                insertStatement.addBatch();
-                if (lineNumber % INSERT_BATCH_SIZE == 0) insertStatement.executeBatch();
             }
         }
         // Record number is zero based but includes the header record, which we don't want to count.
@@ -471,12 +684,17 @@ public class JdbcGtfsLoader {
         }
         csvReader.close();
 
-        // Finalize loading the table, either by copying the pre-validated text file into the database (for Postgres)
-        // or inserting any remaining rows (for all others).
+        // Finalize loading the table, either by ending the COPY of the pre-validated text (for Postgres) or inserting
+        // any remaining rows (for all others).
         if (postgresText) {
-            LOG.info("Loading into database table {} from temporary text file...", targetTable.name);
-            tempTextFileStream.close();
-            copyFromFile(connection, tempTextFile, targetTable.name);
+            LOG.info("Finishing copy into database table {}...", targetTable.name);
+            // PrintStream swallows IO exceptions, so check whether writing to the COPY stream failed at any point.
+            copyTextStream.flush();
+            if (copyTextStream.checkError()) {
+                throw new IOException("Failed to stream rows into database table " + targetTable.name);
+            }
+            long copiedRowCount = copyStream.endCopy();
+            LOG.info("Copied {} rows into {}", copiedRowCount, targetTable.name);
         } else {
             insertStatement.executeBatch();
         }
@@ -490,6 +708,187 @@ public class JdbcGtfsLoader {
         return numberOfRecordsLoaded;
     }
 
+    /**
+     * Store the reference errors found for a single field value. This handles the special case with calendar_dates
+     * where added service (exception_type=1) should not trigger a referential integrity error.
+     */
+    private void storeReferenceErrors(
+        Table table,
+        Field field,
+        String keyValue,
+        String exceptionType,
+        Set<NewGTFSError> errors
+    ) {
+        if (table.name.equals("calendar_dates") && "service_id".equals(field.name) && "1".equals(exceptionType)) {
+            for (NewGTFSError error : errors) {
+                if (NewGTFSErrorType.REFERENTIAL_INTEGRITY.equals(error.errorType)) {
+                    // Do not record bad service_id reference errors for calendar date entries that add service
+                    // (exception type=1) because a corresponding service_id in calendars.txt is not required in
+                    // this case.
+                    LOG.info(
+                        "A calendar_dates.txt entry added service (exception_type=1) for service_id={}, which does not have (or necessarily need) a corresponding entry in calendars.txt.",
+                        keyValue
+                    );
+                } else {
+                    errorStorage.storeError(error);
+                }
+            }
+        }
+        // In all other cases (i.e., outside of the calendar_dates special case), store the reference errors found.
+        else {
+            errorStorage.storeErrors(errors);
+        }
+    }
+
+    /**
+     * A chunk of consecutive CSV records, along with the Postgres text rows and errors produced by converting their
+     * field values on a worker thread. Record values are retained because reference checks are performed on the
+     * original strings once the chunk is merged back in order.
+     */
+    private static class RecordChunk {
+        final List<Integer> lineNumbers = new ArrayList<>(PARSE_CHUNK_SIZE);
+        final List<String[]> values = new ArrayList<>(PARSE_CHUNK_SIZE);
+        final List<String[]> transformedRows = new ArrayList<>(PARSE_CHUNK_SIZE);
+        final List<List<FieldError>> conversionErrors = new ArrayList<>(PARSE_CHUNK_SIZE);
+    }
+
+    /** An error found converting the value of the field at the given index in a record, in field order. */
+    private static class FieldError {
+        final int fieldIndex;
+        final NewGTFSError error;
+
+        FieldError(int fieldIndex, NewGTFSError error) {
+            this.fieldIndex = fieldIndex;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Read the remaining records of a table in chunks, converting and validating their field values on the parse
+     * executor. Chunks are merged back in their original order: reference and uniqueness checks (which depend on the
+     * records that came before) and conditional requirement checks are performed on this thread, and the converted
+     * rows are written to the COPY stream. The number of chunks in flight is bounded to limit memory use. Line numbers
+     * are carried with each record so that errors are reported exactly as they are in the serial path.
+     */
+    private void loadRecordsInParallel(
+        Table table,
+        CsvReader csvReader,
+        Field[] fields,
+        int keyFieldIndex,
+        int columnCount,
+        PrintStream copyTextStream
+    ) throws Exception {
+        final int maxPendingChunks = parseThreads * 2;
+        Deque<Future<RecordChunk>> pendingChunks = new ArrayDeque<>();
+        RecordChunk chunk = new RecordChunk();
+        while (csvReader.readRecord()) {
+            if (csvReader.getCurrentRecord() + 2 > Integer.MAX_VALUE) {
+                errorStorage.storeError(NewGTFSError.forTable(table, TABLE_TOO_LONG));
+                break;
+            }
+            int lineNumber = ((int) csvReader.getCurrentRecord()) + 2;
+            if (lineNumber % 500_000 == 0) LOG.info("Processed {}", human(lineNumber));
+            if (csvReader.getColumnCount() != fields.length) {
+                String badValues = String.format("expected=%d; found=%d", fields.length, csvReader.getColumnCount());
+                errorStorage.storeError(NewGTFSError.forLine(table, lineNumber, WRONG_NUMBER_OF_FIELDS, badValues));
+                continue;
+            }
+            chunk.lineNumbers.add(lineNumber);
+            chunk.values.add(csvReader.getValues());
+            if (chunk.values.size() == PARSE_CHUNK_SIZE) {
+                final RecordChunk fullChunk = chunk;
+                pendingChunks.add(parseExecutor.submit(() -> convertChunk(table, fields, columnCount, fullChunk)));
+                chunk = new RecordChunk();
+                if (pendingChunks.size() >= maxPendingChunks) {
+                    mergeChunk(table, fields, keyFieldIndex, pendingChunks.remove().get(), copyTextStream);
+                }
+            }
+        }
+        if (!chunk.values.isEmpty()) {
+            final RecordChunk lastChunk = chunk;
+            pendingChunks.add(parseExecutor.submit(() -> convertChunk(table, fields, columnCount, lastChunk)));
+        }
+        while (!pendingChunks.isEmpty()) {
+            mergeChunk(table, fields, keyFieldIndex, pendingChunks.remove().get(), copyTextStream);
+        }
+    }
+
+    /**
+     * Convert and validate the field values of every record in the chunk. This runs on a worker thread, so it only
+     * touches the chunk itself: errors are collected rather than stored.
+     */
+    private RecordChunk convertChunk(Table table, Field[] fields, int columnCount, RecordChunk chunk) {
+        for (int r = 0; r < chunk.values.size(); r++) {
+            int lineNumber = chunk.lineNumbers.get(r);
+            String[] values = chunk.values.get(r);
+            // One extra position in the array for the CSV line number.
+            String[] transformedStrings = new String[columnCount + 1];
+            transformedStrings[0] = Integer.toString(lineNumber);
+            List<FieldError> errors = new ArrayList<>();
+            int columnIndex = 0;
+            for (int f = 0; f < fields.length; f++) {
+                Field field = fields[f];
+                if (field == null) continue;
+                final int fieldIndex = f;
+                setValueForField(
+                    table,
+                    columnIndex,
+                    lineNumber,
+                    field,
+                    values[f],
+                    true,
+                    transformedStrings,
+                    error -> errors.add(new FieldError(fieldIndex, error))
+                );
+                columnIndex += 1;
+            }
+            chunk.transformedRows.add(transformedStrings);
+            chunk.conversionErrors.add(errors);
+        }
+        return chunk;
+    }
+
+    /**
+     * Perform the order-dependent checks for each record in a converted chunk, store all errors found and write the
+     * converted rows to the COPY stream.
+     */
+    private void mergeChunk(
+        Table table,
+        Field[] fields,
+        int keyFieldIndex,
+        RecordChunk chunk,
+        PrintStream copyTextStream
+    ) {
+        boolean tableHasConditionalRequirements = table.hasConditionalRequirements();
+        int exceptionTypeIndex = Field.getFieldIndex(fields, "exception_type");
+        for (int r = 0; r < chunk.values.size(); r++) {
+            int lineNumber = chunk.lineNumbers.get(r);
+            String[] values = chunk.values.get(r);
+            String[] transformedStrings = chunk.transformedRows.get(r);
+            String keyValue = values[keyFieldIndex];
+            String exceptionType = exceptionTypeIndex >= 0 ? values[exceptionTypeIndex] : "";
+            List<FieldError> conversionErrors = chunk.conversionErrors.get(r);
+            int nextConversionError = 0;
+            for (int f = 0; f < fields.length; f++) {
+                Field field = fields[f];
+                if (field == null) continue;
+                Set<NewGTFSError> errors = referenceTracker
+                    .checkReferencesAndUniqueness(keyValue, lineNumber, field, values[f], table);
+                storeReferenceErrors(table, field, keyValue, exceptionType, errors);
+                // Store the field's conversion errors after its reference errors, in the same order as the serial path.
+                while (nextConversionError < conversionErrors.size() &&
+                    conversionErrors.get(nextConversionError).fieldIndex == f) {
+                    errorStorage.storeError(conversionErrors.get(nextConversionError++).error);
+                }
+            }
+            if (tableHasConditionalRequirements) {
+                LineContext lineContext = new LineContext(table, fields, transformedStrings, lineNumber);
+                errorStorage.storeErrors(referenceTracker.checkConditionallyRequiredFields(lineContext));
+            }
+            copyTextStream.println(String.join("\t", transformedStrings));
+        }
+    }
+
     /**
      * Method that uses the PostgreSQL-specific copy from file command to load csv data into a table on the provided
      * connection. NOTE: This method does not commit the transaction or close the connection.
@@ -497,7 +896,7 @@ public class JdbcGtfsLoader {
     public static void copyFromFile(Connection connection, File file, String targetTableName) throws IOException, SQLException {
         // Allows sending over network. This is only slightly slower than a local file copy.
         final String copySql = String.format("copy %s from stdin", targetTableName);
-        // FIXME we should be reading the COPY text from a stream in parallel, not from a temporary text file.
+        // Note: JdbcGtfsLoader streams its COPY text directly instead of using a temporary text file.
         InputStream stream = new BufferedInputStream(new FileInputStream(file.getAbsolutePath()));
         // Our connection pool wraps the Connection objects, so we need to unwrap the Postgres connection interface.
         CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
@@ -514,10 +913,29 @@ public class JdbcGtfsLoader {
      * the field is set to null.
      */
     public void setValueForField(Table table, int fieldIndex, int lineNumber, Field field, String string, boolean postgresText, String[] transformedStrings) {
+        setValueForField(table, fieldIndex, lineNumber, field, string, postgresText, transformedStrings, error -> {
+            if (errorStorage != null) errorStorage.storeError(error);
+        });
+    }
+
+    /**
+     * Set value for a field as in {@link #setValueForField(Table, int, int, Field, String, boolean, String[])}, passing
+     * any errors encountered to the supplied error handler rather than storing them.
+     */
+    private void setValueForField(
+        Table table,
+        int fieldIndex,
+        int lineNumber,
+        Field field,
+        String string,
+        boolean postgresText,
+        String[] transformedStrings,
+        Consumer<NewGTFSError> errorHandler
+    ) {
         if (string.isEmpty()) {
             // CSV reader always returns empty strings, not nulls
-            if (field.isRequired() && !field.isEmptyValuePermitted() && errorStorage != null) {
-                errorStorage.storeError(NewGTFSError.forLine(table, lineNumber, MISSING_FIELD, field.name));
+            if (field.isRequired() && !field.isEmptyValuePermitted()) {
+                errorHandler.accept(NewGTFSError.forLine(table, lineNumber, MISSING_FIELD, field.name));
             }
             setFieldToNull(postgresText, transformedStrings, fieldIndex, field);
         } else {
@@ -549,13 +967,11 @@ public class JdbcGtfsLoader {
                 for (NewGTFSError error : errors) {
                     error.entityType = table.getEntityClass();
                     error.lineNumber = lineNumber;
-                    if (errorStorage != null) errorStorage.storeError(error);
+                    errorHandler.accept(error);
                 }
             } catch (StorageException ex) {
                 // FIXME many exceptions don't have an error type
-                if (errorStorage != null) {
-                    errorStorage.storeError(NewGTFSError.forLine(table, lineNumber, ex.errorType, ex.badValue));
-                }
+                errorHandler.accept(NewGTFSError.forLine(table, lineNumber, ex.errorType, ex.badValue));
                 // Set transformedStrings or prepared statement param to null
                 setFieldToNull(postgresText, transformedStrings, fieldIndex, field);
             }
@@ -126,6 +126,8 @@ public class JdbcGtfsSnapshotter {
             result.fatalException = ex.toString();
         } finally {
             if (connection != null) DbUtils.closeQuietly(connection);
+            // Drop any metadata read while the tables were being copied.
+            NamespaceMetadata.invalidate(result.uniqueIdentifier);
         }
         return result;
     }
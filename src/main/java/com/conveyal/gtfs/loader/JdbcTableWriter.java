@@ -55,6 +55,8 @@ public class JdbcTableWriter implements TableWriter {
     private final String tablePrefix;
     private static final ObjectMapper mapper = new ObjectMapper();
     private final Connection connection;
+    // Whether the change log table is known to exist, so that it is only checked for once per writer.
+    private boolean changeLogExists;
     private static final String RECONCILE_STOPS_ERROR_MSG = "Changes to trip pattern stops must be made one at a time if pattern contains at least one trip.";
 
     public JdbcTableWriter(Table table, DataSource datasource, String namespace) throws InvalidNamespaceException {
@@ -138,7 +140,7 @@ public class JdbcTableWriter implements TableWriter {
                     String updatedObject = update(nodeId, node.toString(), false);
                     updatedObjects.add(updatedObject);
                 }
-                if (autoCommit) connection.commit();
+                if (autoCommit) commitTransaction();
                 return mapper.writeValueAsString(updatedObjects);
             }
             // Cast JsonNode to ObjectNode to allow mutations (e.g., updating the ID field).
@@ -153,6 +155,10 @@ public class JdbcTableWriter implements TableWriter {
             PreparedStatement preparedStatement = createPreparedUpdate(id, isCreating, jsonObject, specTable, connection, false);
             // ID from create/update result
             long newId = handleStatementExecution(preparedStatement, isCreating);
+            // The key identifies the entity and its child entities (e.g., a trip and its stop times) for revalidation.
+            String keyField = specTable.getKeyFieldName();
+            JsonNode keyNode = jsonObject.get(keyField);
+            if (keyNode != null && !keyNode.isNull()) recordChange(specTable, keyField, keyNode.asText());
             // At this point, the transaction was successful (but not yet committed). Now we should handle any update
             // logic that applies to child tables. For example, after saving a trip, we need to store its stop times.
             Set<Table> referencingTables = getReferencingTables(specTable);
@@ -238,7 +244,7 @@ public class JdbcTableWriter implements TableWriter {
                 // If nothing failed up to this point, it is safe to assume there were no problems updating/creating the
                 // main entity and any of its children, so we commit the transaction.
                 LOG.info("Committing transaction.");
-                connection.commit();
+                commitTransaction();
             }
             // Add new ID to JSON object.
             jsonObject.put("id", newId);
@@ -280,6 +286,7 @@ public class JdbcTableWriter implements TableWriter {
                 EntityPopulator.PATTERN_STOP
             );
             String patternId = getValueForId(id, "pattern_id", tablePrefix, Table.PATTERNS, connection);
+            recordChange(Table.PATTERNS, "pattern_id", patternId);
             List<PatternStop> patternStopsToNormalize = new ArrayList<>();
             for (PatternStop patternStop : patternStops.getOrdered(patternId)) {
                 // Update stop times for any pattern stop with matching stop sequence (or for all pattern stops if the list
@@ -289,7 +296,7 @@ public class JdbcTableWriter implements TableWriter {
                 }
             }
             int stopTimesUpdated = updateStopTimesForPatternStops(patternStopsToNormalize, interpolateStopTimes);
-            connection.commit();
+            commitTransaction();
             return stopTimesUpdated;
         } catch (Exception e) {
             e.printStackTrace();
@@ -1289,7 +1296,7 @@ public class JdbcTableWriter implements TableWriter {
                 }
                 results.add(result);
             }
-            if (autoCommit) connection.commit();
+            if (autoCommit) commitTransaction();
             LOG.info("Deleted {} {} entities", results.size(), specTable.name);
             return results.size();
         } catch (Exception e) {
@@ -1315,6 +1322,8 @@ public class JdbcTableWriter implements TableWriter {
             // Handle "cascading" delete or constraints on deleting entities that other entities depend on
             // (e.g., keep a calendar from being deleted if trips reference it).
             // FIXME: actually add "cascading"? Currently, it just deletes one level down.
+            String keyField = specTable.getKeyFieldName();
+            recordChange(specTable, keyField, getValueForId(id, keyField, tablePrefix, specTable, connection));
             deleteFromReferencingTables(tablePrefix, specTable, id);
             // Next, delete the actual record specified by id.
             PreparedStatement statement = connection.prepareStatement(specTable.generateDeleteSql(tablePrefix));
@@ -1326,7 +1335,7 @@ public class JdbcTableWriter implements TableWriter {
                 LOG.error("Could not delete {} entity with id: {}", specTable.name, id);
                 throw new SQLException("Could not delete entity");
             }
-            if (autoCommit) connection.commit();
+            if (autoCommit) commitTransaction();
             // FIXME: change return message based on result value
             return result;
         } catch (Exception e) {
@@ -1344,7 +1353,7 @@ public class JdbcTableWriter implements TableWriter {
     @Override
     public void commit() throws SQLException {
         // FIXME: should this take a connection and commit it?
-        connection.commit();
+        commitTransaction();
         connection.close();
     }
 
@@ -1356,6 +1365,25 @@ public class JdbcTableWriter implements TableWriter {
         DbUtils.closeQuietly(connection);
     }
 
+    /**
+     * Record in the feed's change log that the rows of the given table with the given value in the given field have
+     * changed, so that they are revalidated (see {@link Feed#validateChanges}). This is part of the current transaction.
+     */
+    private void recordChange(Table table, String fieldName, String value) throws SQLException {
+        if (!changeLogExists) {
+            ChangeLog.createTable(dataSource, tablePrefix);
+            changeLogExists = true;
+        }
+        ChangeLog.record(connection, tablePrefix, new ChangeLog.Change(table.name, fieldName, value));
+    }
+
+    /**
+     * Commit the transaction on this writer's connection.
+     */
+    private void commitTransaction() throws SQLException {
+        connection.commit();
+    }
+
     /**
      * Delete entities from any referencing tables (if required). This method is defined for convenience and clarity, but
      * essentially just runs updateReferencingTables with a null value for newKeyValue param.
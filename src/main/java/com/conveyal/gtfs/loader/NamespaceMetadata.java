@@ -0,0 +1,127 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.storage.StorageException;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metadata about a feed namespace that is needed to answer almost every GraphQL query: the tables in the namespace with
+ * their columns, and the feed's row in the feeds table. This is read from the database on first use and then cached,
+ * so that it does not need to be queried again for every fetch.
+ *
+ * The cached metadata of a namespace must be invalidated (see {@link #invalidate(String)}) whenever tables may be
+ * created, altered or dropped in it or its feeds row may change. This is done by the classes making those changes:
+ * {@link JdbcGtfsLoader}, {@link JdbcGtfsSnapshotter}, {@link ChangeLog} (when it creates the change log table),
+ * {@link Feed} (validation creates tables and adds pattern_id to trips) and
+ * {@link com.conveyal.gtfs.GTFS#delete}. Changes made by other processes are not seen until the metadata is
+ * invalidated in this one, or has expired from the cache after an hour without use.
+ */
+public class NamespaceMetadata {
+
+    // Bounded so that the metadata of namespaces that are no longer queried, e.g. old feed versions, is not kept.
+    private static final int MAX_CACHED_NAMESPACES = 1000;
+    private static final LoadingCache<String, NamespaceMetadata> metadataForNamespace = CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_NAMESPACES)
+        .expireAfterAccess(1, TimeUnit.HOURS)
+        .build(CacheLoader.from(NamespaceMetadata::new));
+
+    private final String namespace;
+    // These are read on first use and replaced rather than modified, so they can be shared between threads.
+    private volatile Map<String, Set<String>> columnsForTable;
+    private volatile Map<String, Object> feedRow;
+
+    private NamespaceMetadata (String namespace) {
+        this.namespace = namespace;
+    }
+
+    public static NamespaceMetadata forNamespace (String namespace) {
+        return metadataForNamespace.getUnchecked(namespace);
+    }
+
+    /**
+     * Drop the cached metadata for the namespace, so that it is read again from the database on next use.
+     */
+    public static void invalidate (String namespace) {
+        if (namespace == null) return;
+        // Accept table prefixes including the separator.
+        if (namespace.endsWith(".")) namespace = namespace.substring(0, namespace.length() - 1);
+        metadataForNamespace.invalidate(namespace);
+    }
+
+    public boolean tableExists (DataSource dataSource, String tableName) {
+        return getColumnsForTable(dataSource).containsKey(tableName);
+    }
+
+    /**
+     * @return the columns of the table, which are empty if the table does not exist.
+     */
+    public Set<String> getColumns (DataSource dataSource, String tableName) {
+        return getColumnsForTable(dataSource).getOrDefault(tableName, Collections.emptySet());
+    }
+
+    /**
+     * Read the columns of all the tables in the namespace with a single metadata query. Nothing is cached if the
+     * namespace has no tables (yet).
+     */
+    private Map<String, Set<String>> getColumnsForTable (DataSource dataSource) {
+        Map<String, Set<String>> cachedColumns = columnsForTable;
+        if (cachedColumns != null) return cachedColumns;
+        Map<String, Set<String>> columns = new HashMap<>();
+        try (
+            Connection connection = dataSource.getConnection();
+            ResultSet resultSet = connection.getMetaData().getColumns(null, namespace, null, null)
+        ) {
+            while (resultSet.next()) {
+                // The table name is in the 3rd index and the column name in the 4th.
+                columns.computeIfAbsent(resultSet.getString(3), tableName -> new HashSet<>()).add(resultSet.getString(4));
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+        columns.replaceAll((tableName, tableColumns) -> Collections.unmodifiableSet(tableColumns));
+        columns = Collections.unmodifiableMap(columns);
+        if (!columns.isEmpty()) columnsForTable = columns;
+        return columns;
+    }
+
+    /**
+     * @return the namespace's row in the feeds table as a map from column name to value, or null if there is none
+     *         (which is not cached).
+     */
+    public Map<String, Object> getFeedRow (DataSource dataSource) {
+        Map<String, Object> cachedRow = feedRow;
+        if (cachedRow != null) return cachedRow;
+        Map<String, Object> row = null;
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement statement = connection.prepareStatement("select * from feeds where namespace = ?");
+            statement.setString(1, namespace);
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                ResultSetMetaData meta = resultSet.getMetaData();
+                row = new HashMap<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    row.put(meta.getColumnName(i), resultSet.getObject(i));
+                }
+                row = Collections.unmodifiableMap(row);
+                feedRow = row;
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+        return row;
+    }
+}
@@ -24,11 +24,20 @@ import static com.conveyal.gtfs.error.NewGTFSErrorType.REFERENTIAL_INTEGRITY;
  * NOTE: Its methods should remain public because they are used during external processes that
  * validate or otherwise iterate over each line of a GTFS file and need to check for reference
  * validity (e.g., while merging GTFS feeds this is used to determine ID conflicts).
+ * <p>
+ * The IDs are not stored as concatenated strings (which took several GB of heap while loading large feeds), but in
+ * compact structures that are also exposed as plain string sets: single field keys are grouped by field (see
+ * {@link ScopedIdSet}) and compound keys are packed into primitive longs (see {@link SequencedIdSet}).
+ * <p>
+ * A single tracker may be shared by several tables loading at once (see {@link JdbcGtfsLoader}), so the ID sets are
+ * concurrent and all access to {@link #uniqueValuesForFields} is synchronized on that multimap.
  */
 public class ReferenceTracker {
-    public final Set<String> transitIds = new HashSet<>();
+    private final ScopedIdSet scopedIds = new ScopedIdSet();
+    private final SequencedIdSet sequencedIds = new SequencedIdSet();
+    public final Set<String> transitIds = scopedIds;
     public final HashMultimap<String, String> uniqueValuesForFields = HashMultimap.create();
-    public final Set<String> transitIdsWithSequence = new HashSet<>();
+    public final Set<String> transitIdsWithSequence = sequencedIds;
 
     /**
      * During table load, checks the uniqueness of the entity ID and that references are valid.
@@ -67,13 +76,14 @@ public class ReferenceTracker {
             // If table has no unique key field (e.g., calendar_dates or transfers), there is no
             // need to check for duplicates.
             : !table.hasUniqueKeyField ? null : keyField;
-        String transitId = String.join(":", keyField, keyValue);
 
         // Unique key values are needed for referential integrity checks as part of checks for fields that have
         // conditional requirements. This also tracks "special" foreign keys like stop#zone_id that are not primary keys
         // of the table they exist in.
         if ((field.name.equals(keyField) && keyField.equals(uniqueKeyField)) || field.isForeign()) {
-            uniqueValuesForFields.put(field.name, value);
+            synchronized (uniqueValuesForFields) {
+                uniqueValuesForFields.put(field.name, value);
+            }
         }
 
         // If the field is optional and there is no value present, skip check.
@@ -106,35 +116,34 @@ public class ReferenceTracker {
         // reference. However, transfers#to_stop_id is defined as an order field, so we need to
         // check that this field (which is both a foreign ref and order field) is dataset unique
         // in conjunction with the key field.
-        // These hold references to the set of IDs to check for duplicates and the ID to check.
-        // These depend on whether an order field is part of the "unique ID."
-        Set<String> listOfUniqueIds = this.transitIds;
-        String uniqueId = transitId;
 
         // Next, check that the ID is table-unique. For example, the trip_id field is table unique
         // in trips.txt and the the stop_sequence field (joined with trip_id) is table unique in
         // stop_times.txt.
         if (field.name.equals(uniqueKeyField)) {
             // Check for duplicate IDs and store entity-scoped IDs for referential integrity check
-            if (isOrderField) {
+            boolean valueAlreadyExists;
+            if (table.required.equals(Requirement.PROPRIETARY)) {
+                // Some proprietary tables in the GTFS+ spec do not conform to the general principle in GTFS where a key
+                // field (e.g., stop_id) only acts as the primary key field in the entity's table. For example, stop_id
+                // acts as a primary key on stop_attributes.txt, so the table name is prepended to the unique ID for
+                // these tables when checking for duplicate entries.
+                Set<String> listOfUniqueIds = isOrderField ? transitIdsWithSequence : transitIds;
+                String uniqueId = getUniqueId(table, field, keyField, keyValue, value, isOrderField);
+                valueAlreadyExists = !listOfUniqueIds.add(uniqueId);
+            } else if (isOrderField) {
                 // Check duplicate reference in set of field-scoped id:sequence (e.g.,
                 // stop_sequence:12345:2)
                 // This should not be scoped by key field because there may be conflicts (e.g.,
                 // with trip_id="12345:2")
-                listOfUniqueIds = this.transitIdsWithSequence;
-                uniqueId = String.join(":", field.name, keyValue, value);
+                valueAlreadyExists = !sequencedIds.add(field.name, keyValue, value);
+            } else {
+                // Add ID and check duplicate reference in entity-scoped IDs (e.g., stop_id:12345)
+                valueAlreadyExists = !scopedIds.add(keyField, keyValue);
             }
-            if (table.required.equals(Requirement.PROPRIETARY)) {
-                // Some proprietary tables in the GTFS+ spec do not conform to the general principle in GTFS where a key
-                // field (e.g., stop_id) only acts as the primary key field in the entity's table. For example, stop_id
-                // acts as a primary key on stop_attributes.txt, so we prepend the table name to the unique ID for these
-                // tables when checking for duplicate entries.
-                uniqueId = String.join(":", table.name, uniqueId);
-            }
-             // Add ID and check duplicate reference in entity-scoped IDs (e.g., stop_id:12345)
-            boolean valueAlreadyExists = !listOfUniqueIds.add(uniqueId);
             if (valueAlreadyExists) {
                 // If the value is a duplicate, add an error.
+                String uniqueId = getUniqueId(table, field, keyField, keyValue, value, isOrderField);
                 NewGTFSError duplicateIdError =
                     NewGTFSError.forLine(table, lineNumber, DUPLICATE_ID, uniqueId)
                         .setEntityId(keyValue);
@@ -150,11 +159,27 @@ public class ReferenceTracker {
             // example, this is where we add shape_id from the shapes table, so that when we
             // check the referential integrity of trips#shape_id, we know that the shape_id
             // exists in the shapes table. It also handles tracking calendar_dates#service_id values.
-            listOfUniqueIds.add(uniqueId);
+            scopedIds.add(keyField, keyValue);
         }
         return errors;
     }
 
+    /**
+     * Get the string form of the ID checked for uniqueness, as reported in duplicate ID errors: either the field-scoped
+     * ID (e.g., stop_id:12345) or, for an order field, the field-scoped id:sequence (e.g., stop_sequence:12345:2). For
+     * proprietary tables this is prefixed with the table name.
+     */
+    private static String getUniqueId(Table table, Field field, String keyField, String keyValue, String value,
+        boolean isOrderField) {
+        String uniqueId = isOrderField
+            ? String.join(":", field.name, keyValue, value)
+            : String.join(":", keyField, keyValue);
+        if (table.required.equals(Requirement.PROPRIETARY)) {
+            uniqueId = String.join(":", table.name, uniqueId);
+        }
+        return uniqueId;
+    }
+
     /**
      * Check foreign references. If the foreign reference is present in one of the tables, there is no
      * need to check the remainder. If no matching foreign reference is found, flag integrity error.
@@ -173,11 +198,10 @@ public class ReferenceTracker {
      * Check that a reference is valid.
      */
     private boolean checkReference(String referenceField, String reference, TreeSet<String> badValues) {
-        String referenceTransitId = String.join(":", referenceField, reference);
-        if (this.transitIds.contains(referenceTransitId)) {
+        if (scopedIds.contains(referenceField, reference)) {
             return true;
         } else {
-            badValues.add(referenceTransitId);
+            badValues.add(String.join(":", referenceField, reference));
         }
         return false;
     }
@@ -196,10 +220,12 @@ public class ReferenceTracker {
             Field referenceField = entry.getKey();
             ConditionalRequirement[] conditionalRequirements = entry.getValue();
             // Work through each field's conditional requirements.
-            for (ConditionalRequirement conditionalRequirement : conditionalRequirements) {
-                errors.addAll(
-                    conditionalRequirement.check(lineContext, referenceField, uniqueValuesForFields)
-                );
+            synchronized (uniqueValuesForFields) {
+                for (ConditionalRequirement conditionalRequirement : conditionalRequirements) {
+                    errors.addAll(
+                        conditionalRequirement.check(lineContext, referenceField, uniqueValuesForFields)
+                    );
+                }
             }
         }
         return errors;
@@ -0,0 +1,62 @@
+package com.conveyal.gtfs.loader;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of field-scoped transit IDs (e.g., stop_id:12345) used by {@link ReferenceTracker}. Rather than holding the
+ * concatenated "field:value" strings, the values are grouped in a set per field. This avoids allocating and retaining a
+ * new string for every ID, and lets the value strings read from the GTFS file be shared with the other structures that
+ * hold them (e.g., {@link ReferenceTracker#uniqueValuesForFields}).
+ * <p>
+ * For compatibility with code that uses {@link ReferenceTracker#transitIds} directly, this is also a plain set of
+ * strings, which are split into scope and value at the first colon. The set is safe for concurrent use.
+ */
+class ScopedIdSet extends AbstractSet<String> {
+    private final Map<String, Set<String>> valuesForScope = new ConcurrentHashMap<>();
+
+    /**
+     * Add the value to the given scope, returning false if it was already present.
+     */
+    boolean add(String scope, String value) {
+        return valuesForScope.computeIfAbsent(scope, s -> ConcurrentHashMap.newKeySet()).add(value);
+    }
+
+    /**
+     * @return true if the value has been added to the given scope.
+     */
+    boolean contains(String scope, String value) {
+        Set<String> values = valuesForScope.get(scope);
+        return values != null && values.contains(value);
+    }
+
+    @Override
+    public boolean add(String id) {
+        int colon = id.indexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Transit ID must be scoped by field: " + id);
+        return add(id.substring(0, colon), id.substring(colon + 1));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) return false;
+        String id = (String) o;
+        int colon = id.indexOf(':');
+        return colon >= 0 && contains(id.substring(0, colon), id.substring(colon + 1));
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return valuesForScope.entrySet().stream()
+            .flatMap(entry -> entry.getValue().stream().map(value -> String.join(":", entry.getKey(), value)))
+            .iterator();
+    }
+
+    @Override
+    public int size() {
+        return valuesForScope.values().stream().mapToInt(Set::size).sum();
+    }
+}
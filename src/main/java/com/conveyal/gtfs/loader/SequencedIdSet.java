@@ -0,0 +1,168 @@
+package com.conveyal.gtfs.loader;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of compound IDs made up of a field scope, a key and a sequence (e.g., stop_sequence:12345:2), used by
+ * {@link ReferenceTracker} to check that stop times, shape points, etc. are unique. There are often tens of millions
+ * of these on large feeds, so rather than holding a string for each one, every key is assigned an ordinal within its
+ * scope and (key ordinal, sequence) pairs are packed into a primitive long set. Sequences that are not plain
+ * non-negative integers (e.g., "007" or transfers#to_stop_id values) fall back to a set of "key:sequence" strings, so
+ * that IDs are only considered equal when their string forms are equal.
+ * <p>
+ * For compatibility with code that uses {@link ReferenceTracker#transitIdsWithSequence} directly, this is also a plain
+ * set of strings, which are split into scope, key and sequence at the first and last colons. The set is safe for
+ * concurrent use.
+ */
+class SequencedIdSet extends AbstractSet<String> {
+    private final Map<String, Scope> scopes = new ConcurrentHashMap<>();
+
+    /** The IDs in a single scope. All access must be synchronized on the instance. */
+    private static class Scope {
+        final TObjectIntMap<String> ordinalForKey = new TObjectIntHashMap<>(16, 0.5f, -1);
+        final List<String> keys = new ArrayList<>();
+        final TLongSet packedIds = new TLongHashSet();
+        final Set<String> otherIds = new HashSet<>();
+
+        boolean add(String key, String sequence) {
+            int sequenceValue = parseSequence(sequence);
+            if (sequenceValue < 0) return otherIds.add(String.join(":", key, sequence));
+            int ordinal = ordinalForKey.get(key);
+            if (ordinal < 0) {
+                ordinal = keys.size();
+                ordinalForKey.put(key, ordinal);
+                keys.add(key);
+            }
+            return packedIds.add(pack(ordinal, sequenceValue));
+        }
+
+        boolean contains(String key, String sequence) {
+            int sequenceValue = parseSequence(sequence);
+            if (sequenceValue < 0) return otherIds.contains(String.join(":", key, sequence));
+            int ordinal = ordinalForKey.get(key);
+            return ordinal >= 0 && packedIds.contains(pack(ordinal, sequenceValue));
+        }
+
+        void addIdsTo(String scope, List<String> ids) {
+            for (TLongIterator it = packedIds.iterator(); it.hasNext(); ) {
+                long packedId = it.next();
+                String key = keys.get((int) (packedId >>> 32));
+                ids.add(String.join(":", scope, key, Integer.toString((int) packedId)));
+            }
+            for (String id : otherIds) ids.add(String.join(":", scope, id));
+        }
+
+        int size() {
+            return packedIds.size() + otherIds.size();
+        }
+    }
+
+    /**
+     * Add the key and sequence to the given scope, returning false if they were already present.
+     */
+    boolean add(String scope, String key, String sequence) {
+        int colon = sequence.lastIndexOf(':');
+        if (colon >= 0) {
+            // Keep the split consistent with the string form, where the sequence follows the last colon.
+            key = String.join(":", key, sequence.substring(0, colon));
+            sequence = sequence.substring(colon + 1);
+        }
+        Scope ids = scopes.computeIfAbsent(scope, s -> new Scope());
+        synchronized (ids) {
+            return ids.add(key, sequence);
+        }
+    }
+
+    /**
+     * @return true if the key and sequence have been added to the given scope.
+     */
+    boolean contains(String scope, String key, String sequence) {
+        int colon = sequence.lastIndexOf(':');
+        if (colon >= 0) {
+            key = String.join(":", key, sequence.substring(0, colon));
+            sequence = sequence.substring(colon + 1);
+        }
+        Scope ids = scopes.get(scope);
+        if (ids == null) return false;
+        synchronized (ids) {
+            return ids.contains(key, sequence);
+        }
+    }
+
+    /**
+     * Parse a sequence whose string form is exactly that of a non-negative int (no sign or leading zeros), so that
+     * packing it loses no information. Returns -1 for any other string.
+     */
+    static int parseSequence(String sequence) {
+        int length = sequence.length();
+        // Nine digits always fit in an int.
+        if (length == 0 || length > 9 || (length > 1 && sequence.charAt(0) == '0')) return -1;
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = sequence.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long pack(int ordinal, int sequence) {
+        return ((long) ordinal << 32) | sequence;
+    }
+
+    @Override
+    public boolean add(String id) {
+        int first = id.indexOf(':');
+        int last = id.lastIndexOf(':');
+        if (first == last) throw new IllegalArgumentException("ID must contain a scope, key and sequence: " + id);
+        return add(id.substring(0, first), id.substring(first + 1, last), id.substring(last + 1));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) return false;
+        String id = (String) o;
+        int first = id.indexOf(':');
+        int last = id.lastIndexOf(':');
+        return first != last && contains(id.substring(0, first), id.substring(first + 1, last), id.substring(last + 1));
+    }
+
+    /**
+     * Iterates over a snapshot of the IDs in string form. This allocates a string per ID, so should not be used on
+     * large feeds other than for debugging.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, Scope> entry : scopes.entrySet()) {
+            synchronized (entry.getValue()) {
+                entry.getValue().addIdsTo(entry.getKey(), ids);
+            }
+        }
+        return ids.iterator();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Scope ids : scopes.values()) {
+            synchronized (ids) {
+                size += ids.size();
+            }
+        }
+        return size;
+    }
+}
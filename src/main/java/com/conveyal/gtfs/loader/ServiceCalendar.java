@@ -0,0 +1,217 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.model.Calendar;
+import com.conveyal.gtfs.model.CalendarDate;
+import com.conveyal.gtfs.model.Trip;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * The days on which each service of a feed is active, combining the repeating weekly calendars with the exceptions in
+ * calendar_dates. Each service is held as a BitSet of days counted from the first date on which any service is
+ * active, so that finding the days two services have in common, or all the services active on a day, does not
+ * involve sets of dates.
+ *
+ * Services are included if they have any calendar_dates, or a calendar that is active on at least one day.
+ * Calendars or calendar dates with missing dates are ignored. Instances are immutable once built.
+ */
+public class ServiceCalendar {
+
+    /** The first date on which any service is active, or null if no service is ever active. */
+    private final LocalDate firstDate;
+    /** The number of days from the first to the last date on which any service is active. */
+    private final int dayCount;
+    private final Map<String, BitSet> daysForServiceId = new LinkedHashMap<>();
+
+    public ServiceCalendar (Iterable<Calendar> calendars, Iterable<CalendarDate> calendarDates) {
+        // First find the span of all dates in the calendars, so that days can be counted from its start.
+        LocalDate minDate = null;
+        for (Calendar calendar : calendars) {
+            if (calendar.start_date == null || calendar.end_date == null) continue;
+            if (minDate == null || calendar.start_date.isBefore(minDate)) minDate = calendar.start_date;
+        }
+        for (CalendarDate calendarDate : calendarDates) {
+            if (calendarDate.date == null) continue;
+            if (minDate == null || calendarDate.date.isBefore(minDate)) minDate = calendarDate.date;
+        }
+        Map<String, BitSet> days = new LinkedHashMap<>();
+        // Calendars define repeating weekly schedules.
+        for (Calendar calendar : calendars) {
+            if (calendar.start_date == null || calendar.end_date == null) continue;
+            BitSet serviceDays = null;
+            int startDay = dayBetween(minDate, calendar.start_date);
+            int endDay = dayBetween(minDate, calendar.end_date);
+            for (int day = startDay; day <= endDay; day++) {
+                if (isActiveOnDayOfWeek(calendar, minDate.plusDays(day).getDayOfWeek())) {
+                    if (serviceDays == null) serviceDays = days.computeIfAbsent(calendar.service_id, id -> new BitSet());
+                    serviceDays.set(day);
+                }
+            }
+        }
+        // Calendar dates add service to or remove service from single dates.
+        for (CalendarDate calendarDate : calendarDates) {
+            BitSet serviceDays = days.computeIfAbsent(calendarDate.service_id, id -> new BitSet());
+            if (calendarDate.date == null) continue;
+            int day = dayBetween(minDate, calendarDate.date);
+            if (calendarDate.exception_type == 1) serviceDays.set(day);
+            else if (calendarDate.exception_type == 2) serviceDays.clear(day);
+            // Otherwise exception_type is out of range. This should already have been caught during the loading phase.
+        }
+        // Count days from the first date on which a service is active rather than the first date in any calendar.
+        BitSet anyDays = new BitSet();
+        for (BitSet serviceDays : days.values()) anyDays.or(serviceDays);
+        if (anyDays.isEmpty()) {
+            firstDate = null;
+            dayCount = 0;
+            daysForServiceId.putAll(days);
+        } else {
+            int firstDay = anyDays.nextSetBit(0);
+            firstDate = minDate.plusDays(firstDay);
+            dayCount = anyDays.length() - firstDay;
+            days.forEach((serviceId, serviceDays) ->
+                daysForServiceId.put(serviceId, serviceDays.get(firstDay, firstDay + dayCount)));
+        }
+    }
+
+    private static int dayBetween (LocalDate from, LocalDate to) {
+        return (int) ChronoUnit.DAYS.between(from, to);
+    }
+
+    private static boolean isActiveOnDayOfWeek (Calendar calendar, DayOfWeek dayOfWeek) {
+        switch (dayOfWeek) {
+            case MONDAY: return calendar.monday > 0;
+            case TUESDAY: return calendar.tuesday > 0;
+            case WEDNESDAY: return calendar.wednesday > 0;
+            case THURSDAY: return calendar.thursday > 0;
+            case FRIDAY: return calendar.friday > 0;
+            case SATURDAY: return calendar.saturday > 0;
+            case SUNDAY: return calendar.sunday > 0;
+            default: return false;
+        }
+    }
+
+    /** @return the first date on which any service is active, or null if there is none. */
+    public LocalDate getFirstDate () {
+        return firstDate;
+    }
+
+    /** @return the last date on which any service is active, or null if there is none. */
+    public LocalDate getLastDate () {
+        return firstDate == null ? null : firstDate.plusDays(dayCount - 1);
+    }
+
+    /** @return the number of days from the first to the last date on which any service is active, inclusive. */
+    public int getDayCount () {
+        return dayCount;
+    }
+
+    /** @return the date of the given day, counted from {@link #getFirstDate()}. */
+    public LocalDate getDate (int day) {
+        return firstDate.plusDays(day);
+    }
+
+    /** @return the day of the given date counted from {@link #getFirstDate()}, or -1 if it is outside all service. */
+    public int getDay (LocalDate date) {
+        if (firstDate == null || date == null) return -1;
+        long day = ChronoUnit.DAYS.between(firstDate, date);
+        return day < 0 || day >= dayCount ? -1 : (int) day;
+    }
+
+    public Set<String> getServiceIds () {
+        return Collections.unmodifiableSet(daysForServiceId.keySet());
+    }
+
+    /**
+     * @return a copy of the days on which the given service is active, counted from {@link #getFirstDate()}. This is
+     *         empty for services that are not in the calendar.
+     */
+    public BitSet getActiveDays (String serviceId) {
+        BitSet days = daysForServiceId.get(serviceId);
+        return days == null ? new BitSet() : (BitSet) days.clone();
+    }
+
+    /** @return the number of days on which the given service is active. */
+    public int countActiveDays (String serviceId) {
+        BitSet days = daysForServiceId.get(serviceId);
+        return days == null ? 0 : days.cardinality();
+    }
+
+    public boolean isActiveOn (String serviceId, LocalDate date) {
+        BitSet days = daysForServiceId.get(serviceId);
+        int day = getDay(date);
+        return days != null && day >= 0 && days.get(day);
+    }
+
+    /** @return whether the given service is active on any date from fromDate to toDate inclusive. */
+    public boolean isActiveBetween (String serviceId, LocalDate fromDate, LocalDate toDate) {
+        BitSet days = daysForServiceId.get(serviceId);
+        if (days == null || firstDate == null) return false;
+        long fromDay = Math.max(0, ChronoUnit.DAYS.between(firstDate, fromDate));
+        long toDay = Math.min(dayCount - 1, ChronoUnit.DAYS.between(firstDate, toDate));
+        if (fromDay > toDay) return false;
+        int nextDay = days.nextSetBit((int) fromDay);
+        return nextDay >= 0 && nextDay <= toDay;
+    }
+
+    /** @return whether the two services are both active on at least one date. */
+    public boolean areActiveOnSameDay (String serviceId, String otherServiceId) {
+        BitSet days = daysForServiceId.get(serviceId);
+        BitSet otherDays = daysForServiceId.get(otherServiceId);
+        return days != null && otherDays != null && days.intersects(otherDays);
+    }
+
+    /** @return the days on which any of the given services is active. */
+    public BitSet getActiveDaysOfAny (Collection<String> serviceIds) {
+        BitSet union = new BitSet();
+        for (String serviceId : serviceIds) {
+            BitSet days = daysForServiceId.get(serviceId);
+            if (days != null) union.or(days);
+        }
+        return union;
+    }
+
+    /** @return the IDs of the services active on the given date, in the order they were first defined. */
+    public List<String> getServicesActiveOn (LocalDate date) {
+        List<String> serviceIds = new ArrayList<>();
+        int day = getDay(date);
+        if (day < 0) return serviceIds;
+        daysForServiceId.forEach((serviceId, days) -> {
+            if (days.get(day)) serviceIds.add(serviceId);
+        });
+        return serviceIds;
+    }
+
+    /** @return the trips whose services are active on any date from fromDate to toDate inclusive. */
+    public List<Trip> getTripsActiveBetween (Iterable<Trip> trips, LocalDate fromDate, LocalDate toDate) {
+        List<Trip> activeTrips = new ArrayList<>();
+        for (Trip trip : trips) {
+            if (isActiveBetween(trip.service_id, fromDate, toDate)) activeTrips.add(trip);
+        }
+        return activeTrips;
+    }
+
+    /**
+     * Add up a value for each service (e.g. its number of trips or service duration) over the days it is active.
+     * @return the sum for each day, counted from {@link #getFirstDate()}
+     */
+    public int[] sumPerDay (ToIntFunction<String> valueForServiceId) {
+        int[] sums = new int[dayCount];
+        daysForServiceId.forEach((serviceId, days) -> {
+            int value = valueForServiceId.applyAsInt(serviceId);
+            if (value == 0) return;
+            for (int day = days.nextSetBit(0); day >= 0; day = days.nextSetBit(day + 1)) sums[day] += value;
+        });
+        return sums;
+    }
+}
@@ -17,4 +17,9 @@ public interface TableReader <T extends Entity> extends Iterable<T> {
 
     Iterable<T> getAllOrdered ();
 
+    /**
+     * Get the items with IDs between fromId and toId inclusive, in the same order as {@link #getAllOrdered()}.
+     */
+    Iterable<T> getOrderedInRange (String fromId, String toId);
+
 }
@@ -0,0 +1,177 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.model.Entity;
+import com.conveyal.gtfs.model.Stop;
+import com.conveyal.gtfs.model.StopTime;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The stop times of a single trip, in order of increasing stop_sequence, held in parallel arrays of primitives rather
+ * than as StopTime objects. Instances are filled by {@link TripStopTimesReader} and reused from one trip to the next,
+ * so they must not be retained by the TripValidators they are passed to: anything needed after a trip has been
+ * validated must be copied out, e.g. with {@link #toStopTime(int)}. The arrays may be longer than the trip, only the
+ * first {@link #size} elements are meaningful. As with the StopTime fields, missing values are
+ * {@link Entity#INT_MISSING} or {@link Entity#DOUBLE_MISSING}.
+ */
+public class TripStopTimes {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The stops of the feed, indexed by {@link #stopIndices}. */
+    private final List<Stop> stops;
+
+    public String tripId;
+    public int size;
+
+    /** The database row IDs, used as line numbers in errors. */
+    public int[] ids;
+    public int[] stopSequences;
+    public String[] stopIds;
+    /** The index of each stop time's stop in the feed's stops, or -1 if there is no such stop. */
+    public int[] stopIndices;
+    public int[] arrivalTimes;
+    public int[] departureTimes;
+    public String[] stopHeadsigns;
+    public int[] pickupTypes;
+    public int[] dropOffTypes;
+    public int[] continuousPickups;
+    public int[] continuousDropOffs;
+    public int[] timepoints;
+    public double[] shapeDistTraveled;
+
+    public TripStopTimes (List<Stop> stops) {
+        this.stops = stops;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate (int capacity) {
+        ids = new int[capacity];
+        stopSequences = new int[capacity];
+        stopIds = new String[capacity];
+        stopIndices = new int[capacity];
+        arrivalTimes = new int[capacity];
+        departureTimes = new int[capacity];
+        stopHeadsigns = new String[capacity];
+        pickupTypes = new int[capacity];
+        dropOffTypes = new int[capacity];
+        continuousPickups = new int[capacity];
+        continuousDropOffs = new int[capacity];
+        timepoints = new int[capacity];
+        shapeDistTraveled = new double[capacity];
+    }
+
+    /** Start a new trip, reusing the arrays. */
+    public void clear () {
+        tripId = null;
+        // Drop references to strings from the previous trip.
+        Arrays.fill(stopIds, 0, size, null);
+        Arrays.fill(stopHeadsigns, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Add a stop time at the end of the trip, growing the arrays if needed.
+     * @return the index at which the new stop time's values should be set.
+     */
+    public int add () {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            stopSequences = Arrays.copyOf(stopSequences, capacity);
+            stopIds = Arrays.copyOf(stopIds, capacity);
+            stopIndices = Arrays.copyOf(stopIndices, capacity);
+            arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+            departureTimes = Arrays.copyOf(departureTimes, capacity);
+            stopHeadsigns = Arrays.copyOf(stopHeadsigns, capacity);
+            pickupTypes = Arrays.copyOf(pickupTypes, capacity);
+            dropOffTypes = Arrays.copyOf(dropOffTypes, capacity);
+            continuousPickups = Arrays.copyOf(continuousPickups, capacity);
+            continuousDropOffs = Arrays.copyOf(continuousDropOffs, capacity);
+            timepoints = Arrays.copyOf(timepoints, capacity);
+            shapeDistTraveled = Arrays.copyOf(shapeDistTraveled, capacity);
+        }
+        return size++;
+    }
+
+    /** @return the stop for the stop time at the given index, which must not be missing. */
+    public Stop getStop (int i) {
+        return stops.get(stopIndices[i]);
+    }
+
+    /**
+     * Remove the stop times whose stops do not exist, keeping the others in order.
+     */
+    public void removeStopTimesWithoutStops () {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (stopIndices[i] < 0) continue;
+            if (kept != i) {
+                ids[kept] = ids[i];
+                stopSequences[kept] = stopSequences[i];
+                stopIds[kept] = stopIds[i];
+                stopIndices[kept] = stopIndices[i];
+                arrivalTimes[kept] = arrivalTimes[i];
+                departureTimes[kept] = departureTimes[i];
+                stopHeadsigns[kept] = stopHeadsigns[i];
+                pickupTypes[kept] = pickupTypes[i];
+                dropOffTypes[kept] = dropOffTypes[i];
+                continuousPickups[kept] = continuousPickups[i];
+                continuousDropOffs[kept] = continuousDropOffs[i];
+                timepoints[kept] = timepoints[i];
+                shapeDistTraveled[kept] = shapeDistTraveled[i];
+            }
+            kept++;
+        }
+        Arrays.fill(stopIds, kept, size, null);
+        Arrays.fill(stopHeadsigns, kept, size, null);
+        size = kept;
+    }
+
+    public boolean missingEitherTime (int i) {
+        return arrivalTimes[i] == Entity.INT_MISSING || departureTimes[i] == Entity.INT_MISSING;
+    }
+
+    public boolean missingBothTimes (int i) {
+        return arrivalTimes[i] == Entity.INT_MISSING && departureTimes[i] == Entity.INT_MISSING;
+    }
+
+    /**
+     * If the stop time at the given index is missing one of arrival or departure time, copy from the other field.
+     * @return whether one of the times was missing.
+     */
+    public boolean fixMissingTimes (int i) {
+        boolean missing = false;
+        if (arrivalTimes[i] == Entity.INT_MISSING) {
+            arrivalTimes[i] = departureTimes[i];
+            missing = true;
+        }
+        if (departureTimes[i] == Entity.INT_MISSING) {
+            departureTimes[i] = arrivalTimes[i];
+            missing = true;
+        }
+        return missing;
+    }
+
+    /**
+     * Create a StopTime with the current values for the given index, e.g. to register an error against it.
+     */
+    public StopTime toStopTime (int i) {
+        StopTime stopTime = new StopTime();
+        stopTime.id = ids[i];
+        stopTime.trip_id = tripId;
+        stopTime.stop_sequence = stopSequences[i];
+        stopTime.stop_id = stopIds[i];
+        stopTime.arrival_time = arrivalTimes[i];
+        stopTime.departure_time = departureTimes[i];
+        stopTime.stop_headsign = stopHeadsigns[i];
+        stopTime.pickup_type = pickupTypes[i];
+        stopTime.drop_off_type = dropOffTypes[i];
+        stopTime.continuous_pickup = continuousPickups[i];
+        stopTime.continuous_drop_off = continuousDropOffs[i];
+        stopTime.timepoint = timepoints[i];
+        stopTime.shape_dist_traveled = shapeDistTraveled[i];
+        return stopTime;
+    }
+}
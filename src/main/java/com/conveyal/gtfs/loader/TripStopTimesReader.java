@@ -0,0 +1,159 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.model.Entity;
+import com.conveyal.gtfs.model.Stop;
+import com.conveyal.gtfs.storage.StorageException;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.conveyal.gtfs.loader.JDBCTableReader.SQL_STATE_UNDEFINED_TABLE;
+import static java.sql.ResultSet.CLOSE_CURSORS_AT_COMMIT;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+
+/**
+ * Streams the stop_times table of a feed one trip at a time, in order of trip_id and stop_sequence, reading the
+ * columns of each row straight into a reused {@link TripStopTimes} instead of creating a StopTime per row as
+ * JDBCTableReader does. The only objects created per row are the strings for trip_id, stop_id and stop_headsign,
+ * which the JDBC driver allocates. Stop IDs are resolved to indexes in the feed's stops once, here.
+ * Instances are safe to use from several threads at once, e.g. to read different ranges of trips.
+ */
+public class TripStopTimesReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TripStopTimesReader.class);
+
+    private final Feed feed;
+    private final List<Stop> stops;
+    private final TObjectIntMap<String> stopIndexForId;
+
+    public TripStopTimesReader (Feed feed, EntitySnapshot<Stop> stops) {
+        this.feed = feed;
+        this.stops = stops.getAll();
+        stopIndexForId = new TObjectIntHashMap<>(this.stops.size() * 2, 0.5f, -1);
+        for (int i = 0; i < this.stops.size(); i++) {
+            String stopId = this.stops.get(i).stop_id;
+            // As for EntitySnapshot#get, the first of several stops with the same ID is used.
+            if (stopId != null) stopIndexForId.putIfAbsent(stopId, i);
+        }
+    }
+
+    /**
+     * Pass each trip's stop times to the consumer in turn. Stop times without a trip_id are skipped. The same
+     * TripStopTimes instance is passed for every trip.
+     * @param fromTripId if not null, only trips with IDs from this one to toTripId inclusive are read
+     */
+    public void forEachTrip (String fromTripId, String toTripId, Consumer<TripStopTimes> consumer) {
+        String sql = "select * from " + feed.getTableNameWithSchemaPrefix("stop_times");
+        if (fromTripId != null) sql += " where trip_id >= ? and trip_id <= ?";
+        sql += " order by trip_id, stop_sequence";
+        try (Connection connection = feed.getConnection()) {
+            PreparedStatement statement =
+                connection.prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY, CLOSE_CURSORS_AT_COMMIT);
+            // As in JDBCTableReader, use a server-side cursor if autoCommit is off.
+            statement.setFetchSize(10_000);
+            if (fromTripId != null) {
+                statement.setString(1, fromTripId);
+                statement.setString(2, toTripId);
+            }
+            LOG.info(statement.toString());
+            ResultSet results = statement.executeQuery();
+            Columns columns = new Columns(results.getMetaData());
+            TripStopTimes trip = new TripStopTimes(stops);
+            while (results.next()) {
+                String tripId = getString(results, columns.tripId);
+                if (tripId == null) continue;
+                if (trip.size > 0 && !tripId.equals(trip.tripId)) {
+                    consumer.accept(trip);
+                    trip.clear();
+                }
+                trip.tripId = tripId;
+                int i = trip.add();
+                trip.ids[i] = getInt(results, columns.id);
+                trip.stopSequences[i] = getInt(results, columns.stopSequence);
+                String stopId = getString(results, columns.stopId);
+                trip.stopIds[i] = stopId;
+                trip.stopIndices[i] = stopId == null ? -1 : stopIndexForId.get(stopId);
+                trip.arrivalTimes[i] = getInt(results, columns.arrivalTime);
+                trip.departureTimes[i] = getInt(results, columns.departureTime);
+                trip.stopHeadsigns[i] = getString(results, columns.stopHeadsign);
+                trip.pickupTypes[i] = getInt(results, columns.pickupType);
+                trip.dropOffTypes[i] = getInt(results, columns.dropOffType);
+                trip.continuousPickups[i] = getInt(results, columns.continuousPickup);
+                trip.continuousDropOffs[i] = getInt(results, columns.continuousDropOff);
+                trip.timepoints[i] = getInt(results, columns.timepoint);
+                trip.shapeDistTraveled[i] = getDouble(results, columns.shapeDistTraveled);
+            }
+            if (trip.size > 0) consumer.accept(trip);
+        } catch (SQLException e) {
+            if (SQL_STATE_UNDEFINED_TABLE.equals(e.getSQLState())) {
+                // Table is just missing, as if it were empty.
+                LOG.info("Table stop_times did not exist, there are no trips to read.");
+                return;
+            }
+            throw new StorageException(e);
+        }
+    }
+
+    // These follow the methods of EntityPopulator, but with column indexes looked up only once per query.
+
+    private static String getString (ResultSet results, int column) throws SQLException {
+        return column == 0 ? null : results.getString(column);
+    }
+
+    private static int getInt (ResultSet results, int column) throws SQLException {
+        if (column == 0) return Entity.INT_MISSING;
+        int value = results.getInt(column);
+        return results.wasNull() ? Entity.INT_MISSING : value;
+    }
+
+    private static double getDouble (ResultSet results, int column) throws SQLException {
+        if (column == 0) return Entity.DOUBLE_MISSING;
+        double value = results.getDouble(column);
+        return results.wasNull() ? Entity.DOUBLE_MISSING : value;
+    }
+
+    /** The one-based indexes of the columns read, or zero for those that are missing from the table. */
+    private static class Columns {
+        final int id;
+        final int tripId;
+        final int stopSequence;
+        final int stopId;
+        final int arrivalTime;
+        final int departureTime;
+        final int stopHeadsign;
+        final int pickupType;
+        final int dropOffType;
+        final int continuousPickup;
+        final int continuousDropOff;
+        final int timepoint;
+        final int shapeDistTraveled;
+
+        Columns (ResultSetMetaData metaData) throws SQLException {
+            TObjectIntMap<String> columnForName = new TObjectIntHashMap<>();
+            for (int c = 1; c <= metaData.getColumnCount(); c++) columnForName.put(metaData.getColumnName(c), c);
+            id = columnForName.get("id");
+            tripId = columnForName.get("trip_id");
+            stopSequence = columnForName.get("stop_sequence");
+            stopId = columnForName.get("stop_id");
+            arrivalTime = columnForName.get("arrival_time");
+            departureTime = columnForName.get("departure_time");
+            stopHeadsign = columnForName.get("stop_headsign");
+            pickupType = columnForName.get("pickup_type");
+            dropOffType = columnForName.get("drop_off_type");
+            continuousPickup = columnForName.get("continuous_pickup");
+            continuousDropOff = columnForName.get("continuous_drop_off");
+            timepoint = columnForName.get("timepoint");
+            shapeDistTraveled = columnForName.get("shape_dist_traveled");
+        }
+    }
+}
@@ -258,11 +258,9 @@ public abstract class Entity implements Serializable {
             if (str != null) {
                 val = target.get(str);
                 String transitId = column + ":" + str;
-                if (!feed.transitIds.contains(transitId)) {
-                    feed.transitIds.add(transitId);
-                    if (val == null) {
-                        feed.errors.add(new ReferentialIntegrityError(tableName, row, column, str));
-                    }
+                // Tables may be loaded concurrently, so test and add the ID in one step.
+                if (feed.transitIds.add(transitId) && val == null) {
+                    feed.errors.add(new ReferentialIntegrityError(tableName, row, column, str));
                 }
             }
             return val;
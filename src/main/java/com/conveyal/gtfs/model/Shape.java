@@ -30,6 +30,11 @@ public class Shape {
     /** shape_dist_traveled for each point in the geometry. TODO how to handle shape dist traveled not specified, or not specified on all stops? */
     public double[] shape_dist_traveled;
 
+    public Shape (LineString geometry, double[] shape_dist_traveled) {
+        this.geometry = geometry;
+        this.shape_dist_traveled = shape_dist_traveled;
+    }
+
     public Shape (GTFSFeed feed, String shape_id) {
         Map<Fun.Tuple2<String, Integer>, ShapePoint> points =
                 feed.shape_points.subMap(new Fun.Tuple2(shape_id, null), new Fun.Tuple2(shape_id, Fun.HI));
@@ -1,11 +1,13 @@
 package com.conveyal.gtfs.model;
 
 import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.error.DuplicateKeyError;
 
 import java.io.IOException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
 
 import org.mapdb.Fun.Tuple2;
 
@@ -58,8 +60,20 @@ public class ShapePoint extends Entity {
 
     public static class Loader extends Entity.Loader<ShapePoint> {
 
+        private final BiConsumer<Tuple2<String, Integer>, ShapePoint> target;
+
         public Loader(GTFSFeed feed) {
+            this(feed, (key, shapePoint) -> {
+                // Like the bulk loader, report the entity replaced by a later row with the same key.
+                ShapePoint replaced = feed.shape_points.put(key, shapePoint);
+                if (replaced != null) feed.errors.add(new DuplicateKeyError("shapes", replaced.id, "shape_pt_sequence"));
+            });
+        }
+
+        /** Load shape points into the given target rather than directly into the feed's shape_points map. */
+        public Loader(GTFSFeed feed, BiConsumer<Tuple2<String, Integer>, ShapePoint> target) {
             super(feed, "shapes");
+            this.target = target;
         }
 
         @Override
@@ -78,7 +92,7 @@ public class ShapePoint extends Entity {
             ShapePoint s = new ShapePoint(shape_id, shape_pt_lat, shape_pt_lon, shape_pt_sequence, shape_dist_traveled);
             s.id = row + 1; // offset line number by 1 to account for 0-based row index
             s.feed = null; // since we're putting this into MapDB, we don't want circular serialization
-            feed.shape_points.put(new Tuple2<String, Integer>(s.shape_id, s.shape_pt_sequence), s);
+            target.accept(new Tuple2<String, Integer>(s.shape_id, s.shape_pt_sequence), s);
         }
     }
 
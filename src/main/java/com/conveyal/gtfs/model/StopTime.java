@@ -1,6 +1,7 @@
 package com.conveyal.gtfs.model;
 
 import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.error.DuplicateKeyError;
 
 import org.mapdb.Fun;
 
@@ -10,6 +11,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
 /**
  * Represents a GTFS StopTime. Note that once created and saved in a feed, stop times are by convention immutable
@@ -66,8 +68,20 @@ public class StopTime extends Entity implements Cloneable, Serializable {
 
     public static class Loader extends Entity.Loader<StopTime> {
 
+        private final BiConsumer<Fun.Tuple2, StopTime> target;
+
         public Loader(GTFSFeed feed) {
+            this(feed, (key, stopTime) -> {
+                // Like the bulk loader, report the entity replaced by a later row with the same key.
+                StopTime replaced = feed.stop_times.put(key, stopTime);
+                if (replaced != null) feed.errors.add(new DuplicateKeyError("stop_times", replaced.id, "stop_sequence"));
+            });
+        }
+
+        /** Load stop times into the given target rather than directly into the feed's stop_times map. */
+        public Loader(GTFSFeed feed, BiConsumer<Fun.Tuple2, StopTime> target) {
             super(feed, "stop_times");
+            this.target = target;
         }
 
         @Override
@@ -94,7 +108,7 @@ public class StopTime extends Entity implements Cloneable, Serializable {
             st.shape_dist_traveled = getDoubleField("shape_dist_traveled", false, 0D, Double.MAX_VALUE); // FIXME using both 0 and NaN for "missing", define DOUBLE_MISSING
             st.timepoint      = getIntField("timepoint", false, 0, 1, INT_MISSING);
             st.feed           = null; // this could circular-serialize the whole feed
-            feed.stop_times.put(new Fun.Tuple2(st.trip_id, st.stop_sequence), st);
+            target.accept(new Fun.Tuple2(st.trip_id, st.stop_sequence), st);
 
             /*
               Check referential integrity without storing references. StopTime cannot directly reference Trips or
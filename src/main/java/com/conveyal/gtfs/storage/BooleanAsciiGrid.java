@@ -1,15 +1,33 @@
 package com.conveyal.gtfs.storage;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.BitSet;
 import java.util.zip.GZIPInputStream;
 
 /**
  * Loads an ESRI ASCII grid containing integers and allows looking up values as booleans (where > 0).
- * This is used for
+ * This is used for finding stops in places where nobody lives (see MisplacedStopValidator).
+ *
+ * Parsing the ASCII grid is slow, so grids can also be converted to a binary file with one bit per cell (see
+ * {@link #main(String[])}), which is memory-mapped when read. The Earth population grid is shipped in both formats,
+ * and the binary one is read once per process and shared.
  */
 public class BooleanAsciiGrid {
 
+    private static final int MAGIC = 0x42414731; // "BAG1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    private static final String EARTH_POPULATION_BINARY = "gpwv3-quarter-boolean.bin";
+
+    private static BooleanAsciiGrid earthPopulation;
+
     int ncols;
     int nrows;
     double xllcorner;
@@ -17,7 +35,8 @@ public class BooleanAsciiGrid {
     double cellsize;
     double nodata;
 
-    BitSet grid;
+    /** One bit per cell, in rows from top to bottom, packed into longs as in {@link BitSet#toLongArray()}. */
+    LongBuffer grid;
 
     public BooleanAsciiGrid (InputStream inputStream, boolean gzipped) {
 
@@ -26,22 +45,24 @@ public class BooleanAsciiGrid {
             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
             boolean inHeader = true;
             int nDataItemsRead = 0;
+            BitSet bits = null;
             for(String line = reader.readLine(); line != null; line = reader.readLine()) {
                 String[] fields = line.trim().split("\\s+"); // split on one or more whitespace characters
                 if (inHeader) {
                     inHeader = handleHeaderRow(fields);
                     if (inHeader) continue;
-                    grid = new BitSet(ncols * nrows);
+                    bits = new BitSet(ncols * nrows);
                 }
                 if (fields.length != ncols) {
                     throw new RuntimeException("Wrong number of data columns: " +  fields.length);
                 }
                 for (String field : fields) {
                     int value = Integer.parseInt(field);
-                    grid.set(nDataItemsRead++, value > 0);
+                    bits.set(nDataItemsRead++, value > 0);
                 }
             }
             if (nDataItemsRead != ncols * nrows) throw new RuntimeException("Too few data items: " + nDataItemsRead);
+            grid = LongBuffer.wrap(bits.toLongArray());
         } catch (IOException exception) {
             throw new RuntimeException(exception);
         }
@@ -57,14 +78,100 @@ public class BooleanAsciiGrid {
      * and all others a value of zero (since the no data value in the grid is -9999). This was then exported as another
      * ASCII grid file, which zips well. The license for this data set is Creative Commons Attribution.
      * See http://sedac.ciesin.columbia.edu/data/collection/gpw-v3
+     *
+     * The grid is read from a binary copy of that file made with {@link #main(String[])}, and the same instance is
+     * returned to every caller.
      */
-    public static BooleanAsciiGrid forEarthPopulation() {
-        try {
-            InputStream gridStream = BooleanAsciiGrid.class.getResourceAsStream("gpwv3-quarter-boolean.asc");
-            return new BooleanAsciiGrid(gridStream, false);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
+    public static synchronized BooleanAsciiGrid forEarthPopulation() {
+        if (earthPopulation == null) {
+            try {
+                earthPopulation = readBinaryResource(EARTH_POPULATION_BINARY);
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return earthPopulation;
+    }
+
+    /**
+     * Memory-map a binary grid from the classpath. Resources inside a jar cannot be mapped, so those are copied to a
+     * temporary file first.
+     */
+    private static BooleanAsciiGrid readBinaryResource (String name) throws IOException, URISyntaxException {
+        URL resource = BooleanAsciiGrid.class.getResource(name);
+        if (resource == null) throw new FileNotFoundException(name);
+        if ("file".equals(resource.getProtocol())) return readBinary(new File(resource.toURI()));
+        File file = File.createTempFile(name, null);
+        file.deleteOnExit();
+        try (InputStream inputStream = resource.openStream()) {
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return readBinary(file);
+    }
+
+    /**
+     * Read a grid written by {@link #writeBinary(File)}. The cells are memory-mapped rather than read into memory.
+     */
+    public static BooleanAsciiGrid readBinary (File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            // The mapping remains valid after the file is closed.
+            ByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a binary boolean grid: " + file);
+            }
+            return new BooleanAsciiGrid(buffer);
+        }
+    }
+
+    private BooleanAsciiGrid (ByteBuffer buffer) {
+        ncols = buffer.getInt();
+        nrows = buffer.getInt();
+        xllcorner = buffer.getDouble();
+        yllcorner = buffer.getDouble();
+        cellsize = buffer.getDouble();
+        nodata = buffer.getDouble();
+        buffer.position(HEADER_BYTES);
+        grid = buffer.slice().asLongBuffer();
+    }
+
+    /**
+     * Write this grid in a binary format that can be memory-mapped by {@link #readBinary(File)}: a header followed by
+     * one bit per cell.
+     */
+    public void writeBinary (File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ncols);
+            out.writeInt(nrows);
+            out.writeDouble(xllcorner);
+            out.writeDouble(yllcorner);
+            out.writeDouble(cellsize);
+            out.writeDouble(nodata);
+            // Write every word, including trailing zeros, so that the file size follows from the header.
+            int words = (int) (((long) ncols * nrows + 63) / 64);
+            for (int w = 0; w < words; w++) out.writeLong(w < grid.limit() ? grid.get(w) : 0);
+        }
+    }
+
+    /**
+     * Convert an ESRI ASCII grid (optionally gzipped, with a .gz extension) to the binary format. The Earth population
+     * grid resource is regenerated with:
+     *
+     *   java -cp target/classes com.conveyal.gtfs.storage.BooleanAsciiGrid \
+     *       src/main/resources/com/conveyal/gtfs/storage/gpwv3-quarter-boolean.asc \
+     *       src/main/resources/com/conveyal/gtfs/storage/gpwv3-quarter-boolean.bin
+     */
+    public static void main (String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BooleanAsciiGrid input.asc[.gz] output.bin");
+            System.exit(1);
+        }
+        BooleanAsciiGrid grid;
+        try (InputStream inputStream = new FileInputStream(args[0])) {
+            grid = new BooleanAsciiGrid(inputStream, args[0].endsWith(".gz"));
         }
+        grid.writeBinary(new File(args[1]));
     }
 
     /**
@@ -96,8 +203,10 @@ public class BooleanAsciiGrid {
         int xCell = (int)((x - xllcorner) / cellsize);
         int yCell = (int)((y - yllcorner) / cellsize);
         int index = (nrows - yCell - 1) * ncols + xCell; // Vertical flip
-        if (index < 0 || index > grid.length()) return false;
-        return grid.get(index);
+        if (index < 0) return false;
+        int word = index >>> 6;
+        if (word >= grid.limit()) return false;
+        return (grid.get(word) & (1L << index)) != 0;
     }
 
 }
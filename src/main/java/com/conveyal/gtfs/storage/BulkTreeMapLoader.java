@@ -0,0 +1,179 @@
+package com.conveyal.gtfs.storage;
+
+import com.conveyal.gtfs.model.Entity;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.Fun;
+import org.mapdb.Pump;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Builds a MapDB tree map from entities that arrive in arbitrary order, for tables like stop_times and shapes that
+ * are far too large to be inserted into a BTree one key at a time at an acceptable speed. Entities are handed over
+ * from the thread parsing the table (see {@link #accept}) to a background thread, which sorts them into runs of
+ * {@link #PRESORT_BATCH_SIZE} entries (spilling to temporary files as needed), merges the runs and creates the map
+ * bottom-up with MapDB's data pump. The resulting map is identical to one built with put(), including for duplicate
+ * keys, where the entity from the last row wins. The entities that were replaced are passed to a handler so that the
+ * duplicates can be reported, as the table loaders do when putting entities into the map one at a time (see e.g.
+ * {@link com.conveyal.gtfs.model.StopTime.Loader}).
+ */
+public class BulkTreeMapLoader<K extends Comparable, V extends Entity> implements BiConsumer<K, V> {
+
+    /** The number of entries sorted in memory before being spilled to disk. */
+    private static final int PRESORT_BATCH_SIZE = 500_000;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final Object END = new Object();
+
+    private final DB db;
+    private final String mapName;
+    private final Consumer<V> duplicateHandler;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final CompletableFuture<BTreeMap<K, V>> result = new CompletableFuture<>();
+    private final Thread thread;
+
+    /**
+     * Start loading entries into the map with the given name, which will replace any existing map of that name once
+     * {@link #finish()} is called.
+     */
+    public BulkTreeMapLoader(DB db, String mapName, Consumer<V> duplicateHandler) {
+        this.db = db;
+        this.mapName = mapName;
+        this.duplicateHandler = duplicateHandler;
+        this.thread = new Thread(this::build, "bulk-load-" + mapName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Add one entry to the map. This must only be called from a single thread. */
+    @Override
+    public void accept(K key, V value) {
+        enqueue(new Fun.Tuple2<>(key, value));
+    }
+
+    /**
+     * Wait for all entries to be sorted and stored. This must be called after the last entry has been added.
+     * @return the new map, or the existing map if no entries were added
+     */
+    public BTreeMap<K, V> finish() throws Exception {
+        enqueue(END);
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    /** Stop loading if {@link #finish()} has not been called, e.g. because parsing the table failed. */
+    public void abort() {
+        if (!result.isDone()) thread.interrupt();
+    }
+
+    private void enqueue(Object item) {
+        try {
+            while (!queue.offer(item, 1, TimeUnit.SECONDS)) {
+                if (result.isDone()) {
+                    // Failed, the cause will be thrown by finish().
+                    throw new IllegalStateException("Bulk load of " + mapName + " has stopped.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + mapName, e);
+        }
+    }
+
+    private void build() {
+        try {
+            Iterator<Fun.Tuple2<K, V>> source = new QueueIterator();
+            if (!source.hasNext()) {
+                result.complete(db.getTreeMap(mapName));
+                return;
+            }
+            // The pump requires keys in descending order. Among equal keys, put the entity from the last row first
+            // so that it is the one retained.
+            Comparator<Fun.Tuple2<K, V>> descending = (e1, e2) -> {
+                int c = e2.a.compareTo(e1.a);
+                return c != 0 ? c : Integer.compare(e2.b.id, e1.b.id);
+            };
+            Iterator<Fun.Tuple2<K, V>> sorted =
+                Pump.sort(source, false, PRESORT_BATCH_SIZE, descending, db.getDefaultSerializer());
+            Iterator<Fun.Tuple2<K, V>> unique = new DuplicateFilter(sorted);
+            if (db.exists(mapName)) db.delete(mapName);
+            result.complete(db.createTreeMap(mapName).pumpSource(unique).make());
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+    }
+
+    /** Blocks until the parsing thread hands over the next entry. */
+    private class QueueIterator implements Iterator<Fun.Tuple2<K, V>> {
+        private Object next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException("Interrupted while loading " + mapName, e);
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Fun.Tuple2<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Fun.Tuple2<K, V> entry = (Fun.Tuple2<K, V>) next;
+            next = null;
+            return entry;
+        }
+    }
+
+    /** Drops all but the first of each run of equal keys in the sorted entries, passing the others to the handler. */
+    private class DuplicateFilter implements Iterator<Fun.Tuple2<K, V>> {
+        private final Iterator<Fun.Tuple2<K, V>> sorted;
+        private Fun.Tuple2<K, V> next;
+        private K lastKey;
+
+        DuplicateFilter(Iterator<Fun.Tuple2<K, V>> sorted) {
+            this.sorted = sorted;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            while (next == null && sorted.hasNext()) {
+                Fun.Tuple2<K, V> entry = sorted.next();
+                if (lastKey != null && lastKey.compareTo(entry.a) == 0) {
+                    duplicateHandler.accept(entry.b);
+                } else {
+                    lastKey = entry.a;
+                    next = entry;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Fun.Tuple2<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Fun.Tuple2<K, V> entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.conveyal.gtfs.storage;
+
+import com.conveyal.gtfs.model.StopTime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.conveyal.gtfs.model.Entity.DOUBLE_MISSING;
+import static com.conveyal.gtfs.model.Entity.INT_MISSING;
+
+/**
+ * Stop times stored as memory-mapped primitive columns rather than as serialized StopTime objects. Rows are grouped by
+ * trip in (trip_id, stop_sequence) order, the order of GTFSFeed#stop_times, with an index of the first row of each
+ * trip. This allows iterating over all stop times or slicing out a single trip's stop times by reading primitives,
+ * without deserializing (or even allocating) a StopTime per row. StopTimes are only created on request, e.g. by
+ * {@link #getStopTimesForTrip(String)}.
+ * <p>
+ * The columns are stored as follows:
+ * <ul>
+ *   <li>id, arrival_time, departure_time and stop_sequence as ints.</li>
+ *   <li>stop_id and stop_headsign as int indexes into dictionaries of distinct values (-1 for null).</li>
+ *   <li>shape_dist_traveled as a float (NaN when missing), so only float precision is kept.</li>
+ *   <li>pickup_type, drop_off_type, continuous_pickup, continuous_drop_off and timepoint as three bits each of a
+ *   short. The few rows with values that do not fit (i.e. values that were out of range in the source) keep their
+ *   exact values in an overflow section, as do rows whose shape_dist_traveled is DOUBLE_MISSING.</li>
+ * </ul>
+ * The trip index, dictionaries and overflow rows follow the columns in the file and are read into memory on open.
+ * Instances are immutable and safe for concurrent reads.
+ */
+public class ColumnarStopTimes implements Closeable {
+
+    private static final int MAGIC = 0x53544331; // "STC1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int INT_COLUMN_COUNT = 6;
+
+    // Codes for the three bit flag fields.
+    private static final int FLAG_BITS = 3;
+    private static final int FLAG_MAX_VALUE = 5;
+    private static final int FLAG_MISSING = 6;
+    private static final int FLAG_OVERFLOW = 7;
+    private static final short OVERFLOW_ROW = 0x7FFF;
+
+    private final RandomAccessFile file;
+    private final int rowCount;
+
+    private final IntBuffer ids;
+    private final IntBuffer arrivalTimes;
+    private final IntBuffer departureTimes;
+    private final IntBuffer stopSequences;
+    private final IntBuffer stopIndexes;
+    private final IntBuffer headsignIndexes;
+    private final FloatBuffer shapeDistances;
+    private final ShortBuffer flags;
+
+    // Trip IDs in sorted order, and the first row of each trip (with one extra entry for the end of the last trip).
+    private final String[] tripIds;
+    private final int[] tripFirstRows;
+    private final String[] stopIds;
+    private final String[] headsigns;
+    private final Map<Integer, OverflowRow> overflowRows;
+
+    /** The exact values of a row whose flags or shape_dist_traveled could not be stored in the columns. */
+    private static class OverflowRow {
+        final int[] flagValues;
+        final double shapeDistTraveled;
+
+        OverflowRow (int[] flagValues, double shapeDistTraveled) {
+            this.flagValues = flagValues;
+            this.shapeDistTraveled = shapeDistTraveled;
+        }
+    }
+
+    /**
+     * Write the given stop times to a new columnar file and open it.
+     *
+     * @param stopTimes  stop times ordered by trip_id then stop_sequence (e.g., GTFSFeed#stop_times values). Stop times
+     *                   without a trip_id are skipped.
+     * @param maxRows    an upper bound on the number of stop times, used to size the file.
+     */
+    public static ColumnarStopTimes write (Iterable<StopTime> stopTimes, int maxRows, File outputFile)
+        throws IOException {
+        List<String> tripIds = new ArrayList<>();
+        List<Integer> tripFirstRows = new ArrayList<>();
+        Map<String, Integer> stopIndexForId = new HashMap<>();
+        Map<String, Integer> headsignIndexForValue = new HashMap<>();
+        Map<Integer, OverflowRow> overflowRows = new HashMap<>();
+        int row = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(outputFile, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            long position = HEADER_BYTES;
+            IntBuffer[] intColumns = new IntBuffer[INT_COLUMN_COUNT];
+            for (int c = 0; c < INT_COLUMN_COUNT; c++) {
+                intColumns[c] = channel.map(FileChannel.MapMode.READ_WRITE, position, 4L * maxRows).asIntBuffer();
+                position += 4L * maxRows;
+            }
+            FloatBuffer shapeDistances = channel.map(FileChannel.MapMode.READ_WRITE, position, 4L * maxRows)
+                .asFloatBuffer();
+            position += 4L * maxRows;
+            ShortBuffer flags = channel.map(FileChannel.MapMode.READ_WRITE, position, 2L * maxRows).asShortBuffer();
+            position += 2L * maxRows;
+
+            String previousTripId = null;
+            for (StopTime stopTime : stopTimes) {
+                if (stopTime.trip_id == null) continue;
+                if (row == maxRows) throw new IllegalArgumentException("More stop times than expected: " + maxRows);
+                if (!stopTime.trip_id.equals(previousTripId)) {
+                    if (previousTripId != null && stopTime.trip_id.compareTo(previousTripId) < 0) {
+                        throw new IllegalArgumentException("Stop times are not ordered by trip_id.");
+                    }
+                    tripIds.add(stopTime.trip_id);
+                    tripFirstRows.add(row);
+                    previousTripId = stopTime.trip_id;
+                }
+                intColumns[0].put(row, stopTime.id);
+                intColumns[1].put(row, stopTime.arrival_time);
+                intColumns[2].put(row, stopTime.departure_time);
+                intColumns[3].put(row, stopTime.stop_sequence);
+                intColumns[4].put(row, indexOf(stopTime.stop_id, stopIndexForId));
+                intColumns[5].put(row, indexOf(stopTime.stop_headsign, headsignIndexForValue));
+                int[] flagValues = {
+                    stopTime.pickup_type,
+                    stopTime.drop_off_type,
+                    stopTime.continuous_pickup,
+                    stopTime.continuous_drop_off,
+                    stopTime.timepoint
+                };
+                int packedFlags = packFlags(flagValues);
+                if (packedFlags < 0 || stopTime.shape_dist_traveled == DOUBLE_MISSING) {
+                    overflowRows.put(row, new OverflowRow(flagValues, stopTime.shape_dist_traveled));
+                    flags.put(row, OVERFLOW_ROW);
+                    shapeDistances.put(row, Float.NaN);
+                } else {
+                    flags.put(row, (short) packedFlags);
+                    shapeDistances.put(row, (float) stopTime.shape_dist_traveled);
+                }
+                row += 1;
+            }
+            tripFirstRows.add(row);
+
+            // Write the trip index, dictionaries and overflow rows after the columns.
+            long trailerPosition = position;
+            channel.position(trailerPosition);
+            DataOutputStream trailer = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            trailer.writeInt(tripIds.size());
+            for (int t = 0; t < tripIds.size(); t++) {
+                trailer.writeUTF(tripIds.get(t));
+                trailer.writeInt(tripFirstRows.get(t));
+            }
+            writeDictionary(trailer, stopIndexForId);
+            writeDictionary(trailer, headsignIndexForValue);
+            trailer.writeInt(overflowRows.size());
+            for (Map.Entry<Integer, OverflowRow> entry : overflowRows.entrySet()) {
+                trailer.writeInt(entry.getKey());
+                for (int value : entry.getValue().flagValues) trailer.writeInt(value);
+                trailer.writeDouble(entry.getValue().shapeDistTraveled);
+            }
+            trailer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(row).putInt(maxRows).putLong(trailerPosition);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        return new ColumnarStopTimes(outputFile);
+    }
+
+    /**
+     * Open a file written by {@link #write}, memory-mapping its columns.
+     */
+    public ColumnarStopTimes (File inputFile) throws IOException {
+        file = new RandomAccessFile(inputFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a columnar stop times file: " + inputFile);
+            }
+            rowCount = header.getInt();
+            int maxRows = header.getInt();
+            long trailerPosition = header.getLong();
+
+            long position = HEADER_BYTES;
+            IntBuffer[] intColumns = new IntBuffer[INT_COLUMN_COUNT];
+            for (int c = 0; c < INT_COLUMN_COUNT; c++) {
+                intColumns[c] = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * maxRows).asIntBuffer();
+                position += 4L * maxRows;
+            }
+            ids = intColumns[0];
+            arrivalTimes = intColumns[1];
+            departureTimes = intColumns[2];
+            stopSequences = intColumns[3];
+            stopIndexes = intColumns[4];
+            headsignIndexes = intColumns[5];
+            shapeDistances = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * maxRows).asFloatBuffer();
+            position += 4L * maxRows;
+            flags = channel.map(FileChannel.MapMode.READ_ONLY, position, 2L * maxRows).asShortBuffer();
+
+            channel.position(trailerPosition);
+            DataInputStream trailer = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int tripCount = trailer.readInt();
+            tripIds = new String[tripCount];
+            tripFirstRows = new int[tripCount + 1];
+            for (int t = 0; t < tripCount; t++) {
+                tripIds[t] = trailer.readUTF();
+                tripFirstRows[t] = trailer.readInt();
+            }
+            tripFirstRows[tripCount] = rowCount;
+            stopIds = readDictionary(trailer);
+            headsigns = readDictionary(trailer);
+            int overflowCount = trailer.readInt();
+            overflowRows = new HashMap<>();
+            for (int i = 0; i < overflowCount; i++) {
+                int row = trailer.readInt();
+                int[] flagValues = new int[5];
+                for (int f = 0; f < flagValues.length; f++) flagValues[f] = trailer.readInt();
+                overflowRows.put(row, new OverflowRow(flagValues, trailer.readDouble()));
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static int indexOf (String value, Map<String, Integer> dictionary) {
+        if (value == null) return -1;
+        return dictionary.computeIfAbsent(value, v -> dictionary.size());
+    }
+
+    private static void writeDictionary (DataOutputStream out, Map<String, Integer> dictionary) throws IOException {
+        String[] values = new String[dictionary.size()];
+        for (Map.Entry<String, Integer> entry : dictionary.entrySet()) values[entry.getValue()] = entry.getKey();
+        out.writeInt(values.length);
+        for (String value : values) out.writeUTF(value);
+    }
+
+    private static String[] readDictionary (DataInputStream in) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) values[i] = in.readUTF();
+        return values;
+    }
+
+    /** @return the flag values packed three bits each, or -1 if any value cannot be packed. */
+    private static int packFlags (int[] flagValues) {
+        int packed = 0;
+        for (int f = 0; f < flagValues.length; f++) {
+            int value = flagValues[f];
+            int code;
+            if (value == INT_MISSING) code = FLAG_MISSING;
+            else if (value >= 0 && value <= FLAG_MAX_VALUE) code = value;
+            else return -1;
+            packed |= code << (f * FLAG_BITS);
+        }
+        return packed;
+    }
+
+    private int getFlag (int row, int flagIndex) {
+        int code = (flags.get(row) >>> (flagIndex * FLAG_BITS)) & 0x7;
+        if (code == FLAG_MISSING) return INT_MISSING;
+        if (code == FLAG_OVERFLOW) return overflowRows.get(row).flagValues[flagIndex];
+        return code;
+    }
+
+    /** @return the total number of stop times. */
+    public int size () {
+        return rowCount;
+    }
+
+    public int getTripCount () {
+        return tripIds.length;
+    }
+
+    public String getTripId (int tripIndex) {
+        return tripIds[tripIndex];
+    }
+
+    /** @return the index of the trip with the given ID, or -1 if it has no stop times. */
+    public int getTripIndex (String tripId) {
+        int tripIndex = Arrays.binarySearch(tripIds, tripId);
+        return tripIndex < 0 ? -1 : tripIndex;
+    }
+
+    /** @return the first row of the trip's stop times. */
+    public int getFirstRow (int tripIndex) {
+        return tripFirstRows[tripIndex];
+    }
+
+    /** @return the row following the last of the trip's stop times. */
+    public int getEndRow (int tripIndex) {
+        return tripFirstRows[tripIndex + 1];
+    }
+
+    /** @return the index of the trip containing the given row. */
+    public int getTripIndexForRow (int row) {
+        int tripIndex = Arrays.binarySearch(tripFirstRows, 0, tripIds.length, row);
+        // When the row is not the first of its trip, binarySearch returns (-(insertion point) - 1).
+        return tripIndex >= 0 ? tripIndex : -tripIndex - 2;
+    }
+
+    public int getId (int row) {
+        return ids.get(row);
+    }
+
+    public int getArrivalTime (int row) {
+        return arrivalTimes.get(row);
+    }
+
+    public int getDepartureTime (int row) {
+        return departureTimes.get(row);
+    }
+
+    public int getStopSequence (int row) {
+        return stopSequences.get(row);
+    }
+
+    /** @return the index of the row's stop_id among all distinct stop IDs (-1 if null), see {@link #getStopId(int)}. */
+    public int getStopIndex (int row) {
+        return stopIndexes.get(row);
+    }
+
+    public String getStopId (int row) {
+        int stopIndex = stopIndexes.get(row);
+        return stopIndex < 0 ? null : stopIds[stopIndex];
+    }
+
+    public String getStopHeadsign (int row) {
+        int headsignIndex = headsignIndexes.get(row);
+        return headsignIndex < 0 ? null : headsigns[headsignIndex];
+    }
+
+    public double getShapeDistTraveled (int row) {
+        float shapeDistance = shapeDistances.get(row);
+        if (Float.isNaN(shapeDistance) && flags.get(row) == OVERFLOW_ROW) {
+            return overflowRows.get(row).shapeDistTraveled;
+        }
+        return shapeDistance;
+    }
+
+    public int getPickupType (int row) {
+        return getFlag(row, 0);
+    }
+
+    public int getDropOffType (int row) {
+        return getFlag(row, 1);
+    }
+
+    public int getContinuousPickup (int row) {
+        return getFlag(row, 2);
+    }
+
+    public int getContinuousDropOff (int row) {
+        return getFlag(row, 3);
+    }
+
+    public int getTimepoint (int row) {
+        return getFlag(row, 4);
+    }
+
+    /** Create a new StopTime holding the values of the given row. */
+    public StopTime getStopTime (int row) {
+        StopTime stopTime = new StopTime();
+        stopTime.id = getId(row);
+        stopTime.trip_id = tripIds[getTripIndexForRow(row)];
+        stopTime.arrival_time = getArrivalTime(row);
+        stopTime.departure_time = getDepartureTime(row);
+        stopTime.stop_id = getStopId(row);
+        stopTime.stop_sequence = getStopSequence(row);
+        stopTime.stop_headsign = getStopHeadsign(row);
+        stopTime.pickup_type = getPickupType(row);
+        stopTime.drop_off_type = getDropOffType(row);
+        stopTime.continuous_pickup = getContinuousPickup(row);
+        stopTime.continuous_drop_off = getContinuousDropOff(row);
+        stopTime.shape_dist_traveled = getShapeDistTraveled(row);
+        stopTime.timepoint = getTimepoint(row);
+        return stopTime;
+    }
+
+    /**
+     * @return the stop times of the given trip in order of increasing stop_sequence. Each StopTime is created when it
+     * is accessed.
+     */
+    public List<StopTime> getStopTimesForTrip (String tripId) {
+        int tripIndex = getTripIndex(tripId);
+        if (tripIndex < 0) return Collections.emptyList();
+        int firstRow = getFirstRow(tripIndex);
+        int endRow = getEndRow(tripIndex);
+        return new AbstractList<StopTime>() {
+            @Override
+            public StopTime get (int index) {
+                if (index < 0 || index >= endRow - firstRow) throw new IndexOutOfBoundsException();
+                return getStopTime(firstRow + index);
+            }
+
+            @Override
+            public int size () {
+                return endRow - firstRow;
+            }
+        };
+    }
+
+    /**
+     * Closes the file. Mapped columns remain valid until they are garbage collected, but must not be read after this.
+     */
+    @Override
+    public void close () throws IOException {
+        file.close();
+    }
+}
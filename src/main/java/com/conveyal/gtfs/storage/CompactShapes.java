@@ -0,0 +1,234 @@
+package com.conveyal.gtfs.storage;
+
+import com.conveyal.gtfs.model.Shape;
+import com.conveyal.gtfs.model.ShapePoint;
+import com.conveyal.gtfs.util.Util;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Shapes stored in a compact, memory-mapped file rather than as one serialized ShapePoint per point, so that a shape
+ * can be decoded without deserializing all of its points from MapDB. Each shape's coordinates are stored as
+ * fixed-point integers of 1e-7 degrees (about a centimeter), as in OSM. Each coordinate is stored as the difference
+ * from the previous point, in a zigzag variable-length encoding, so consecutive points usually take a few bytes.
+ * shape_dist_traveled values are stored as doubles, but only for shapes where at least one point has a value. Points
+ * with missing (NaN) coordinates are decoded as (0, 0).
+ * <p>
+ * The encoded shapes follow a header, and are followed by an index of the shape IDs in sorted order with the position
+ * and number of points of each shape, which is read into memory on open. Instances are immutable and safe for
+ * concurrent reads.
+ */
+public class CompactShapes implements Closeable {
+
+    private static final int MAGIC = 0x53485031; // "SHP1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final double FIXED_POINT_SCALE = 1e7;
+
+    private final RandomAccessFile file;
+    private final ByteBuffer data;
+    private final String[] shapeIds;
+    private final long[] positions;
+    private final int[] pointCounts;
+
+    /**
+     * Write the given shape points to a new compact file and open it.
+     *
+     * @param shapePoints shape points ordered by shape_id then shape_pt_sequence (e.g., GTFSFeed#shape_points values).
+     *                    Points without a shape_id are skipped.
+     */
+    public static CompactShapes write (Iterable<ShapePoint> shapePoints, File outputFile) throws IOException {
+        List<String> shapeIds = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        List<Integer> pointCounts = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(outputFile, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            channel.position(HEADER_BYTES);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            long position = HEADER_BYTES;
+            List<ShapePoint> points = new ArrayList<>();
+            Iterator<ShapePoint> iterator = shapePoints.iterator();
+            ShapePoint next = nextWithShapeId(iterator);
+            while (next != null) {
+                String shapeId = next.shape_id;
+                if (!shapeIds.isEmpty() && shapeId.compareTo(shapeIds.get(shapeIds.size() - 1)) <= 0) {
+                    throw new IllegalArgumentException("Shape points are not ordered by shape_id.");
+                }
+                points.clear();
+                while (next != null && next.shape_id.equals(shapeId)) {
+                    points.add(next);
+                    next = nextWithShapeId(iterator);
+                }
+                shapeIds.add(shapeId);
+                positions.add(position);
+                pointCounts.add(points.size());
+                position += writeShape(out, points);
+            }
+            out.flush();
+            long indexPosition = position;
+            out.writeInt(shapeIds.size());
+            for (int s = 0; s < shapeIds.size(); s++) {
+                out.writeUTF(shapeIds.get(s));
+                out.writeLong(positions.get(s));
+                out.writeInt(pointCounts.get(s));
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(indexPosition).putLong(0);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        return new CompactShapes(outputFile);
+    }
+
+    private static ShapePoint nextWithShapeId (Iterator<ShapePoint> iterator) {
+        while (iterator.hasNext()) {
+            ShapePoint point = iterator.next();
+            if (point.shape_id != null) return point;
+        }
+        return null;
+    }
+
+    /** @return the number of bytes written */
+    private static int writeShape (DataOutputStream out, List<ShapePoint> points) throws IOException {
+        int start = out.size();
+        int previousLat = 0;
+        int previousLon = 0;
+        boolean hasDistances = false;
+        for (ShapePoint point : points) {
+            int lat = toFixedPoint(point.shape_pt_lat);
+            int lon = toFixedPoint(point.shape_pt_lon);
+            writeVarInt(out, lat - previousLat);
+            writeVarInt(out, lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+            hasDistances |= !Double.isNaN(point.shape_dist_traveled);
+        }
+        out.writeBoolean(hasDistances);
+        if (hasDistances) {
+            for (ShapePoint point : points) out.writeDouble(point.shape_dist_traveled);
+        }
+        return out.size() - start;
+    }
+
+    /**
+     * Open a file written by {@link #write}, memory-mapping the encoded shapes.
+     */
+    public CompactShapes (File inputFile) throws IOException {
+        file = new RandomAccessFile(inputFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a compact shapes file: " + inputFile);
+            }
+            long indexPosition = header.getLong();
+            if (indexPosition > Integer.MAX_VALUE) throw new IOException("Compact shapes file is too large.");
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexPosition);
+            channel.position(indexPosition);
+            DataInputStream index = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int shapeCount = index.readInt();
+            shapeIds = new String[shapeCount];
+            positions = new long[shapeCount];
+            pointCounts = new int[shapeCount];
+            for (int s = 0; s < shapeCount; s++) {
+                shapeIds[s] = index.readUTF();
+                positions[s] = index.readLong();
+                pointCounts[s] = index.readInt();
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** @return the number of shapes. */
+    public int size () {
+        return shapeIds.length;
+    }
+
+    /** @return the number of points in the given shape, or 0 if there is no such shape. */
+    public int getPointCount (String shapeId) {
+        int s = Arrays.binarySearch(shapeIds, shapeId);
+        return s < 0 ? 0 : pointCounts[s];
+    }
+
+    /** @return the decoded shape, or null if there is no such shape. */
+    public Shape getShape (String shapeId) {
+        int s = Arrays.binarySearch(shapeIds, shapeId);
+        if (s < 0) return null;
+        // Each reader needs its own position.
+        ByteBuffer in = data.duplicate();
+        in.position((int) positions[s]);
+        int pointCount = pointCounts[s];
+        Coordinate[] coordinates = new Coordinate[pointCount];
+        int lat = 0;
+        int lon = 0;
+        for (int p = 0; p < pointCount; p++) {
+            lat += readVarInt(in);
+            lon += readVarInt(in);
+            coordinates[p] = new Coordinate(lon / FIXED_POINT_SCALE, lat / FIXED_POINT_SCALE);
+        }
+        double[] shapeDistTraveled = new double[pointCount];
+        if (in.get() != 0) {
+            for (int p = 0; p < pointCount; p++) shapeDistTraveled[p] = in.getDouble();
+        } else {
+            Arrays.fill(shapeDistTraveled, Double.NaN);
+        }
+        return new Shape(Util.geometryFactory.createLineString(coordinates), shapeDistTraveled);
+    }
+
+    private static int toFixedPoint (double degrees) {
+        return (int) Math.round(degrees * FIXED_POINT_SCALE);
+    }
+
+    /** Write a zigzag encoded variable-length int, 7 bits per byte. */
+    private static void writeVarInt (DataOutputStream out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    private static int readVarInt (ByteBuffer in) {
+        int zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            zigzag |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Closes the file. Mapped shapes remain valid until they are garbage collected, but must not be read after this.
+     */
+    @Override
+    public void close () throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,178 @@
+package com.conveyal.gtfs.storage;
+
+import com.conveyal.gtfs.model.Stop;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.conveyal.gtfs.util.Util.METERS_PER_DEGREE_LATITUDE;
+import static com.conveyal.gtfs.util.Util.fastDistance;
+
+/**
+ * An in-memory spatial hash of stops, for finding the stops near a point or near each other. Stops are projected to
+ * meters and assigned to square cells of a fixed size, and everything is held in primitive arrays: the stops are
+ * ordered by cell, with the cells' keys in a sorted array that is binary searched. Unlike {@link StopSpatialIndex},
+ * it is cheap enough to build for each use and does not need a file.
+ * <p>
+ * The projection is equirectangular, scaled for the middle latitude of the stops, so that cells are roughly square.
+ * Searches cover every cell that could hold a stop within the radius, and distances are then checked with
+ * {@link com.conveyal.gtfs.util.Util#fastDistance}. Stops without coordinates are left out. Instances are immutable
+ * and safe for concurrent reads.
+ */
+public class StopSpatialHash {
+
+    private final double cellMeters;
+    /** Meters per degree of longitude in the projection. */
+    private final double xMetersPerDegree;
+    private final Stop[] stops;
+    private final double[] lats;
+    private final double[] lons;
+    /** The distinct keys of the cells containing stops, in ascending order. */
+    private final long[] cellKeys;
+    /** The position in stopsByCell of the first stop in each cell, with one extra element for the end of the last. */
+    private final int[] cellStarts;
+    /** The indexes of the stops, ordered by cell. */
+    private final int[] stopsByCell;
+
+    /**
+     * @param cellMeters the width of each cell. Queries are fastest when this is about the radius searched.
+     */
+    public StopSpatialHash (Iterable<Stop> stops, double cellMeters) {
+        this.cellMeters = cellMeters;
+        List<Stop> located = new ArrayList<>();
+        double minLat = 0;
+        double maxLat = 0;
+        for (Stop stop : stops) {
+            if (Double.isNaN(stop.stop_lat) || Double.isNaN(stop.stop_lon)) continue;
+            if (located.isEmpty() || stop.stop_lat < minLat) minLat = stop.stop_lat;
+            if (located.isEmpty() || stop.stop_lat > maxLat) maxLat = stop.stop_lat;
+            located.add(stop);
+        }
+        this.stops = located.toArray(new Stop[0]);
+        int size = this.stops.length;
+        xMetersPerDegree = FastMath.cos(FastMath.toRadians((minLat + maxLat) / 2)) * METERS_PER_DEGREE_LATITUDE;
+        lats = new double[size];
+        lons = new double[size];
+        long[] keys = new long[size];
+        for (int s = 0; s < size; s++) {
+            lats[s] = this.stops[s].stop_lat;
+            lons[s] = this.stops[s].stop_lon;
+            keys[s] = cellKey(cellX(lons[s]), cellY(lats[s]));
+        }
+        stopsByCell = IntStream.range(0, size)
+            .boxed()
+            .sorted(Comparator.comparingLong(s -> keys[s]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        long[] distinctKeys = new long[size];
+        int[] starts = new int[size + 1];
+        int cellCount = 0;
+        for (int p = 0; p < size; p++) {
+            long key = keys[stopsByCell[p]];
+            if (cellCount == 0 || distinctKeys[cellCount - 1] != key) {
+                distinctKeys[cellCount] = key;
+                starts[cellCount] = p;
+                cellCount++;
+            }
+        }
+        starts[cellCount] = size;
+        cellKeys = Arrays.copyOf(distinctKeys, cellCount);
+        cellStarts = Arrays.copyOf(starts, cellCount + 1);
+    }
+
+    private int cellX (double lon) {
+        return (int) Math.floor(lon * xMetersPerDegree / cellMeters);
+    }
+
+    private int cellY (double lat) {
+        return (int) Math.floor(lat * METERS_PER_DEGREE_LATITUDE / cellMeters);
+    }
+
+    private static long cellKey (int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /** @return the number of stops, i.e. those with coordinates. */
+    public int size () {
+        return stops.length;
+    }
+
+    /** @return the stop with the given index, from zero to size() - 1, in the order the stops were given. */
+    public Stop getStop (int index) {
+        return stops[index];
+    }
+
+    /**
+     * @return the stops within the given distance in meters of the given point, nearest first.
+     */
+    public List<Stop> withinRadius (double lat, double lon, double radiusMeters) {
+        TIntList found = new TIntArrayList();
+        collectWithinRadius(lat, lon, radiusMeters, found);
+        int[] indexes = found.toArray();
+        double[] distances = new double[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            distances[i] = fastDistance(lat, lon, lats[indexes[i]], lons[indexes[i]]);
+        }
+        return IntStream.range(0, indexes.length)
+            .boxed()
+            .sorted(Comparator.comparingDouble(i -> distances[i]))
+            .map(i -> stops[indexes[i]])
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Find the other stops within the given distance of each stop. The cells are processed in parallel.
+     * @return for each stop index, the indexes of the other stops within the radius in ascending order.
+     */
+    public int[][] findNeighbors (double radiusMeters) {
+        int[][] neighbors = new int[stops.length][];
+        IntStream.range(0, cellKeys.length).parallel().forEach(cell -> {
+            TIntList found = new TIntArrayList();
+            for (int p = cellStarts[cell]; p < cellStarts[cell + 1]; p++) {
+                int s = stopsByCell[p];
+                found.resetQuick();
+                collectWithinRadius(lats[s], lons[s], radiusMeters, found);
+                found.remove(s);
+                found.sort();
+                neighbors[s] = found.toArray();
+            }
+        });
+        return neighbors;
+    }
+
+    private void collectWithinRadius (double lat, double lon, double radiusMeters, TIntList result) {
+        double latDegrees = radiusMeters / METERS_PER_DEGREE_LATITUDE;
+        // Stops within the radius may be at any latitude within latDegrees, where a degree of longitude is shortest at
+        // the latitude farthest from the equator, so search the range of longitudes within the radius there.
+        double minCos = FastMath.cos(FastMath.toRadians(Math.min(90, Math.abs(lat) + latDegrees)));
+        double lonDegrees = minCos * 180 > latDegrees ? latDegrees / minCos : 180;
+        int minX = cellX(lon - lonDegrees);
+        int maxX = cellX(lon + lonDegrees);
+        int minY = cellY(lat - latDegrees);
+        int maxY = cellY(lat + latDegrees);
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > cellKeys.length) {
+            // The search covers more cells than are occupied, so just check every stop.
+            for (int s = 0; s < stops.length; s++) {
+                if (fastDistance(lat, lon, lats[s], lons[s]) <= radiusMeters) result.add(s);
+            }
+            return;
+        }
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                int cell = Arrays.binarySearch(cellKeys, cellKey(x, y));
+                if (cell < 0) continue;
+                for (int p = cellStarts[cell]; p < cellStarts[cell + 1]; p++) {
+                    int s = stopsByCell[p];
+                    if (fastDistance(lat, lon, lats[s], lons[s]) <= radiusMeters) result.add(s);
+                }
+            }
+        }
+    }
+}
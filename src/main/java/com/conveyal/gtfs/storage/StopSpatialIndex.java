@@ -0,0 +1,270 @@
+package com.conveyal.gtfs.storage;
+
+import com.conveyal.gtfs.model.Stop;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.conveyal.gtfs.util.Util.METERS_PER_DEGREE_LATITUDE;
+
+/**
+ * A static spatial index of stops, stored in a file that is memory-mapped when opened so that the index does not need
+ * to be rebuilt each time a feed is reopened. The stops are laid out as an implicit k-d tree: within any range of the
+ * index, the middle stop splits the others by longitude (at even depths) or latitude (at odd depths), with the stops
+ * to either side in the corresponding halves of the range. The longitudes and latitudes are stored as two columns of
+ * doubles, followed by the stop IDs, which are read into memory on open.
+ * <p>
+ * Like JTS geometries elsewhere in this library, envelopes have longitude as x and latitude as y. Distances are in
+ * meters, using an equirectangular approximation centered on the query point, which is accurate at the scale of a
+ * transit network (see also Util#fastDistance). Instances are immutable and safe for concurrent reads.
+ */
+public class StopSpatialIndex implements Closeable {
+
+    private static final int MAGIC = 0x53534931; // "SSI1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    private final RandomAccessFile file;
+    private final int size;
+    private final DoubleBuffer lons;
+    private final DoubleBuffer lats;
+    private final String[] stopIds;
+
+    /**
+     * Write an index of the given stops to a new file and open it. Stops without coordinates are skipped.
+     */
+    public static StopSpatialIndex write (Iterable<Stop> stops, File outputFile) throws IOException {
+        List<Stop> located = new ArrayList<>();
+        for (Stop stop : stops) {
+            if (stop.stop_id == null || Double.isNaN(stop.stop_lat) || Double.isNaN(stop.stop_lon)) continue;
+            located.add(stop);
+        }
+        Stop[] tree = located.toArray(new Stop[0]);
+        arrange(tree, 0, tree.length, 0);
+
+        try (RandomAccessFile raf = new RandomAccessFile(outputFile, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            long position = HEADER_BYTES;
+            DoubleBuffer lons = channel.map(FileChannel.MapMode.READ_WRITE, position, 8L * tree.length)
+                .asDoubleBuffer();
+            position += 8L * tree.length;
+            DoubleBuffer lats = channel.map(FileChannel.MapMode.READ_WRITE, position, 8L * tree.length)
+                .asDoubleBuffer();
+            position += 8L * tree.length;
+            for (int i = 0; i < tree.length; i++) {
+                lons.put(i, tree[i].stop_lon);
+                lats.put(i, tree[i].stop_lat);
+            }
+
+            long trailerPosition = position;
+            channel.position(trailerPosition);
+            DataOutputStream trailer = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (Stop stop : tree) trailer.writeUTF(stop.stop_id);
+            trailer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(tree.length).putInt(0).putLong(trailerPosition);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        return new StopSpatialIndex(outputFile);
+    }
+
+    /**
+     * Recursively order the stops in the given range so that the middle one splits the rest along the axis for the
+     * given depth.
+     */
+    private static void arrange (Stop[] stops, int from, int to, int depth) {
+        if (to - from <= 1) return;
+        Comparator<Stop> comparator = depth % 2 == 0
+            ? Comparator.comparingDouble(stop -> stop.stop_lon)
+            : Comparator.comparingDouble(stop -> stop.stop_lat);
+        Arrays.sort(stops, from, to, comparator);
+        int middle = (from + to) >>> 1;
+        arrange(stops, from, middle, depth + 1);
+        arrange(stops, middle + 1, to, depth + 1);
+    }
+
+    /**
+     * Open a file written by {@link #write}, memory-mapping its coordinates.
+     */
+    public StopSpatialIndex (File inputFile) throws IOException {
+        file = new RandomAccessFile(inputFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a stop spatial index file: " + inputFile);
+            }
+            size = header.getInt();
+            header.getInt();
+            long trailerPosition = header.getLong();
+            lons = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 8L * size).asDoubleBuffer();
+            lats = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + 8L * size, 8L * size).asDoubleBuffer();
+            channel.position(trailerPosition);
+            DataInputStream trailer = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            stopIds = new String[size];
+            for (int i = 0; i < size; i++) stopIds[i] = trailer.readUTF();
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** @return the number of stops in the index. */
+    public int size () {
+        return size;
+    }
+
+    /** @return the IDs of the stops within the given envelope (longitude as x, latitude as y), in no particular order. */
+    public List<String> query (Envelope envelope) {
+        List<String> result = new ArrayList<>();
+        query(envelope, 0, size, 0, result);
+        return result;
+    }
+
+    private void query (Envelope envelope, int from, int to, int depth, List<String> result) {
+        if (from >= to) return;
+        int middle = (from + to) >>> 1;
+        double lon = lons.get(middle);
+        double lat = lats.get(middle);
+        if (envelope.contains(lon, lat)) result.add(stopIds[middle]);
+        double split = depth % 2 == 0 ? lon : lat;
+        double min = depth % 2 == 0 ? envelope.getMinX() : envelope.getMinY();
+        double max = depth % 2 == 0 ? envelope.getMaxX() : envelope.getMaxY();
+        if (min <= split) query(envelope, from, middle, depth + 1, result);
+        if (max >= split) query(envelope, middle + 1, to, depth + 1, result);
+    }
+
+    /**
+     * @return the IDs of the stops within the given distance in meters of the given point, nearest first.
+     */
+    public List<String> withinRadius (double lat, double lon, double radiusMeters) {
+        double latDegrees = radiusMeters / METERS_PER_DEGREE_LATITUDE;
+        double lonScale = lonScale(lat);
+        // Near the poles, every longitude may be within the radius.
+        double lonDegrees = lonScale * 180 > latDegrees ? latDegrees / lonScale : 180;
+        Envelope envelope = new Envelope(lon - lonDegrees, lon + lonDegrees, lat - latDegrees, lat + latDegrees);
+        List<Neighbor> neighbors = new ArrayList<>();
+        collectWithinRadius(envelope, lat, lon, lonScale, radiusMeters, 0, size, 0, neighbors);
+        neighbors.sort(null);
+        return stopIdsOf(neighbors);
+    }
+
+    private void collectWithinRadius (Envelope envelope, double lat, double lon, double lonScale, double radiusMeters,
+                                      int from, int to, int depth, List<Neighbor> result) {
+        if (from >= to) return;
+        int middle = (from + to) >>> 1;
+        double stopLon = lons.get(middle);
+        double stopLat = lats.get(middle);
+        if (envelope.contains(stopLon, stopLat)) {
+            double distance = distanceMeters(lat, lon, lonScale, stopLat, stopLon);
+            if (distance <= radiusMeters) result.add(new Neighbor(middle, distance));
+        }
+        double split = depth % 2 == 0 ? stopLon : stopLat;
+        double min = depth % 2 == 0 ? envelope.getMinX() : envelope.getMinY();
+        double max = depth % 2 == 0 ? envelope.getMaxX() : envelope.getMaxY();
+        if (min <= split) collectWithinRadius(envelope, lat, lon, lonScale, radiusMeters, from, middle, depth + 1, result);
+        if (max >= split) collectWithinRadius(envelope, lat, lon, lonScale, radiusMeters, middle + 1, to, depth + 1, result);
+    }
+
+    /**
+     * @return the IDs of the (up to) k stops nearest to the given point, nearest first.
+     */
+    public List<String> nearest (double lat, double lon, int k) {
+        if (k <= 0) return new ArrayList<>();
+        // Farthest of the nearest neighbors found so far at the head.
+        PriorityQueue<Neighbor> nearest = new PriorityQueue<>(k, Comparator.reverseOrder());
+        collectNearest(lat, lon, lonScale(lat), k, 0, size, 0, nearest);
+        List<Neighbor> neighbors = new ArrayList<>(nearest);
+        neighbors.sort(null);
+        return stopIdsOf(neighbors);
+    }
+
+    private void collectNearest (double lat, double lon, double lonScale, int k, int from, int to, int depth,
+                                 PriorityQueue<Neighbor> nearest) {
+        if (from >= to) return;
+        int middle = (from + to) >>> 1;
+        double stopLon = lons.get(middle);
+        double stopLat = lats.get(middle);
+        double distance = distanceMeters(lat, lon, lonScale, stopLat, stopLon);
+        if (nearest.size() < k) {
+            nearest.add(new Neighbor(middle, distance));
+        } else if (distance < nearest.peek().distance) {
+            nearest.poll();
+            nearest.add(new Neighbor(middle, distance));
+        }
+        // Distance from the query point to the splitting line, which bounds the distance to anything beyond it.
+        double offsetMeters = depth % 2 == 0
+            ? (lon - stopLon) * lonScale * METERS_PER_DEGREE_LATITUDE
+            : (lat - stopLat) * METERS_PER_DEGREE_LATITUDE;
+        int nearFrom = offsetMeters < 0 ? from : middle + 1;
+        int nearTo = offsetMeters < 0 ? middle : to;
+        int farFrom = offsetMeters < 0 ? middle + 1 : from;
+        int farTo = offsetMeters < 0 ? to : middle;
+        collectNearest(lat, lon, lonScale, k, nearFrom, nearTo, depth + 1, nearest);
+        if (nearest.size() < k || Math.abs(offsetMeters) < nearest.peek().distance) {
+            collectNearest(lat, lon, lonScale, k, farFrom, farTo, depth + 1, nearest);
+        }
+    }
+
+    private static double lonScale (double lat) {
+        return Math.cos(Math.toRadians(lat));
+    }
+
+    private static double distanceMeters (double lat, double lon, double lonScale, double stopLat, double stopLon) {
+        double dx = (stopLon - lon) * lonScale;
+        double dy = stopLat - lat;
+        return Math.sqrt(dx * dx + dy * dy) * METERS_PER_DEGREE_LATITUDE;
+    }
+
+    private List<String> stopIdsOf (List<Neighbor> neighbors) {
+        List<String> result = new ArrayList<>(neighbors.size());
+        for (Neighbor neighbor : neighbors) result.add(stopIds[neighbor.index]);
+        return result;
+    }
+
+    private static class Neighbor implements Comparable<Neighbor> {
+        final int index;
+        final double distance;
+
+        Neighbor (int index, double distance) {
+            this.index = index;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo (Neighbor other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+
+    /**
+     * Closes the file. Mapped coordinates remain valid until they are garbage collected, but must not be read after
+     * this.
+     */
+    @Override
+    public void close () throws IOException {
+        file.close();
+    }
+}
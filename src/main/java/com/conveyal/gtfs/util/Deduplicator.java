@@ -6,6 +6,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Does the same thing as String.intern, but for several different types.
@@ -15,7 +16,8 @@ public class Deduplicator implements Serializable {
     private static final long serialVersionUID = 20140524L;
 
     private final Map<IntArray, IntArray> canonicalIntArrays = Maps.newHashMap();
-    private final Map<String, String> canonicalStrings = Maps.newHashMap();
+    /* Concurrent because GTFSFeed loaders share a single deduplicator and may run in parallel. */
+    private final Map<String, String> canonicalStrings = new ConcurrentHashMap<>();
     private final Map<BitSet, BitSet> canonicalBitSets = Maps.newHashMap();
     private final Map<StringArray, StringArray> canonicalStringArrays = Maps.newHashMap();
 
@@ -44,7 +46,8 @@ public class Deduplicator implements Serializable {
         String canonical = canonicalStrings.get(original);
         if (canonical == null) {
             canonical = new String(original.toCharArray()); // Trim String if necessary (older JDKs)
-            canonicalStrings.put(canonical, canonical);
+            String existing = canonicalStrings.putIfAbsent(canonical, canonical);
+            if (existing != null) canonical = existing;
         }
         return canonical;
     }
@@ -0,0 +1,149 @@
+package com.conveyal.gtfs.util;
+
+import java.util.Arrays;
+
+/**
+ * Estimates a single quantile of a stream of values in constant memory, using the P-square algorithm of Jain and
+ * Chlamtac ("The P^2 algorithm for dynamic calculation of quantiles and histograms without storing observations",
+ * Communications of the ACM, 1985).
+ * <p>
+ * The first {@link #EXACT_VALUES} values are kept, and while no more than that have been added the quantile is exact,
+ * interpolated in the same way as commons-math's default Percentile (and so DescriptiveStatistics#getPercentile).
+ * After that the five P-square markers are initialized from the sorted values and the buffer is dropped. The minimum
+ * and maximum are always exact.
+ */
+public class QuantileEstimator {
+
+    /** The number of values stored before switching to the P-square estimate. */
+    public static final int EXACT_VALUES = 1000;
+
+    private final double quantile;
+    /** The quantile that each marker should track. */
+    private final double[] markerQuantiles;
+    private double[] values = new double[16];
+    private long count;
+
+    // The P-square markers, allocated once the exact values are dropped: their heights, their actual positions (ranks
+    // counting from one) and their desired positions.
+    private double[] heights;
+    private double[] positions;
+    private double[] desiredPositions;
+
+    /**
+     * @param percentile the percentile to estimate, strictly between 0 and 100 (e.g. 90 for the 90th percentile).
+     */
+    public QuantileEstimator (double percentile) {
+        if (!(percentile > 0 && percentile < 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        quantile = percentile / 100;
+        markerQuantiles = new double[] {0, quantile / 2, quantile, (1 + quantile) / 2, 1};
+    }
+
+    public void add (double value) {
+        count++;
+        if (heights != null) {
+            update(value);
+            return;
+        }
+        if (count > values.length) values = Arrays.copyOf(values, values.length * 2);
+        values[(int) count - 1] = value;
+        if (count > EXACT_VALUES) initializeMarkers();
+    }
+
+    public long getCount () {
+        return count;
+    }
+
+    /** @return the smallest value added, or NaN if there are none. */
+    public double getMin () {
+        if (count == 0) return Double.NaN;
+        if (heights != null) return heights[0];
+        double min = values[0];
+        for (int i = 1; i < count; i++) min = Math.min(min, values[i]);
+        return min;
+    }
+
+    /** @return the largest value added, or NaN if there are none. */
+    public double getMax () {
+        if (count == 0) return Double.NaN;
+        if (heights != null) return heights[4];
+        double max = values[0];
+        for (int i = 1; i < count; i++) max = Math.max(max, values[i]);
+        return max;
+    }
+
+    /** @return the estimated quantile, or NaN if no values have been added. */
+    public double getQuantile () {
+        if (count == 0) return Double.NaN;
+        if (heights != null) return heights[2];
+        double[] sorted = Arrays.copyOf(values, (int) count);
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        double position = quantile * (n + 1);
+        if (position < 1) return sorted[0];
+        if (position >= n) return sorted[n - 1];
+        int lower = (int) Math.floor(position);
+        double fraction = position - lower;
+        return sorted[lower - 1] + fraction * (sorted[lower] - sorted[lower - 1]);
+    }
+
+    /** Place the markers at the ranks nearest their desired positions among the values seen so far. */
+    private void initializeMarkers () {
+        int n = (int) count;
+        double[] sorted = Arrays.copyOf(values, n);
+        Arrays.sort(sorted);
+        heights = new double[5];
+        positions = new double[5];
+        desiredPositions = new double[5];
+        for (int i = 0; i < 5; i++) {
+            desiredPositions[i] = 1 + (n - 1) * markerQuantiles[i];
+            // Keep the markers at distinct ranks, which is always possible since there are many more than five values.
+            int rank = (int) Math.round(desiredPositions[i]);
+            if (i > 0) rank = Math.max(rank, (int) positions[i - 1] + 1);
+            rank = Math.min(rank, n - 4 + i);
+            positions[i] = rank;
+            heights[i] = sorted[rank - 1];
+        }
+        values = null;
+    }
+
+    private void update (double value) {
+        int cell;
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[4]) {
+            heights[4] = value;
+            cell = 3;
+        } else {
+            cell = 0;
+            while (value >= heights[cell + 1]) cell++;
+        }
+        for (int i = cell + 1; i < 5; i++) positions[i]++;
+        for (int i = 0; i < 5; i++) desiredPositions[i] += markerQuantiles[i];
+        // Move the middle markers towards their desired positions when they are at least one rank away.
+        for (int i = 1; i < 4; i++) {
+            double offset = desiredPositions[i] - positions[i];
+            if ((offset >= 1 && positions[i + 1] - positions[i] > 1) ||
+                (offset <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int step = offset > 0 ? 1 : -1;
+                double height = parabolic(i, step);
+                if (height <= heights[i - 1] || height >= heights[i + 1]) height = linear(i, step);
+                heights[i] = height;
+                positions[i] += step;
+            }
+        }
+    }
+
+    private double parabolic (int i, int step) {
+        return heights[i] + step / (positions[i + 1] - positions[i - 1]) * (
+            (positions[i] - positions[i - 1] + step) * (heights[i + 1] - heights[i]) / (positions[i + 1] - positions[i]) +
+            (positions[i + 1] - positions[i] - step) * (heights[i] - heights[i - 1]) / (positions[i] - positions[i - 1])
+        );
+    }
+
+    private double linear (int i, int step) {
+        return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+    }
+}
@@ -1,22 +1,21 @@
 package com.conveyal.gtfs.validator;
 
 import com.conveyal.gtfs.error.NewGTFSError;
+import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.Table;
 import com.conveyal.gtfs.model.Stop;
-import com.conveyal.gtfs.util.Util;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.strtree.STRtree;
+import com.conveyal.gtfs.storage.StopSpatialHash;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.DUPLICATE_STOP;
-import static com.conveyal.gtfs.util.Util.getCoordString;
 
 /**
  * Find stops that are very close together.
@@ -31,31 +30,29 @@ public class DuplicateStopsValidator extends FeedValidator {
 
     @Override
     public void validate () {
-        // Project all stop coordinates and put them in a spatial index
-        HashMap<Stop, Coordinate> projectedCoordinateForStop = new HashMap<>();
-        STRtree stopSpatialIndex = new STRtree();
+        // Put all stops in a spatial hash, and find the stops near each one in parallel.
+        List<Stop> stops = new ArrayList<>();
         for (Stop stop : feed.stops) {
             // Only validate point where vehicles stop, excluding logical "parent stations"
-            if (stop.location_type != 0) continue;
-            Coordinate projectedStopCoordinate = Util.projectLatLonToMeters(stop.stop_lat, stop.stop_lon);
-            stopSpatialIndex.insert(new Envelope(projectedStopCoordinate), stop);
-            projectedCoordinateForStop.put(stop, projectedStopCoordinate);
+            if (stop.location_type == 0) stops.add(stop);
         }
-        stopSpatialIndex.build();
+        StopSpatialHash stopSpatialHash = new StopSpatialHash(stops, BUFFER_METERS);
+        int[][] neighbors = stopSpatialHash.findNeighbors(BUFFER_METERS);
 
         // Track which stops have already been reported in an error message so we don't report them more than once.
-        Set<Stop> reportedStops = new HashSet<>();
-        projectedCoordinateForStop.forEach((stop, coord) -> {
-            if (reportedStops.contains(stop)) return;
-            Envelope queryEnvelope = new Envelope(coord);
-            queryEnvelope.expandBy(BUFFER_METERS);
-            List<Stop> nearby = (List<Stop>)stopSpatialIndex.query(queryEnvelope).stream()
-                    .filter(s -> !reportedStops.contains(s)).collect(Collectors.toList());
-            // The nearby stops list will include at least one stop, the one for which we're performing the query.
-            // We want to include that one in the referenced entities along with the duplicates.
+        boolean[] reported = new boolean[stopSpatialHash.size()];
+        for (int s = 0; s < stopSpatialHash.size(); s++) {
+            if (reported[s] || neighbors[s].length == 0) continue;
+            // Include the stop itself in the referenced entities along with the duplicates.
+            List<Stop> nearby = new ArrayList<>();
+            nearby.add(stopSpatialHash.getStop(s));
+            for (int n : neighbors[s]) {
+                if (!reported[n]) nearby.add(stopSpatialHash.getStop(n));
+            }
             if (nearby.size() > 1) {
+                Stop stop = nearby.get(0);
                 // TODO including bad_value and info entries - settle on one or the other
-                String badStopIds = nearby.stream().map(Stop::getId).filter(s -> !s.equals(stop.stop_id))
+                String badStopIds = nearby.stream().map(Stop::getId).filter(sid -> !sid.equals(stop.stop_id))
                         .map(sid -> "stopId=" + sid).collect(Collectors.joining("; "));
                 NewGTFSError error = NewGTFSError.forEntity(stop, DUPLICATE_STOP).setBadValue(badStopIds);
                 int i = 1;
@@ -64,9 +61,19 @@ public class DuplicateStopsValidator extends FeedValidator {
                     i += 1;
                 }
                 registerError(error);
-                reportedStops.addAll(nearby);
+                reported[s] = true;
+                for (int n : neighbors[s]) reported[n] = true;
             }
-        });
+        }
     }
 
+    @Override
+    public Set<String> getInputTables () {
+        return Collections.singleton(Table.STOPS.name);
+    }
+
+    @Override
+    public Set<NewGTFSErrorType> getErrorTypes () {
+        return EnumSet.of(DUPLICATE_STOP);
+    }
 }
@@ -3,8 +3,13 @@ package com.conveyal.gtfs.validator;
 import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.Table;
 import com.conveyal.gtfs.model.FareAttribute;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Validator for fares that currently just checks that the transfers and transfer_duration fields are harmonious.
  */
@@ -23,4 +28,14 @@ public class FaresValidator extends FeedValidator {
             }
         }
     }
+
+    @Override
+    public Set<String> getInputTables () {
+        return Collections.singleton(Table.FARE_ATTRIBUTES.name);
+    }
+
+    @Override
+    public Set<NewGTFSErrorType> getErrorTypes () {
+        return EnumSet.of(NewGTFSErrorType.FARE_TRANSFER_MISMATCH);
+    }
 }
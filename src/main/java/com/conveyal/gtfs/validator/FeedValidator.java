@@ -1,8 +1,13 @@
 package com.conveyal.gtfs.validator;
 
+import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 /**
  * A subtype of validator that can validate the entire feed at once.
  */
@@ -15,4 +20,29 @@ public abstract class FeedValidator extends Validator {
     /** The main extension point. Each subsclass must define this method. */
     public abstract void validate ();
 
+    /**
+     * Validators may be run concurrently (see {@link Feed#validate(int, FeedValidatorCreator...)}). A validator that
+     * relies on data produced by, or must otherwise run after, other validators should return their classes here.
+     * @return the classes of the validators that must finish before this one starts. By default there are none.
+     */
+    public List<Class<? extends FeedValidator>> getDependencies () {
+        return Collections.emptyList();
+    }
+
+    /**
+     * After a feed is edited, a validator that reads only a few small tables can be run again on its own when one of
+     * those tables has changed (see {@link Feed#validateChanges}), replacing all the errors it reported before. Such a
+     * validator returns the names of the tables it reads here, and the types of error it reports from
+     * {@link #getErrorTypes()}. No other validator or load step may report errors of these types.
+     * @return the names of the tables read, or null (the default) if this validator is only run on whole feeds.
+     */
+    public Set<String> getInputTables () {
+        return null;
+    }
+
+    /** @return the types of error reported by this validator, if it is run again on edited feeds (see above). */
+    public Set<NewGTFSErrorType> getErrorTypes () {
+        return Collections.emptySet();
+    }
+
 }
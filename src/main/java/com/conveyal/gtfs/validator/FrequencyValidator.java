@@ -3,6 +3,7 @@ package com.conveyal.gtfs.validator;
 import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.Table;
 import com.conveyal.gtfs.model.Frequency;
 import com.conveyal.gtfs.model.Route;
 import com.conveyal.gtfs.model.Stop;
@@ -14,7 +15,10 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public class FrequencyValidator extends FeedValidator {
 
@@ -73,4 +77,14 @@ public class FrequencyValidator extends FeedValidator {
             }
         }
     }
+
+    @Override
+    public Set<String> getInputTables () {
+        return Collections.singleton(Table.FREQUENCIES.name);
+    }
+
+    @Override
+    public Set<NewGTFSErrorType> getErrorTypes () {
+        return EnumSet.of(NewGTFSErrorType.FREQUENCY_PERIOD_OVERLAP);
+    }
 }
@@ -1,11 +1,17 @@
 package com.conveyal.gtfs.validator;
 
+import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.Table;
 import com.conveyal.gtfs.model.Stop;
 import com.conveyal.gtfs.storage.BooleanAsciiGrid;
-import org.locationtech.jts.geom.Envelope;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import com.conveyal.gtfs.util.QuantileEstimator;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.STOP_GEOGRAPHIC_OUTLIER;
 import static com.conveyal.gtfs.error.NewGTFSErrorType.STOP_LOW_POPULATION_DENSITY;
@@ -29,31 +35,37 @@ public class MisplacedStopValidator extends FeedValidator {
 
     @Override
     public void validate() {
-        // Look for outliers
-        DescriptiveStatistics latStats = new DescriptiveStatistics();
-        DescriptiveStatistics lonStats = new DescriptiveStatistics();
-        for (Stop stop : feed.stops) {
-            latStats.addValue(stop.stop_lat);
-            lonStats.addValue(stop.stop_lon);
+        // Look for outliers. The stops are read once and held in memory (shared with other validators if the feed is
+        // caching), and the percentiles are estimated in constant memory, which is exact for smaller feeds.
+        List<Stop> stops = feed.stops.getSnapshot().getAll();
+        QuantileEstimator latLoStats = new QuantileEstimator(10);
+        QuantileEstimator latHiStats = new QuantileEstimator(90);
+        QuantileEstimator lonLoStats = new QuantileEstimator(10);
+        QuantileEstimator lonHiStats = new QuantileEstimator(90);
+        for (Stop stop : stops) {
+            latLoStats.add(stop.stop_lat);
+            latHiStats.add(stop.stop_lat);
+            lonLoStats.add(stop.stop_lon);
+            lonHiStats.add(stop.stop_lon);
         }
-        double latLoP = latStats.getPercentile(10);
-        double latHiP = latStats.getPercentile(90);
+        double latLoP = latLoStats.getQuantile();
+        double latHiP = latHiStats.getQuantile();
         double latRange = latHiP - latLoP;
         double minLat = latLoP - latRange;
         double maxLat = latHiP + latRange;
 
-        double lonLoP = lonStats.getPercentile(10);
-        double lonHiP = lonStats.getPercentile(90);
+        double lonLoP = lonLoStats.getQuantile();
+        double lonHiP = lonHiStats.getQuantile();
         double lonRange = lonHiP - lonLoP;
         double minLon = lonLoP - lonRange;
         double maxLon = lonHiP + lonRange;
 
         // store bounding box for all stops (including outliers) in validation result
         ValidationResult.GeographicBounds fullBounds = new ValidationResult.GeographicBounds();
-        fullBounds.minLat = latStats.getMin();
-        fullBounds.maxLat = latStats.getMax();
-        fullBounds.minLon = lonStats.getMin();
-        fullBounds.maxLon = lonStats.getMax();
+        fullBounds.minLat = latLoStats.getMin();
+        fullBounds.maxLat = latLoStats.getMax();
+        fullBounds.minLon = lonLoStats.getMin();
+        fullBounds.maxLon = lonLoStats.getMax();
 
         validationResult.fullBounds = fullBounds;
 
@@ -69,7 +81,7 @@ public class MisplacedStopValidator extends FeedValidator {
 
         // determine if a stop is in a low population grid cell or is an outlier
         BooleanAsciiGrid populationGrid = BooleanAsciiGrid.forEarthPopulation();
-        for (Stop stop : feed.stops) {
+        for (Stop stop : stops) {
             boolean stopInPopulatedArea = populationGrid.getValueForCoords(stop.stop_lon, stop.stop_lat);
             if (!stopInPopulatedArea) {
                 registerError(stop, STOP_LOW_POPULATION_DENSITY, getCoordString(stop));
@@ -82,4 +94,14 @@ public class MisplacedStopValidator extends FeedValidator {
             }
         }
     }
+
+    @Override
+    public Set<String> getInputTables () {
+        return Collections.singleton(Table.STOPS.name);
+    }
+
+    @Override
+    public Set<NewGTFSErrorType> getErrorTypes () {
+        return EnumSet.of(STOP_LOW_POPULATION_DENSITY, STOP_GEOGRAPHIC_OUTLIER);
+    }
 }
@@ -1,13 +1,19 @@
 package com.conveyal.gtfs.validator;
 
+import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.Table;
 import com.conveyal.gtfs.model.Route;
 import com.conveyal.gtfs.model.Stop;
 import com.conveyal.gtfs.model.Trip;
 
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.*;
 
@@ -93,4 +99,22 @@ public class NamesValidator extends FeedValidator {
         return string.trim().toLowerCase();
     }
 
+    @Override
+    public Set<String> getInputTables () {
+        return new HashSet<>(Arrays.asList(Table.ROUTES.name, Table.STOPS.name, Table.TRIPS.name));
+    }
+
+    @Override
+    public Set<NewGTFSErrorType> getErrorTypes () {
+        return EnumSet.of(
+            ROUTE_SHORT_AND_LONG_NAME_MISSING,
+            ROUTE_SHORT_NAME_TOO_LONG,
+            ROUTE_LONG_NAME_CONTAINS_SHORT_NAME,
+            ROUTE_DESCRIPTION_SAME_AS_NAME,
+            STOP_NAME_MISSING,
+            STOP_DESCRIPTION_SAME_AS_NAME,
+            TRIP_HEADSIGN_CONTAINS_ROUTE_NAME,
+            TRIP_HEADSIGN_SHOULD_DESCRIBE_DESTINATION_OR_WAYPOINTS
+        );
+    }
 }
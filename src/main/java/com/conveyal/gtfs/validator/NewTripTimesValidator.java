@@ -1,20 +1,35 @@
 package com.conveyal.gtfs.validator;
 
+import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
+import com.conveyal.gtfs.loader.EntitySnapshot;
 import com.conveyal.gtfs.loader.Feed;
-import com.conveyal.gtfs.model.Entity;
+import com.conveyal.gtfs.loader.TripStopTimes;
+import com.conveyal.gtfs.loader.TripStopTimesReader;
 import com.conveyal.gtfs.model.Route;
 import com.conveyal.gtfs.model.Stop;
-import com.conveyal.gtfs.model.StopTime;
 import com.conveyal.gtfs.model.Trip;
+import com.conveyal.gtfs.storage.StorageException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.CONDITIONALLY_REQUIRED;
 import static com.conveyal.gtfs.error.NewGTFSErrorType.MISSING_ARRIVAL_OR_DEPARTURE;
@@ -23,30 +38,87 @@ import static com.conveyal.gtfs.error.NewGTFSErrorType.TRIP_TOO_FEW_STOP_TIMES;
 /**
  * Check that the travel times between adjacent stops in trips are reasonable.
  * This is very messy in SQL because it involves computing a function across adjacent rows in an ordered table.
- * So we do it by iterating over the whole table in Java.
+ * So we do it by iterating over the whole table in Java. The stop times of each trip are read into reused primitive
+ * arrays (see TripStopTimes), so no object is created per stop time except where an error is reported.
  *
  * This is going to replace HopSpeedsReasonableValidator, OverlappingTripValidator, TripTimesValidator,
  * ReversedTripValidator and UnusedStopsValidator. ReversedTrips should be considered a shape validation.
+ *
+ * The trips may be split into several shards, i.e. contiguous ranges of trip IDs, which are read and validated on
+ * separate threads and database connections. Each shard has its own set of TripValidators, which are merged in the
+ * order of the trip IDs before completion, so that the errors found are the same as when all trips are validated in
+ * one pass.
+ *
+ * After a feed is edited, this can instead validate only the trips that have changed, with only those trip validators
+ * that report errors on individual trips (see {@link TripValidator#getTripErrorTypes()}).
  */
 public class NewTripTimesValidator extends FeedValidator {
 
     private static final Logger LOG = LoggerFactory.getLogger(NewTripTimesValidator.class);
 
-    int tripCount = 0;
+    private final AtomicInteger tripCount = new AtomicInteger();
+
+    /** The number of ranges of trip IDs to validate at once. */
+    private final int tripShards;
 
-    // Caching stops and trips gives a massive speed improvement by avoiding database calls.
-    // TODO build this same kind of caching into the table reader class.
+    /** The IDs of the trips to validate, in order, or null to validate all trips. */
+    private final SortedSet<String> changedTripIds;
+
+    // Caching stops and trips gives a massive speed improvement by avoiding database calls. The snapshots are shared
+    // with the other validators during a validation run (see Feed#startCaching).
 //    ListMultimap<String, ShapePoint> shapeById = MultimapBuilder.treeKeys().arrayListValues().build();
-    Map<String, Stop> stopById = new HashMap<>();
-    Map<String, Trip> tripById = new HashMap<>();
-    Map<String, Route> routeById = new HashMap<>();
+    EntitySnapshot<Stop> stopById;
+    EntitySnapshot<Trip> tripById;
+    EntitySnapshot<Route> routeById;
+    private TripStopTimesReader stopTimesReader;
 
     // As an optimization, these validators are fed the stoptimes for each trip to avoid repeated iteration and grouping.
     private final TripValidator[] tripValidators;
 
     public NewTripTimesValidator(Feed feed, SQLErrorStorage errorStorage) {
+        this(feed, errorStorage, 1);
+    }
+
+    /**
+     * @param tripShards the number of shards of trips to validate at once, each on its own thread and connection.
+     */
+    public NewTripTimesValidator(Feed feed, SQLErrorStorage errorStorage, int tripShards) {
+        super(feed, errorStorage);
+        this.tripShards = Math.max(1, tripShards);
+        changedTripIds = null;
+        tripValidators = createTripValidators();
+    }
+
+    /**
+     * Validate only the given trips, which have changed since the feed was last validated, using the trip validators
+     * that can validate trips independently of one another.
+     */
+    public NewTripTimesValidator(Feed feed, SQLErrorStorage errorStorage, Collection<String> changedTripIds) {
         super(feed, errorStorage);
-        tripValidators = new TripValidator[] {
+        tripShards = 1;
+        this.changedTripIds = new TreeSet<>(changedTripIds);
+        tripValidators = Arrays.stream(createTripValidators())
+            .filter(tripValidator -> tripValidator.getTripErrorTypes() != null)
+            .toArray(TripValidator[]::new);
+    }
+
+    /**
+     * @return the types of error that this validator and its trip validators report on individual trips and their stop
+     *         times, which are replaced when validating changed trips.
+     */
+    public Set<NewGTFSErrorType> getTripErrorTypes () {
+        Set<NewGTFSErrorType> errorTypes = EnumSet.of(
+            TRIP_TOO_FEW_STOP_TIMES, MISSING_ARRIVAL_OR_DEPARTURE, CONDITIONALLY_REQUIRED
+        );
+        for (TripValidator tripValidator : tripValidators) {
+            Set<NewGTFSErrorType> tripErrorTypes = tripValidator.getTripErrorTypes();
+            if (tripErrorTypes != null) errorTypes.addAll(tripErrorTypes);
+        }
+        return errorTypes;
+    }
+
+    private TripValidator[] createTripValidators () {
+        return new TripValidator[] {
             new SpeedTripValidator(feed, errorStorage),
             new ReferencesTripValidator(feed, errorStorage),
             new ReversedTripValidator(feed, errorStorage),
@@ -57,54 +129,104 @@ public class NewTripTimesValidator extends FeedValidator {
 
     @Override
     public void validate () {
-        // TODO cache automatically in feed or TableReader object
         LOG.info("Cacheing stops, trips, and routes...");
-        for (Stop stop : feed.stops) stopById.put(stop.stop_id, stop);
+        stopById = feed.stops.getSnapshot();
         // FIXME: determine a good way to validate shapes without caching them all in memory...
 //        for (ShapePoint shape : feed.shapePoints.getAllOrdered()) shapeById.put(shape.shape_id, shape);
-        for (Trip trip: feed.trips) tripById.put(trip.trip_id, trip);
-        for (Route route: feed.routes) routeById.put(route.route_id, route);
+        tripById = feed.trips.getSnapshot();
+        routeById = feed.routes.getSnapshot();
         LOG.info("Done.");
-        // Accumulate StopTimes with the same trip_id into a list, then process each trip separately.
-        List<StopTime> stopTimesForTrip = new ArrayList<>();
-        String previousTripId = null;
-        // Order stop times by trip ID and sequence number (i.e. scan through the stops in each trip in order)
-        for (StopTime stopTime : feed.stopTimes.getAllOrdered()) {
-            // All bad references should already be caught elsewhere, this should just be a continue
-            if (stopTime.trip_id == null) continue;
-            if (!stopTime.trip_id.equals(previousTripId) && !stopTimesForTrip.isEmpty()) {
-                processTrip(stopTimesForTrip);
-                stopTimesForTrip.clear();
+        stopTimesReader = new TripStopTimesReader(feed, stopById);
+        if (changedTripIds != null) {
+            LOG.info("Validating {} changed trips.", changedTripIds.size());
+            for (String tripId : changedTripIds) {
+                stopTimesReader.forEachTrip(tripId, tripId, stopTimes -> processTrip(stopTimes, tripValidators));
             }
-            stopTimesForTrip.add(stopTime);
-            previousTripId = stopTime.trip_id;
+        } else if (tripShards > 1 && canRunInShards()) {
+            validateTripsInShards();
+        } else {
+            // Order stop times by trip ID and sequence number (i.e. scan through the stops in each trip in order)
+            stopTimesReader.forEachTrip(null, null, stopTimes -> processTrip(stopTimes, tripValidators));
         }
-        if (!stopTimesForTrip.isEmpty()) processTrip(stopTimesForTrip);
     }
 
-    protected static boolean missingEitherTime (StopTime stopTime) {
-        return (stopTime.arrival_time == Entity.INT_MISSING || stopTime.departure_time == Entity.INT_MISSING);
+    /**
+     * @return whether every trip validator supports validating trips in shards, logging any that do not.
+     */
+    private boolean canRunInShards () {
+        for (TripValidator tripValidator : tripValidators) {
+            if (!tripValidator.canRunInShards()) {
+                LOG.info("{} cannot be run in shards, validating trips in a single pass.",
+                    tripValidator.getClass().getSimpleName());
+                return false;
+            }
+        }
+        return true;
     }
 
-    protected static boolean missingBothTimes(StopTime stopTime) {
-        return (stopTime.arrival_time == Entity.INT_MISSING && stopTime.departure_time == Entity.INT_MISSING);
+    /**
+     * Validate each range of trip IDs on its own thread with its own trip validators, then merge the other shards'
+     * trip validators into those of the first shard in order, as if they had seen all trips in a single pass.
+     */
+    private void validateTripsInShards () {
+        List<String[]> ranges = getTripIdRanges(tripShards);
+        LOG.info("Validating trips in {} shards.", ranges.size());
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size());
+        try {
+            List<Future<TripValidator[]>> shards = new ArrayList<>();
+            for (int s = 0; s < ranges.size(); s++) {
+                String[] range = ranges.get(s);
+                TripValidator[] validators = s == 0 ? tripValidators : createTripValidators();
+                shards.add(executor.submit(() -> {
+                    stopTimesReader.forEachTrip(range[0], range[1], stopTimes -> processTrip(stopTimes, validators));
+                    return validators;
+                }));
+            }
+            // Wait for every shard before merging, because the first shard's validators are merged into.
+            List<TripValidator[]> shardValidators = new ArrayList<>();
+            for (Future<TripValidator[]> shard : shards) shardValidators.add(shard.get());
+            for (int s = 1; s < shardValidators.size(); s++) {
+                for (int v = 0; v < tripValidators.length; v++) {
+                    tripValidators[v].merge(shardValidators.get(s)[v]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while validating trips.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to validate a shard of trips.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
-     * If the StopTime is missing one of arrival or departure time, copy from the other field.
-     * @return whether one of the times was missing.
+     * Split the trip IDs referenced by stop_times into up to the given number of contiguous ranges with similar
+     * numbers of trips. The database orders the IDs, so that the ranges match its ordering of the stop times.
+     * @return the first and last trip ID of each range, in order.
      */
-    protected static boolean fixMissingTimes (StopTime stopTime) {
-        boolean missing = false;
-        if (stopTime.arrival_time == Entity.INT_MISSING) {
-            stopTime.arrival_time = stopTime.departure_time;
-            missing = true;
+    private List<String[]> getTripIdRanges (int shardCount) {
+        List<String> tripIds = new ArrayList<>();
+        try (Connection connection = feed.getConnection()) {
+            Statement statement = connection.createStatement();
+            String sql = String.format(
+                "select trip_id from %s where trip_id is not null group by trip_id order by trip_id",
+                feed.getTableNameWithSchemaPrefix("stop_times")
+            );
+            LOG.info(sql);
+            ResultSet resultSet = statement.executeQuery(sql);
+            while (resultSet.next()) tripIds.add(resultSet.getString(1));
+        } catch (SQLException e) {
+            throw new StorageException(e);
         }
-        if (stopTime.departure_time == Entity.INT_MISSING) {
-            stopTime.departure_time = stopTime.arrival_time;
-            missing = true;
+        List<String[]> ranges = new ArrayList<>();
+        int count = Math.min(shardCount, tripIds.size());
+        for (int s = 0; s < count; s++) {
+            int from = (int) ((long) tripIds.size() * s / count);
+            int to = (int) ((long) tripIds.size() * (s + 1) / count) - 1;
+            ranges.add(new String[] { tripIds.get(from), tripIds.get(to) });
         }
-        return missing;
+        return ranges;
     }
 
     /**
@@ -112,13 +234,13 @@ public class NewTripTimesValidator extends FeedValidator {
      * If has only one or the other, we infer them. If it's missing both we have a problem.
      * @return whether the error is not recoverable because both stoptimes are missing.
      */
-    private boolean fixInitialFinal (StopTime stopTime) {
-        if (missingEitherTime(stopTime)) {
-            registerError(stopTime, MISSING_ARRIVAL_OR_DEPARTURE);
-            fixMissingTimes(stopTime);
-            if (missingEitherTime(stopTime)) {
+    private boolean fixInitialFinal (TripStopTimes stopTimes, int i) {
+        if (stopTimes.missingEitherTime(i)) {
+            registerError(stopTimes.toStopTime(i), MISSING_ARRIVAL_OR_DEPARTURE);
+            stopTimes.fixMissingTimes(i);
+            if (stopTimes.missingEitherTime(i)) {
                 //TODO: Is this even needed? Already covered by MISSING_ARRIVAL_OR_DEPARTURE.
-                registerError(stopTime, CONDITIONALLY_REQUIRED, "First and last stop times are required to have both an arrival and departure time.");
+                registerError(stopTimes.toStopTime(i), CONDITIONALLY_REQUIRED, "First and last stop times are required to have both an arrival and departure time.");
                 return true;
             }
         }
@@ -126,15 +248,16 @@ public class NewTripTimesValidator extends FeedValidator {
     }
 
     /**
-     * This validates an ordered list of stopTimes for a single trip.
-     * @param stopTimes must all have the same trip_id and be in order of increasing stop_sequence
+     * This validates the ordered stopTimes for a single trip.
+     * @param stopTimes must be in order of increasing stop_sequence
+     * @param validators the trip validators for the shard containing this trip
      */
-    private void processTrip (List<StopTime> stopTimes) {
-        if (++tripCount % 20_000 == 0) LOG.info("Validating trip {}", tripCount);
+    private void processTrip (TripStopTimes stopTimes, TripValidator[] validators) {
+        int tripNumber = tripCount.incrementAndGet();
+        if (tripNumber % 20_000 == 0) LOG.info("Validating trip {}", tripNumber);
         // All stop times have the same trip_id, so we look it up right away.
         // FIXME: gtfs_load error if there are no stop times? / feed=Birnie_Bus_20141105T102949-05_24e99790-211d-4f92-b1d2-147e6f3d5040.zip
-        String tripId = stopTimes.get(0).trip_id;
-        Trip trip = tripById.get(tripId);
+        Trip trip = tripById.get(stopTimes.tripId);
         if (trip == null) {
             // This feed does not contain a trip with the ID specified in these stop_times.
             // This error should already have been caught TODO verify.
@@ -142,36 +265,29 @@ public class NewTripTimesValidator extends FeedValidator {
         }
 
         // Our code should only call this method with non-null stopTimes.
-        if (stopTimes.size() < 2) {
+        if (stopTimes.size < 2) {
             registerError(trip, TRIP_TOO_FEW_STOP_TIMES);
             return;
         }
         boolean hasContinuousBehavior = false;
-        // Make a parallel list of stops based on the stop_times for this trip.
-        // We will remove any stop_times for stops that don't exist in the feed.
-        // We could ask the SQL server to do the join between stop_times and stops, but we want to check references.
-        List<Stop> stops = new ArrayList<>();
-        for (Iterator<StopTime> it = stopTimes.iterator(); it.hasNext(); ) {
-            StopTime stopTime = it.next();
-            if (hasContinuousBehavior(stopTime.continuous_drop_off, stopTime.continuous_pickup)) {
+        for (int i = 0; i < stopTimes.size; i++) {
+            if (hasContinuousBehavior(stopTimes.continuousDropOffs[i], stopTimes.continuousPickups[i])) {
                 hasContinuousBehavior = true;
             }
-            Stop stop = stopById.get(stopTime.stop_id);
-            if (stop == null) {
-                // All bad references should have been recorded at import, we can just remove them from the trips.
-                it.remove();
-            } else {
-                stops.add(stop);
-            }
         }
-        // StopTimes list may have shrunk due to missing stop references.
-        if (stopTimes.size() < 2) return;
+        // The stop of each stop time has already been looked up by the reader.
+        // We will remove any stop_times for stops that don't exist in the feed.
+        // We could ask the SQL server to do the join between stop_times and stops, but we want to check references.
+        // All bad references should have been recorded at import, we can just remove them from the trips.
+        stopTimes.removeStopTimesWithoutStops();
+        // StopTimes may have shrunk due to missing stop references.
+        if (stopTimes.size < 2) return;
         // Check that first and last stop times are not missing values and repair them.
         // Note that this repair will be seen by the validators but not saved in the database.
-        fixInitialFinal(stopTimes.get(0));
-        fixInitialFinal(stopTimes.get(stopTimes.size() - 1));
+        fixInitialFinal(stopTimes, 0);
+        fixInitialFinal(stopTimes, stopTimes.size - 1);
         // Repair the case where an arrival or departure time is provided, but not both.
-        for (StopTime stopTime : stopTimes) fixMissingTimes(stopTime);
+        for (int i = 0; i < stopTimes.size; i++) stopTimes.fixMissingTimes(i);
         // TODO check characteristics of timepoints
         // All bad references should have been recorded at import and null trip check is handled above, we can just
         // ignore nulls.
@@ -188,14 +304,19 @@ public class NewTripTimesValidator extends FeedValidator {
                 "shape_id is required when a trip has continuous behavior defined."
             );
         }
-        // Pass these same cleaned lists of stop_times and stops into each trip validator in turn.
-        for (TripValidator tripValidator : tripValidators) tripValidator.validateTrip(trip, route, stopTimes, stops);
+        // Pass these same cleaned stop_times into each trip validator in turn.
+        for (TripValidator tripValidator : validators) tripValidator.validateTrip(trip, route, stopTimes);
     }
 
     /**
-     * Completing this feed validator means completing each of its constituent trip validators.
+     * Completing this feed validator means completing each of its constituent trip validators, or only the errors
+     * held back for the changed trips if only those were validated.
      */
     public void complete (ValidationResult validationResult) {
+        if (changedTripIds != null) {
+            for (TripValidator tripValidator : tripValidators) tripValidator.completeChangedTrips();
+            return;
+        }
         for (TripValidator tripValidator : tripValidators) {
             LOG.info("Running complete stage for {}", tripValidator.getClass().getSimpleName());
             tripValidator.complete(validationResult);
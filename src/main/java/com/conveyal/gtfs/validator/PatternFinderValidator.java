@@ -8,11 +8,11 @@ import com.conveyal.gtfs.loader.BatchTracker;
 import com.conveyal.gtfs.loader.Feed;
 import com.conveyal.gtfs.loader.Requirement;
 import com.conveyal.gtfs.loader.Table;
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.Pattern;
 import com.conveyal.gtfs.model.PatternStop;
 import com.conveyal.gtfs.model.Route;
 import com.conveyal.gtfs.model.Stop;
-import com.conveyal.gtfs.model.StopTime;
 import com.conveyal.gtfs.model.Trip;
 import org.apache.commons.dbutils.DbUtils;
 import org.slf4j.Logger;
@@ -28,9 +28,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -54,19 +52,26 @@ public class PatternFinderValidator extends TripValidator {
     public PatternFinderValidator(Feed feed, SQLErrorStorage errorStorage) {
         super(feed, errorStorage);
         patternFinder = new PatternFinder();
-        try {
-            patternBuilder = new PatternBuilder(feed);
-        } catch (SQLException e) {
-            throw new RuntimeException("Unable to construct pattern builder.", e);
-        }
+        // The pattern builder, which holds a database connection, is only created on completion so that instances
+        // used to validate shards of the trips (see NewTripTimesValidator) do not each hold a connection.
     }
 
     @Override
-    public void validateTrip (Trip trip, Route route, List<StopTime> stopTimes, List<Stop> stops) {
+    public void validateTrip (Trip trip, Route route, TripStopTimes stopTimes) {
         // As we hit each trip, accumulate them into the wrapped PatternFinder object.
         patternFinder.processTrip(trip, stopTimes);
     }
 
+    @Override
+    public boolean canRunInShards () {
+        return true;
+    }
+
+    @Override
+    public void merge (TripValidator other) {
+        patternFinder.merge(((PatternFinderValidator) other).patternFinder);
+    }
+
     /**
      * Store patterns and pattern stops in the database. Also, update the trips table with a pattern_id column.
      */
@@ -77,13 +82,17 @@ public class PatternFinderValidator extends TripValidator {
             patternIds.add(pattern.pattern_id);
         }
         LOG.info("Finding patterns...");
-        Map<String, Stop> stopById = new HashMap<>();
-        for (Stop stop : feed.stops) {
-            stopById.put(stop.stop_id, stop);
-        }
+        Map<String, Stop> stopById = feed.stops.getSnapshot().asMap();
         // Although patterns may have already been loaded from file, the trip patterns are still required.
         Map<TripPatternKey, Pattern> patterns = patternFinder.createPatternObjects(stopById, errorStorage);
+        try {
+            patternBuilder = new PatternBuilder(feed);
+        } catch (SQLException e) {
+            throw new RuntimeException("Unable to construct pattern builder.", e);
+        }
         patternBuilder.create(patterns, patternIds);
+        // The pattern IDs have been written into the trips table, which may be cached.
+        feed.trips.invalidate();
     }
 
 }
@@ -2,14 +2,12 @@ package com.conveyal.gtfs.validator;
 
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.Route;
-import com.conveyal.gtfs.model.ShapePoint;
 import com.conveyal.gtfs.model.Stop;
-import com.conveyal.gtfs.model.StopTime;
 import com.conveyal.gtfs.model.Trip;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.*;
@@ -34,10 +32,11 @@ public class ReferencesTripValidator extends TripValidator {
     }
 
     @Override
-    public void validateTrip(Trip trip, Route route, List<StopTime> stopTimes, List<Stop> stops) {
+    public void validateTrip(Trip trip, Route route, TripStopTimes stopTimes) {
         if (trip != null) referencedTrips.add(trip.trip_id);
         if (route != null) referencedRoutes.add(route.route_id);
-        for (Stop stop : stops) {
+        for (int i = 0; i < stopTimes.size; i++) {
+            Stop stop = stopTimes.getStop(i);
             referencedStops.add(stop.stop_id);
             // If a stop used by the trip has a parent station, count this among the referenced stops, too. While the
             // parent station may not be referenced directly, the relationship is functioning correctly and there is
@@ -46,6 +45,19 @@ public class ReferencesTripValidator extends TripValidator {
         }
     }
 
+    @Override
+    public boolean canRunInShards () {
+        return true;
+    }
+
+    @Override
+    public void merge (TripValidator other) {
+        ReferencesTripValidator references = (ReferencesTripValidator) other;
+        referencedStops.addAll(references.referencedStops);
+        referencedTrips.addAll(references.referencedTrips);
+        referencedRoutes.addAll(references.referencedRoutes);
+    }
+
     @Override
     public void complete (ValidationResult validationResult) {
         for (Stop stop : feed.stops) {
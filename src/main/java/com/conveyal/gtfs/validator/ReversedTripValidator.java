@@ -5,6 +5,7 @@ import com.conveyal.gtfs.error.ReversedTripShapeError;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.error.ShapeMissingCoordinatesError;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.*;
 import com.conveyal.gtfs.util.Util;
 import com.google.common.collect.Iterables;
@@ -28,10 +29,20 @@ public class ReversedTripValidator extends TripValidator {
     }
 
     @Override
-    public void validateTrip(Trip trip, Route route, List<StopTime> stopTimes, List<Stop> stops) {
+    public void validateTrip(Trip trip, Route route, TripStopTimes stopTimes) {
         // TODO implement
     }
 
+    @Override
+    public boolean canRunInShards () {
+        return true;
+    }
+
+    @Override
+    public void merge (TripValidator other) {
+        // No state is accumulated.
+    }
+
     public boolean validate(Feed feed, boolean repair) {
         boolean isValid = true;
         int errorLimit = 5000;
@@ -6,45 +6,49 @@ import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.BatchTracker;
 import com.conveyal.gtfs.loader.DateField;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.ServiceCalendar;
 import com.conveyal.gtfs.loader.Table;
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.Calendar;
-import com.conveyal.gtfs.model.CalendarDate;
 import com.conveyal.gtfs.model.Entity;
 import com.conveyal.gtfs.model.Route;
-import com.conveyal.gtfs.model.Stop;
-import com.conveyal.gtfs.model.StopTime;
 import com.conveyal.gtfs.model.Trip;
 import com.conveyal.gtfs.storage.StorageException;
 import gnu.trove.map.hash.TIntIntHashMap;
 import org.apache.commons.dbutils.DbUtils;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.time.DayOfWeek;
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.SERVICE_WITHOUT_DAYS_OF_WEEK;
 import static com.conveyal.gtfs.error.NewGTFSErrorType.TRIP_OVERLAP_IN_BLOCK;
+import static com.conveyal.gtfs.loader.JdbcGtfsLoader.POSTGRES_NULL_TEXT;
 
 /**
  * This will validate that service date information is coherent, and attempt to deduce or validate the range of dates
  * covered by a GTFS feed.
  *
  * It turns the GTFS system of repeating weekly calendars and exceptions (calendar dates) into a single large table
- * listing which services run on which days. This in turn allows us to build a histogram of service duration on each
+ * listing which services run on which days, by way of a {@link ServiceCalendar}. This in turn allows us to build a histogram of service duration on each
  * day.
  *
  * As an intermediate result it builds a table of service duration by service ID and mode of transport.
@@ -60,29 +64,33 @@ public class ServiceValidator extends TripValidator {
     private HashMap<String, List<BlockInterval>> blockIntervals = new HashMap<>();
     private Map<String, ServiceInfo> serviceInfoForServiceId = new HashMap<>();
 
-    private Map<LocalDate, DateInfo> dateInfoForDate = new HashMap<>();
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
+    /** The days on which each service is active, built on completion. */
+    private ServiceCalendar serviceCalendar;
 
     public ServiceValidator(Feed feed, SQLErrorStorage errorStorage) {
         super(feed, errorStorage);
     }
 
     @Override
-    public void validateTrip(Trip trip, Route route, List<StopTime> stopTimes, List<Stop> stops) {
+    public void validateTrip(Trip trip, Route route, TripStopTimes stopTimes) {
+        int last = stopTimes.size - 1;
         if (trip.block_id != null) {
             // If the trip has a block_id, add a new block interval to the map.
+            // The stop times are reused for the next trip, so only the times needed are kept.
             BlockInterval blockInterval = new BlockInterval();
             blockInterval.trip = trip;
-            StopTime firstStopTime = stopTimes.get(0);
-            blockInterval.startTime = firstStopTime.departure_time;
-            blockInterval.firstStop = firstStopTime;
-            blockInterval.lastStop = stopTimes.get(stopTimes.size() - 1);
+            blockInterval.startTime = stopTimes.departureTimes[0];
+            blockInterval.firstArrival = stopTimes.arrivalTimes[0];
+            blockInterval.lastDeparture = stopTimes.departureTimes[last];
             // Construct new list of intervals if none exists for encountered block_id.
             blockIntervals
                 .computeIfAbsent(trip.block_id, k -> new ArrayList<>())
                 .add(blockInterval);
         }
-        int firstStopDeparture = stopTimes.get(0).departure_time;
-        int lastStopArrival = stopTimes.get(stopTimes.size() - 1).arrival_time;
+        int firstStopDeparture = stopTimes.departureTimes[0];
+        int lastStopArrival = stopTimes.arrivalTimes[last];
         if (firstStopDeparture == Entity.INT_MISSING || lastStopArrival == Entity.INT_MISSING) {
             // ERR
             return;
@@ -104,6 +112,27 @@ public class ServiceValidator extends TripValidator {
         // TODO validate mode codes
     }
 
+    @Override
+    public boolean canRunInShards () {
+        return true;
+    }
+
+    @Override
+    public void merge (TripValidator other) {
+        ServiceValidator service = (ServiceValidator) other;
+        // The other validator saw later trips, so appending keeps each block's intervals in the order of the trips.
+        service.blockIntervals.forEach((blockId, intervals) ->
+            blockIntervals.computeIfAbsent(blockId, k -> new ArrayList<>()).addAll(intervals));
+        service.serviceInfoForServiceId.forEach((serviceId, otherInfo) -> {
+            ServiceInfo serviceInfo = serviceInfoForServiceId.computeIfAbsent(serviceId, ServiceInfo::new);
+            otherInfo.durationByRouteType.forEachEntry((routeType, durationSeconds) -> {
+                serviceInfo.durationByRouteType.adjustOrPutValue(routeType, durationSeconds, durationSeconds);
+                return true; // Continue iteration.
+            });
+            serviceInfo.tripIds.addAll(otherInfo.tripIds);
+        });
+    }
+
     /**
      * You'd think we'd want to do this during the loading phase. But during the loading phase we don't have a reading
      * connection to the entity tables in the database. Rather than make the Feed object read-write, we want to leave
@@ -120,46 +149,17 @@ public class ServiceValidator extends TripValidator {
     private void validateServiceInfo(ValidationResult validationResult) {
         LOG.info("Merging calendars and calendar_dates...");
 
-        // First handle the calendar entries, which define repeating weekly schedules.
+        // Validate that calendars apply to at least one day of the week.
         for (Calendar calendar : feed.calendars) {
-            // Validate that calendars apply to at least one day of the week.
             if (!isCalendarUsedDuringWeek(calendar)) {
                 if (errorStorage != null) registerError(calendar, SERVICE_WITHOUT_DAYS_OF_WEEK);
             }
-
-            try {
-                LocalDate endDate = calendar.end_date;
-                // Loop over all days in this calendar entry, recording on which ones it is active.
-                for (LocalDate date = calendar.start_date; date.isBefore(endDate) || date.isEqual(endDate); date = date.plusDays(1)) {
-                    DayOfWeek dayOfWeek = date.getDayOfWeek();
-                    if (    (dayOfWeek == DayOfWeek.MONDAY && calendar.monday > 0) ||
-                        (dayOfWeek == DayOfWeek.TUESDAY && calendar.tuesday > 0) ||
-                        (dayOfWeek == DayOfWeek.WEDNESDAY && calendar.wednesday > 0) ||
-                        (dayOfWeek == DayOfWeek.THURSDAY && calendar.thursday > 0) ||
-                        (dayOfWeek == DayOfWeek.FRIDAY && calendar.friday > 0) ||
-                        (dayOfWeek == DayOfWeek.SATURDAY && calendar.saturday > 0) ||
-                        (dayOfWeek == DayOfWeek.SUNDAY && calendar.sunday > 0)) {
-                        // Service is active on this date.
-                        serviceInfoForServiceId.computeIfAbsent(calendar.service_id, ServiceInfo::new).datesActive.add(date);
-                    }
-                }
-            } catch (Exception ex) {
-                LOG.error("Error validating service entries (merging calendars and calendar_dates)", ex);
-                // Continue on to next calendar entry.
-            }
         }
-
-        // Next handle the calendar_dates, which specify exceptions to the repeating weekly schedules.
-        for (CalendarDate calendarDate : feed.calendarDates) {
-            ServiceInfo serviceInfo = serviceInfoForServiceId.computeIfAbsent(calendarDate.service_id, ServiceInfo::new);
-            if (calendarDate.exception_type == 1) {
-                // Service added, add to set for this date.
-                serviceInfo.datesActive.add(calendarDate.date);
-            } else if (calendarDate.exception_type == 2) {
-                // Service removed, remove from Set for this date.
-                serviceInfo.datesActive.remove(calendarDate.date);
-            }
-            // Otherwise exception_type is out of range. This should already have been caught during the loading phase.
+        // Combine the calendars, which define repeating weekly schedules, with the calendar_dates, which specify
+        // exceptions to them.
+        serviceCalendar = feed.getServiceCalendar();
+        for (String serviceId : serviceCalendar.getServiceIds()) {
+            serviceInfoForServiceId.computeIfAbsent(serviceId, ServiceInfo::new);
         }
 
         /*
@@ -177,7 +177,7 @@ public class ServiceValidator extends TripValidator {
 
         // Check for incoherent or erroneous services.
         for (ServiceInfo serviceInfo : serviceInfoForServiceId.values()) {
-            if (serviceInfo.datesActive.isEmpty()) {
+            if (serviceCalendar.countActiveDays(serviceInfo.serviceId) == 0) {
                 // This service must have been referenced by trips but is never active on any day.
                 registerError(NewGTFSError.forFeed(NewGTFSErrorType.SERVICE_NEVER_ACTIVE, serviceInfo.serviceId));
                 for (String tripId : serviceInfo.tripIds) {
@@ -192,62 +192,31 @@ public class ServiceValidator extends TripValidator {
             }
         }
 
-        // Accumulate info about services into each date that they are active.
-        for (ServiceInfo serviceInfo : serviceInfoForServiceId.values()) {
-            for (LocalDate date : serviceInfo.datesActive) {
-                dateInfoForDate.computeIfAbsent(date, DateInfo::new).add(serviceInfo);
-            }
-        }
-
         // Check for dates that have no service within full range of dates with defined service.
         // Sum up service duration by mode for each day within that range.
-        if (dateInfoForDate.isEmpty()) {
+        if (serviceCalendar.getDayCount() == 0) {
             registerError(NewGTFSError.forFeed(NewGTFSErrorType.NO_SERVICE, null));
         } else {
-            LocalDate firstDate = LocalDate.MAX;
-            LocalDate lastDate = LocalDate.MIN;
-            for (LocalDate date : dateInfoForDate.keySet()) {
-                // If the date is invalid, skip.
-                if (date == null) {
-                    LOG.error("Encountered null date. Did something go wrong with computeIfAbsent?");
-                    continue;
-                }
-                if (date.isBefore(firstDate)) firstDate = date;
-                if (date.isAfter(lastDate)) lastDate = date;
-            }
             // Copy some useful information into the ValidationResult object to return to the caller.
             // These variables are actually not directly tied to data in the calendar_dates.txt file.  Instead, they
             // represent the first and last date respectively of any entry in the calendar.txt and calendar_dates.txt
             // files.
-            validationResult.firstCalendarDate = firstDate;
-            validationResult.lastCalendarDate = lastDate;
-            // Is this any different? firstDate.until(lastDate, ChronoUnit.DAYS);
-            // If no days were found in the dateInfoForDate, nDays is a very large negative number, so we default to 0.
-            int nDays = Math.max(0, (int) ChronoUnit.DAYS.between(firstDate, lastDate) + 1);
-            validationResult.dailyBusSeconds = new int[nDays];
-            validationResult.dailyTramSeconds = new int[nDays];
-            validationResult.dailyMetroSeconds = new int[nDays];
-            validationResult.dailyRailSeconds = new int[nDays];
-            validationResult.dailyTotalSeconds = new int[nDays];
-            validationResult.dailyTripCounts = new int[nDays];
-            for (int d = 0; d < nDays; d++) {
-                LocalDate date = firstDate.plusDays(d); // current date being processed
-                // Add one value per day. Trove map returns zero for missing keys.
-                DateInfo dateInfo = dateInfoForDate.get(date);
-                if (dateInfo == null) {
-                    dateInfo = new DateInfo(date); // new empty object to get empty durations map.
-                }
-                validationResult.dailyBusSeconds[d] = dateInfo.durationByRouteType.get(3);
-                validationResult.dailyTramSeconds[d] = dateInfo.durationByRouteType.get(0);
-                validationResult.dailyMetroSeconds[d] = dateInfo.durationByRouteType.get(1);
-                validationResult.dailyRailSeconds[d] = dateInfo.durationByRouteType.get(2);
-                validationResult.dailyTotalSeconds[d] = dateInfo.getTotalServiceDurationSeconds();
-                validationResult.dailyTripCounts[d] = dateInfo.tripCount;
-                if (dateInfo.getTotalServiceDurationSeconds() <= 0) {
+            validationResult.firstCalendarDate = serviceCalendar.getFirstDate();
+            validationResult.lastCalendarDate = serviceCalendar.getLastDate();
+            // Add up the services active on each day. Trove map returns zero for missing keys.
+            validationResult.dailyBusSeconds = sumDurationPerDay(3);
+            validationResult.dailyTramSeconds = sumDurationPerDay(0);
+            validationResult.dailyMetroSeconds = sumDurationPerDay(1);
+            validationResult.dailyRailSeconds = sumDurationPerDay(2);
+            validationResult.dailyTotalSeconds = serviceCalendar.sumPerDay(serviceId ->
+                serviceInfoForServiceId.get(serviceId).getTotalServiceDurationSeconds());
+            validationResult.dailyTripCounts = serviceCalendar.sumPerDay(serviceId ->
+                serviceInfoForServiceId.get(serviceId).tripIds.size());
+            for (int d = 0; d < serviceCalendar.getDayCount(); d++) {
+                if (validationResult.dailyTotalSeconds[d] <= 0) {
                     // Check for low or zero service, which seems to happen even when services are defined.
-                    // This will also catch cases where dateInfo was null and the new instance contains no service.
                     registerError(NewGTFSError.forFeed(NewGTFSErrorType.DATE_NO_SERVICE,
-                        DateField.GTFS_DATE_FORMATTER.format(date)));
+                        DateField.GTFS_DATE_FORMATTER.format(serviceCalendar.getDate(d))));
                 }
             }
         }
@@ -277,7 +246,7 @@ public class ServiceValidator extends TripValidator {
             final BatchTracker serviceTracker = new BatchTracker("services", serviceStatement);
             for (ServiceInfo serviceInfo : serviceInfoForServiceId.values()) {
                 serviceStatement.setString(1, serviceInfo.serviceId);
-                serviceStatement.setInt(2, serviceInfo.datesActive.size());
+                serviceStatement.setInt(2, serviceCalendar.countActiveDays(serviceInfo.serviceId));
                 serviceStatement.setInt(3, serviceInfo.getTotalServiceDurationSeconds());
                 serviceStatement.setInt(4, serviceInfo.tripIds.size());
                 serviceTracker.addBatch();
@@ -289,23 +258,31 @@ public class ServiceValidator extends TripValidator {
             sql = String.format("create table %s (service_date varchar, service_id varchar)", serviceDatesTableName);
             LOG.info(sql);
             statement.execute(sql);
-            sql = String.format("insert into %s values (?, ?)", serviceDatesTableName);
-            PreparedStatement serviceDateStatement = connection.prepareStatement(sql);
-            final BatchTracker serviceDateTracker = new BatchTracker("service_dates", serviceDateStatement);
-            for (ServiceInfo serviceInfo : serviceInfoForServiceId.values()) {
-                for (LocalDate date : serviceInfo.datesActive) {
-                    if (date == null) continue; // TODO ERR? Can happen with bad data (unparseable dates).
-                    try {
-                        serviceDateStatement.setString(1, date.format(DateField.GTFS_DATE_FORMATTER));
-                        serviceDateStatement.setString(2, serviceInfo.serviceId);
-                        serviceDateTracker.addBatch();
-                    } catch (SQLException ex) {
-                        throw new StorageException(ex);
-                    }
+            // There is a row for each day each service is active, so copy them in rather than inserting in batches.
+            // Each date is formatted once, and nothing else may be executed on the connection until the copy ends.
+            String[] dateStrings = new String[serviceCalendar.getDayCount()];
+            for (int d = 0; d < dateStrings.length; d++) {
+                dateStrings[d] = serviceCalendar.getDate(d).format(DateField.GTFS_DATE_FORMATTER);
+            }
+            sql = String.format("copy %s from stdin", serviceDatesTableName);
+            LOG.info(sql);
+            PGCopyOutputStream copyStream =
+                new PGCopyOutputStream(connection.unwrap(BaseConnection.class), sql, COPY_BUFFER_SIZE);
+            PrintStream copyTextStream = new PrintStream(copyStream, false, "UTF-8");
+            for (String serviceId : serviceCalendar.getServiceIds()) {
+                // Service IDs were cleaned of tabs, newlines and backslashes when the feed was loaded.
+                BitSet days = serviceCalendar.getActiveDays(serviceId);
+                for (int d = days.nextSetBit(0); d >= 0; d = days.nextSetBit(d + 1)) {
+                    copyTextStream.print(dateStrings[d]);
+                    copyTextStream.print('\t');
+                    copyTextStream.println(serviceId == null ? POSTGRES_NULL_TEXT : serviceId);
                 }
-
             }
-            serviceDateTracker.executeRemaining();
+            // PrintStream swallows IO exceptions, so check whether writing to the COPY stream failed at any point.
+            copyTextStream.flush();
+            if (copyTextStream.checkError()) throw new IOException("Failed to copy rows into " + serviceDatesTableName);
+            long copiedRowCount = copyStream.endCopy();
+            LOG.info("Copied {} rows into {}", copiedRowCount, serviceDatesTableName);
 
             LOG.info("Indexing...");
             statement.execute(String.format("create index service_dates_service_date on %s (service_date)", serviceDatesTableName));
@@ -346,7 +323,7 @@ public class ServiceValidator extends TripValidator {
             // No need to build indexes because (service_id, route_type) is already the primary key of this table.
 
             connection.commit();
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             e.printStackTrace();
             throw new RuntimeException(e);
         } finally {
@@ -355,11 +332,18 @@ public class ServiceValidator extends TripValidator {
         LOG.info("Done.");
     }
 
+    /**
+     * @return the total service duration in seconds on each day of the service calendar for the given route type.
+     */
+    private int[] sumDurationPerDay (int routeType) {
+        return serviceCalendar.sumPerDay(serviceId ->
+            serviceInfoForServiceId.get(serviceId).durationByRouteType.get(routeType));
+    }
+
     static class ServiceInfo {
 
         final String serviceId;
         TIntIntHashMap durationByRouteType = new TIntIntHashMap();
-        Set<LocalDate> datesActive = new HashSet<>();
         Set<String> tripIds = new HashSet<>();
 
         public ServiceInfo(String serviceId) {
@@ -372,84 +356,86 @@ public class ServiceValidator extends TripValidator {
 
     }
 
-    static class DateInfo {
-
-        final LocalDate date;
-        TIntIntHashMap durationByRouteType = new TIntIntHashMap();
-        int tripCount = 0; // Trip count could also in theory be broken down by route type.
-        Set<String> servicesActive = new HashSet<>();
-
-        public DateInfo(LocalDate date) {
-            this.date = date;
-        }
-
-        public int getTotalServiceDurationSeconds() {
-            return Arrays.stream(durationByRouteType.values()).sum();
-        }
-
-        public void add (ServiceInfo serviceInfo) {
-            servicesActive.add(serviceInfo.serviceId);
-            serviceInfo.durationByRouteType.forEachEntry((routeType, serviceDurationSeconds) -> {
-                durationByRouteType.adjustOrPutValue(routeType, serviceDurationSeconds, serviceDurationSeconds);
-                return true; // Continue iteration.
-            });
-            tripCount += serviceInfo.tripIds.size();
-        }
-    }
-
     /**
      * Checks that trips which run on the same block (i.e., share a block_id) do not overlap. The block_id
      * represents a vehicle in service, so there must not be any trips on the same block interval that start while another
      * block trip is running.
      *
      * NOTE: This validation check happens in the {@link ServiceValidator} because it depends on information derived
-     * about which service calendars operate on which feed dates ({@link #serviceInfoForServiceId}).
+     * about which service calendars operate on which feed dates ({@link #serviceCalendar}).
      */
     private void validateBlocks () {
         // Iterate over each block and determine if there are any trips that overlap one another.
         for (String blockId : blockIntervals.keySet()) {
             List<BlockInterval> intervals = blockIntervals.get(blockId);
             intervals.sort(Comparator.comparingInt(i -> i.startTime));
-            // Iterate over each interval (except for the last) comparing it to every other interval (so the last interval
-            // is handled through the course of iteration).
-            // FIXME this has complexity of n^2, there has to be a better way.
-            for (int n = 0; n < intervals.size() - 1; n++) {
-                BlockInterval interval1 = intervals.get(n);
-                // Compare the interval at position N with all other intervals at position N+1 to the end of the list.
-                for (BlockInterval interval2 : intervals.subList(n + 1, intervals.size())) {
-                    if (interval1.lastStop.departure_time <= interval2.firstStop.arrival_time || interval2.lastStop.departure_time <= interval1.firstStop.arrival_time) {
-                        continue;
-                    }
-                    // If either trip's last departure occurs after the other's first arrival, they overlap. We still
-                    // need to determine if they operate on the same day though.
-                    if (interval1.trip.service_id.equals(interval2.trip.service_id)) {
-                        // If the overlapping trips share a service_id, record an error.
+            int[] firstArrivals = new int[intervals.size()];
+            int[] lastDepartures = new int[intervals.size()];
+            for (int n = 0; n < intervals.size(); n++) {
+                firstArrivals[n] = intervals.get(n).firstArrival;
+                lastDepartures[n] = intervals.get(n).lastDeparture;
+            }
+            // Only the pairs of trips that overlap are compared, in the order of their start times.
+            for (int[] pair : findOverlappingPairs(firstArrivals, lastDepartures)) {
+                BlockInterval interval1 = intervals.get(pair[0]);
+                BlockInterval interval2 = intervals.get(pair[1]);
+                // If either trip's last departure occurs after the other's first arrival, they overlap. We still
+                // need to determine if they operate on the same day though.
+                if (interval1.trip.service_id.equals(interval2.trip.service_id)) {
+                    // If the overlapping trips share a service_id, record an error.
+                    registerError(interval1.trip, TRIP_OVERLAP_IN_BLOCK, interval2.trip.trip_id);
+                } else {
+                    // Trips overlap but don't have the same service_id.
+                    // Check to see if the services are active on any of the same dates.
+                    if (serviceCalendar.areActiveOnSameDay(interval1.trip.service_id, interval2.trip.service_id)) {
                         registerError(interval1.trip, TRIP_OVERLAP_IN_BLOCK, interval2.trip.trip_id);
-                    } else {
-                        // Trips overlap but don't have the same service_id.
-                        // Check to see if service days fall on the same days of the week.
-                        ServiceValidator.ServiceInfo info1 = serviceInfoForServiceId.get(interval1.trip.service_id);
-                        ServiceValidator.ServiceInfo info2 = serviceInfoForServiceId.get(interval2.trip.service_id);
-                        Set<LocalDate> overlappingDates = new HashSet<>(info1.datesActive); // use the copy constructor
-                        overlappingDates.retainAll(info2.datesActive);
-                        if (overlappingDates.size() > 0) {
-                            registerError(interval1.trip, TRIP_OVERLAP_IN_BLOCK, interval2.trip.trip_id);
-                        }
                     }
                 }
             }
         }
     }
 
+    /**
+     * Find every pair of intervals that overlap, i.e. where each starts before the other ends. This sweeps over the
+     * intervals in order of their start, keeping the intervals that have not yet ended in a queue ordered by their end,
+     * so that each interval is only compared with those that it overlaps (or, for bad data where an interval ends
+     * before it starts, those that have not ended), rather than with every other interval.
+     *
+     * @return the indexes of each pair of overlapping intervals, lower index first, ordered by the first index then by
+     *         the second, i.e. in the order a comparison of every pair would find them.
+     */
+    static List<int[]> findOverlappingPairs (int[] starts, int[] ends) {
+        int[] byStart = IntStream.range(0, starts.length)
+            .boxed()
+            .sorted(Comparator.comparingInt(i -> starts[i]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        PriorityQueue<Integer> unended = new PriorityQueue<>(Comparator.comparingInt(i -> ends[i]));
+        List<int[]> pairs = new ArrayList<>();
+        for (int j : byStart) {
+            // Intervals ending at or before this start cannot overlap this or any later interval.
+            while (!unended.isEmpty() && ends[unended.peek()] <= starts[j]) unended.poll();
+            for (int i : unended) {
+                // The other interval started no later than this one and ends after this one starts.
+                if (ends[j] > starts[i]) pairs.add(i < j ? new int[] {i, j} : new int[] {j, i});
+            }
+            unended.add(j);
+        }
+        pairs.sort(Comparator.<int[]>comparingInt(pair -> pair[0]).thenComparingInt(pair -> pair[1]));
+        return pairs;
+    }
+
 
     /**
      * A simple class used during validation to store details the run interval for a block trip.
      */
     private class BlockInterval {
         Trip trip;
-        Integer startTime;
-        StopTime firstStop;
-        StopTime lastStop;
+        int startTime;
+        /** The arrival time at the first stop of the trip. */
+        int firstArrival;
+        /** The departure time from the last stop of the trip. */
+        int lastDeparture;
     }
 
     /**
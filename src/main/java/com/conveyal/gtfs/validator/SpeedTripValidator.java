@@ -4,19 +4,18 @@ import com.conveyal.gtfs.error.NewGTFSError;
 import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.Entity;
 import com.conveyal.gtfs.model.Route;
 import com.conveyal.gtfs.model.Stop;
-import com.conveyal.gtfs.model.StopTime;
 import com.conveyal.gtfs.model.Trip;
 
+import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import static com.conveyal.gtfs.error.NewGTFSErrorType.*;
 import static com.conveyal.gtfs.util.Util.fastDistance;
-import static com.conveyal.gtfs.validator.NewTripTimesValidator.missingBothTimes;
 
 /**
  * Created by abyrd on 2017-04-18
@@ -32,27 +31,26 @@ public class SpeedTripValidator extends TripValidator {
     }
 
     @Override
-    public void validateTrip(Trip trip, Route route, List<StopTime> stopTimes, List<Stop> stops) {
+    public void validateTrip(Trip trip, Route route, TripStopTimes stopTimes) {
         // The specific maximum speed for this trip's route's mode of travel.
         double maxSpeedKph = getMaxSpeedKph(route);
         // Skip over any initial stop times that won't allow calculating speeds.
         int beginIndex = 0;
-        while (missingBothTimes(stopTimes.get(beginIndex))) {
+        while (stopTimes.missingBothTimes(beginIndex)) {
             beginIndex++;
-            if (beginIndex == stopTimes.size()) return;
+            if (beginIndex == stopTimes.size) return;
         }
         // Unfortunately we can't work on each stop pair in isolation,
         // because we want to accumulate distance when stop times are missing.
-        StopTime prevStopTime = stopTimes.get(beginIndex);
-        Stop prevStop = stops.get(beginIndex);
+        int prev = beginIndex;
+        Stop prevStop = stopTimes.getStop(beginIndex);
         double distanceMeters = 0;
-        for (int i = beginIndex + 1; i < stopTimes.size(); i++) {
-            StopTime currStopTime = stopTimes.get(i);
-            if (currStopTime.pickup_type == 1 && currStopTime.drop_off_type == 1 && currStopTime.timepoint == 0) {
+        for (int i = beginIndex + 1; i < stopTimes.size; i++) {
+            if (stopTimes.pickupTypes[i] == 1 && stopTimes.dropOffTypes[i] == 1 && stopTimes.timepoints[i] == 0) {
                 // stop_time allows neither pickup or drop off and is not a timepoint, so it serves no purpose.
-                registerError(currStopTime, NewGTFSErrorType.STOP_TIME_UNUSED);
+                registerError(stopTimes.toStopTime(i), NewGTFSErrorType.STOP_TIME_UNUSED);
             }
-            Stop currStop = stops.get(i);
+            Stop currStop = stopTimes.getStop(i);
             // Distance is accumulated in case times are not provided for some StopTimes.
             distanceMeters += fastDistance(currStop.stop_lat, currStop.stop_lon, prevStop.stop_lat, prevStop.stop_lon);
             // Redefine previous stop for next iteration (doing so here ensures the reassignment is not skipped if both
@@ -62,38 +60,41 @@ public class SpeedTripValidator extends TripValidator {
             // to be a common practice for agencies to omit a 0.0 value during export. Because most feed consumers
             // likely will just default a missing value to 0.0, we skip this check because it causes excessive noise in
             // validation results.
-            if (beginIndex > 0) checkShapeDistTraveled(prevStopTime, currStopTime);
-            if (missingBothTimes(currStopTime)) {
+            if (beginIndex > 0) checkShapeDistTraveled(stopTimes, prev, i);
+            if (stopTimes.missingBothTimes(i)) {
                 // FixMissingTimes has already been called, so both arrival and departure time are missing.
                 // The spec allows this. Other than accumulating distance, skip this StopTime. If this stop_time serves
                 // as a timepoint; however, this is considered an error.
-                if (currStopTime.timepoint == 1) registerError(currStopTime, NewGTFSErrorType.TIMEPOINT_MISSING_TIMES);
+                if (stopTimes.timepoints[i] == 1) {
+                    registerError(stopTimes.toStopTime(i), NewGTFSErrorType.TIMEPOINT_MISSING_TIMES);
+                }
                 continue;
             }
-            if (currStopTime.departure_time < currStopTime.arrival_time) {
-                registerError(currStopTime, DEPARTURE_BEFORE_ARRIVAL);
+            if (stopTimes.departureTimes[i] < stopTimes.arrivalTimes[i]) {
+                registerError(stopTimes.toStopTime(i), DEPARTURE_BEFORE_ARRIVAL);
             }
             // Detect if travel times are rounded off to minutes.
-            boolean bothTravelTimesRounded = areTravelTimesRounded(prevStopTime) && areTravelTimesRounded(currStopTime);
-            double travelTimeSeconds = currStopTime.arrival_time - prevStopTime.departure_time;
+            boolean bothTravelTimesRounded =
+                areTravelTimesRounded(stopTimes, prev) && areTravelTimesRounded(stopTimes, i);
+            double travelTimeSeconds = stopTimes.arrivalTimes[i] - stopTimes.departureTimes[prev];
             // If travel times are rounded and travel time is zero, determine the maximum and minimum possible speed
             // by adding/removing one minute of slack.
             if (bothTravelTimesRounded && travelTimeSeconds == 0) {
                 travelTimeSeconds += 60;
             }
-            if (checkDistanceAndTime(distanceMeters, travelTimeSeconds, currStopTime)) {
+            if (checkDistanceAndTime(distanceMeters, travelTimeSeconds, stopTimes, i)) {
                 // If distance and time are OK, we've got valid numbers to calculate a travel speed.
                 double kph = (distanceMeters / 1000D) / (travelTimeSeconds / 60D / 60D);
                 if (kph < MIN_SPEED_KPH) {
-                    registerError(currStopTime, TRAVEL_TOO_SLOW, String.format("%2.1f km/h", kph));
+                    registerError(stopTimes.toStopTime(i), TRAVEL_TOO_SLOW, String.format("%2.1f km/h", kph));
                 } else if (kph > maxSpeedKph) {
-                    registerError(currStopTime, TRAVEL_TOO_FAST, String.format("%2.1f km/h", kph));
+                    registerError(stopTimes.toStopTime(i), TRAVEL_TOO_FAST, String.format("%2.1f km/h", kph));
                 }
             }
             // Reset accumulated distance, we've processed a stop time with arrival or departure time specified.
             distanceMeters = 0;
             // Redefine current stopTime for the next iteration.
-            prevStopTime = currStopTime;
+            prev = i;
         }
     }
 
@@ -104,18 +105,56 @@ public class SpeedTripValidator extends TripValidator {
      * current value is missing, the previous value will be greater than the current stop time's value because
      * {@link Entity#DOUBLE_MISSING} is the lowest possible double value. This in turn will register an error.
      */
-    private void checkShapeDistTraveled(StopTime previous, StopTime current) {
+    private void checkShapeDistTraveled(TripStopTimes stopTimes, int previous, int current) {
+        double currentDistance = stopTimes.shapeDistTraveled[current];
+        double previousDistance = stopTimes.shapeDistTraveled[previous];
         if (
-            current.shape_dist_traveled != Entity.DOUBLE_MISSING &&
+            currentDistance != Entity.DOUBLE_MISSING &&
             (
-                previous.shape_dist_traveled == Entity.DOUBLE_MISSING ||
-                current.shape_dist_traveled <= previous.shape_dist_traveled
+                previousDistance == Entity.DOUBLE_MISSING ||
+                currentDistance <= previousDistance
             )
         ) {
-            registerError(current, SHAPE_DIST_TRAVELED_NOT_INCREASING, current.shape_dist_traveled);
+            registerError(stopTimes.toStopTime(current), SHAPE_DIST_TRAVELED_NOT_INCREASING, currentDistance);
         }
     }
 
+    @Override
+    public boolean canRunInShards () {
+        return true;
+    }
+
+    /**
+     * Errors for zero travel times are registered immediately only once an unrounded time has been seen by the same
+     * instance, so any other instance that saw an unrounded time means that the errors held by both must be stored.
+     * Together with complete(), this stores the same errors as a single instance would.
+     */
+    @Override
+    public void merge (TripValidator other) {
+        SpeedTripValidator speed = (SpeedTripValidator) other;
+        allTravelTimesAreRounded &= speed.allTravelTimesAreRounded;
+        travelTimeZeroErrors.addAll(speed.travelTimeZeroErrors);
+    }
+
+    @Override
+    public Set<NewGTFSErrorType> getTripErrorTypes () {
+        return EnumSet.of(
+            STOP_TIME_UNUSED, SHAPE_DIST_TRAVELED_NOT_INCREASING, TIMEPOINT_MISSING_TIMES, DEPARTURE_BEFORE_ARRIVAL,
+            TRAVEL_TOO_SLOW, TRAVEL_TOO_FAST, TRAVEL_DISTANCE_ZERO, TRAVEL_TIME_NEGATIVE, TRAVEL_TIME_ZERO
+        );
+    }
+
+    /**
+     * Whether all travel times in the feed are rounded to the minute was decided when it was last validated in full.
+     * Zero travel times on the changed trips are reported unless the feed was found to be rounded and the changed
+     * trips are too. If they are not, the feed-wide decision is only revised by validating the whole feed again.
+     */
+    @Override
+    public void completeChangedTrips () {
+        boolean feedTravelTimesRounded = errorStorage.getErrorCountsByType().containsKey(FEED_TRAVEL_TIMES_ROUNDED);
+        if (!allTravelTimesAreRounded || !feedTravelTimesRounded) storeErrors(travelTimeZeroErrors);
+    }
+
     /**
      * Completing this feed validator means checking if there were any unrounded travel times in the feed and (if so)
      * registering any zero travel time errors that were passed over before the first unrounded travel time was
@@ -130,8 +169,8 @@ public class SpeedTripValidator extends TripValidator {
      * Check that arrival and departure time for a stop time are rounded to the minute and update
      * {@link #allTravelTimesAreRounded} accordingly.
      */
-    private boolean areTravelTimesRounded(StopTime stopTime) {
-        boolean bothTravelTimesAreRounded = stopTime.departure_time % 60 == 0 && stopTime.arrival_time % 60 == 0;
+    private boolean areTravelTimesRounded(TripStopTimes stopTimes, int i) {
+        boolean bothTravelTimesAreRounded = stopTimes.departureTimes[i] % 60 == 0 && stopTimes.arrivalTimes[i] % 60 == 0;
         if (!bothTravelTimesAreRounded) this.allTravelTimesAreRounded = false;
         return bothTravelTimesAreRounded;
     }
@@ -140,21 +179,24 @@ public class SpeedTripValidator extends TripValidator {
      * This just pulls some of the range checking logic out of the main trip checking loop so it's more readable.
      * @return true if all values are OK
      */
-    private boolean checkDistanceAndTime (double distanceMeters, double travelTimeSeconds, StopTime stopTime) {
+    private boolean checkDistanceAndTime (
+        double distanceMeters, double travelTimeSeconds, TripStopTimes stopTimes, int i
+    ) {
+        // Only create a StopTime for the errors, which are rare.
         boolean good = true;
         // TODO Use Epsilon for very tiny travel e.g. < 5 meters
         if (distanceMeters == 0) {
-            registerError(stopTime, TRAVEL_DISTANCE_ZERO);
+            registerError(stopTimes.toStopTime(i), TRAVEL_DISTANCE_ZERO);
             good = false;
         }
         if (travelTimeSeconds < 0) {
-            registerError(stopTime, TRAVEL_TIME_NEGATIVE, travelTimeSeconds);
+            registerError(stopTimes.toStopTime(i), TRAVEL_TIME_NEGATIVE, travelTimeSeconds);
             good = false;
         } else if (travelTimeSeconds == 0) {
             // Only register the travel time zero error if not all travel times are rounded. Otherwise, hold onto the
             // error in the travelTimeZeroErrors collection until the completion of this validator.
-            if (!allTravelTimesAreRounded) registerError(stopTime, TRAVEL_TIME_ZERO);
-            else travelTimeZeroErrors.add(createUnregisteredError(stopTime, TRAVEL_TIME_ZERO));
+            if (!allTravelTimesAreRounded) registerError(stopTimes.toStopTime(i), TRAVEL_TIME_ZERO);
+            else travelTimeZeroErrors.add(createUnregisteredError(stopTimes.toStopTime(i), TRAVEL_TIME_ZERO));
             good = false;
         }
         return good;
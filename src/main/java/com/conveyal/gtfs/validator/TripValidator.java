@@ -1,13 +1,13 @@
 package com.conveyal.gtfs.validator;
 
+import com.conveyal.gtfs.error.NewGTFSErrorType;
 import com.conveyal.gtfs.error.SQLErrorStorage;
 import com.conveyal.gtfs.loader.Feed;
+import com.conveyal.gtfs.loader.TripStopTimes;
 import com.conveyal.gtfs.model.Route;
-import com.conveyal.gtfs.model.Stop;
-import com.conveyal.gtfs.model.StopTime;
 import com.conveyal.gtfs.model.Trip;
 
-import java.util.List;
+import java.util.Set;
 
 /**
  * Unlike FeedValidators that are run against the entire feed, these validators are run against the stop_times for
@@ -22,8 +22,48 @@ public abstract class TripValidator extends Validator {
     /**
      * This method will be called on each trip in the feed.
      * @param trip the trip whose stop_times are provided in the other parameter.
-     * @param stopTimes a List of all the stop times in the given trip, in order of increasing stop_sequence.
+     * @param stopTimes all the stop times in the given trip, in order of increasing stop_sequence, each with an
+     *                  existing stop. This is reused for the next trip, so must not be retained.
      */
-    public abstract void validateTrip (Trip trip, Route route, List<StopTime> stopTimes, List<Stop> stops);
+    public abstract void validateTrip (Trip trip, Route route, TripStopTimes stopTimes);
+
+    /**
+     * Trips are only validated in several shards at once (see {@link NewTripTimesValidator}) if every trip validator
+     * supports it by returning true here and implementing {@link #merge(TripValidator)}. Otherwise all trips are
+     * validated in a single pass, as they are by default.
+     */
+    public boolean canRunInShards () {
+        return false;
+    }
+
+    /**
+     * When trips are validated in several shards at once (see {@link NewTripTimesValidator}), each shard has its own
+     * instance of each trip validator. Before complete() is called, the instance for the first shard is passed the
+     * instances for the other shards in turn, in the order of their trips. It should fold in the state they
+     * accumulated, such that complete() reports exactly what it would have had this instance seen every trip. This is
+     * only called on validators for which {@link #canRunInShards()} returns true.
+     * @param other an instance of the same class that has validated the trips following those seen so far.
+     */
+    public void merge (TripValidator other) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be run in shards.");
+    }
+
+    /**
+     * After a feed is edited, only the trips that have changed are validated again (see Feed#validateChanges), by
+     * those trip validators that report errors only on the trip they are validating or its stop times. Such a
+     * validator returns the types of those errors here, so that the errors of these types previously reported on the
+     * changed trips can be removed before validating them again.
+     * @return the types of error reported on individual trips, or null (the default) if this validator must see every
+     *         trip, e.g. to compare trips with one another.
+     */
+    public Set<NewGTFSErrorType> getTripErrorTypes () {
+        return null;
+    }
+
+    /**
+     * Called instead of complete() once the changed trips have been validated (see {@link #getTripErrorTypes()}), to
+     * store any errors held back until then that concern those trips alone. By default this does nothing.
+     */
+    public void completeChangedTrips () {}
 
 }
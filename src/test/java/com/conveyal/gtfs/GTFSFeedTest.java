@@ -1,11 +1,18 @@
 package com.conveyal.gtfs;
 
+import com.conveyal.gtfs.error.GTFSError;
+import com.conveyal.gtfs.model.Shape;
 import com.conveyal.gtfs.model.StopTime;
+import com.conveyal.gtfs.storage.ColumnarStopTimes;
+import com.conveyal.gtfs.storage.CompactShapes;
+import com.google.common.collect.Lists;
 import com.csvreader.CsvReader;
 import org.apache.commons.io.input.BOMInputStream;
 import org.hamcrest.comparator.ComparatorMatcherBuilder;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.mapdb.Fun.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,12 +20,23 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.number.IsCloseTo.closeTo;
 
@@ -273,4 +291,208 @@ public class GTFSFeedTest {
             is(closeTo(5.18, 0.01))
         );
     }
+
+    /**
+     * Make sure stop times read from the columnar store match those in MapDB, and that trip speed can be calculated
+     * from them.
+     */
+    @Test
+    public void canReadColumnarStopTimes() {
+        GTFSFeed feed = GTFSFeed.fromFile(simpleGtfsZipFileName);
+        Map<String, List<StopTime>> stopTimesForTrip = new HashMap<>();
+        for (String tripId : feed.trips.keySet()) {
+            stopTimesForTrip.put(tripId, Lists.newArrayList(feed.getOrderedStopTimesForTrip(tripId)));
+        }
+        ColumnarStopTimes columns = feed.useColumnarStopTimes();
+        assertThat(columns.size(), equalTo(feed.stop_times.size()));
+        for (Map.Entry<String, List<StopTime>> entry : stopTimesForTrip.entrySet()) {
+            List<StopTime> columnStopTimes = Lists.newArrayList(feed.getOrderedStopTimesForTrip(entry.getKey()));
+            assertThat(columnStopTimes.size(), equalTo(entry.getValue().size()));
+            for (int i = 0; i < columnStopTimes.size(); i++) {
+                StopTime expected = entry.getValue().get(i);
+                StopTime actual = columnStopTimes.get(i);
+                assertThat(actual.trip_id, equalTo(expected.trip_id));
+                assertThat(actual.stop_id, equalTo(expected.stop_id));
+                assertThat(actual.stop_sequence, equalTo(expected.stop_sequence));
+                assertThat(actual.arrival_time, equalTo(expected.arrival_time));
+                assertThat(actual.departure_time, equalTo(expected.departure_time));
+                assertThat(actual.stop_headsign, equalTo(expected.stop_headsign));
+                assertThat(actual.pickup_type, equalTo(expected.pickup_type));
+                assertThat(actual.drop_off_type, equalTo(expected.drop_off_type));
+                assertThat(actual.timepoint, equalTo(expected.timepoint));
+                assertThat(
+                    Double.doubleToLongBits(actual.shape_dist_traveled),
+                    equalTo(Double.doubleToLongBits((float) expected.shape_dist_traveled))
+                );
+            }
+        }
+        assertThat(columns.getTripIndex("does-not-exist"), equalTo(-1));
+        assertThat(
+            feed.getTripSpeed("a30277f8-e50a-4a85-9141-b1e0da9d429d"),
+            is(closeTo(5.96, 0.01))
+        );
+        feed.close();
+    }
+
+    /**
+     * Loading tables in parallel, with stop times and shapes bulk loaded, should produce the same feed as loading
+     * them one at a time.
+     */
+    @Test
+    public void canLoadTablesInParallel() {
+        GTFSFeed serialFeed = GTFSFeed.fromFile(simpleGtfsZipFileName);
+        GTFSFeed parallelFeed = GTFSFeed.fromFile(simpleGtfsZipFileName, null, 4);
+        assertThat(parallelFeed.feedId, equalTo(serialFeed.feedId));
+        assertThat(parallelFeed.trips.keySet(), equalTo(serialFeed.trips.keySet()));
+        assertThat(parallelFeed.stops.keySet(), equalTo(serialFeed.stops.keySet()));
+        assertThat(Lists.newArrayList(parallelFeed.stop_times.keySet()),
+            equalTo(Lists.newArrayList(serialFeed.stop_times.keySet())));
+        assertThat(Lists.newArrayList(parallelFeed.shape_points.keySet()),
+            equalTo(Lists.newArrayList(serialFeed.shape_points.keySet())));
+        for (String tripId : serialFeed.trips.keySet()) {
+            List<StopTime> expected = Lists.newArrayList(serialFeed.getOrderedStopTimesForTrip(tripId));
+            List<StopTime> actual = Lists.newArrayList(parallelFeed.getOrderedStopTimesForTrip(tripId));
+            assertThat(actual.size(), equalTo(expected.size()));
+            for (int i = 0; i < actual.size(); i++) {
+                assertThat(actual.get(i).stop_id, equalTo(expected.get(i).stop_id));
+                assertThat(actual.get(i).arrival_time, equalTo(expected.get(i).arrival_time));
+                assertThat(actual.get(i).id, equalTo(expected.get(i).id));
+            }
+        }
+        assertThat(parallelFeed.errors.size(), equalTo(serialFeed.errors.size()));
+        serialFeed.close();
+        parallelFeed.close();
+    }
+
+    /**
+     * Stop times and shape points repeating the key of an earlier row should be reported as the same duplicate key
+     * errors whether the tables are loaded one at a time or in parallel.
+     */
+    @Test
+    public void canReportDuplicateKeysWhenLoadingTablesInParallel() throws IOException {
+        String gtfsZipFileName = TestUtils.zipFolderFiles("fake-agency-duplicate-stop-times", true);
+        GTFSFeed serialFeed = GTFSFeed.fromFile(gtfsZipFileName);
+        GTFSFeed parallelFeed = GTFSFeed.fromFile(gtfsZipFileName, null, 4);
+        List<String> serialErrors = describeErrors(serialFeed);
+        assertThat(serialErrors.stream().filter(e -> e.contains("Duplicate primary key")).count(), equalTo(2L));
+        assertThat(describeErrors(parallelFeed), equalTo(serialErrors));
+        assertThat(parallelFeed.stop_times.size(), equalTo(serialFeed.stop_times.size()));
+        serialFeed.close();
+        parallelFeed.close();
+    }
+
+    private static List<String> describeErrors(GTFSFeed feed) {
+        List<String> errors = new ArrayList<>();
+        for (GTFSError error : feed.errors) errors.add(error.toString());
+        return errors;
+    }
+
+    /**
+     * Shapes decoded from the compact copy of shape_points should match those built from MapDB, to within the
+     * precision of the encoding.
+     */
+    @Test
+    public void canReadCompactShapes() {
+        GTFSFeed feed = GTFSFeed.fromFile(simpleGtfsZipFileName);
+        Map<String, Shape> shapes = new HashMap<>();
+        for (Tuple2<String, Integer> key : feed.shape_points.keySet()) {
+            shapes.put(key.a, feed.getShape(key.a));
+        }
+        assertThat(shapes.isEmpty(), is(false));
+        // Modifying a returned shape does not affect the cached shape returned to later callers.
+        String shapeId = shapes.keySet().iterator().next();
+        Shape modifiedShape = feed.getShape(shapeId);
+        modifiedShape.shape_dist_traveled[0] = -1;
+        modifiedShape.geometry.getCoordinateN(0).x = 0;
+        assertThat(feed.getShape(shapeId).shape_dist_traveled[0], equalTo(shapes.get(shapeId).shape_dist_traveled[0]));
+        assertThat(feed.getShape(shapeId).geometry.getCoordinateN(0).x,
+            equalTo(shapes.get(shapeId).geometry.getCoordinateN(0).x));
+        CompactShapes compactShapes = feed.useCompactShapes();
+        assertThat(compactShapes.size(), equalTo(shapes.size()));
+        for (Map.Entry<String, Shape> entry : shapes.entrySet()) {
+            Shape expected = entry.getValue();
+            Shape actual = feed.getShape(entry.getKey());
+            assertThat(actual, not(sameInstance(expected)));
+            assertThat(actual.geometry.getNumPoints(), equalTo(expected.geometry.getNumPoints()));
+            for (int i = 0; i < expected.geometry.getNumPoints(); i++) {
+                Coordinate expectedCoordinate = expected.geometry.getCoordinateN(i);
+                Coordinate actualCoordinate = actual.geometry.getCoordinateN(i);
+                assertThat(actualCoordinate.x, is(closeTo(expectedCoordinate.x, 1e-7)));
+                assertThat(actualCoordinate.y, is(closeTo(expectedCoordinate.y, 1e-7)));
+                assertThat(
+                    Double.doubleToLongBits(actual.shape_dist_traveled[i]),
+                    equalTo(Double.doubleToLongBits(expected.shape_dist_traveled[i]))
+                );
+            }
+        }
+        assertThat(feed.getShape("does-not-exist"), nullValue());
+        feed.close();
+    }
+
+    /**
+     * The compact copy of shape_points of a file-backed feed should be reopened along with the feed, and shapes read
+     * from it should match those read before the feed was closed.
+     */
+    @Test
+    public void canReopenCompactShapes() throws Exception {
+        File directory = Files.createTempDirectory("gtfs-feed").toFile();
+        String dbFile = new File(directory, "feed.db").getAbsolutePath();
+        GTFSFeed feed = new GTFSFeed(dbFile);
+        try (ZipFile zip = new ZipFile(simpleGtfsZipFileName)) {
+            feed.loadFromFile(zip, null);
+        }
+        assertThat(feed.getCompactShapes(), nullValue());
+        String shapeId = feed.shape_points.keySet().iterator().next().a;
+        int pointCount = feed.useCompactShapes().getShape(shapeId).geometry.getNumPoints();
+        feed.close();
+
+        GTFSFeed reopenedFeed = new GTFSFeed(dbFile);
+        assertThat(reopenedFeed.getCompactShapes(), notNullValue());
+        assertThat(reopenedFeed.getShape(shapeId).geometry.getNumPoints(), equalTo(pointCount));
+        reopenedFeed.close();
+        for (File file : directory.listFiles()) file.delete();
+        directory.delete();
+    }
+
+    /**
+     * The spatial index of stops of a feed in a temporary database should be built on first use, and its file deleted
+     * when the feed is closed.
+     */
+    @Test
+    public void canBuildAndDeleteTemporaryStopSpatialIndex() {
+        Set<String> indexFilesBefore = listTempFiles(".index");
+        GTFSFeed feed = GTFSFeed.fromFile(simpleGtfsZipFileName);
+        assertThat(listTempFiles(".index"), equalTo(indexFilesBefore));
+        assertThat(feed.getNearestStops(37.0612132, -122.0074332, 1).get(0).stop_id, equalTo("4u6g"));
+        assertThat(listTempFiles(".index").size(), equalTo(indexFilesBefore.size() + 1));
+        feed.close();
+        assertThat(listTempFiles(".index"), equalTo(indexFilesBefore));
+    }
+
+    private static Set<String> listTempFiles(String suffix) {
+        String[] names = new File(System.getProperty("java.io.tmpdir")).list((dir, name) -> name.endsWith(suffix));
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    /** The columnar copy of stop_times of a feed in a temporary database should be deleted when the feed is closed. */
+    @Test
+    public void canDeleteTemporaryColumnarStopTimes() {
+        Set<String> columnFilesBefore = listTempFiles(".columns");
+        GTFSFeed feed = GTFSFeed.fromFile(simpleGtfsZipFileName);
+        feed.useColumnarStopTimes();
+        assertThat(listTempFiles(".columns").size(), equalTo(columnFilesBefore.size() + 1));
+        feed.close();
+        assertThat(listTempFiles(".columns"), equalTo(columnFilesBefore));
+    }
+
+    /** The compact copy of shape_points of a feed in a temporary database should be deleted when the feed is closed. */
+    @Test
+    public void canDeleteTemporaryCompactShapes() {
+        Set<String> compactFilesBefore = listTempFiles(".compact");
+        GTFSFeed feed = GTFSFeed.fromFile(simpleGtfsZipFileName);
+        feed.useCompactShapes();
+        assertThat(listTempFiles(".compact").size(), equalTo(compactFilesBefore.size() + 1));
+        feed.close();
+        assertThat(listTempFiles(".compact"), equalTo(compactFilesBefore));
+    }
 }
@@ -2,6 +2,9 @@ package com.conveyal.gtfs;
 
 
 import com.conveyal.gtfs.error.NewGTFSErrorType;
+import com.conveyal.gtfs.error.SQLErrorStorage;
+import com.conveyal.gtfs.loader.ChangeLog;
+import com.conveyal.gtfs.loader.Feed;
 import com.conveyal.gtfs.loader.FeedLoadResult;
 import com.conveyal.gtfs.loader.JdbcGtfsExporter;
 import com.conveyal.gtfs.loader.SnapshotResult;
@@ -11,6 +14,7 @@ import com.conveyal.gtfs.storage.ExpectedFieldType;
 import com.conveyal.gtfs.storage.PersistenceExpectation;
 import com.conveyal.gtfs.storage.RecordExpectation;
 import com.conveyal.gtfs.util.InvalidNamespaceException;
+import com.conveyal.gtfs.validator.FeedValidator;
 import com.conveyal.gtfs.validator.FeedValidatorCreator;
 import com.conveyal.gtfs.validator.MTCValidator;
 import com.conveyal.gtfs.validator.ValidationResult;
@@ -38,9 +42,15 @@ import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -684,6 +694,279 @@ public class GTFSTest {
             if (tempFile != null) tempFile.deleteOnExit();
         }
     }
+    /**
+     * Load and validate a feed with the number of stored errors capped for an error type found during loading and one
+     * found during validation. No errors of those types should be stored, but their totals should be kept in the
+     * error_counts table.
+     */
+    @Test
+    void canCapStoredErrorsPerType() {
+        String testDBName = TestUtils.generateNewDB();
+        try {
+            String zipFileName = TestUtils.zipFolderFiles("fake-agency", true);
+            String dbConnectionUrl = String.join("/", JDBC_URL, testDBName);
+            DataSource dataSource = TestUtils.createTestDataSource(dbConnectionUrl);
+            Map<NewGTFSErrorType, Integer> maxStoredErrorsByType = new EnumMap<>(NewGTFSErrorType.class);
+            maxStoredErrorsByType.put(NewGTFSErrorType.MISSING_FIELD, 0);
+            maxStoredErrorsByType.put(NewGTFSErrorType.ROUTE_LONG_NAME_CONTAINS_SHORT_NAME, 0);
+            FeedLoadResult loadResult = GTFS.load(zipFileName, dataSource, 1, 1, maxStoredErrorsByType);
+            String namespace = loadResult.uniqueIdentifier;
+            // The caps are stored with the feed, so they should also apply to validation.
+            GTFS.validate(namespace, dataSource);
+            try (Connection connection = dataSource.getConnection()) {
+                for (NewGTFSErrorType errorType : maxStoredErrorsByType.keySet()) {
+                    assertThat(countValidationErrorsOfType(connection, namespace, errorType), equalTo(0));
+                    String sql = String.format(
+                        "select count, stored_count, max_stored from %s.error_counts where error_type = '%s'",
+                        namespace,
+                        errorType
+                    );
+                    LOG.info(sql);
+                    ResultSet resultSet = connection.prepareStatement(sql).executeQuery();
+                    assertThat(resultSet.next(), is(true));
+                    assertThat(resultSet.getInt(1) > 0, is(true));
+                    assertThat(resultSet.getInt(2), equalTo(0));
+                    assertThat(resultSet.getInt(3), equalTo(0));
+                }
+            }
+        } catch (IOException | SQLException e) {
+            LOG.error("An error occurred while attempting to test capping stored errors.", e);
+            throw new RuntimeException(e);
+        } finally {
+            TestUtils.dropDB(testDBName);
+        }
+    }
+
+    /**
+     * Converting records on several threads should store exactly the same errors, in the same order, as loading them
+     * on one thread.
+     */
+    @Test
+    void canLoadRecordsInParallel() {
+        String testDBName = TestUtils.generateNewDB();
+        try {
+            String zipFileName = TestUtils.zipFolderFiles("real-world-gtfs-feeds/VTA-gtfs-conditionally-required-checks", true);
+            String dbConnectionUrl = String.join("/", JDBC_URL, testDBName);
+            DataSource dataSource = TestUtils.createTestDataSource(dbConnectionUrl);
+            String serialNamespace = GTFS.load(zipFileName, dataSource, 1, 1).uniqueIdentifier;
+            String parallelNamespace = GTFS.load(zipFileName, dataSource, 1, 4).uniqueIdentifier;
+            String query = "select error_type, entity_type, line_number, entity_id, entity_sequence, bad_value " +
+                "from %s.errors order by error_id";
+            try (Connection connection = dataSource.getConnection()) {
+                List<String> serialErrors = getRows(connection, query, serialNamespace);
+                assertThat(serialErrors.isEmpty(), is(false));
+                assertThat(getRows(connection, query, parallelNamespace), equalTo(serialErrors));
+            }
+        } catch (IOException | SQLException e) {
+            LOG.error("An error occurred while attempting to test parallel loading.", e);
+            throw new RuntimeException(e);
+        } finally {
+            TestUtils.dropDB(testDBName);
+        }
+    }
+
+    /**
+     * Loading several tables at once, each on its own connection, should store the same rows and errors as loading
+     * the tables one after another, and report the time taken to load each table.
+     */
+    @Test
+    void canLoadTablesInParallel() {
+        String testDBName = TestUtils.generateNewDB();
+        try {
+            String zipFileName = TestUtils.zipFolderFiles("real-world-gtfs-feeds/VTA-gtfs-conditionally-required-checks", true);
+            String dbConnectionUrl = String.join("/", JDBC_URL, testDBName);
+            DataSource dataSource = TestUtils.createTestDataSource(dbConnectionUrl);
+            FeedLoadResult serialResult = GTFS.load(zipFileName, dataSource, 1);
+            FeedLoadResult parallelResult = GTFS.load(zipFileName, dataSource, 4);
+            assertThat(parallelResult.fatalException, nullValue());
+            assertThat(parallelResult.errorCount, equalTo(serialResult.errorCount));
+            assertThat(parallelResult.stopTimes.rowCount, equalTo(serialResult.stopTimes.rowCount));
+            // Each table is timed separately (single tables may take under a millisecond to load).
+            long tableLoadTimeMillis = Stream.of(
+                parallelResult.agency, parallelResult.calendar, parallelResult.calendarDates, parallelResult.routes,
+                parallelResult.stops, parallelResult.trips, parallelResult.stopTimes
+            ).mapToLong(table -> table.loadTimeMillis).sum();
+            assertThat(tableLoadTimeMillis > 0, is(true));
+            // Reference errors are checked after all tables are loaded, so they are compared regardless of order.
+            String[] queries = new String[] {
+                "select error_type, entity_type, line_number, entity_id, entity_sequence, bad_value from %s.errors",
+                "select * from %s.agency",
+                "select * from %s.calendar",
+                "select * from %s.calendar_dates",
+                "select * from %s.routes",
+                "select * from %s.stops",
+                "select * from %s.trips",
+                "select * from %s.stop_times"
+            };
+            try (Connection connection = dataSource.getConnection()) {
+                for (String query : queries) {
+                    List<String> serialRows = getSortedRows(connection, query, serialResult.uniqueIdentifier);
+                    assertThat(serialRows.isEmpty(), is(false));
+                    assertThat(getSortedRows(connection, query, parallelResult.uniqueIdentifier), equalTo(serialRows));
+                }
+            }
+        } catch (IOException | SQLException e) {
+            LOG.error("An error occurred while attempting to test loading tables in parallel.", e);
+            throw new RuntimeException(e);
+        } finally {
+            TestUtils.dropDB(testDBName);
+        }
+    }
+
+    /**
+     * Validating the whole feed covers any changes recorded since the last validation, so it should clear them from
+     * the change log rather than leave them to be validated again.
+     */
+    @Test
+    void fullValidationClearsChangeLog() {
+        String testDBName = TestUtils.generateNewDB();
+        try {
+            String zipFileName = TestUtils.zipFolderFiles("fake-agency", true);
+            String dbConnectionUrl = String.join("/", JDBC_URL, testDBName);
+            DataSource dataSource = TestUtils.createTestDataSource(dbConnectionUrl);
+            String namespace = GTFS.load(zipFileName, dataSource).uniqueIdentifier;
+            String changeLogQuery = "select * from %s." + ChangeLog.TABLE_NAME;
+            ChangeLog.createTable(dataSource, namespace);
+            try (Connection connection = dataSource.getConnection()) {
+                ChangeLog.record(connection, namespace, new ChangeLog.Change(Table.STOPS.name, "stop_id", "4u6g"));
+                connection.commit();
+                assertThat(getRows(connection, changeLogQuery, namespace).size(), equalTo(1));
+            }
+            GTFS.validate(namespace, dataSource);
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(getRows(connection, changeLogQuery, namespace).isEmpty(), is(true));
+            }
+        } catch (IOException | SQLException e) {
+            LOG.error("An error occurred while attempting to test clearing the change log.", e);
+            throw new RuntimeException(e);
+        } finally {
+            TestUtils.dropDB(testDBName);
+        }
+    }
+
+    /**
+     * Running validators concurrently should find the same errors as running them one after another, and both should
+     * report the time taken by each validator.
+     */
+    @Test
+    void canValidateInParallel() {
+        String testDBName = TestUtils.generateNewDB();
+        try {
+            String zipFileName = TestUtils.zipFolderFiles("fake-agency", true);
+            String dbConnectionUrl = String.join("/", JDBC_URL, testDBName);
+            DataSource dataSource = TestUtils.createTestDataSource(dbConnectionUrl);
+            String serialNamespace = GTFS.load(zipFileName, dataSource).uniqueIdentifier;
+            String parallelNamespace = GTFS.load(zipFileName, dataSource).uniqueIdentifier;
+            ValidationResult serialResult = GTFS.validate(serialNamespace, dataSource);
+            ValidationResult parallelResult = GTFS.validate(parallelNamespace, dataSource, 4);
+            assertThat(parallelResult.errorCount, equalTo(serialResult.errorCount));
+            assertThat(parallelResult.validatorTimes.keySet(), equalTo(serialResult.validatorTimes.keySet()));
+            assertThat(parallelResult.validatorTimes.containsKey("NewTripTimesValidator"), is(true));
+            try (Connection connection = dataSource.getConnection()) {
+                for (NewGTFSErrorType errorType : NewGTFSErrorType.values()) {
+                    assertThat(
+                        countValidationErrorsOfType(connection, parallelNamespace, errorType),
+                        equalTo(countValidationErrorsOfType(connection, serialNamespace, errorType))
+                    );
+                }
+            }
+        } catch (IOException | SQLException e) {
+            LOG.error("An error occurred while attempting to test parallel validation.", e);
+            throw new RuntimeException(e);
+        } finally {
+            TestUtils.dropDB(testDBName);
+        }
+    }
+
+    /**
+     * Validators that depend on one another in a cycle cannot be run in parallel. Validation should fail without
+     * starting any of them, and release the error storage (and its writer thread) it opened, so that the feed can
+     * still be validated afterward.
+     */
+    @Test
+    void canRejectCircularValidatorDependencies() {
+        String testDBName = TestUtils.generateNewDB();
+        try {
+            String zipFileName = TestUtils.zipFolderFiles("fake-agency", true);
+            String dbConnectionUrl = String.join("/", JDBC_URL, testDBName);
+            DataSource dataSource = TestUtils.createTestDataSource(dbConnectionUrl);
+            String namespace = GTFS.load(zipFileName, dataSource).uniqueIdentifier;
+            long writersBefore = countErrorStorageWriters();
+            assertThrows(
+                IllegalStateException.class,
+                () -> GTFS.validate(namespace, dataSource, 4, CircularValidator::new, CircularValidator::new)
+            );
+            for (int i = 0; i < 50 && countErrorStorageWriters() > writersBefore; i++) Thread.sleep(100);
+            // Writers left over from other tests may stop meanwhile, but none should have been added.
+            assertThat(countErrorStorageWriters() <= writersBefore, is(true));
+            ValidationResult validationResult = GTFS.validate(namespace, dataSource, 4);
+            assertThat(validationResult.fatalException, nullValue());
+        } catch (IOException | InterruptedException e) {
+            LOG.error("An error occurred while attempting to test circular validator dependencies.", e);
+            throw new RuntimeException(e);
+        } finally {
+            TestUtils.dropDB(testDBName);
+        }
+    }
+
+    private static long countErrorStorageWriters() {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().equals("error-storage-writer") && thread.isAlive())
+            .count();
+    }
+
+    /** A validator that depends on any other instance of itself, so that two of them form a cycle. */
+    private static class CircularValidator extends FeedValidator {
+        CircularValidator(Feed feed, SQLErrorStorage errorStorage) {
+            super(feed, errorStorage);
+        }
+
+        @Override
+        public List<Class<? extends FeedValidator>> getDependencies() {
+            return Collections.singletonList(CircularValidator.class);
+        }
+
+        @Override
+        public void validate() {
+            throw new AssertionError("A validator with circular dependencies should not be run.");
+        }
+    }
+
+    /**
+     * Validating the trips in several shards should find exactly the same errors and patterns as one pass over them.
+     */
+    @Test
+    void canValidateTripsInShards() {
+        String testDBName = TestUtils.generateNewDB();
+        try {
+            String zipFileName = TestUtils.zipFolderFiles("real-world-gtfs-feeds/VTA-gtfs-multiple-trips", true);
+            String dbConnectionUrl = String.join("/", JDBC_URL, testDBName);
+            DataSource dataSource = TestUtils.createTestDataSource(dbConnectionUrl);
+            String serialNamespace = GTFS.load(zipFileName, dataSource).uniqueIdentifier;
+            String shardedNamespace = GTFS.load(zipFileName, dataSource).uniqueIdentifier;
+            GTFS.validate(serialNamespace, dataSource);
+            GTFS.validate(shardedNamespace, dataSource, 3);
+            String[] queries = new String[] {
+                "select error_type, entity_type, line_number, entity_id, entity_sequence, bad_value from %s.errors",
+                "select pattern_id, route_id, name from %s.patterns",
+                "select trip_id, pattern_id from %s.trips"
+            };
+            try (Connection connection = dataSource.getConnection()) {
+                for (String query : queries) {
+                    assertThat(
+                        getSortedRows(connection, query, shardedNamespace),
+                        equalTo(getSortedRows(connection, query, serialNamespace))
+                    );
+                }
+            }
+        } catch (IOException | SQLException e) {
+            LOG.error("An error occurred while attempting to test validation of trips in shards.", e);
+            throw new RuntimeException(e);
+        } finally {
+            TestUtils.dropDB(testDBName);
+        }
+    }
+
     /**
      * Load a feed and then export minus proprietary files. Confirm proprietary files are not present in export.
      */
@@ -1049,6 +1332,40 @@ public class GTFSTest {
             equalTo(errorExpectations.length));
     }
 
+    /**
+     * @return the rows returned by the query formatted with the namespace, each joined into a single string, sorted.
+     */
+    private static List<String> getSortedRows(
+            Connection connection,
+            String queryFormat,
+            String namespace
+    ) throws SQLException {
+        List<String> rows = getRows(connection, queryFormat, namespace);
+        Collections.sort(rows);
+        return rows;
+    }
+
+    /**
+     * @return the rows of the query in the given namespace, in the order returned, each with its values joined.
+     */
+    private static List<String> getRows(
+            Connection connection,
+            String queryFormat,
+            String namespace
+    ) throws SQLException {
+        String sql = String.format(queryFormat, namespace);
+        LOG.info(sql);
+        ResultSet resultSet = connection.prepareStatement(sql).executeQuery();
+        int columnCount = resultSet.getMetaData().getColumnCount();
+        List<String> rows = new ArrayList<>();
+        while (resultSet.next()) {
+            StringBuilder row = new StringBuilder();
+            for (int c = 1; c <= columnCount; c++) row.append(resultSet.getString(c)).append('|');
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
     private static int countValidationErrorsOfType(
             Connection connection,
             String namespace,
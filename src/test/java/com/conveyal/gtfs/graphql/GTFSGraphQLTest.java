@@ -2,6 +2,7 @@ package com.conveyal.gtfs.graphql;
 
 import com.conveyal.gtfs.TestUtils;
 import com.conveyal.gtfs.loader.FeedLoadResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import graphql.ExecutionInput;
 import org.apache.commons.io.IOUtils;
 import org.hamcrest.MatcherAssert;
@@ -10,10 +11,12 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -23,6 +26,9 @@ import static com.conveyal.gtfs.GTFS.load;
 import static com.conveyal.gtfs.GTFS.validate;
 import static com.conveyal.gtfs.TestUtils.getResourceFileName;
 import static com.zenika.snapshotmatcher.SnapshotMatcher.matchesSnapshot;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertTimeout;
 
 
@@ -275,6 +281,139 @@ public class GTFSGraphQLTest {
         });
     }
 
+    /**
+     * Tests that fetching nested entities in batches (one SQL query per level of the query) yields the same results as
+     * fetching them for each enclosing entity, including when a limit applies to the nested entities. The other tests
+     * run their queries without batching.
+     */
+    @Test
+    public void canFetchNestedEntitiesInBatches() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("namespace", testNamespace);
+        List<String> queryFilenames = Arrays.asList(
+            "feed.txt", "feedRowCounts.txt", "feedErrors.txt", "feedFeedInfo.txt", "feedPatterns.txt",
+            "feedPolylines.txt", "feedAgencies.txt", "feedAttributions.txt", "feedCalendars.txt", "feedFares.txt",
+            "feedRoutes.txt", "feedStops.txt", "feedStopWithChildren.txt", "feedTrips.txt", "feedTranslations.txt",
+            "feedStopTimes.txt", "feedServices.txt", "feedStopsStopTimeLimit.txt", "superNested.txt",
+            "superNestedNoLimits.txt"
+        );
+        for (String queryFilename : queryFilenames) {
+            assertTimeout(Duration.ofMillis(TEST_TIMEOUT), () -> {
+                MatcherAssert.assertThat(
+                    queryGraphQL(queryFilename, variables, testDataSource, true),
+                    equalTo(queryGraphQL(queryFilename, variables, testDataSource, false))
+                );
+            });
+        }
+    }
+
+    /**
+     * Tests that writing a query result as JSON, with the rows of top-level lists streamed from the database, yields the
+     * same result as executing the query as usual.
+     */
+    @Test
+    public void canStreamQueryResultsAsJson() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("namespace", testNamespace);
+        assertTimeout(Duration.ofMillis(TEST_TIMEOUT), () -> {
+            // Stop times are streamed, while trips are fetched as usual because they include nested entities.
+            for (String queryFilename : Arrays.asList("feedStopTimes.txt", "feedTrips.txt")) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                GTFSGraphQL.execute(
+                    GTFSGraphQL.newExecutionInput()
+                        .query(IOUtils.toString(new FileInputStream(getResourceFileName("graphql/" + queryFilename))))
+                        .variables(variables),
+                    outputStream
+                );
+                ObjectMapper mapper = new ObjectMapper();
+                Map<String, Object> expected = queryGraphQL(queryFilename, variables, testDataSource);
+                MatcherAssert.assertThat(
+                    mapper.readValue(outputStream.toByteArray(), Map.class),
+                    equalTo(mapper.readValue(mapper.writeValueAsBytes(expected), Map.class))
+                );
+            }
+        });
+    }
+
+    /**
+     * Tests that a top-level list streamed as JSON may have more rows than the maximum that can otherwise be fetched,
+     * which still applies when the list is fetched as usual.
+     */
+    @Test
+    public void canStreamMoreRowsThanMaxLimit() throws Exception {
+        // Load a separate copy of the feed so that the rows added here do not affect the other tests.
+        String namespace = load(TestUtils.zipFolderFiles("fake-agency", true), testDataSource).uniqueIdentifier;
+        try (Connection connection = testDataSource.getConnection()) {
+            connection.createStatement().execute(String.format(
+                "insert into %s.stop_times (trip_id, stop_id, stop_sequence) " +
+                    "select 'extra-trip', 'extra-stop', s from generate_series(1, 600) s",
+                namespace
+            ));
+            connection.commit();
+        }
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("namespace", namespace);
+        variables.put("limit", 1000);
+        assertTimeout(Duration.ofMillis(TEST_TIMEOUT), () -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            GTFSGraphQL.execute(
+                GTFSGraphQL.newExecutionInput()
+                    .query(IOUtils.toString(new FileInputStream(getResourceFileName("graphql/feedStopTimesWithLimit.txt"))))
+                    .variables(variables),
+                outputStream
+            );
+            Map<String, Object> streamed = new ObjectMapper().readValue(outputStream.toByteArray(), Map.class);
+            MatcherAssert.assertThat(getStopTimes(streamed).size(), equalTo(606));
+            Map<String, Object> fetched = queryGraphQL("feedStopTimesWithLimit.txt", variables, testDataSource);
+            MatcherAssert.assertThat(getStopTimes(fetched).size(), equalTo(500));
+        });
+    }
+
+    /**
+     * Tests that paging through stop times with cursors yields every stop time once, in the same order as fetching them
+     * all in one page.
+     */
+    @Test
+    public void canPageThroughStopTimesWithCursors() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("namespace", testNamespace);
+        assertTimeout(Duration.ofMillis(TEST_TIMEOUT), () -> {
+            variables.put("first", 1000);
+            Map<String, Object> allStopTimesPage = getStopTimesPage(variables);
+            List<Map<String, Object>> allStopTimes = (List<Map<String, Object>>) allStopTimesPage.get("items");
+            MatcherAssert.assertThat(getPageInfo(allStopTimesPage).get("has_next_page"), equalTo(false));
+            variables.put("first", 2);
+            List<Map<String, Object>> pagedStopTimes = new ArrayList<>();
+            while (true) {
+                Map<String, Object> page = getStopTimesPage(variables);
+                List<Map<String, Object>> items = (List<Map<String, Object>>) page.get("items");
+                MatcherAssert.assertThat(items.size(), lessThanOrEqualTo(2));
+                pagedStopTimes.addAll(items);
+                Map<String, Object> pageInfo = getPageInfo(page);
+                if (!(Boolean) pageInfo.get("has_next_page")) break;
+                MatcherAssert.assertThat(pageInfo.get("end_cursor"), equalTo(items.get(items.size() - 1).get("cursor")));
+                variables.put("after", pageInfo.get("end_cursor"));
+            }
+            MatcherAssert.assertThat(allStopTimes.size(), greaterThan(2));
+            MatcherAssert.assertThat(pagedStopTimes, equalTo(allStopTimes));
+        });
+    }
+
+    private Map<String, Object> getStopTimesPage(Map<String, Object> variables) throws IOException {
+        Map<String, Object> result = queryGraphQL("feedStopTimesPage.txt", variables, testDataSource);
+        Map<String, Object> feed = (Map<String, Object>) ((Map<String, Object>) result.get("data")).get("feed");
+        return (Map<String, Object>) feed.get("stop_times_page");
+    }
+
+    private Map<String, Object> getPageInfo(Map<String, Object> page) {
+        return (Map<String, Object>) page.get("page_info");
+    }
+
+    private List<Map<String, Object>> getStopTimes(Map<String, Object> result) {
+        Map<String, Object> feed = (Map<String, Object>) ((Map<String, Object>) result.get("data")).get("feed");
+        return (List<Map<String, Object>>) feed.get("stop_times");
+    }
+
     /** Tests that a query for child stops does not throw an exception for a feed with no
      * parent_station column in the imported stops table.
      */
@@ -364,12 +503,29 @@ public class GTFSGraphQLTest {
         String queryFilename,
         Map<String,Object> variables,
         DataSource dataSource
+    ) throws IOException {
+        return queryGraphQL(queryFilename, variables, dataSource, false);
+    }
+
+    /**
+     * Helper method to execute a GraphQL query and return the result.
+     *
+     * @param batched whether nested entities should be fetched in batches (see {@link GTFSGraphQL#newExecutionInput()})
+     */
+    private Map<String, Object> queryGraphQL(
+        String queryFilename,
+        Map<String,Object> variables,
+        DataSource dataSource,
+        boolean batched
     ) throws IOException {
         GTFSGraphQL.initialize(dataSource);
         FileInputStream inputStream = new FileInputStream(
             getResourceFileName(String.format("graphql/%s", queryFilename))
         );
-        ExecutionInput executionInput = ExecutionInput.newExecutionInput()
+        ExecutionInput.Builder executionInputBuilder = batched
+            ? GTFSGraphQL.newExecutionInput()
+            : ExecutionInput.newExecutionInput();
+        ExecutionInput executionInput = executionInputBuilder
             .query(IOUtils.toString(inputStream))
             .variables(variables)
             .build();
@@ -0,0 +1,104 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.model.Stop;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+class CachingTableReaderTest {
+
+    /**
+     * While caching, all reads should be served from a single load of the table, and should return the same entities
+     * as the underlying reader.
+     */
+    @Test
+    void canServeReadsFromSnapshot() {
+        CountingStopReader source = new CountingStopReader("a", "b", "b", "c");
+        CachingTableReader<Stop> reader = new CachingTableReader<>(source, stop -> stop.stop_id);
+
+        // Without caching, each read goes to the underlying table.
+        assertThat(stopIds(reader.getAll()), contains("a", "b", "b", "c"));
+        assertThat(stopIds(reader.getAll()), contains("a", "b", "b", "c"));
+        assertThat(source.loads, equalTo(2));
+
+        reader.startCaching();
+        assertThat(stopIds(reader), contains("a", "b", "b", "c"));
+        assertThat(reader.get("c").stop_id, equalTo("c"));
+        assertThat(stopIds(reader.getOrdered("b")), contains("b", "b"));
+        assertThat(reader.getOrdered("d"), empty());
+        assertThat(reader.getSnapshot().get("d"), nullValue());
+        assertThat(reader.getSnapshot().asMap().keySet(), contains("a", "b", "c"));
+        assertThat(source.loads, equalTo(3));
+
+        // After invalidation, the table is loaded again once.
+        reader.invalidate();
+        assertThat(reader.getSnapshot().size(), equalTo(4));
+        assertThat(stopIds(reader.getAll()), contains("a", "b", "b", "c"));
+        assertThat(source.loads, equalTo(4));
+
+        reader.stopCaching();
+        assertThat(stopIds(reader.getAll()), contains("a", "b", "b", "c"));
+        assertThat(source.loads, equalTo(5));
+    }
+
+    private static List<String> stopIds(Iterable<Stop> stops) {
+        return StreamSupport.stream(stops.spliterator(), false).map(stop -> stop.stop_id).collect(Collectors.toList());
+    }
+
+    /** An in-memory table of stops that counts the number of times the whole table is read. */
+    private static class CountingStopReader implements TableReader<Stop> {
+        private final List<Stop> stops = new ArrayList<>();
+        int loads = 0;
+
+        CountingStopReader(String... stopIds) {
+            for (String stopId : stopIds) {
+                Stop stop = new Stop();
+                stop.stop_id = stopId;
+                stops.add(stop);
+            }
+        }
+
+        @Override
+        public Iterator<Stop> iterator() {
+            return getAll().iterator();
+        }
+
+        @Override
+        public Stop get(String id) {
+            return getOrdered(id).iterator().next();
+        }
+
+        @Override
+        public Iterable<Stop> getOrdered(String id) {
+            return stops.stream().filter(stop -> stop.stop_id.equals(id)).collect(Collectors.toList());
+        }
+
+        @Override
+        public Iterable<Stop> getAll() {
+            loads++;
+            return stops;
+        }
+
+        @Override
+        public Iterable<Stop> getAllOrdered() {
+            return getAll();
+        }
+
+        @Override
+        public Iterable<Stop> getOrderedInRange(String fromId, String toId) {
+            return stops.stream()
+                .filter(stop -> stop.stop_id.compareTo(fromId) >= 0 && stop.stop_id.compareTo(toId) <= 0)
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class JDBCTableWriterTest {
     private static String testDBName;
     private static DataSource testDataSource;
     private static String testNamespace;
+    private static String testGtfsGLNamespace;
     private static String testGtfsGLSnapshotNamespace;
     private static String simpleServiceId = "1";
     private static String firstStopId = "1";
@@ -102,7 +103,7 @@ public class JDBCTableWriterTest {
         /** Load the following real-life GTFS for use with {@link JDBCTableWriterTest#canUpdateServiceId()}  **/
         // load feed into db
         FeedLoadResult feedLoadResult = load(getResourceFileName("real-world-gtfs-feeds/gtfs_GL.zip"), testDataSource);
-        String testGtfsGLNamespace = feedLoadResult.uniqueIdentifier;
+        testGtfsGLNamespace = feedLoadResult.uniqueIdentifier;
         // validate feed to create additional tables
         validate(testGtfsGLNamespace, testDataSource);
         // load into editor via snapshot
@@ -976,6 +977,77 @@ public class JDBCTableWriterTest {
         );
     }
 
+    /**
+     * Checks that after editing a validated feed, validating only the changes replaces the errors on the edited
+     * entities without duplicating or dropping the others.
+     */
+    @Test
+    public void canValidateChanges() throws InvalidNamespaceException, IOException, SQLException {
+        String allErrorsSql = String.format("select * from %s.errors", testGtfsGLNamespace);
+        int errorCount = countRows(allErrorsSql);
+        String unnamedStopErrorsSql = String.format(
+            "select * from %s.errors where error_type = 'STOP_NAME_MISSING' and entity_id = 'unnamed-stop'",
+            testGtfsGLNamespace
+        );
+        // Create a stop without a name in the loaded (not snapshotted) feed, which has error tables.
+        JdbcTableWriter stopWriter = new JdbcTableWriter(Table.STOPS, testDataSource, testGtfsGLNamespace);
+        StopDTO input = new StopDTO();
+        input.stop_id = "unnamed-stop";
+        input.stop_name = "";
+        input.stop_lat = firstStopLat;
+        input.stop_lon = firstStopLon;
+        StopDTO createdStop = mapper.readValue(stopWriter.create(mapper.writeValueAsString(input), true), StopDTO.class);
+        Feed feed = new Feed(testDataSource, testGtfsGLNamespace);
+        feed.validateChanges();
+        assertThatSqlQueryYieldsRowCount(unnamedStopErrorsSql, 1);
+        assertThatSqlQueryYieldsZeroRows(String.format("select * from %s.%s", testGtfsGLNamespace, ChangeLog.TABLE_NAME));
+        // Validating again without any changes should leave the errors as they are.
+        int errorCountWithStop = countRows(allErrorsSql);
+        feed.validateChanges();
+        assertThatSqlQueryYieldsRowCount(allErrorsSql, errorCountWithStop);
+        // Deleting the stop should remove its error.
+        new JdbcTableWriter(Table.STOPS, testDataSource, testGtfsGLNamespace).delete(createdStop.id, true);
+        feed.validateChanges();
+        assertThatSqlQueryYieldsZeroRows(unnamedStopErrorsSql);
+        assertThatSqlQueryYieldsRowCount(allErrorsSql, errorCount);
+    }
+
+    /**
+     * Errors on trips without an entity ID cannot be tied to any trip, so validating changed trips should not remove
+     * them as if they were on trips that no longer exist.
+     */
+    @Test
+    public void changeValidationKeepsTripErrorsWithoutEntityId() throws SQLException {
+        String nullEntityErrorsSql = String.format(
+            "select * from %s.errors where entity_type = 'Trip' and entity_id is null and bad_value = 'no-entity'",
+            testGtfsGLNamespace
+        );
+        try (Connection connection = testDataSource.getConnection()) {
+            connection.createStatement().execute(String.format(
+                "insert into %s.errors (error_id, error_type, entity_type, bad_value) " +
+                    "select max(error_id) + 1, 'TRIP_TOO_FEW_STOP_TIMES', 'Trip', 'no-entity' from %s.errors",
+                testGtfsGLNamespace, testGtfsGLNamespace
+            ));
+            ResultSet resultSet = connection.createStatement().executeQuery(
+                String.format("select trip_id from %s.trips limit 1", testGtfsGLNamespace)
+            );
+            resultSet.next();
+            ChangeLog.createTable(testDataSource, testGtfsGLNamespace);
+            ChangeLog.record(
+                connection, testGtfsGLNamespace, new ChangeLog.Change(Table.TRIPS.name, "trip_id", resultSet.getString(1))
+            );
+            connection.commit();
+        }
+        new Feed(testDataSource, testGtfsGLNamespace).validateChanges();
+        assertThatSqlQueryYieldsRowCount(nullEntityErrorsSql, 1);
+        try (Connection connection = testDataSource.getConnection()) {
+            connection.createStatement().execute(String.format(
+                "delete from %s.errors where bad_value = 'no-entity'", testGtfsGLNamespace
+            ));
+            connection.commit();
+        }
+    }
+
     /*****************************************************************************************************************
      * End tests, begin helpers
      ****************************************************************************************************************/
@@ -1015,11 +1087,16 @@ public class JDBCTableWriterTest {
     }
 
     private void assertThatSqlQueryYieldsRowCount(String sql, int expectedRowCount) throws SQLException {
+        int recordCount = countRows(sql);
+        assertThat("Records matching query should equal expected count.", recordCount, equalTo(expectedRowCount));
+    }
+
+    private int countRows(String sql) throws SQLException {
         LOG.info(sql);
         int recordCount = 0;
         ResultSet rs = testDataSource.getConnection().prepareStatement(sql).executeQuery();
         while (rs.next()) recordCount++;
-        assertThat("Records matching query should equal expected count.", recordCount, equalTo(expectedRowCount));
+        return recordCount;
     }
 
     void assertThatSqlQueryYieldsZeroRows(String sql) throws SQLException {
@@ -0,0 +1,51 @@
+package com.conveyal.gtfs.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static com.conveyal.gtfs.loader.JdbcGtfsLoader.TABLES_IN_LOAD_ORDER;
+import static com.conveyal.gtfs.loader.JdbcGtfsLoader.getLoadDependencies;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcGtfsLoaderTest {
+
+    /**
+     * Tables that are not referenced by, and do not reference, other tables should be free to load immediately.
+     */
+    @Test
+    void independentTablesHaveNoLoadDependencies() {
+        assertThat(getLoadDependencies(Table.AGENCY, TABLES_IN_LOAD_ORDER), empty());
+        assertThat(getLoadDependencies(Table.SHAPES, TABLES_IN_LOAD_ORDER), empty());
+        assertThat(getLoadDependencies(Table.CALENDAR, TABLES_IN_LOAD_ORDER), empty());
+    }
+
+    /**
+     * Tables must wait for the tables they reference, tables sharing their key field and tables containing the foreign
+     * fields that their conditional requirements are checked against.
+     */
+    @Test
+    void dependentTablesWaitForTheirReferences() {
+        assertThat(getLoadDependencies(Table.STOP_TIMES, TABLES_IN_LOAD_ORDER), containsInAnyOrder(Table.TRIPS, Table.STOPS));
+        assertThat(getLoadDependencies(Table.CALENDAR_DATES, TABLES_IN_LOAD_ORDER), containsInAnyOrder(Table.CALENDAR));
+        assertTrue(getLoadDependencies(Table.FARE_RULES, TABLES_IN_LOAD_ORDER).contains(Table.STOPS));
+        assertTrue(getLoadDependencies(Table.TRIPS, TABLES_IN_LOAD_ORDER).contains(Table.ROUTES));
+    }
+
+    /**
+     * Every dependency must come earlier in the serial load order, otherwise parallel loading would deadlock.
+     */
+    @Test
+    void dependenciesPrecedeTablesInLoadOrder() {
+        for (int i = 0; i < TABLES_IN_LOAD_ORDER.length; i++) {
+            Set<Table> dependencies = getLoadDependencies(TABLES_IN_LOAD_ORDER[i], TABLES_IN_LOAD_ORDER);
+            for (Table dependency : dependencies) {
+                assertTrue(Arrays.asList(TABLES_IN_LOAD_ORDER).subList(0, i).contains(dependency));
+            }
+        }
+    }
+}
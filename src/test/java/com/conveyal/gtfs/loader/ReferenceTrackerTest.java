@@ -0,0 +1,77 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.error.NewGTFSError;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static com.conveyal.gtfs.error.NewGTFSErrorType.DUPLICATE_ID;
+import static com.conveyal.gtfs.error.NewGTFSErrorType.REFERENTIAL_INTEGRITY;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceTrackerTest {
+
+    private static Set<NewGTFSError> checkStopTime(ReferenceTracker tracker, int line, String tripId, String sequence) {
+        Field stopSequence = Table.STOP_TIMES.getFieldForName("stop_sequence");
+        return tracker.checkReferencesAndUniqueness(tripId, line, stopSequence, sequence, Table.STOP_TIMES);
+    }
+
+    /**
+     * Compound IDs should be reported as duplicates only when their string forms match, even though sequences are
+     * stored packed as ints.
+     */
+    @Test
+    void canDetectDuplicateStopSequences() {
+        ReferenceTracker tracker = new ReferenceTracker();
+        assertThat(checkStopTime(tracker, 2, "1", "1"), empty());
+        assertThat(checkStopTime(tracker, 3, "1", "2"), empty());
+        assertThat(checkStopTime(tracker, 4, "2", "1"), empty());
+        // Not the same string as sequence 1, so not a duplicate.
+        assertThat(checkStopTime(tracker, 5, "1", "01"), empty());
+        // Trip IDs containing colons are kept intact.
+        assertThat(checkStopTime(tracker, 6, "1:2", "3"), empty());
+        assertThat(checkStopTime(tracker, 7, "1", "3"), empty());
+
+        Set<NewGTFSError> errors = checkStopTime(tracker, 8, "1", "2");
+        assertThat(errors, hasSize(1));
+        NewGTFSError error = errors.iterator().next();
+        assertThat(error.errorType, equalTo(DUPLICATE_ID));
+        assertThat(error.badValue, equalTo("stop_sequence:1:2"));
+        assertThat(checkStopTime(tracker, 9, "1", "01"), hasSize(1));
+        assertThat(tracker.transitIdsWithSequence, hasSize(6));
+    }
+
+    /**
+     * The compact ID sets must still behave as the string sets that external callers may use directly.
+     */
+    @Test
+    void idSetsCanBeUsedAsStringSets() {
+        ReferenceTracker tracker = new ReferenceTracker();
+        Field tripId = Table.TRIPS.getFieldForName("trip_id");
+        tracker.checkReferencesAndUniqueness("a", 2, tripId, "a", Table.TRIPS);
+        tracker.checkReferencesAndUniqueness("b:c", 3, tripId, "b:c", Table.TRIPS);
+        checkStopTime(tracker, 2, "a", "5");
+        checkStopTime(tracker, 3, "a", "05");
+
+        assertThat(tracker.transitIds, containsInAnyOrder("trip_id:a", "trip_id:b:c"));
+        assertTrue(tracker.transitIds.contains("trip_id:b:c"));
+        assertFalse(tracker.transitIds.contains("trip_id:b"));
+        assertThat(tracker.transitIdsWithSequence, containsInAnyOrder("stop_sequence:a:5", "stop_sequence:a:05"));
+        assertTrue(tracker.transitIdsWithSequence.contains("stop_sequence:a:5"));
+        assertFalse(tracker.transitIdsWithSequence.contains("stop_sequence:a:6"));
+        // Adding through the string view is visible to reference checks.
+        tracker.transitIds.add("trip_id:d");
+        Field stopTimeTripId = Table.STOP_TIMES.getFieldForName("trip_id");
+        assertThat(tracker.checkReferencesAndUniqueness("d", 4, stopTimeTripId, "d", Table.STOP_TIMES), empty());
+        Set<NewGTFSError> errors =
+            tracker.checkReferencesAndUniqueness("e", 5, stopTimeTripId, "e", Table.STOP_TIMES);
+        assertThat(errors, hasSize(1));
+        assertThat(errors.iterator().next().errorType, equalTo(REFERENTIAL_INTEGRITY));
+    }
+}
@@ -0,0 +1,113 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.model.Calendar;
+import com.conveyal.gtfs.model.CalendarDate;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class ServiceCalendarTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1); // A Monday.
+
+    /**
+     * Calendars and calendar dates should be combined into the days each service is active, counted from the first
+     * date on which any service is active.
+     */
+    @Test
+    void canCombineCalendarsAndCalendarDates() {
+        List<Calendar> calendars = Arrays.asList(
+            calendar("weekday", 1, 1, 1, 1, 1, 0, 0),
+            calendar("weekend", 0, 0, 0, 0, 0, 1, 1),
+            calendar("never", 0, 0, 0, 0, 0, 0, 0)
+        );
+        List<CalendarDate> calendarDates = Arrays.asList(
+            calendarDate("weekday", JAN_1, 2),
+            calendarDate("holiday", JAN_1, 1),
+            calendarDate("extra", LocalDate.of(2024, 1, 20), 1)
+        );
+        ServiceCalendar serviceCalendar = new ServiceCalendar(calendars, calendarDates);
+
+        // A calendar that is never active is left out.
+        assertThat(serviceCalendar.getServiceIds(), contains("weekday", "weekend", "holiday", "extra"));
+        assertThat(serviceCalendar.getFirstDate(), equalTo(JAN_1));
+        assertThat(serviceCalendar.getLastDate(), equalTo(LocalDate.of(2024, 1, 20)));
+        assertThat(serviceCalendar.getDayCount(), equalTo(20));
+        assertThat(serviceCalendar.countActiveDays("weekday"), equalTo(9));
+        assertThat(serviceCalendar.countActiveDays("weekend"), equalTo(4));
+        assertThat(serviceCalendar.countActiveDays("never"), equalTo(0));
+
+        assertThat(serviceCalendar.getServicesActiveOn(JAN_1), contains("holiday"));
+        assertThat(serviceCalendar.getServicesActiveOn(LocalDate.of(2024, 1, 6)), contains("weekend"));
+        assertThat(serviceCalendar.getServicesActiveOn(LocalDate.of(2024, 2, 1)), empty());
+        assertThat(serviceCalendar.isActiveOn("weekday", LocalDate.of(2024, 1, 2)), is(true));
+        assertThat(serviceCalendar.isActiveOn("weekday", JAN_1), is(false));
+
+        assertThat(serviceCalendar.areActiveOnSameDay("weekday", "weekday"), is(true));
+        assertThat(serviceCalendar.areActiveOnSameDay("weekday", "weekend"), is(false));
+        assertThat(serviceCalendar.areActiveOnSameDay("holiday", "weekend"), is(false));
+        assertThat(serviceCalendar.areActiveOnSameDay("holiday", "missing"), is(false));
+
+        LocalDate jan15 = LocalDate.of(2024, 1, 15);
+        LocalDate jan31 = LocalDate.of(2024, 1, 31);
+        assertThat(serviceCalendar.isActiveBetween("extra", jan15, jan31), is(true));
+        assertThat(serviceCalendar.isActiveBetween("weekday", jan15, jan31), is(false));
+
+        int[] servicesPerDay = serviceCalendar.sumPerDay(serviceId -> 1);
+        assertThat(servicesPerDay.length, equalTo(20));
+        assertThat(servicesPerDay[0], equalTo(1));
+        assertThat(servicesPerDay[5], equalTo(1));
+        assertThat(servicesPerDay[14], equalTo(0));
+        assertThat(servicesPerDay[19], equalTo(1));
+        assertThat(serviceCalendar.getActiveDaysOfAny(Arrays.asList("weekday", "weekend")).cardinality(), equalTo(13));
+    }
+
+    @Test
+    void canHandleFeedWithoutService() {
+        ServiceCalendar serviceCalendar = new ServiceCalendar(
+            Collections.singletonList(calendar("never", 0, 0, 0, 0, 0, 0, 0)),
+            Collections.emptyList()
+        );
+        assertThat(serviceCalendar.getServiceIds(), empty());
+        assertThat(serviceCalendar.getDayCount(), equalTo(0));
+        assertThat(serviceCalendar.getFirstDate(), nullValue());
+        assertThat(serviceCalendar.getServicesActiveOn(JAN_1), empty());
+        assertThat(serviceCalendar.sumPerDay(serviceId -> 1).length, equalTo(0));
+    }
+
+    /** @return a calendar for the first two weeks of 2024, active on the given days from Monday to Sunday */
+    private static Calendar calendar(
+        String serviceId, int monday, int tuesday, int wednesday, int thursday, int friday, int saturday, int sunday
+    ) {
+        Calendar calendar = new Calendar();
+        calendar.service_id = serviceId;
+        calendar.start_date = JAN_1;
+        calendar.end_date = LocalDate.of(2024, 1, 14);
+        calendar.monday = monday;
+        calendar.tuesday = tuesday;
+        calendar.wednesday = wednesday;
+        calendar.thursday = thursday;
+        calendar.friday = friday;
+        calendar.saturday = saturday;
+        calendar.sunday = sunday;
+        return calendar;
+    }
+
+    private static CalendarDate calendarDate(String serviceId, LocalDate date, int exceptionType) {
+        CalendarDate calendarDate = new CalendarDate();
+        calendarDate.service_id = serviceId;
+        calendarDate.date = date;
+        calendarDate.exception_type = exceptionType;
+        return calendarDate;
+    }
+}
@@ -0,0 +1,69 @@
+package com.conveyal.gtfs.loader;
+
+import com.conveyal.gtfs.TestUtils;
+import com.conveyal.gtfs.model.Stop;
+import com.conveyal.gtfs.model.StopTime;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.conveyal.gtfs.GTFS.load;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+class TripStopTimesReaderTest {
+    private static String testDBName;
+    private static DataSource testDataSource;
+    private static Feed feed;
+
+    @BeforeAll
+    public static void setUpClass() throws IOException {
+        testDBName = TestUtils.generateNewDB();
+        testDataSource = TestUtils.createTestDataSource(String.format("jdbc:postgresql://localhost/%s", testDBName));
+        String zipFileName = TestUtils.zipFolderFiles("fake-agency", true);
+        feed = new Feed(testDataSource, load(zipFileName, testDataSource).uniqueIdentifier);
+    }
+
+    @AfterAll
+    public static void tearDownClass() {
+        TestUtils.dropDB(testDBName);
+    }
+
+    /**
+     * Reading the stop times of each trip into the reused arrays should give the same stop times and stops, in the
+     * same order, as reading StopTime objects ordered by trip and stop sequence.
+     */
+    @Test
+    void canReadSameStopTimesAsTableReader() {
+        EntitySnapshot<Stop> stops = feed.stops.getSnapshot();
+        List<String> expected = new ArrayList<>();
+        for (StopTime stopTime : feed.stopTimes.getAllOrdered()) {
+            Stop stop = stops.get(stopTime.stop_id);
+            expected.add(describe(stopTime.trip_id, stopTime.stop_sequence, stopTime.stop_id,
+                stopTime.arrival_time, stopTime.departure_time, stop == null ? null : stop.stop_name));
+        }
+        List<String> actual = new ArrayList<>();
+        new TripStopTimesReader(feed, stops).forEachTrip(null, null, stopTimes -> {
+            for (int i = 0; i < stopTimes.size; i++) {
+                Stop stop = stopTimes.getStop(i);
+                actual.add(describe(stopTimes.tripId, stopTimes.stopSequences[i], stopTimes.stopIds[i],
+                    stopTimes.arrivalTimes[i], stopTimes.departureTimes[i], stop == null ? null : stop.stop_name));
+            }
+        });
+        assertThat(expected.size(), greaterThan(0));
+        assertThat(actual, equalTo(expected));
+    }
+
+    private static String describe(
+        String tripId, int stopSequence, String stopId, int arrivalTime, int departureTime, String stopName
+    ) {
+        return String.join(",", tripId, String.valueOf(stopSequence), stopId, String.valueOf(arrivalTime),
+            String.valueOf(departureTime), stopName);
+    }
+}
@@ -2,6 +2,11 @@ package com.conveyal.gtfs.storage;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -25,4 +30,31 @@ public class BooleanAsciiGridTest {
         assertTrue(asciiGrid.getValueForCoords(-156.4915454, 20.8751302), "Maui has significant population density.");
         assertFalse(asciiGrid.getValueForCoords(-149.7023417, -44.7672362), "The South Pacific Ocean has low population density.");
     }
-}
\ No newline at end of file
+
+    /**
+     * The binary grid resource should have the same values as the ASCII grid it was made from, and a grid written out
+     * and read back should be unchanged.
+     */
+    @Test
+    public void binaryGridMatchesAsciiGrid() throws IOException {
+        BooleanAsciiGrid asciiGrid;
+        try (InputStream inputStream = BooleanAsciiGrid.class.getResourceAsStream("gpwv3-quarter-boolean.asc")) {
+            asciiGrid = new BooleanAsciiGrid(inputStream, false);
+        }
+        File file = File.createTempFile("grid", ".bin");
+        file.deleteOnExit();
+        asciiGrid.writeBinary(file);
+        BooleanAsciiGrid[] binaryGrids = { BooleanAsciiGrid.forEarthPopulation(), BooleanAsciiGrid.readBinary(file) };
+        for (BooleanAsciiGrid binaryGrid : binaryGrids) {
+            assertEquals(asciiGrid.ncols, binaryGrid.ncols);
+            assertEquals(asciiGrid.nrows, binaryGrid.nrows);
+            assertEquals(asciiGrid.cellsize, binaryGrid.cellsize);
+            for (double lat = -89.9; lat < 90; lat += 0.1) {
+                for (double lon = -179.9; lon < 180; lon += 0.1) {
+                    assertEquals(asciiGrid.getValueForCoords(lon, lat), binaryGrid.getValueForCoords(lon, lat));
+                }
+            }
+        }
+        assertTrue(BooleanAsciiGrid.forEarthPopulation() == BooleanAsciiGrid.forEarthPopulation());
+    }
+}
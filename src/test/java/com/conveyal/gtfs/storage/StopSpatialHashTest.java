@@ -0,0 +1,77 @@
+package com.conveyal.gtfs.storage;
+
+import com.conveyal.gtfs.model.Stop;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static com.conveyal.gtfs.util.Util.fastDistance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class StopSpatialHashTest {
+
+    /**
+     * Queries on the hash should return the same stops as checking every stop, for cells both smaller and larger than
+     * the radius, including clusters of stops within a few meters of each other.
+     */
+    @Test
+    public void canFindNearbyStops() {
+        Random random = new Random(1);
+        List<Stop> stops = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Stop stop = new Stop();
+            stop.stop_id = "stop-" + i;
+            if (i % 10 == 0 && i > 0) {
+                // Put some stops about a meter from the previous one.
+                stop.stop_lat = stops.get(i - 1).stop_lat + random.nextDouble() * 0.00001;
+                stop.stop_lon = stops.get(i - 1).stop_lon + random.nextDouble() * 0.00001;
+            } else {
+                stop.stop_lat = 60 + random.nextDouble() * 0.2;
+                stop.stop_lon = 10.6 + random.nextDouble() * 0.3;
+            }
+            stops.add(stop);
+        }
+        Stop withoutCoordinates = new Stop();
+        withoutCoordinates.stop_id = "no-coordinates";
+        withoutCoordinates.stop_lat = Double.NaN;
+        withoutCoordinates.stop_lon = Double.NaN;
+        stops.add(withoutCoordinates);
+
+        for (double cellMeters : new double[] {2, 250, 5000}) {
+            StopSpatialHash hash = new StopSpatialHash(stops, cellMeters);
+            assertThat(hash.size(), equalTo(2000));
+
+            double lat = 60.1;
+            double lon = 10.7;
+            List<String> withinRadius = stops.subList(0, 2000).stream()
+                .filter(stop -> fastDistance(lat, lon, stop.stop_lat, stop.stop_lon) <= 1500)
+                .sorted(Comparator.comparingDouble(stop -> fastDistance(lat, lon, stop.stop_lat, stop.stop_lon)))
+                .map(stop -> stop.stop_id)
+                .collect(Collectors.toList());
+            List<String> found = hash.withinRadius(lat, lon, 1500).stream()
+                .map(stop -> stop.stop_id)
+                .collect(Collectors.toList());
+            assertThat(found, equalTo(withinRadius));
+
+            int[][] neighbors = hash.findNeighbors(2);
+            for (int s = 0; s < hash.size(); s++) {
+                Stop stop = hash.getStop(s);
+                List<Integer> expected = new ArrayList<>();
+                for (int n = 0; n < hash.size(); n++) {
+                    Stop other = hash.getStop(n);
+                    if (n != s && fastDistance(stop.stop_lat, stop.stop_lon, other.stop_lat, other.stop_lon) <= 2) {
+                        expected.add(n);
+                    }
+                }
+                List<Integer> actual = new ArrayList<>();
+                for (int n : neighbors[s]) actual.add(n);
+                assertThat(actual, equalTo(expected));
+            }
+        }
+    }
+}
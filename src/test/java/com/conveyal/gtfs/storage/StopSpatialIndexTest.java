@@ -0,0 +1,82 @@
+package com.conveyal.gtfs.storage;
+
+import com.conveyal.gtfs.model.Stop;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static com.conveyal.gtfs.util.Util.METERS_PER_DEGREE_LATITUDE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+
+public class StopSpatialIndexTest {
+
+    /**
+     * Queries on the index, including after it is reopened from its file, should return the same stops as checking
+     * every stop.
+     */
+    @Test
+    public void canQueryStops() throws IOException {
+        Random random = new Random(1);
+        List<Stop> stops = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Stop stop = new Stop();
+            stop.stop_id = "stop-" + i;
+            stop.stop_lat = 45 + random.nextDouble() * 0.2;
+            stop.stop_lon = -122.8 + random.nextDouble() * 0.3;
+            stops.add(stop);
+        }
+        Stop withoutCoordinates = new Stop();
+        withoutCoordinates.stop_id = "no-coordinates";
+        withoutCoordinates.stop_lat = Double.NaN;
+        withoutCoordinates.stop_lon = Double.NaN;
+        stops.add(withoutCoordinates);
+
+        File file = File.createTempFile("stops", ".index");
+        file.deleteOnExit();
+        StopSpatialIndex.write(stops, file).close();
+        StopSpatialIndex index = new StopSpatialIndex(file);
+        assertThat(index.size(), equalTo(2000));
+        stops.remove(withoutCoordinates);
+
+        Envelope envelope = new Envelope(-122.7, -122.65, 45.05, 45.1);
+        List<String> inEnvelope = stops.stream()
+            .filter(stop -> envelope.contains(stop.stop_lon, stop.stop_lat))
+            .map(stop -> stop.stop_id)
+            .collect(Collectors.toList());
+        assertThat(index.query(envelope), containsInAnyOrder(inEnvelope.toArray()));
+
+        double lat = 45.1;
+        double lon = -122.6;
+        Comparator<Stop> byDistance = Comparator.comparingDouble(stop -> distance(lat, lon, stop));
+        List<String> withinRadius = stops.stream()
+            .filter(stop -> distance(lat, lon, stop) <= 1500)
+            .sorted(byDistance)
+            .map(stop -> stop.stop_id)
+            .collect(Collectors.toList());
+        assertThat(index.withinRadius(lat, lon, 1500), equalTo(withinRadius));
+
+        List<String> nearest = stops.stream()
+            .sorted(byDistance)
+            .limit(10)
+            .map(stop -> stop.stop_id)
+            .collect(Collectors.toList());
+        assertThat(index.nearest(lat, lon, 10), equalTo(nearest));
+        assertThat(index.nearest(lat, lon, 5000).size(), equalTo(2000));
+        index.close();
+    }
+
+    private static double distance(double lat, double lon, Stop stop) {
+        double dx = (stop.stop_lon - lon) * Math.cos(Math.toRadians(lat));
+        double dy = stop.stop_lat - lat;
+        return Math.sqrt(dx * dx + dy * dy) * METERS_PER_DEGREE_LATITUDE;
+    }
+}
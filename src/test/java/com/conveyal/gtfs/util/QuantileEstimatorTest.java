@@ -0,0 +1,59 @@
+package com.conveyal.gtfs.util;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class QuantileEstimatorTest {
+
+    /**
+     * Up to the number of values kept, the estimate should be the same as the percentile from DescriptiveStatistics,
+     * which MisplacedStopValidator used before.
+     */
+    @Test
+    public void matchesDescriptiveStatisticsForFewValues() {
+        Random random = new Random(1);
+        for (int n : new int[] {1, 2, 3, 7, 10, 11, 100, QuantileEstimator.EXACT_VALUES}) {
+            for (double percentile : new double[] {10, 50, 90}) {
+                QuantileEstimator estimator = new QuantileEstimator(percentile);
+                DescriptiveStatistics stats = new DescriptiveStatistics();
+                for (int i = 0; i < n; i++) {
+                    double value = random.nextGaussian();
+                    estimator.add(value);
+                    stats.addValue(value);
+                }
+                assertThat(estimator.getQuantile(), equalTo(stats.getPercentile(percentile)));
+                assertThat(estimator.getMin(), equalTo(stats.getMin()));
+                assertThat(estimator.getMax(), equalTo(stats.getMax()));
+            }
+        }
+        assertThat(Double.isNaN(new QuantileEstimator(10).getQuantile()), is(true));
+    }
+
+    /** Beyond the number of values kept, the estimate should be close to the exact percentile. */
+    @Test
+    public void canEstimateQuantilesOfManyValues() {
+        Random random = new Random(2);
+        QuantileEstimator lo = new QuantileEstimator(10);
+        QuantileEstimator hi = new QuantileEstimator(90);
+        DescriptiveStatistics stats = new DescriptiveStatistics();
+        for (int i = 0; i < 200_000; i++) {
+            // Values clustered as stops are in a city, with a few far away.
+            double value = i % 1000 == 0 ? random.nextDouble() * 180 - 90 : 45 + random.nextGaussian() * 0.1;
+            lo.add(value);
+            hi.add(value);
+            stats.addValue(value);
+        }
+        assertThat(lo.getQuantile(), closeTo(stats.getPercentile(10), 0.02));
+        assertThat(hi.getQuantile(), closeTo(stats.getPercentile(90), 0.02));
+        assertThat(lo.getMin(), equalTo(stats.getMin()));
+        assertThat(hi.getMax(), equalTo(stats.getMax()));
+        assertThat(lo.getCount(), equalTo(200_000L));
+    }
+}
@@ -4,6 +4,10 @@ import com.conveyal.gtfs.model.Calendar;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class ServiceValidatorTest {
@@ -15,4 +19,31 @@ public class ServiceValidatorTest {
         calendar.tuesday = 1;
         assertThat(ServiceValidator.isCalendarUsedDuringWeek(calendar), CoreMatchers.is(true));
     }
+
+    /**
+     * The sweep over block intervals should find the same overlapping pairs, in the same order, as comparing every pair.
+     * This includes intervals that share start or end times and bad intervals that end before they start.
+     */
+    @Test
+    public void canFindOverlappingIntervals() {
+        Random random = new Random(42);
+        for (int test = 0; test < 100; test++) {
+            int count = random.nextInt(50);
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = random.nextInt(100) * 60;
+                ends[i] = starts[i] + (random.nextInt(40) - 5) * 60;
+            }
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    if (ends[i] > starts[j] && ends[j] > starts[i]) expected.add(i + "-" + j);
+                }
+            }
+            List<String> found = new ArrayList<>();
+            for (int[] pair : ServiceValidator.findOverlappingPairs(starts, ends)) found.add(pair[0] + "-" + pair[1]);
+            assertThat(found, CoreMatchers.equalTo(expected));
+        }
+    }
 }